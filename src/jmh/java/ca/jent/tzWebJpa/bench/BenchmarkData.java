@@ -0,0 +1,42 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * Same Temporal values for every benchmark.
+ */
+final class BenchmarkData {
+	
+	static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+	static final Instant INSTANT = Instant.parse("2017-03-12T08:59:59.123Z");
+	static final LocalDate LOCAL_DATE = LocalDate.of(2017, 3, 12);
+	static final LocalTime LOCAL_TIME = LocalTime.of(1, 59, 59, 123_000_000);
+	
+	private BenchmarkData() {}
+	
+	static Temporal temporal(int i) {
+		Temporal temporal = new Temporal();
+		Instant instant = INSTANT.plusSeconds(i * 60L);
+		temporal.setLocalDate(LOCAL_DATE.plusDays(i % 365));
+		temporal.setLocalTime(LOCAL_TIME.plusMinutes(i));
+		temporal.setInstant(instant);
+		temporal.setZoneId(EDMONTON);
+		temporal.setZoneOffset(EDMONTON.getRules().getOffset(instant));
+		return temporal;
+	}
+	
+	static List<Temporal> temporals(int count) {
+		List<Temporal> temporals = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			temporals.add(temporal(i));
+		}
+		return temporals;
+	}
+}
@@ -0,0 +1,152 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jent.tzWebJpa.converter.EpochDayConverter;
+import ca.jent.tzWebJpa.converter.EpochMicrosConverter;
+import ca.jent.tzWebJpa.converter.InstantConverter;
+import ca.jent.tzWebJpa.converter.LocalDateConverter;
+import ca.jent.tzWebJpa.converter.LocalTimeConverter;
+import ca.jent.tzWebJpa.converter.NanoOfDayConverter;
+import ca.jent.tzWebJpa.converter.ZoneIdConverter;
+import ca.jent.tzWebJpa.converter.ZoneOffsetConverter;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Both directions of every AttributeConverter (ZoneIdConverter uses a ZoneDictionary of in-memory codes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ConverterBenchmark {
+	
+	private final InstantConverter instantConverter = new InstantConverter();
+	private final LocalDateConverter localDateConverter = new LocalDateConverter();
+	private final LocalTimeConverter localTimeConverter = new LocalTimeConverter();
+	private final ZoneIdConverter zoneIdConverter = new ZoneIdConverter(new ZoneDictionary());
+	private final ZoneOffsetConverter zoneOffsetConverter = new ZoneOffsetConverter();
+	private final EpochDayConverter epochDayConverter = new EpochDayConverter();
+	private final NanoOfDayConverter nanoOfDayConverter = new NanoOfDayConverter();
+	private final EpochMicrosConverter epochMicrosConverter = new EpochMicrosConverter();
+	
+	private final ZoneOffset zoneOffset = ZoneOffset.ofHours(-7);
+	
+	private Timestamp timestamp;
+	private Date date;
+	private Time time;
+	private Integer zoneCode;
+	private Integer offsetSeconds;
+	private Integer epochDay;
+	private Long nanoOfDay;
+	private Long epochMicros;
+	
+	@Setup
+	public void setup() {
+		timestamp = instantConverter.convertToDatabaseColumn(BenchmarkData.INSTANT);
+		date = localDateConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_DATE);
+		time = localTimeConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_TIME);
+		zoneCode = zoneIdConverter.convertToDatabaseColumn(BenchmarkData.EDMONTON);
+		offsetSeconds = zoneOffsetConverter.convertToDatabaseColumn(zoneOffset);
+		epochDay = epochDayConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_DATE);
+		nanoOfDay = nanoOfDayConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_TIME);
+		epochMicros = epochMicrosConverter.convertToDatabaseColumn(BenchmarkData.INSTANT);
+	}
+	
+	@Benchmark
+	public Object instantToDatabase() {
+		return instantConverter.convertToDatabaseColumn(BenchmarkData.INSTANT);
+	}
+	
+	@Benchmark
+	public Object instantToEntity() {
+		return instantConverter.convertToEntityAttribute(timestamp);
+	}
+	
+	@Benchmark
+	public Object localDateToDatabase() {
+		return localDateConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_DATE);
+	}
+	
+	@Benchmark
+	public Object localDateToEntity() {
+		return localDateConverter.convertToEntityAttribute(date);
+	}
+	
+	@Benchmark
+	public Object localTimeToDatabase() {
+		return localTimeConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_TIME);
+	}
+	
+	@Benchmark
+	public Object localTimeToEntity() {
+		return localTimeConverter.convertToEntityAttribute(time);
+	}
+	
+	@Benchmark
+	public Object zoneIdToDatabase() {
+		return zoneIdConverter.convertToDatabaseColumn(BenchmarkData.EDMONTON);
+	}
+	
+	@Benchmark
+	public Object zoneIdToEntity() {
+		return zoneIdConverter.convertToEntityAttribute(zoneCode);
+	}
+	
+	@Benchmark
+	public Object zoneOffsetToDatabase() {
+		return zoneOffsetConverter.convertToDatabaseColumn(zoneOffset);
+	}
+	
+	@Benchmark
+	public Object zoneOffsetToEntity() {
+		return zoneOffsetConverter.convertToEntityAttribute(offsetSeconds);
+	}
+	
+	@Benchmark
+	public Object epochDayToDatabase() {
+		return epochDayConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_DATE);
+	}
+	
+	@Benchmark
+	public Object epochDayToEntity() {
+		return epochDayConverter.convertToEntityAttribute(epochDay);
+	}
+	
+	@Benchmark
+	public Object nanoOfDayToDatabase() {
+		return nanoOfDayConverter.convertToDatabaseColumn(BenchmarkData.LOCAL_TIME);
+	}
+	
+	@Benchmark
+	public Object nanoOfDayToEntity() {
+		return nanoOfDayConverter.convertToEntityAttribute(nanoOfDay);
+	}
+	
+	@Benchmark
+	public Object epochMicrosToDatabase() {
+		return epochMicrosConverter.convertToDatabaseColumn(BenchmarkData.INSTANT);
+	}
+	
+	@Benchmark
+	public Object epochMicrosToEntity() {
+		return epochMicrosConverter.convertToEntityAttribute(epochMicros);
+	}
+}
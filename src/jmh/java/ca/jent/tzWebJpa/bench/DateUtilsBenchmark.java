@@ -0,0 +1,107 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jent.tzWebJpa.utils.DateUtils;
+
+/**
+ * Every DateUtils conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class DateUtilsBenchmark {
+	
+	private final LocalDateTime localDateTime = LocalDateTime.of(BenchmarkData.LOCAL_DATE, BenchmarkData.LOCAL_TIME);
+	private final ZonedDateTime zonedDateTime = ZonedDateTime.ofInstant(BenchmarkData.INSTANT, BenchmarkData.EDMONTON);
+	private final java.util.Date utilDate = java.util.Date.from(BenchmarkData.INSTANT);
+	private final java.sql.Date sqlDate = java.sql.Date.valueOf(BenchmarkData.LOCAL_DATE);
+	private final java.sql.Time sqlTime = java.sql.Time.valueOf(BenchmarkData.LOCAL_TIME);
+	private final java.sql.Timestamp sqlTimestamp = java.sql.Timestamp.from(BenchmarkData.INSTANT);
+	private final long epochMicros = DateUtils.asEpochMicros(BenchmarkData.INSTANT);
+	
+	@Benchmark
+	public Object localDateAsUtilDate() {
+		return DateUtils.asJavaUtil_Date(BenchmarkData.LOCAL_DATE);
+	}
+	
+	@Benchmark
+	public Object localDateTimeAsUtilDate() {
+		return DateUtils.asJavaUtil_Date(localDateTime);
+	}
+	
+	@Benchmark
+	public Object zonedDateTimeAsUtilDate() {
+		return DateUtils.asJavaUtil_Date(zonedDateTime);
+	}
+	
+	@Benchmark
+	public Object localTimeAsSqlTime() {
+		return DateUtils.asJavaSql_Time(BenchmarkData.LOCAL_TIME);
+	}
+	
+	@Benchmark
+	public Object localDateTimeAsSqlTimestamp() {
+		return DateUtils.asJavaSql_Timestamp(localDateTime);
+	}
+	
+	@Benchmark
+	public Object instantAsSqlTimestamp() {
+		return DateUtils.asJavaSql_Timestamp(BenchmarkData.INSTANT);
+	}
+	
+	@Benchmark
+	public Object utilDateAsLocalDate() {
+		return DateUtils.asJavaTime_LocalDate(utilDate);
+	}
+	
+	@Benchmark
+	public Object sqlDateAsLocalDate() {
+		return DateUtils.asJavaTime_LocalDate(sqlDate);
+	}
+	
+	@Benchmark
+	public Object utilDateAsLocalDateTime() {
+		return DateUtils.asJavaTime_LocalDateTime(utilDate);
+	}
+	
+	@Benchmark
+	public Object utilDateAsZonedDateTime() {
+		return DateUtils.asJavaTime_ZonedDateTime(utilDate);
+	}
+	
+	@Benchmark
+	public Object sqlTimeAsLocalTime() {
+		return DateUtils.asJavaTime_LocalTime(sqlTime);
+	}
+	
+	@Benchmark
+	public Object sqlTimestampAsInstant() {
+		return DateUtils.asJavaTime_Instant(sqlTimestamp);
+	}
+	
+	@Benchmark
+	public long instantAsEpochMicros() {
+		return DateUtils.asEpochMicros(BenchmarkData.INSTANT);
+	}
+	
+	@Benchmark
+	public Object epochMicrosAsInstant() {
+		return DateUtils.asJavaTime_Instant(epochMicros);
+	}
+}
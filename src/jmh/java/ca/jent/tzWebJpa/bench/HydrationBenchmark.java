@@ -0,0 +1,81 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import ca.jent.tzWebJpa.Application;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * Entity hydration through TemporalRepository: load one page of Temporal (new transaction
+ * and persistence context per operation) from an in-memory H2 holding 10,000 rows.
+ * The read-through cache and SQL logging are turned off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class HydrationBenchmark {
+	
+	private static final int ROWS = 10_000;
+	
+	@Param({"sql", "epoch"})
+	private String encoding;
+	
+	@Param({"1", "100"})
+	private int pageSize;
+	
+	private ConfigurableApplicationContext context;
+	private TemporalService temporalService;
+	private long firstId;
+	private long afterId;
+	
+	@Setup(Level.Trial)
+	public void setup() {
+		context = new SpringApplicationBuilder(Application.class)
+				.web(false)
+				.profiles("embedded")
+				.properties("temporal.storage.encoding=" + encoding, 
+							"temporal.datasource.name=bench-" + encoding,
+							"temporal.cache.enabled=false",
+							"temporal.jpa.show-sql=false",
+							"logging.level.root=WARN")
+				.run();
+		temporalService = context.getBean(TemporalService.class);
+		List<Temporal> saved = temporalService.saveAll(BenchmarkData.temporals(ROWS));
+		firstId = saved.get(0).getId() - 1;
+		afterId = firstId;
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+	
+	@Benchmark
+	public List<Temporal> loadPage() {
+		List<Temporal> page = temporalService.getTemporals(afterId, pageSize);
+		// walk the table, start over at the end
+		afterId = page.size() < pageSize ? firstId : page.get(page.size() - 1).getId();
+		return page;
+	}
+}
@@ -0,0 +1,52 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.json.TemporalJsonModule;
+
+/**
+ * JSON serialization of one Temporal with an ObjectMapper configured like the application one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class JsonBenchmark {
+	
+	private ObjectWriter writer;
+	private Temporal temporal;
+	
+	@Setup
+	public void setup() {
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+				.modules(new TemporalJsonModule())
+				.build();
+		writer = objectMapper.writerFor(Temporal.class);
+		temporal = BenchmarkData.temporal(0);
+		temporal.setId(1000L);
+	}
+	
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return writer.writeValueAsBytes(temporal);
+	}
+}
@@ -0,0 +1,63 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jent.tzWebJpa.cache.ReadThroughCache;
+
+/**
+ * ReadThroughCache (temporal.cache.max-size entries) read by 4 threads at once: hits only, and hits
+ * with one miss (and eviction) in eleven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@Threads(4)
+public class ReadThroughCacheBenchmark {
+	
+	private static final int SIZE = 10_000;
+	
+	private final ReadThroughCache<Long, Long> cache = new ReadThroughCache<>("bench", SIZE, 1, TimeUnit.HOURS);
+	private final Function<Long, Long> loader = key -> key;
+	
+	/**
+	 * Each thread reads the keys in turn, from a key of its own
+	 */
+	@State(Scope.Thread)
+	public static class Keys {
+		long next = ThreadLocalRandom.current().nextInt(SIZE);
+	}
+	
+	@Setup
+	public void fill() {
+		for (long key = 0; key < SIZE; key++) {
+			cache.get(key, loader);
+		}
+	}
+	
+	@Benchmark
+	public Object hit(Keys keys) {
+		return cache.get(keys.next++ % SIZE, loader);
+	}
+	
+	@Benchmark
+	public Object hitOrEvict(Keys keys) {
+		return cache.get(keys.next++ % (SIZE + SIZE / 10), loader);
+	}
+}
@@ -0,0 +1,72 @@
+package ca.jent.tzWebJpa.bench;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jent.tzWebJpa.utils.ZoneOffsetResolver;
+
+/**
+ * Offsets of 1024 instants (from 1970 to 2070) with ZoneRules.getOffset versus ZoneOffsetResolver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ZoneOffsetBenchmark {
+	
+	@Param({"America/Edmonton", "Europe/Paris"})
+	private String zone;
+	
+	private ZoneId zoneId;
+	private long[] epochSeconds;
+	private int[] offsetSeconds;
+	
+	@Setup
+	public void setup() {
+		zoneId = ZoneId.of(zone);
+		Random random = new Random(42);
+		epochSeconds = new long[1024];
+		for (int i = 0; i < epochSeconds.length; i++) {
+			epochSeconds[i] = (long) (random.nextDouble() * 3_155_760_000L);
+		}
+		offsetSeconds = new int[epochSeconds.length];
+	}
+	
+	@Benchmark
+	public int[] zoneRules() {
+		for (int i = 0; i < epochSeconds.length; i++) {
+			offsetSeconds[i] = zoneId.getRules().getOffset(Instant.ofEpochSecond(epochSeconds[i])).getTotalSeconds();
+		}
+		return offsetSeconds;
+	}
+	
+	@Benchmark
+	public int[] resolver() {
+		for (int i = 0; i < epochSeconds.length; i++) {
+			offsetSeconds[i] = ZoneOffsetResolver.offsetSecondsOf(zoneId, epochSeconds[i]);
+		}
+		return offsetSeconds;
+	}
+	
+	@Benchmark
+	public int[] resolverBulk() {
+		ZoneOffsetResolver.offsetSecondsOf(zoneId, epochSeconds, offsetSeconds);
+		return offsetSeconds;
+	}
+}
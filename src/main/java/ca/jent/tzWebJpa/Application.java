@@ -1,21 +1,92 @@
 package ca.jent.tzWebJpa;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import ca.jent.tzWebJpa.audit.AuditReport;
+import ca.jent.tzWebJpa.cache.CacheStats;
 import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.importer.ImportJob;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.HibernateMetrics;
+import ca.jent.tzWebJpa.metrics.MetricsRegistry;
+import ca.jent.tzWebJpa.metrics.PoolMetrics;
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+import ca.jent.tzWebJpa.projections.TemporalVersion;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.services.AlreadyRunningException;
+import ca.jent.tzWebJpa.services.DstAuditService;
+import ca.jent.tzWebJpa.services.TemporalExportService;
+import ca.jent.tzWebJpa.services.TemporalFeed;
+import ca.jent.tzWebJpa.services.TemporalImportService;
+import ca.jent.tzWebJpa.services.TemporalReplica;
+import ca.jent.tzWebJpa.services.TemporalRetentionService;
 import ca.jent.tzWebJpa.services.TemporalService;
+import ca.jent.tzWebJpa.services.TemporalWriteBuffer;
+import ca.jent.tzWebJpa.utils.ZoneOffsetResolver;
 
 /**
  * A quick and "dirty" project setup to do some testing for java.time package (Java 8).
@@ -44,31 +115,598 @@ import ca.jent.tzWebJpa.services.TemporalService;
 @RestController
 public class Application {
 	
+	private static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+	/** bytes of /temporal/all and /temporal/stream sent at a time */
+	private static final int STREAM_BUFFER = 8192;
+	
 	@Autowired
 	private TemporalService temporalService;
 	
+	@Autowired
+	@Lazy
+	private TemporalExportService exportService;
+	
+	@Autowired
+	@Lazy
+	private TemporalImportService importService;
+	
+	@Autowired
+	@Lazy
+	private DstAuditService auditService;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private MetricsRegistry metricsRegistry;
+	
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+	
+	/** connection pool (see DataStoreJpaConfiguration) */
+	@Autowired
+	@Qualifier("targetDataSource")
+	private DataSource targetDataSource;
+	
+	@Autowired
+	private TemporalFeed feed;
+	
+	@Value("${temporal.feed.timeout-ms:0}")
+	private long feedTimeout;
+	
+	@Value("${temporal.export.timeout-ms:0}")
+	private long exportTimeout;
+	
+	@Value("${temporal.stream.timeout-ms:0}")
+	private long streamTimeout;
+	
+	/** null unless temporal.write-behind.enabled */
+	@Autowired(required=false)
+	private TemporalWriteBuffer writeBuffer;
+	
+	/** null unless temporal.replica.enabled */
+	@Autowired(required=false)
+	private TemporalReplica replica;
+	
+	@Autowired
+	private TemporalRetentionService retentionService;
+	
+	/** see AsyncConfiguration */
+	@Value("${temporal.async.enabled:true}")
+	private boolean asyncEnabled;
+	
+	@Autowired
+	@Qualifier("lookupExecutor")
+	private Executor lookupExecutor;
 	
+	@Autowired
+	@Qualifier("scanExecutor")
+	private Executor scanExecutor;
+	
+	@Autowired
+	@Qualifier("writeExecutor")
+	private Executor writeExecutor;
+	
+	
+	/**
+	 * The Temporal with its ETag (ID and version) and Last-Modified.  A conditional request
+	 * (If-None-Match, else If-Modified-Since) is answered from the version alone (@see TemporalService.getTemporalVersion):
+	 * 304 Not Modified without loading the Temporal when the client copy is current.
+	 */
 	@GetMapping("/temporal/{id}")
-	public Temporal getTemporal(@PathVariable("id") Long id) {
-		return temporalService.getTemporal(id);
+	public CompletableFuture<ResponseEntity<Temporal>> getTemporal(@PathVariable("id") Long id, @RequestHeader HttpHeaders headers) {
+		List<String> ifNoneMatch = headers.getIfNoneMatch();
+		long ifModifiedSince = headers.getIfModifiedSince();
+		return submit(lookupExecutor, () -> {
+			if (!ifNoneMatch.isEmpty() || ifModifiedSince >= 0) {
+				TemporalVersion version = temporalService.getTemporalVersion(id);
+				if (version == null) return ResponseEntity.notFound().build();
+				String eTag = eTag(id, version.getVersion());
+				long lastModified = version.getLastModified().toEpochMilli();
+				if (ifNoneMatch.isEmpty() ? lastModified / 1000 <= ifModifiedSince / 1000 : matches(ifNoneMatch, eTag)) {
+					return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).lastModified(lastModified).build();
+				}
+			}
+			Temporal temporal = temporalService.getTemporal(id);
+			if (temporal == null) return ResponseEntity.notFound().build();
+			return ResponseEntity.ok().eTag(eTag(id, temporal.getVersion())).lastModified(temporal.getLastModified().toEpochMilli()).body(temporal);
+		});
 	}
 	
+	/**
+	 * All Temporal as one chunked JSON array.  Rows are streamed from a database cursor
+	 * and written as they are read so memory does not grow with the table size.
+	 * @throws RejectedExecutionException (503) when the scan executor queue is full
+	 */
 	@GetMapping("/temporal/all")
-	public List<Temporal> getAll() {
-		return temporalService.getTemporals();
+	public ResponseEntity<ResponseBodyEmitter> getAll() {
+		return stream(MediaType.APPLICATION_JSON_UTF8, out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				ObjectWriter writer = temporalWriter();
+				generator.writeStartArray();
+				temporalService.streamTemporals(temporal -> write(writer, generator, temporal));
+				generator.writeEndArray();
+			}
+		});
+	}
+	
+	/**
+	 * Keyset pagination for clients that cannot consume a stream:
+	 * /temporal/all?afterId=1000&limit=100  (afterId is the ID of the last Temporal received).
+	 */
+	@GetMapping(value="/temporal/all", params="limit")
+	public CompletableFuture<List<Temporal>> getAll(@RequestParam(name="afterId", required=false) Long afterId, @RequestParam("limit") int limit) {
+		return submit(scanExecutor, () -> temporalService.getTemporals(afterId, limit));
 	}
 	
+	/**
+	 * All Temporal as newline delimited JSON (one Temporal per line).
+	 * @throws RejectedExecutionException (503) when the scan executor queue is full
+	 */
+	@GetMapping("/temporal/stream")
+	public ResponseEntity<ResponseBodyEmitter> stream() {
+		return stream(APPLICATION_NDJSON, out -> {
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+				ObjectWriter writer = temporalWriter();
+				generator.setRootValueSeparator(null); // we write our own '\n' separator
+				temporalService.streamTemporals(temporal -> {
+					write(writer, generator, temporal);
+					writeNewLine(generator);
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Write the body on the scan executor, sent in STREAM_BUFFER chunks.  Like the export, the response has its
+	 * own timeout (temporal.stream.timeout-ms, none by default) rather than temporal.async.timeout-ms: the whole
+	 * table takes as long as it takes.
+	 */
+	private ResponseEntity<ResponseBodyEmitter> stream(MediaType contentType, StreamingResponseBody body) {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeout);
+		OutputStream sink = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] {(byte) b}, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+				emitter.send(Arrays.copyOfRange(bytes, offset, offset + length), MediaType.APPLICATION_OCTET_STREAM);
+			}
+		};
+		scanExecutor.execute(() -> {
+			try {
+				try (OutputStream out = new BufferedOutputStream(sink, STREAM_BUFFER)) {
+					body.writeTo(out);
+				}
+				emitter.complete();
+			} catch (IOException | RuntimeException e) {
+				emitter.completeWithError(e);
+			}
+		});
+		return ResponseEntity.ok().contentType(contentType).body(emitter);
+	}
+	
+	/**
+	 * All Temporal as a column file (@see ca.jent.tzWebJpa.export.TemporalColumns) to be read with
+	 * TemporalColumnReader.  The file is built in the temporary directory on the scan executor and each chunk
+	 * is sent as soon as it is written, then the file is deleted.  Like the feed, the response has its own
+	 * timeout (temporal.export.timeout-ms) rather than temporal.async.timeout-ms.
+	 * @throws RejectedExecutionException (503) when the scan executor queue is full
+	 */
+	@GetMapping("/temporal/export")
+	public ResponseEntity<ResponseBodyEmitter> export() {
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportTimeout);
+		WritableByteChannel sink = new WritableByteChannel() {
+			@Override
+			public int write(ByteBuffer source) throws IOException {
+				byte[] bytes = new byte[source.remaining()];
+				source.get(bytes);
+				emitter.send(bytes, MediaType.APPLICATION_OCTET_STREAM);
+				return bytes.length;
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		scanExecutor.execute(() -> {
+			try {
+				Path file = Files.createTempFile("temporals", ".tzc");
+				try {
+					exportService.export(file, sink);
+				} finally {
+					Files.deleteIfExists(file);
+				}
+				emitter.complete();
+			} catch (IOException | RuntimeException e) {
+				emitter.completeWithError(e);
+			}
+		});
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"temporals.tzc\"")
+				.body(emitter);
+	}
+	
+	/**
+	 * Server-sent events of the Temporal created (@see TemporalFeed): event "temporal" with the ID to resume
+	 * from as event ID (not the ID of the Temporal: a Temporal of a smaller ID can commit later).  A client resumes
+	 * with the Last-Event-ID header (sent by an EventSource when it reconnects) or afterId: the Temporal of a
+	 * greater ID are sent first, some of them possibly again.
+	 * @throws RejectedExecutionException (503) when the feed executor has no thread left
+	 */
+	@GetMapping(value="/temporal/feed", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter feed(@RequestHeader(name="Last-Event-ID", required=false) Long lastEventId, 
+			@RequestParam(name="afterId", required=false) Long afterId) {
+		SseEmitter emitter = new SseEmitter(feedTimeout);
+		TemporalFeed.Subscription subscription = feed.subscribe(lastEventId != null ? lastEventId : afterId, new TemporalFeed.Subscriber() {
+			@Override
+			public void send(Temporal temporal, long resumeId) throws IOException {
+				send(SseEmitter.event().id(String.valueOf(resumeId)).name("temporal").data(temporal, MediaType.APPLICATION_JSON));
+			}
+			
+			@Override
+			public void heartbeat() throws IOException {
+				send(SseEmitter.event().comment("heartbeat"));
+			}
+			
+			private void send(SseEmitter.SseEventBuilder event) throws IOException {
+				try {
+					emitter.send(event);
+				} catch (IOException e) {
+					emitter.completeWithError(e);
+					throw e;
+				} catch (IllegalStateException e) {
+					// completed (timeout, client gone)
+					throw new IOException(e);
+				}
+			}
+		});
+		emitter.onCompletion(subscription::cancel);
+		emitter.onTimeout(subscription::cancel);
+		return emitter;
+	}
+	
+	/**
+	 * With the write-behind buffer (temporal.write-behind.enabled), the Temporal is queued and
+	 * 202 Accepted returned right away without a body: its ID is only assigned when written.
+	 */
 	@GetMapping("/temporal/create")
-	public Temporal create() {
-		Temporal temporal = new Temporal();
-		temporal.setLocalDate(LocalDate.now());
-		temporal.setLocalTime(LocalTime.now());
-		temporal.setInstant(Instant.now());
-		temporal.setZoneId(ZoneId.systemDefault());
-		temporal.setZoneOffset(ZonedDateTime.now().getOffset());
+	public CompletableFuture<ResponseEntity<Temporal>> create() {
+		if (writeBuffer != null) {
+			writeBuffer.add(newTemporal());
+			return CompletableFuture.completedFuture(ResponseEntity.accepted().build());
+		}
+		return submit(writeExecutor, () -> ResponseEntity.ok(temporalService.save(newTemporal())));
+	}
+	
+	private static Temporal newTemporal() {
+		// one reading of the clock for every field
+		Instant now = Instant.now();
+		ZoneId zoneId = ZoneId.systemDefault();
+		ZoneOffset zoneOffset = ZoneOffsetResolver.offsetOf(zoneId, now);
+		LocalDateTime localDateTime = LocalDateTime.ofEpochSecond(now.getEpochSecond(), now.getNano(), zoneOffset);
 		
-		Temporal entity = temporalService.save(temporal);
-		return entity;
+		Temporal temporal = new Temporal();
+		temporal.setLocalDate(localDateTime.toLocalDate());
+		temporal.setLocalTime(localDateTime.toLocalTime());
+		temporal.setInstant(now);
+		temporal.setZoneId(zoneId);
+		temporal.setZoneOffset(zoneOffset);
+		return temporal;
+	}
+
+	/**
+	 * Bulk ingest: body is a JSON array of Temporal (java.time values as ISO-8601 strings).
+	 * All Temporal are inserted in one transaction using JDBC batching.
+	 * @return the generated IDs in the same order as the given Temporal
+	 */
+	@PostMapping("/temporal/batch")
+	public CompletableFuture<List<Long>> batch(@RequestBody List<Temporal> temporals) {
+		return submit(writeExecutor, () -> temporalService.saveAll(temporals).stream()
+				.map(Temporal::getId)
+				.collect(Collectors.toList()));
+	}
+	
+	/**
+	 * Start the import of a CSV file of the import directory, e.g. /temporal/import?file=backfill-2016.csv
+	 * (@see TemporalImportService).  Importing a file again resumes where the last import stopped.
+	 * @return 202 Accepted with the progress of the import (also on GET /temporal/import)
+	 */
+	@PostMapping("/temporal/import")
+	public ResponseEntity<ImportJob> startImport(@RequestParam("file") String file) throws IOException {
+		return ResponseEntity.accepted().body(importService.start(file));
+	}
+	
+	@GetMapping("/temporal/import")
+	public ResponseEntity<ImportJob> importProgress() {
+		ImportJob job = importService.getJob();
+		return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+	}
+	
+	/**
+	 * Start (or resume) the DST consistency audit of all the Temporal (@see DstAuditService).
+	 * @return 202 Accepted with the report of the audit so far (also on GET /temporal/audit)
+	 */
+	@PostMapping("/temporal/audit")
+	public ResponseEntity<AuditReport> startAudit() {
+		return ResponseEntity.accepted().body(auditService.start());
+	}
+	
+	@GetMapping("/temporal/audit")
+	public ResponseEntity<AuditReport> auditReport() {
+		AuditReport report = auditService.getReport();
+		return report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report);
+	}
+	
+	/**
+	 * Stop the running audit once its partitions in progress are done: the next POST /temporal/audit resumes it.
+	 */
+	@DeleteMapping("/temporal/audit")
+	public ResponseEntity<Void> stopAudit() {
+		return auditService.stop() ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+	}
+	
+	/**
+	 * Number of Temporal of each monthly partition of TEMPORALS (temporal.partitioning.enabled).
+	 */
+	@GetMapping("/temporal/partitions")
+	public ResponseEntity<Map<String, Long>> partitions() {
+		Map<String, Long> counts = temporalService.countByPartition();
+		return counts == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(counts);
+	}
+	
+	/**
+	 * Drop the partition of a month (all its Temporal), e.g. DELETE /temporal/partitions/2016-01
+	 * @return the number of Temporal dropped, 404 when the month has no partition or TEMPORALS is not partitioned,
+	 * 503 when the partitions stay in use for temporal.partitioning.drop-timeout-ms
+	 */
+	@DeleteMapping("/temporal/partitions/{month}")
+	public ResponseEntity<Long> dropPartition(@PathVariable("month") YearMonth month) {
+		if (!temporalService.isPartitioned()) return ResponseEntity.notFound().build();
+		Long dropped = temporalService.dropPartition(month);
+		return dropped == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(dropped);
+	}
+	
+	/**
+	 * Start the purge of the Temporal having an instant before the given one, e.g. POST /temporal/purge?before=2010-01-01T00:00:00Z,
+	 * before the retention horizon (temporal.retention.horizon-days ago) when not given (@see TemporalRetentionService).
+	 * @return 202 Accepted with the retention statistics (also on GET /temporal/purge), 409 if a purge is running
+	 */
+	@PostMapping("/temporal/purge")
+	public ResponseEntity<Map<String, Long>> startPurge(@RequestParam(name="before", required=false) Instant before) {
+		retentionService.start(before);
+		return ResponseEntity.accepted().body(retentionService.getStats());
+	}
+	
+	@GetMapping("/temporal/purge")
+	public Map<String, Long> purgeStats() {
+		return retentionService.getStats();
+	}
+	
+	/**
+	 * Bulk delete of the Temporal having an ID in [from, to), e.g. DELETE /temporal/ids?from=1000&to=2000
+	 * (in chunks of temporal.retention.chunk-ids IDs, each one committed on its own).
+	 * @return the number of Temporal deleted
+	 */
+	@DeleteMapping("/temporal/ids")
+	public CompletableFuture<Long> deleteByIdRange(@RequestParam("from") long fromId, @RequestParam("to") long toId) {
+		return submit(writeExecutor, () -> retentionService.deleteByIdRange(fromId, toId));
+	}
+	
+	/**
+	 * Bulk delete: body is a JSON array of IDs (unknown IDs are ignored).
+	 * @return the number of Temporal deleted
+	 */
+	@PostMapping("/temporal/delete")
+	public CompletableFuture<Long> deleteByIds(@RequestBody List<Long> ids) {
+		return submit(writeExecutor, () -> retentionService.deleteByIds(ids));
+	}
+	
+	/**
+	 * Keyset page of Temporal with an instant in [from, to) ordered by (instant, id), e.g.
+	 * /temporal/range?from=2017-03-12T00:00:00Z&to=2017-03-13T00:00:00Z&zone=America/Edmonton&limit=100
+	 * For the next page add afterInstant and afterId with the values of the last Temporal received.
+	 */
+	@GetMapping("/temporal/range")
+	public CompletableFuture<List<Temporal>> findByInstantRange(@RequestParam("from") Instant from, @RequestParam("to") Instant to,
+			@RequestParam(name="zone", required=false) ZoneId zoneId,
+			@RequestParam(name="afterInstant", required=false) Instant afterInstant,
+			@RequestParam(name="afterId", required=false) Long afterId,
+			@RequestParam(name="limit", defaultValue="100") int limit) {
+		return submit(scanExecutor, () -> temporalService.findTemporalsByInstantRange(from, to, zoneId, afterInstant, afterId, limit));
+	}
+	
+	/**
+	 * Keyset page of Temporal with a localDate in [from, to] ordered by (localDate, id), e.g.
+	 * /temporal/dates?from=2017-03-01&to=2017-03-31&limit=100
+	 * For the next page add afterDate and afterId with the values of the last Temporal received.
+	 */
+	@GetMapping("/temporal/dates")
+	public CompletableFuture<List<Temporal>> findByLocalDateRange(@RequestParam("from") @DateTimeFormat(iso=ISO.DATE) LocalDate from, 
+			@RequestParam("to") @DateTimeFormat(iso=ISO.DATE) LocalDate to,
+			@RequestParam(name="zone", required=false) ZoneId zoneId,
+			@RequestParam(name="afterDate", required=false) @DateTimeFormat(iso=ISO.DATE) LocalDate afterDate,
+			@RequestParam(name="afterId", required=false) Long afterId,
+			@RequestParam(name="limit", defaultValue="100") int limit) {
+		return submit(scanExecutor, () -> temporalService.findTemporalsByLocalDateRange(from, to, zoneId, afterDate, afterId, limit));
+	}
+	
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public String badRequest(IllegalArgumentException e) {
+		return e.getMessage();
+	}
+	
+	/**
+	 * Number of Temporal by localDate and zone, e.g. /temporal/counts/daily?from=2017-01-01T00:00:00Z&to=2018-01-01T00:00:00Z
+	 * from (inclusive), to (exclusive) and zone are optional.
+	 */
+	@GetMapping("/temporal/counts/daily")
+	public CompletableFuture<List<DailyCount>> countByLocalDate(@RequestParam(name="from", required=false) Instant from, 
+			@RequestParam(name="to", required=false) Instant to,
+			@RequestParam(name="zone", required=false) ZoneId zoneId) {
+		return submit(scanExecutor, () -> temporalService.countByLocalDate(from, to, zoneId));
+	}
+	
+	/**
+	 * Number of Temporal by zone and offset (daylight saving or standard), e.g. /temporal/counts/offsets?zone=America/Edmonton
+	 * from (inclusive), to (exclusive) and zone are optional.
+	 */
+	@GetMapping("/temporal/counts/offsets")
+	public CompletableFuture<List<OffsetCount>> countByZoneOffset(@RequestParam(name="from", required=false) Instant from, 
+			@RequestParam(name="to", required=false) Instant to,
+			@RequestParam(name="zone", required=false) ZoneId zoneId) {
+		return submit(scanExecutor, () -> temporalService.countByZoneOffset(from, to, zoneId));
+	}
+	
+	/**
+	 * Number of Temporal by UTC hour, e.g. /temporal/counts/hourly?from=2017-03-12T00:00:00Z&to=2017-03-13T00:00:00Z
+	 * from (inclusive), to (exclusive) and zone are optional.
+	 */
+	@GetMapping("/temporal/counts/hourly")
+	public CompletableFuture<List<HourlyCount>> countByHour(@RequestParam(name="from", required=false) Instant from, 
+			@RequestParam(name="to", required=false) Instant to,
+			@RequestParam(name="zone", required=false) ZoneId zoneId) {
+		return submit(scanExecutor, () -> temporalService.countByHour(from, to, zoneId));
+	}
+	
+	/**
+	 * An import, an audit or a purge is already running
+	 */
+	@ExceptionHandler(AlreadyRunningException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public String conflict(AlreadyRunningException e) {
+		return e.getMessage();
+	}
+	
+	/**
+	 * A Temporal saved with a version other than the one of its row (changed by someone else since it was read).
+	 * saveAll flushes the EntityManager itself, so its failure is not translated to Spring's exception.
+	 */
+	@ExceptionHandler({OptimisticLockingFailureException.class, OptimisticLockException.class})
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public String conflict(RuntimeException e) {
+		return "Temporal changed since it was read: get it again and retry.";
+	}
+	
+	/**
+	 * The executor queue is full: tell the client to come back later rather than queueing it.
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<String> serviceUnavailable(RejectedExecutionException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body("Too many requests in progress, try again later.");
+	}
+	
+	/**
+	 * A partition drop that waited too long for the reads and writes in progress
+	 */
+	@ExceptionHandler(CannotAcquireLockException.class)
+	public ResponseEntity<String> serviceUnavailable(CannotAcquireLockException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(e.getMessage());
+	}
+	
+	@GetMapping("/temporal/cache/stats")
+	public List<CacheStats> cacheStats() {
+		return temporalService.getCacheStats();
+	}
+	
+	/**
+	 * Runs the task on the given executor; the servlet thread is released until the result is ready.
+	 * The exception thrown by the task is not wrapped so it reaches the @ExceptionHandler as is.
+	 * When temporal.async.enabled=false, the task runs on the calling (servlet) thread.
+	 * @throws RejectedExecutionException when the executor queue is full
+	 */
+	private <T> CompletableFuture<T> submit(Executor executor, Supplier<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Runnable runnable = () -> {
+			try {
+				result.complete(task.get());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+		if (asyncEnabled) {
+			executor.execute(runnable);
+		} else {
+			runnable.run();
+		}
+		return result;
+	}
+	
+	/**
+	 * Latencies (microseconds) of the services, endpoints and connection acquisition, 
+	 * connection pool state, converter call counts and Hibernate statistics.
+	 */
+	@GetMapping("/metrics")
+	public Map<String, Object> metrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("services", metricsRegistry.snapshots(MetricsRegistry.SERVICE));
+		metrics.put("endpoints", metricsRegistry.snapshots(MetricsRegistry.ENDPOINT));
+		metrics.put("jdbc", metricsRegistry.snapshots(MetricsRegistry.JDBC));
+		metrics.put("pool", PoolMetrics.snapshot(targetDataSource));
+		metrics.put("converters", ConverterMetrics.snapshot());
+		metrics.put("hibernate", HibernateMetrics.snapshot(entityManagerFactory.unwrap(SessionFactory.class).getStatistics()));
+		metrics.put("caches", temporalService.getCacheStats());
+		if (writeBuffer != null) {
+			metrics.put("writeBehind", writeBuffer.getStats());
+		}
+		metrics.put("feed", feed.getStats());
+		if (replica != null) {
+			metrics.put("replica", replica.getStats());
+		}
+		metrics.put("retention", retentionService.getStats());
+		return metrics;
+	}
+	
+	private static String eTag(Long id, long version) {
+		return "\"" + id + "-" + version + "\"";
+	}
+	
+	/**
+	 * @return true if one of the If-None-Match entity tags (weak or not) is the eTag or is *
+	 */
+	private static boolean matches(List<String> ifNoneMatch, String eTag) {
+		for (String header : ifNoneMatch) {
+			for (String tag : header.split(",")) {
+				tag = tag.trim();
+				if (tag.startsWith("W/")) tag = tag.substring(2);
+				if (tag.equals(eTag) || tag.equals("*")) return true;
+			}
+		}
+		return false;
+	}
+	
+	private ObjectWriter temporalWriter() {
+		// do not flush after each Temporal; let the generator buffer fill up
+		return objectMapper.writerFor(TemporalView.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+	
+	private static void write(ObjectWriter writer, JsonGenerator generator, TemporalView temporal) {
+		try {
+			writer.writeValue(generator, temporal);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static void writeNewLine(JsonGenerator generator) {
+		try {
+			generator.writeRaw('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	public static void main(String[] args) {
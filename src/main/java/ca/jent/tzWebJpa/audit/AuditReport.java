@@ -0,0 +1,95 @@
+package ca.jent.tzWebJpa.audit;
+
+import java.util.Map;
+
+/**
+ * Summary of one DST audit (@see ca.jent.tzWebJpa.services.DstAuditService) as recorded so far:
+ * the rows and findings of the partitions done.  An audit that is neither running nor completed
+ * is INCOMPLETE and resumes with the partitions left on the next start.
+ * Incomplete rows are the ones without an instant, zoneId or zoneOffset (not checked).
+ * The findings of each Temporal are in AUDIT_FINDINGS.
+ * @author jraymond
+ *
+ */
+public class AuditReport {
+
+	public enum Status { RUNNING, COMPLETED, INCOMPLETE }
+
+	private final long auditId;
+	private final Status status;
+	private final long minId;
+	private final long maxId;
+	private final long partitions;
+	private final long partitionsDone;
+	private final long rows;
+	private final long incompleteRows;
+	private final Map<DstFinding, Long> findings;
+	private final Map<String, Long> findingsByZone;
+	private final String startedAt;
+	private final String completedAt;
+
+	public AuditReport(long auditId, Status status, long minId, long maxId, long partitions, long partitionsDone, long rows,
+			long incompleteRows, Map<DstFinding, Long> findings, Map<String, Long> findingsByZone, String startedAt, String completedAt) {
+		this.auditId = auditId;
+		this.status = status;
+		this.minId = minId;
+		this.maxId = maxId;
+		this.partitions = partitions;
+		this.partitionsDone = partitionsDone;
+		this.rows = rows;
+		this.incompleteRows = incompleteRows;
+		this.findings = findings;
+		this.findingsByZone = findingsByZone;
+		this.startedAt = startedAt;
+		this.completedAt = completedAt;
+	}
+
+	public long getAuditId() {
+		return auditId;
+	}
+	public Status getStatus() {
+		return status;
+	}
+	public long getMinId() {
+		return minId;
+	}
+	public long getMaxId() {
+		return maxId;
+	}
+	public long getPartitions() {
+		return partitions;
+	}
+	public long getPartitionsDone() {
+		return partitionsDone;
+	}
+	public long getRows() {
+		return rows;
+	}
+	public long getIncompleteRows() {
+		return incompleteRows;
+	}
+	/**
+	 * @return the number of findings of each kind (every kind, 0 when none)
+	 */
+	public Map<DstFinding, Long> getFindings() {
+		return findings;
+	}
+	/**
+	 * @return the number of findings of each ZoneId having any, most findings first
+	 */
+	public Map<String, Long> getFindingsByZone() {
+		return findingsByZone;
+	}
+	public String getStartedAt() {
+		return startedAt;
+	}
+	public String getCompletedAt() {
+		return completedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "Audit " + auditId + " " + status + ": " + partitionsDone + "/" + partitions + " partitions, " + rows + " rows ("
+				+ incompleteRows + " incomplete), findings " + findings;
+	}
+}
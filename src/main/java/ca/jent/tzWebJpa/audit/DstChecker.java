@@ -0,0 +1,55 @@
+package ca.jent.tzWebJpa.audit;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.utils.ZoneOffsetResolver;
+
+/**
+ * Checks one Temporal against the rules of its zone (the tzdata of this JVM):
+ * the stored offset is recomputed from ZONE_ID and INSTANT_TS, the local date/time from
+ * INSTANT_TS and ZONE_OFFSET, and the local date/time is looked up in the zone for a gap or an overlap.
+ * @author jraymond
+ *
+ */
+public final class DstChecker {
+
+	@FunctionalInterface
+	public interface FindingConsumer {
+		void accept(TemporalView temporal, DstFinding finding, String detail);
+	}
+
+	private DstChecker() {
+	}
+
+	/**
+	 * @return false if the Temporal has no instant, zoneId or zoneOffset (nothing is checked)
+	 */
+	public static boolean check(TemporalView temporal, FindingConsumer findings) {
+		Instant instant = temporal.getInstant();
+		ZoneOffset offset = temporal.getZoneOffset();
+		if (instant == null || temporal.getZoneId() == null || offset == null) return false;
+
+		ZoneOffset expected = ZoneOffsetResolver.offsetOf(temporal.getZoneId(), instant);
+		if (!expected.equals(offset)) {
+			findings.accept(temporal, DstFinding.OFFSET_MISMATCH, "offset " + offset + " instead of " + expected + " at " + instant);
+		}
+		if (temporal.getLocalDate() == null || temporal.getLocalTime() == null) return true;
+
+		LocalDateTime local = LocalDateTime.of(temporal.getLocalDate(), temporal.getLocalTime());
+		LocalDateTime expectedLocal = LocalDateTime.ofEpochSecond(instant.getEpochSecond(), instant.getNano(), offset);
+		if (!expectedLocal.equals(local)) {
+			findings.accept(temporal, DstFinding.LOCAL_MISMATCH, "local " + local + " instead of " + expectedLocal + " at " + offset);
+		}
+		List<ZoneOffset> validOffsets = temporal.getZoneId().getRules().getValidOffsets(local);
+		if (validOffsets.isEmpty()) {
+			findings.accept(temporal, DstFinding.GAP, "local " + local + " does not exist in " + temporal.getZoneId());
+		} else if (validOffsets.size() > 1) {
+			findings.accept(temporal, DstFinding.OVERLAP, "local " + local + " is either " + validOffsets.get(0) + " or " + validOffsets.get(1));
+		}
+		return true;
+	}
+}
@@ -0,0 +1,21 @@
+package ca.jent.tzWebJpa.audit;
+
+/**
+ * What the DST audit can find wrong (or worth a look) with a Temporal (@see DstChecker).
+ * @author jraymond
+ *
+ */
+public enum DstFinding {
+
+	/** ZONE_OFFSET is not the offset of ZONE_ID at INSTANT_TS (bad clock or stale tzdata) */
+	OFFSET_MISMATCH,
+
+	/** LOCAL_DATE/LOCAL_TIME is not INSTANT_TS at ZONE_OFFSET */
+	LOCAL_MISMATCH,
+
+	/** LOCAL_DATE/LOCAL_TIME does not exist in ZONE_ID (skipped by a DST gap) */
+	GAP,
+
+	/** LOCAL_DATE/LOCAL_TIME happens twice in ZONE_ID (DST overlap): only the offset tells which one */
+	OVERLAP
+}
@@ -0,0 +1,44 @@
+package ca.jent.tzWebJpa.audit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit shared by the threads of a background job: acquire(n) waits until n more permits
+ * fit within permitsPerSecond.  Unused time is not saved up so there is never a burst above the rate.
+ * A rate of 0 does not limit.
+ * @author jraymond
+ *
+ */
+public class Throttle {
+
+	private final double nanosPerPermit;
+	private long next = System.nanoTime();
+
+	public Throttle(long permitsPerSecond) {
+		if (permitsPerSecond < 0) throw new IllegalArgumentException("permitsPerSecond cannot be negative.");
+		this.nanosPerPermit = permitsPerSecond == 0 ? 0 : 1e9 / permitsPerSecond;
+	}
+
+	public void acquire(int permits) throws InterruptedException {
+		if (nanosPerPermit == 0 || permits <= 0) return;
+		long wait;
+		synchronized (this) {
+			long now = System.nanoTime();
+			if (next - now < 0) next = now;
+			wait = next - now;
+			next += (long) (permits * nanosPerPermit);
+		}
+		TimeUnit.NANOSECONDS.sleep(wait);
+	}
+
+	/**
+	 * Give back permits acquired but not used (e.g. acquired for an upper bound of the work to come):
+	 * the next acquire waits less, but never less than now (no burst either).
+	 */
+	public void release(int permits) {
+		if (nanosPerPermit == 0 || permits <= 0) return;
+		synchronized (this) {
+			next -= (long) (permits * nanosPerPermit);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package ca.jent.tzWebJpa.cache;
+
+/**
+ * Snapshot of the ReadThroughCache statistics.
+ * @author jraymond
+ *
+ */
+public class CacheStats {
+	
+	private final String name;
+	private final int size;
+	private final long hits;
+	private final long misses;
+	private final long coalesced;
+	private final long evictions;
+	private final long expirations;
+	
+	public CacheStats(String name, int size, long hits, long misses, long coalesced, long evictions, long expirations) {
+		this.name = name;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.coalesced = coalesced;
+		this.evictions = evictions;
+		this.expirations = expirations;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	public int getSize() {
+		return size;
+	}
+	public long getHits() {
+		return hits;
+	}
+	/**
+	 * Requests that went to the database.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+	/**
+	 * Requests that waited on a concurrent miss for the same key instead of going to the database.
+	 */
+	public long getCoalesced() {
+		return coalesced;
+	}
+	public long getEvictions() {
+		return evictions;
+	}
+	public long getExpirations() {
+		return expirations;
+	}
+	public double getHitRatio() {
+		long requests = hits + misses + coalesced;
+		return requests == 0 ? 0.0 : (double) (hits + coalesced) / requests;
+	}
+	@Override
+	public String toString() {
+		return "CacheStats [name=" + name + ", size=" + size + ", hits=" + hits + ", misses=" + misses + ", coalesced="
+				+ coalesced + ", evictions=" + evictions + ", expirations=" + expirations + "]";
+	}
+	
+}
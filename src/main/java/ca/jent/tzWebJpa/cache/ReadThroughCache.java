@@ -0,0 +1,163 @@
+package ca.jent.tzWebJpa.cache;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache with a time-to-live.
+ * Hits take no lock: the entries are in a ConcurrentHashMap and a hit only marks its entry as referenced.
+ * Eviction approximates least recently used with the clock (second chance) algorithm: the entries are
+ * queued in the order they were loaded and, once the cache holds more than maxSize entries, the oldest
+ * entry is evicted unless it was referenced since it was last considered (it is then queued again, no
+ * longer referenced).  Only misses take the lock of that queue.  The size can exceed maxSize while
+ * concurrent misses are being queued.
+ * Concurrent misses for the same key are coalesced: only the first caller runs the loader,
+ * the others wait for its result.  The loader runs outside of the lock.
+ * Null values are cached (e.g. an ID that does not exist) until invalidated or expired.
+ * A null key is allowed (e.g. a Temporal without local date).
+ * @author jraymond
+ *
+ * @param <K> key
+ * @param <V> value (must not be mutated once loaded)
+ */
+public class ReadThroughCache<K, V> {
+	
+	/** Key of the null key in entries (ConcurrentHashMap does not take null) */
+	private static final Object NULL_KEY = new Object();
+	
+	private final String name;
+	private final int maxSize;
+	private final long ttlNanos;
+	private final ConcurrentMap<Object, Entry<K, V>> entries = new ConcurrentHashMap<>();
+	/**
+	 * Entries in the order they were loaded or given a second chance; those no longer in entries
+	 * (invalidated, expired) are skipped and dropped.
+	 */
+	private final Deque<Entry<K, V>> clock = new ArrayDeque<>();
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	
+	public ReadThroughCache(String name, int maxSize, long ttl, TimeUnit unit) {
+		if (maxSize < 1) throw new IllegalArgumentException("maxSize must be greater than zero.");
+		this.name = name;
+		this.maxSize = maxSize;
+		this.ttlNanos = unit.toNanos(ttl);
+	}
+	
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		long now = System.nanoTime();
+		Object mapKey = mapKey(key);
+		Entry<K, V> entry = entries.get(mapKey);
+		if (entry != null && entry.isExpired(now, ttlNanos)) {
+			if (entries.remove(mapKey, entry)) expirations.increment();
+			entry = null;
+		}
+		if (entry == null) {
+			Entry<K, V> loading = new Entry<>(key, now);
+			entry = entries.putIfAbsent(mapKey, loading);
+			if (entry == null) return load(loading, loader);
+		}
+		if (!entry.referenced) entry.referenced = true;
+		if (entry.value.isDone()) {
+			hits.increment();
+		} else {
+			coalesced.increment();
+		}
+		return join(entry.value);
+	}
+	
+	public void invalidate(K key) {
+		entries.remove(mapKey(key));
+	}
+	
+	public void invalidateAll() {
+		synchronized (clock) {
+			entries.clear();
+			clock.clear();
+		}
+	}
+	
+	public CacheStats stats() {
+		return new CacheStats(name, entries.size(), hits.sum(), misses.sum(), coalesced.sum(), evictions.sum(), expirations.sum());
+	}
+	
+	private V load(Entry<K, V> entry, Function<? super K, ? extends V> loader) {
+		misses.increment();
+		admit(entry);
+		try {
+			V value = loader.apply(entry.key);
+			entry.value.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			entries.remove(mapKey(entry.key), entry);
+			entry.value.completeExceptionally(e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Queue the entry just put and evict down to maxSize.  An entry gets at most one second
+	 * chance per entry queued: the eviction ends even while hits keep referencing every entry.
+	 */
+	private void admit(Entry<K, V> entry) {
+		synchronized (clock) {
+			clock.addLast(entry);
+			int chances = clock.size();
+			while (entries.size() > maxSize) {
+				Entry<K, V> candidate = clock.pollFirst();
+				if (candidate == null) break;
+				if (entries.get(mapKey(candidate.key)) != candidate) continue;
+				if (candidate.referenced && chances-- > 0) {
+					candidate.referenced = false;
+					clock.addLast(candidate);
+				} else if (entries.remove(mapKey(candidate.key), candidate)) {
+					evictions.increment();
+				}
+			}
+			if (clock.size() > 2 * maxSize) clock.removeIf(queued -> entries.get(mapKey(queued.key)) != queued);
+		}
+	}
+	
+	private static Object mapKey(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+	
+	private static <V> V join(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			// rethrow what the loader threw
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw e;
+		}
+	}
+	
+	private static class Entry<K, V> {
+		final K key;
+		final CompletableFuture<V> value = new CompletableFuture<>();
+		final long loadedAt;
+		/** hit since the clock last considered it */
+		volatile boolean referenced;
+		
+		Entry(K key, long loadedAt) {
+			this.key = key;
+			this.loadedAt = loadedAt;
+		}
+		
+		boolean isExpired(long now, long ttlNanos) {
+			return value.isDone() && now - loadedAt >= ttlNanos;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package ca.jent.tzWebJpa.configuration;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * Bounded executors running the persistence work of the REST endpoints off the servlet
+ * container threads (temporal.async.enabled).  One executor per kind of endpoint so that
+ * slow scans (/temporal/all) cannot starve the cheap point lookups (/temporal/{id}):
+ * <ul>
+ * <li>lookupExecutor: /temporal/{id}</li>
+ * <li>scanExecutor: /temporal/all, /temporal/stream, /temporal/export, /temporal/range, /temporal/dates, /temporal/counts/*</li>
+ * <li>writeExecutor: /temporal/create, /temporal/batch, /temporal/ids, /temporal/delete</li>
+ * <li>feedExecutor: /temporal/feed, one thread per subscription for as long as it lasts (no queue); only
+ * temporal.feed.catch-up-connections of them read the database at a time</li>
+ * </ul>
+ * Each executor has a fixed number of threads (counted in the connection pool size along with the catch-up
+ * connections of the feed and the background work, see spring.datasource.tomcat.max-active) and a bounded
+ * queue: once full, requests are rejected right away (503) instead of piling up.
+ * @author jraymond
+ *
+ */
+@Configuration
+public class AsyncConfiguration extends WebMvcConfigurerAdapter {
+	
+	@Value("${temporal.async.timeout-ms:30000}")
+	private long timeout;
+	
+	private final Environment environment;
+	private final ThreadPoolTaskExecutor scanExecutor;
+	
+	public AsyncConfiguration(Environment environment, @Qualifier("scanExecutor") ThreadPoolTaskExecutor scanExecutor) {
+		this.environment = environment;
+		this.scanExecutor = scanExecutor;
+	}
+	
+	@Bean
+	public static ThreadPoolTaskExecutor lookupExecutor(Environment environment) {
+		return executor(environment, "lookup", 6, 200);
+	}
+	
+	@Bean
+	public static ThreadPoolTaskExecutor scanExecutor(Environment environment) {
+		return executor(environment, "scan", 2, 10);
+	}
+	
+	@Bean
+	public static ThreadPoolTaskExecutor writeExecutor(Environment environment) {
+		return executor(environment, "write", 2, 100);
+	}
+	
+	@Bean
+	public static ThreadPoolTaskExecutor feedExecutor(Environment environment) {
+		return executor(environment, "feed", 8, 0);
+	}
+	
+	/**
+	 * A Callable or StreamingResponseBody would run on the scan executor; /temporal/all, /temporal/stream and
+	 * /temporal/export write their emitter there themselves, with their own timeout.
+	 */
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setDefaultTimeout(timeout);
+		if (environment.getProperty("temporal.async.enabled", Boolean.class, true)) {
+			configurer.setTaskExecutor(scanExecutor);
+		}
+	}
+	
+	private static ThreadPoolTaskExecutor executor(Environment environment, String name, int threads, int queueCapacity) {
+		int poolSize = environment.getProperty("temporal.async." + name + ".threads", Integer.class, threads);
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix(name + "-");
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(environment.getProperty("temporal.async." + name + ".queue-capacity", Integer.class, queueCapacity));
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds(30);
+		return executor;
+	}
+}
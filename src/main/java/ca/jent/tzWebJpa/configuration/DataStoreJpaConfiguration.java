@@ -1,18 +1,31 @@
 package ca.jent.tzWebJpa.configuration;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -21,45 +34,164 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import ca.jent.tzWebJpa.converter.ZoneIdConverterInitializer;
+import ca.jent.tzWebJpa.metrics.MetricsRegistry;
+import ca.jent.tzWebJpa.metrics.TimedDataSource;
+import ca.jent.tzWebJpa.repositories.ZoneRepository;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
 @Configuration
 @ComponentScan(basePackages="ca.jent.tzWebJpa")
 @EnableJpaRepositories(basePackages="ca.jent.tzWebJpa.repositories")
 @EnableTransactionManagement
 public class DataStoreJpaConfiguration {
 	
+	/**
+	 * Number of statements sent to the database in one JDBC batch 
+	 * (@see TemporalService#saveAll(java.util.List) which flushes at the same interval)
+	 */
+	@Value("${temporal.jpa.batch-size:50}")
+	private int batchSize;
+	
+	@Value("${temporal.jpa.show-sql:true}")
+	private boolean showSql;
+	
+	/**
+	 * Hibernate Statistics exposed on /metrics (@see ca.jent.tzWebJpa.metrics.HibernateMetrics)
+	 */
+	@Value("${temporal.metrics.hibernate-statistics:true}")
+	private boolean hibernateStatistics;
+	
+	/**
+	 * Name of the in-memory database of the "embedded" profile
+	 */
+	@Value("${temporal.datasource.name:h2test}")
+	private String databaseName;
+	
+	/**
+	 * Monthly partitions of TEMPORALS (@see TemporalPartitionSchema)
+	 */
+	@Value("${temporal.partitioning.enabled:false}")
+	private boolean partitioningEnabled;
+	
 	@Bean
-	public DataSource dataSource() {
+	public StorageEncoding storageEncoding(@Value("${temporal.storage.encoding:sql}") String encoding) {
+		return StorageEncoding.of(encoding);
+	}
+	
+	/**
+	 * Connection pool (default): spring.datasource.url/username/password and the pool settings 
+	 * spring.datasource.tomcat.* (size, timeouts, statement cache, abandoned connections).
+	 */
+	@Bean
+	@Profile("!embedded")
+	@ConfigurationProperties("spring.datasource.tomcat")
+	public org.apache.tomcat.jdbc.pool.DataSource targetDataSource(DataSourceProperties properties) {
+		return (org.apache.tomcat.jdbc.pool.DataSource) properties.initializeDataSourceBuilder()
+				.type(org.apache.tomcat.jdbc.pool.DataSource.class)
+				.build();
+	}
+	
+	/**
+	 * Unpooled in-memory database named after temporal.datasource.name; used by the tests
+	 * so that each application context gets its own database.
+	 */
+	@Bean(name="targetDataSource")
+	@Profile("embedded")
+	public EmbeddedDatabase embeddedTargetDataSource() {
 		return new EmbeddedDatabaseBuilder()
-				.setName("h2test")
+				.setName(databaseName)
 				.setType(EmbeddedDatabaseType.H2)
-				.setScriptEncoding("UTF-8")
-				.ignoreFailedDrops(true)
-				.addScript("h2.schema.sql")
-				.addScript("h2.data.sql")
 				.build();
 	}
 	
 	@Bean
-	public JpaVendorAdapter jpaVendorAdapter() {
+	public SchemaVersion schemaVersion(StorageEncoding storageEncoding) {
+		return new SchemaVersion(storageEncoding, partitioningEnabled);
+	}
+	
+	/**
+	 * The schema and seed data are created when missing (@see TemporalSchemaPopulator).
+	 * With the EPOCH storage encoding, the schema created by h2.schema.sql 
+	 * is migrated (along with the data) by EpochEncodingMigration.
+	 * Indexes (h2.index.sql), the functions used by native queries (h2.function.sql), the 
+	 * import checkpoints (h2.import.sql) and the audit tables (h2.audit.sql) are created next.
+	 * With temporal.partitioning.enabled, TEMPORALS is then split into monthly partitions 
+	 * (@see TemporalPartitionSchema); once split, the application no longer starts without it.
+	 * None of this runs when the database is already at the current SchemaVersion (e.g. a file database).
+	 * Connection acquisition time is recorded as "jdbc.getConnection".
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("targetDataSource") DataSource target, StorageEncoding storageEncoding, 
+			SchemaVersion schemaVersion, MetricsRegistry metricsRegistry) {
+		List<DatabasePopulator> populators = new ArrayList<>();
+		populators.add(new TemporalSchemaPopulator());
+		if (storageEncoding == StorageEncoding.EPOCH) {
+			populators.add(new EpochEncodingMigration());
+		}
+		populators.add(new ResourceDatabasePopulator(
+				new ClassPathResource("h2.index.sql"), 
+				new ClassPathResource("h2.function.sql"),
+				new ClassPathResource("h2.import.sql"),
+				new ClassPathResource("h2.audit.sql")));
+		if (partitioningEnabled) {
+			populators.add(new TemporalPartitionSchema(storageEncoding));
+		} else {
+			populators.add(connection -> {
+				if (TemporalPartitionSchema.isPartitioned(connection)) {
+					throw new IllegalStateException("TEMPORALS is partitioned: set temporal.partitioning.enabled=true.");
+				}
+			});
+		}
+		schemaVersion.apply(target, populators.toArray(new DatabasePopulator[populators.size()]));
+		return new TimedDataSource(target, metricsRegistry.histogram(MetricsRegistry.JDBC + "getConnection"));
+	}
+	
+	/**
+	 * ZoneId codes of the ZONES table: the zones already registered are loaded here, the others
+	 * are registered when first seen (@see ZoneDictionary).
+	 */
+	@Bean
+	public ZoneDictionary zoneDictionary(ZoneRepository zoneRepository) {
+		return new ZoneDictionary(zoneRepository);
+	}
+	
+	/**
+	 * Hibernate updates the schema (hbm2ddl) unless the database was already at the current SchemaVersion.
+	 */
+	@Bean
+	@DependsOn("dataSource")
+	public JpaVendorAdapter jpaVendorAdapter(SchemaVersion schemaVersion) {
 		HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
-		adapter.setShowSql(true);
-		adapter.setGenerateDdl(true);
+		adapter.setShowSql(showSql);
+		adapter.setGenerateDdl(!schemaVersion.isUpToDate());
 		adapter.setDatabase(Database.H2);
 		adapter.setDatabasePlatform("org.hibernate.dialect.H2Dialect");
 		return adapter;
 	}
 	
 	@Bean
-	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, JpaVendorAdapter jpaVendorAdapter) {
+	public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, JpaVendorAdapter jpaVendorAdapter, StorageEncoding storageEncoding,
+			ZoneDictionary zoneDictionary) {
 		
 		Properties props = new Properties();
 		props.setProperty("hibernate.format_sql", String.valueOf(true));
+		props.setProperty("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+		props.setProperty("hibernate.order_inserts", String.valueOf(true));
+		props.setProperty("hibernate.order_updates", String.valueOf(true));
+		props.setProperty("hibernate.generate_statistics", String.valueOf(hibernateStatistics));
 		
 		LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
 		emf.setDataSource(dataSource);
 		emf.setJpaVendorAdapter(jpaVendorAdapter);
+		emf.setJpaDialect(new ReadOnlyHibernateJpaDialect());
 		emf.setPackagesToScan("ca.jent.tzWebJpa.entities");
 		emf.setJpaProperties(props);
+		emf.getJpaPropertyMap().put(ZoneIdConverterInitializer.ZONE_DICTIONARY, zoneDictionary);
+		if (storageEncoding == StorageEncoding.EPOCH) {
+			emf.setMappingResources("META-INF/orm-epoch.xml");
+		}
 		
 		return emf;
 	}
@@ -0,0 +1,153 @@
+package ca.jent.tzWebJpa.configuration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+
+import ca.jent.tzWebJpa.utils.DateUtils;
+
+/**
+ * Migrate the TEMPORALS table from the h2.schema.sql layout (DATE, TIME, TIMESTAMP) to
+ * the epoch storage encoding: LOCAL_DATE INT epoch-day, LOCAL_TIME BIGINT nano-of-day
+ * and INSTANT_TS BIGINT epoch-micros.
+ * Existing values are read through the JDBC driver (thus in the JVM default timezone just
+ * like the SQL encoding converters do) and written back as epoch numbers.
+ * Indexes on the migrated columns are dropped; recreate them afterward (h2.index.sql).
+ * Nothing is done when the table is already migrated.
+ * The migration is not atomic (H2 commits each ALTER TABLE) but it can be run again after a failure:
+ * each column is migrated to its *_EPOCH column, dropped then replaced by it, and the columns found
+ * half-way (the *_EPOCH column still there, the old one already dropped or not) resume from there.
+ * @author jraymond
+ *
+ */
+public class EpochEncodingMigration implements DatabasePopulator {
+	
+	private static final int BATCH_SIZE = 500;
+	
+	/** the migrated columns and their epoch type */
+	private static final String[] COLUMNS = {"LOCAL_DATE", "LOCAL_TIME", "INSTANT_TS"};
+	private static final String[] EPOCH_TYPES = {"INT", "BIGINT", "BIGINT"};
+	private static final int[] EPOCH_SQL_TYPES = {Types.INTEGER, Types.BIGINT, Types.BIGINT};
+
+	@Override
+	public void populate(Connection connection) throws SQLException {
+		if (isMigrated(connection)) return;
+		
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("drop index if exists TEMPORALS_INSTANT_IDX");
+			ddl.execute("drop index if exists TEMPORALS_LOCAL_DATE_IDX");
+			ddl.execute("drop index if exists TEMPORALS_ZONE_INSTANT_IDX");
+			// the columns not copied yet (still of their SQL type)
+			boolean[] copy = new boolean[COLUMNS.length];
+			for (int i = 0; i < COLUMNS.length; i++) {
+				Integer type = columnType(connection, COLUMNS[i]);
+				copy[i] = type != null && type != EPOCH_SQL_TYPES[i];
+				if (copy[i]) ddl.execute("alter table TEMPORALS add column if not exists " + COLUMNS[i] + "_EPOCH " + EPOCH_TYPES[i] + " NULL");
+			}
+			
+			copyValues(connection, copy);
+			
+			for (int i = 0; i < COLUMNS.length; i++) {
+				if (copy[i]) ddl.execute("alter table TEMPORALS drop column " + COLUMNS[i]);
+			}
+			for (String column : COLUMNS) {
+				if (columnType(connection, column + "_EPOCH") != null) {
+					ddl.execute("alter table TEMPORALS alter column " + column + "_EPOCH rename to " + column);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Copy the values of the columns to copy (in one pass) to their *_EPOCH column
+	 */
+	private static void copyValues(Connection connection, boolean[] copy) throws SQLException {
+		List<String> selected = new ArrayList<>();
+		List<String> assigned = new ArrayList<>();
+		for (int i = 0; i < COLUMNS.length; i++) {
+			if (!copy[i]) continue;
+			selected.add(COLUMNS[i]);
+			assigned.add(COLUMNS[i] + "_EPOCH = ?");
+		}
+		if (selected.isEmpty()) return;
+		try (PreparedStatement select = connection.prepareStatement("select ID, " + String.join(", ", selected) + " from TEMPORALS");
+			 PreparedStatement update = connection.prepareStatement("update TEMPORALS set " + String.join(", ", assigned) + " where ID = ?");
+			 ResultSet rs = select.executeQuery()) {
+			int pending = 0;
+			while (rs.next()) {
+				int column = 2;
+				for (int i = 0; i < COLUMNS.length; i++) {
+					if (!copy[i]) continue;
+					setNullable(update, column - 1, epochValue(rs, column, i), EPOCH_SQL_TYPES[i]);
+					column++;
+				}
+				update.setLong(column - 1, rs.getLong(1));
+				update.addBatch();
+				if (++pending == BATCH_SIZE) {
+					update.executeBatch();
+					pending = 0;
+				}
+			}
+			if (pending > 0) update.executeBatch();
+		}
+	}
+	
+	/**
+	 * @return the epoch number of the value of COLUMNS[index] at this column of the result set (null for NULL)
+	 */
+	private static Long epochValue(ResultSet rs, int column, int index) throws SQLException {
+		switch (index) {
+		case 0:
+			Date date = rs.getDate(column);
+			return date == null ? null : date.toLocalDate().toEpochDay();
+		case 1:
+			Time time = rs.getTime(column);
+			return time == null ? null : time.toLocalTime().toNanoOfDay();
+		default:
+			Timestamp timestamp = rs.getTimestamp(column);
+			return timestamp == null ? null : DateUtils.asEpochMicros(timestamp.toInstant());
+		}
+	}
+	
+	private static void setNullable(PreparedStatement ps, int index, Long value, int sqlType) throws SQLException {
+		if (value == null) {
+			ps.setNull(index, sqlType);
+		} else {
+			ps.setLong(index, value);
+		}
+	}
+	
+	/**
+	 * @return true when every column has its epoch type and no *_EPOCH column is left (false half-way)
+	 */
+	private static boolean isMigrated(Connection connection) throws SQLException {
+		for (int i = 0; i < COLUMNS.length; i++) {
+			Integer type = columnType(connection, COLUMNS[i]);
+			boolean epochColumn = columnType(connection, COLUMNS[i] + "_EPOCH") != null;
+			if (type == null && !epochColumn) throw new SQLException("TEMPORALS." + COLUMNS[i] + " column not found");
+			if (type == null || type != EPOCH_SQL_TYPES[i] || epochColumn) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the SQL type of the TEMPORALS column, null when there is no such column
+	 */
+	private static Integer columnType(Connection connection, String column) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getColumns(null, null, "TEMPORALS", column)) {
+			return rs.next() ? rs.getInt("DATA_TYPE") : null;
+		}
+	}
+}
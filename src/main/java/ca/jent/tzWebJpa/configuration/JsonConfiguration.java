@@ -0,0 +1,23 @@
+package ca.jent.tzWebJpa.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.Module;
+
+import ca.jent.tzWebJpa.json.TemporalJsonFormat;
+import ca.jent.tzWebJpa.json.TemporalJsonModule;
+
+/**
+ * Jackson Module beans are registered by Spring Boot on the application ObjectMapper.
+ * The java.time values are written as ISO-8601 strings or, with temporal.json.format=epoch, as numbers.
+ */
+@Configuration
+public class JsonConfiguration {
+
+	@Bean
+	public Module temporalJsonModule(@Value("${temporal.json.format:iso}") String format) {
+		return new TemporalJsonModule(TemporalJsonFormat.of(format));
+	}
+}
@@ -0,0 +1,30 @@
+package ca.jent.tzWebJpa.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import ca.jent.tzWebJpa.metrics.EndpointMetricsInterceptor;
+import ca.jent.tzWebJpa.metrics.MetricsRegistry;
+
+/**
+ * Latency of the REST endpoints (@see EndpointMetricsInterceptor).
+ * Services are measured by ServiceMetricsAspect.
+ * @author jraymond
+ *
+ */
+@Configuration
+public class MetricsConfiguration extends WebMvcConfigurerAdapter {
+	
+	private final MetricsRegistry metricsRegistry;
+	
+	public MetricsConfiguration(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new EndpointMetricsInterceptor(metricsRegistry)).addPathPatterns("/temporal/**");
+	}
+	
+}
@@ -0,0 +1,166 @@
+package ca.jent.tzWebJpa.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * Version of the schema built at startup (@see DataStoreJpaConfiguration#dataSource): the storage encoding,
+ * the partitioning, the REVISION of the Java populators and a checksum of the scripts and of the entity
+ * mapping, e.g. "sql-r1-1a2b3c4d".  It is recorded in SCHEMA_VERSION once the schema is built so that a
+ * persistent database (e.g. a file) already at this version is opened as is: no script, no migration and
+ * no Hibernate schema update.
+ * Change any script, the mapping of an entity (or a setting) and the schema is built again on the next startup.
+ * The Java populators are not checksummed: change what they build and increment REVISION.
+ * @author jraymond
+ *
+ */
+public class SchemaVersion {
+
+	/**
+	 * Every script run by DataStoreJpaConfiguration#dataSource
+	 */
+	static final String[] SCRIPTS = {"h2.schema.sql", "h2.data.sql", "h2.index.sql", "h2.function.sql", "h2.import.sql", "h2.audit.sql"};
+
+	/**
+	 * Revision of the schema built by TemporalSchemaPopulator, EpochEncodingMigration and TemporalPartitionSchema
+	 */
+	static final int REVISION = 1;
+
+	/**
+	 * The entities (their fields and annotations) and the mapping resources Hibernate updates the schema from
+	 */
+	static final Class<?>[] ENTITIES = {Temporal.class};
+	static final String[] MAPPING_RESOURCES = {"META-INF/orm-epoch.xml"};
+
+	private static final String CREATE_TABLE = "create table if not exists SCHEMA_VERSION (VERSION VARCHAR(64) NOT NULL, APPLIED_AT TIMESTAMP NOT NULL)";
+	private static final String SELECT = "select VERSION from SCHEMA_VERSION";
+
+	private final String version;
+	private volatile boolean upToDate;
+
+	public SchemaVersion(StorageEncoding encoding, boolean partitioned) {
+		if (encoding == null) throw new IllegalArgumentException(StorageEncoding.class.getName() + " argument cannot be null.");
+		CRC32 crc = new CRC32();
+		for (String script : SCRIPTS) {
+			update(crc, script);
+		}
+		for (String resource : MAPPING_RESOURCES) {
+			update(crc, resource);
+		}
+		for (Class<?> entity : ENTITIES) {
+			update(crc, mapping(entity));
+		}
+		this.version = encoding.name().toLowerCase() + (partitioned ? "-partitioned" : "") + "-r" + REVISION + "-" + Long.toHexString(crc.getValue());
+	}
+
+	private static void update(CRC32 crc, String resource) {
+		try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+			byte[] buffer = new byte[8192];
+			for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+				crc.update(buffer, 0, n);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(resource, e);
+		}
+	}
+
+	private static void update(CRC32 crc, List<String> mapping) {
+		for (String line : mapping) {
+			crc.update(line.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/**
+	 * @return the annotations of the entity and the name, type and annotations of each of its fields (by name)
+	 */
+	static List<String> mapping(Class<?> entity) {
+		List<String> mapping = new ArrayList<>();
+		mapping.add(entity.getName() + annotations(entity));
+		Arrays.stream(entity.getDeclaredFields())
+				.filter(field -> !Modifier.isStatic(field.getModifiers()))
+				.sorted(Comparator.comparing(Field::getName))
+				.forEach(field -> mapping.add(field.getName() + " " + field.getGenericType().getTypeName() + annotations(field)));
+		return mapping;
+	}
+
+	private static String annotations(AnnotatedElement element) {
+		return Arrays.stream(element.getAnnotations()).map(Annotation::toString).sorted().collect(Collectors.joining(" ", " ", ""));
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * Build the schema with the populators unless the database is already at this version, then record it.
+	 */
+	public void apply(DataSource dataSource, DatabasePopulator... populators) {
+		DatabasePopulatorUtils.execute(connection -> upToDate = version.equals(recorded(connection)), dataSource);
+		if (upToDate) return;
+		for (DatabasePopulator populator : populators) {
+			DatabasePopulatorUtils.execute(populator, dataSource);
+		}
+		DatabasePopulatorUtils.execute(this::record, dataSource);
+	}
+
+	/**
+	 * @return true if the database was already at this version (the schema was not built by apply)
+	 */
+	public boolean isUpToDate() {
+		return upToDate;
+	}
+
+	private static String recorded(Connection connection) throws SQLException {
+		try (ResultSet tables = connection.getMetaData().getTables(null, null, "SCHEMA_VERSION", new String[] {"TABLE"})) {
+			if (!tables.next()) return null;
+		}
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(SELECT)) {
+			return rs.next() ? rs.getString(1) : null;
+		}
+	}
+
+	private void record(Connection connection) throws SQLException {
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute(CREATE_TABLE);
+			ddl.execute("delete from SCHEMA_VERSION");
+		}
+		try (PreparedStatement insert = connection.prepareStatement("insert into SCHEMA_VERSION (VERSION, APPLIED_AT) values (?, ?)")) {
+			insert.setString(1, version);
+			insert.setTimestamp(2, Timestamp.from(Instant.now()));
+			insert.executeUpdate();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return version;
+	}
+}
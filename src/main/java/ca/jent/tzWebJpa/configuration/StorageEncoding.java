@@ -0,0 +1,25 @@
+package ca.jent.tzWebJpa.configuration;
+
+/**
+ * How the date/time columns of TEMPORALS are stored (property temporal.storage.encoding).
+ * @author jraymond
+ *
+ */
+public enum StorageEncoding {
+	
+	/**
+	 * LOCAL_DATE as DATE, LOCAL_TIME as TIME and INSTANT_TS as TIMESTAMP (h2.schema.sql)
+	 */
+	SQL,
+	
+	/**
+	 * LOCAL_DATE as INT epoch-day, LOCAL_TIME as BIGINT nano-of-day and INSTANT_TS as 
+	 * BIGINT epoch-micros (@see EpochEncodingMigration and META-INF/orm-epoch.xml)
+	 */
+	EPOCH;
+	
+	public static StorageEncoding of(String name) {
+		if (name == null) throw new IllegalArgumentException("StorageEncoding name cannot be null.");
+		return valueOf(name.trim().toUpperCase());
+	}
+}
@@ -0,0 +1,204 @@
+package ca.jent.tzWebJpa.configuration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+
+import ca.jent.tzWebJpa.utils.DateUtils;
+
+/**
+ * Monthly partitions of TEMPORALS (temporal.partitioning.enabled): one table TEMPORALS_yyyyMM for each
+ * (UTC) month of INSTANT_TS plus TEMPORALS_DEFAULT for the Temporal without an instant.  TEMPORALS
+ * becomes a UNION ALL view of these tables so that the JPA queries still see every Temporal; the
+ * partitions themselves are written by ca.jent.tzWebJpa.repositories.TemporalPartitions.
+ * As a DatabasePopulator, it migrates the TEMPORALS table (schema and data) into partitions.
+ * Nothing is done when TEMPORALS is already a view.
+ * Note: the partitions have the storage encoding of the time of the migration, it cannot be changed afterward.
+ * @author jraymond
+ *
+ */
+public class TemporalPartitionSchema implements DatabasePopulator {
+
+	public static final String VIEW = "TEMPORALS";
+	public static final String DEFAULT_TABLE = "TEMPORALS_DEFAULT";
+
+	/**
+	 * Columns of TEMPORALS in the order of the view (the epoch encoding migration moves the date/time columns last)
+	 */
+	public static final String COLUMNS = "ID, LOCAL_DATE, LOCAL_TIME, INSTANT_TS, ZONE_ID, ZONE_OFFSET, VERSION, LAST_MODIFIED";
+
+	private static final Pattern PARTITION = Pattern.compile("TEMPORALS_(\\d{4})(\\d{2})");
+
+	private final StorageEncoding encoding;
+
+	public TemporalPartitionSchema(StorageEncoding encoding) {
+		if (encoding == null) throw new IllegalArgumentException(StorageEncoding.class.getName() + " argument cannot be null.");
+		this.encoding = encoding;
+	}
+
+	/**
+	 * The Temporal of TEMPORALS are copied, one month at a time, to the partition of their month (the ones
+	 * without an instant to TEMPORALS_DEFAULT) then the table is replaced by the view: no row is deleted.
+	 * The partitions left by an interrupted migration are dropped first.
+	 */
+	@Override
+	public void populate(Connection connection) throws SQLException {
+		if (isPartitioned(connection)) return;
+		try (Statement ddl = connection.createStatement()) {
+			for (YearMonth month : partitions(connection)) {
+				ddl.execute("drop table " + tableName(month));
+			}
+			ddl.execute("drop table if exists " + DEFAULT_TABLE);
+		}
+		SortedSet<YearMonth> months = new TreeSet<>();
+		try (PreparedStatement first = connection.prepareStatement("select min(INSTANT_TS) from " + VIEW);
+			 PreparedStatement next = connection.prepareStatement("select min(INSTANT_TS) from " + VIEW + " where INSTANT_TS >= ?")) {
+			for (Instant instant = firstInstant(first); instant != null; instant = firstInstant(next)) {
+				YearMonth month = monthOf(instant);
+				String table = tableName(month);
+				createTable(connection, table, false);
+				copyRows(connection, table, " where INSTANT_TS >= ? and INSTANT_TS < ?", start(month), start(month.plusMonths(1)));
+				createIndexes(connection, table, table);
+				months.add(month);
+				next.setObject(1, instantValue(start(month.plusMonths(1))));
+			}
+		}
+		createTable(connection, DEFAULT_TABLE, true);
+		copyRows(connection, DEFAULT_TABLE, " where INSTANT_TS is null");
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("drop table " + VIEW);
+		}
+		createView(connection, months);
+		// named after the indexes of TEMPORALS (h2.index.sql creates them if they do not exist)
+		createIndexes(connection, DEFAULT_TABLE, VIEW);
+	}
+
+	public static boolean isPartitioned(Connection connection) throws SQLException {
+		try (ResultSet views = connection.getMetaData().getTables(null, null, VIEW, new String[] {"VIEW"})) {
+			return views.next();
+		}
+	}
+
+	/**
+	 * @return the months having a partition
+	 */
+	public static SortedSet<YearMonth> partitions(Connection connection) throws SQLException {
+		SortedSet<YearMonth> months = new TreeSet<>();
+		try (ResultSet tables = connection.getMetaData().getTables(null, null, "TEMPORALS%", new String[] {"TABLE"})) {
+			while (tables.next()) {
+				Matcher matcher = PARTITION.matcher(tables.getString("TABLE_NAME"));
+				if (matcher.matches()) months.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+			}
+		}
+		return months;
+	}
+
+	/**
+	 * @return the UTC month of the instant
+	 * @throws IllegalArgumentException when its year is not within [1, 9999]
+	 */
+	public static YearMonth monthOf(Instant instant) {
+		YearMonth month = YearMonth.from(instant.atOffset(ZoneOffset.UTC));
+		if (month.getYear() < 1 || month.getYear() > 9999) throw new IllegalArgumentException("instant (" + instant + ") must be within years 1 to 9999.");
+		return month;
+	}
+
+	public static String tableName(YearMonth month) {
+		return String.format("TEMPORALS_%04d%02d", month.getYear(), month.getMonthValue());
+	}
+
+	/**
+	 * @return the first instant of the (UTC) month
+	 */
+	public static Instant start(YearMonth month) {
+		return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+	}
+
+	/**
+	 * The partition (if it does not exist) and its indexes, the same as the ones of TEMPORALS (h2.index.sql)
+	 */
+	public void createPartition(Connection connection, YearMonth month) throws SQLException {
+		String table = tableName(month);
+		createTable(connection, table, false);
+		createIndexes(connection, table, table);
+	}
+
+	private void createTable(Connection connection, String table, boolean withoutInstant) throws SQLException {
+		boolean epoch = encoding == StorageEncoding.EPOCH;
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("create table if not exists " + table + " ("
+					+ "ID BIGINT PRIMARY KEY, "
+					+ "LOCAL_DATE " + (epoch ? "INT" : "DATE") + " NULL, "
+					+ "LOCAL_TIME " + (epoch ? "BIGINT" : "TIME") + " NULL, "
+					+ "INSTANT_TS " + (epoch ? "BIGINT" : "TIMESTAMP") + (withoutInstant ? " NULL, " : " NOT NULL, ")
+					+ "ZONE_ID SMALLINT, "
+					+ "ZONE_OFFSET INT, "
+					+ "VERSION BIGINT DEFAULT 0 NOT NULL, "
+					+ "LAST_MODIFIED TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+		}
+	}
+
+	private static void createIndexes(Connection connection, String table, String prefix) throws SQLException {
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute("create index if not exists " + prefix + "_INSTANT_IDX on " + table + " (INSTANT_TS, ID)");
+			ddl.execute("create index if not exists " + prefix + "_LOCAL_DATE_IDX on " + table + " (LOCAL_DATE, ID)");
+			ddl.execute("create index if not exists " + prefix + "_ZONE_INSTANT_IDX on " + table + " (ZONE_ID, INSTANT_TS, ID)");
+		}
+	}
+
+	/**
+	 * (Re)create the TEMPORALS view over TEMPORALS_DEFAULT and the partitions of the months
+	 */
+	public static void createView(Connection connection, Collection<YearMonth> months) throws SQLException {
+		StringBuilder sql = new StringBuilder("create or replace force view ").append(VIEW).append(" (").append(COLUMNS).append(") as ")
+				.append("select ").append(COLUMNS).append(" from ").append(DEFAULT_TABLE);
+		for (YearMonth month : months) {
+			sql.append(" union all select ").append(COLUMNS).append(" from ").append(tableName(month));
+		}
+		try (Statement ddl = connection.createStatement()) {
+			ddl.execute(sql.toString());
+		}
+	}
+
+	/**
+	 * @return the value of the instant in the INSTANT_TS column
+	 */
+	public Object instantValue(Instant instant) {
+		return encoding == StorageEncoding.EPOCH ? (Object) DateUtils.asEpochMicros(instant) : Timestamp.from(instant);
+	}
+
+	private Instant firstInstant(PreparedStatement first) throws SQLException {
+		try (ResultSet rs = first.executeQuery()) {
+			rs.next();
+			if (encoding == StorageEncoding.EPOCH) {
+				long epochMicros = rs.getLong(1);
+				return rs.wasNull() ? null : DateUtils.asJavaTime_Instant(epochMicros);
+			}
+			Timestamp timestamp = rs.getTimestamp(1);
+			return timestamp == null ? null : timestamp.toInstant();
+		}
+	}
+
+	private void copyRows(Connection connection, String table, String where, Instant... bounds) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement("insert into " + table + " (" + COLUMNS + ") "
+				+ "select " + COLUMNS + " from " + VIEW + where)) {
+			for (int i = 0; i < bounds.length; i++) {
+				insert.setObject(i + 1, instantValue(bounds[i]));
+			}
+			insert.executeUpdate();
+		}
+	}
+}
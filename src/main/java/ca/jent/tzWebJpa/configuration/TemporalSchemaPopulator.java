@@ -0,0 +1,38 @@
+package ca.jent.tzWebJpa.configuration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * Creates the schema and the seed data (h2.schema.sql, h2.data.sql) only when the TEMPORALS
+ * table does not exist yet: a database that outlives the application context 
+ * (e.g. a file or an in-memory database with DB_CLOSE_DELAY=-1) keeps its data.
+ * TEMPORALS may also be the view of the partitions (@see TemporalPartitionSchema).
+ * @author jraymond
+ *
+ */
+public class TemporalSchemaPopulator implements DatabasePopulator {
+
+	@Override
+	public void populate(Connection connection) throws SQLException {
+		if (exists(connection)) return;
+		ResourceDatabasePopulator scripts = new ResourceDatabasePopulator(
+				new ClassPathResource("h2.schema.sql"), 
+				new ClassPathResource("h2.data.sql"));
+		scripts.setSqlScriptEncoding("UTF-8");
+		scripts.setIgnoreFailedDrops(true);
+		scripts.populate(connection);
+	}
+	
+	private static boolean exists(Connection connection) throws SQLException {
+		try (ResultSet tables = connection.getMetaData().getTables(null, null, "TEMPORALS", new String[] {"TABLE", "VIEW"})) {
+			return tables.next();
+		}
+	}
+	
+}
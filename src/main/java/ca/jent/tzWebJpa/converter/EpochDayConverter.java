@@ -0,0 +1,32 @@
+package ca.jent.tzWebJpa.converter;
+
+import java.time.LocalDate;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+
+/**
+ * LocalDate stored as the number of days since 1970-01-01 (INT column).
+ * Only used by the epoch storage encoding (@see META-INF/orm-epoch.xml)
+ */
+@Converter
+public class EpochDayConverter implements AttributeConverter<LocalDate, Integer> {
+
+	private static final Counter COUNTER = ConverterMetrics.register(EpochDayConverter.class);
+
+	@Override
+	public Integer convertToDatabaseColumn(LocalDate localDate) {
+		COUNTER.toDatabase();
+		return localDate == null ? null : Math.toIntExact(localDate.toEpochDay());
+	}
+
+	@Override
+	public LocalDate convertToEntityAttribute(Integer epochDay) {
+		COUNTER.toEntity();
+		return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+	}
+
+}
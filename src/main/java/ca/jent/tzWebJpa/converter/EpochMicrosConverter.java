@@ -0,0 +1,33 @@
+package ca.jent.tzWebJpa.converter;
+
+import java.time.Instant;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+import ca.jent.tzWebJpa.utils.DateUtils;
+
+/**
+ * Instant stored as the number of microseconds since 1970-01-01T00:00:00Z (BIGINT column).
+ * Only used by the epoch storage encoding (@see META-INF/orm-epoch.xml)
+ */
+@Converter
+public class EpochMicrosConverter implements AttributeConverter<Instant, Long> {
+
+	private static final Counter COUNTER = ConverterMetrics.register(EpochMicrosConverter.class);
+
+	@Override
+	public Long convertToDatabaseColumn(Instant instant) {
+		COUNTER.toDatabase();
+		return instant == null ? null : DateUtils.asEpochMicros(instant);
+	}
+
+	@Override
+	public Instant convertToEntityAttribute(Long epochMicros) {
+		COUNTER.toEntity();
+		return epochMicros == null ? null : DateUtils.asJavaTime_Instant(epochMicros.longValue());
+	}
+
+}
@@ -6,17 +6,24 @@ import java.time.Instant;
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+
 @Converter(autoApply = true)
 public class InstantConverter implements AttributeConverter<Instant, Timestamp> {
 
+	private static final Counter COUNTER = ConverterMetrics.register(InstantConverter.class);
+
 	@Override
 	public Timestamp convertToDatabaseColumn(Instant instant) {
+		COUNTER.toDatabase();
 		if (instant == null) return null;
 		return Timestamp.from(instant);
 	}
 
 	@Override
 	public Instant convertToEntityAttribute(Timestamp timestamp) {
+		COUNTER.toEntity();
 		if (timestamp == null) return null;
 		return timestamp.toInstant();
 	}
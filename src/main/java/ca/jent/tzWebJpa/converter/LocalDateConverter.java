@@ -6,19 +6,25 @@ import java.util.Date;
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
 import ca.jent.tzWebJpa.utils.DateUtils;
 
 
 @Converter(autoApply=true)
 public class LocalDateConverter implements AttributeConverter<LocalDate, Date> {
 
+	private static final Counter COUNTER = ConverterMetrics.register(LocalDateConverter.class);
+
 	@Override
 	public Date convertToDatabaseColumn(LocalDate localDate) {
+		COUNTER.toDatabase();
 		return localDate == null ? null : DateUtils.asJavaUtil_Date(localDate);
 	}
 
 	@Override
 	public LocalDate convertToEntityAttribute(Date date) {
+		COUNTER.toEntity();
 		return date == null ? null : DateUtils.asJavaTime_LocalDate(date);
 	}
 
@@ -6,18 +6,24 @@ import java.time.LocalTime;
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
 import ca.jent.tzWebJpa.utils.DateUtils;
 
 @Converter(autoApply=true)
 public class LocalTimeConverter implements AttributeConverter<LocalTime, java.sql.Time> {
 
+	private static final Counter COUNTER = ConverterMetrics.register(LocalTimeConverter.class);
+
 	@Override
 	public Time convertToDatabaseColumn(LocalTime localTime) {
+		COUNTER.toDatabase();
 		return localTime == null ? null : DateUtils.asJavaSql_Time(localTime);
 	}
 
 	@Override
 	public LocalTime convertToEntityAttribute(Time time) {
+		COUNTER.toEntity();
 		return time == null ? null : DateUtils.asJavaTime_LocalTime(time);
 	}
 
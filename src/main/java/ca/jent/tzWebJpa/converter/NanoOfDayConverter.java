@@ -0,0 +1,32 @@
+package ca.jent.tzWebJpa.converter;
+
+import java.time.LocalTime;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+
+/**
+ * LocalTime stored as the nano of day (BIGINT column).
+ * Only used by the epoch storage encoding (@see META-INF/orm-epoch.xml)
+ */
+@Converter
+public class NanoOfDayConverter implements AttributeConverter<LocalTime, Long> {
+
+	private static final Counter COUNTER = ConverterMetrics.register(NanoOfDayConverter.class);
+
+	@Override
+	public Long convertToDatabaseColumn(LocalTime localTime) {
+		COUNTER.toDatabase();
+		return localTime == null ? null : localTime.toNanoOfDay();
+	}
+
+	@Override
+	public LocalTime convertToEntityAttribute(Long nanoOfDay) {
+		COUNTER.toEntity();
+		return nanoOfDay == null ? null : LocalTime.ofNanoOfDay(nanoOfDay);
+	}
+
+}
@@ -3,19 +3,40 @@ package ca.jent.tzWebJpa.converter;
 import java.time.ZoneId;
 
 import javax.persistence.AttributeConverter;
-import javax.persistence.Converter;
 
-@Converter(autoApply=true)
-public class ZoneIdConverter implements AttributeConverter<ZoneId, String> {
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * ZoneId are stored as their code in the ZONES dictionary table (@see ZoneDictionary).
+ * Hibernate does not create this converter: it needs the ZoneDictionary of the application context,
+ * thus one is given to each EntityManagerFactory and applied to every ZoneId attribute
+ * (@see ZoneIdConverterInitializer).
+ * Note: the column is a SMALLINT but Hibernate 5.0 has no JDBC mapping for java.lang.Short
+ * thus the code goes through an Integer.
+ */
+public class ZoneIdConverter implements AttributeConverter<ZoneId, Integer> {
+
+	private static final Counter COUNTER = ConverterMetrics.register(ZoneIdConverter.class);
+
+	private final ZoneDictionary zoneDictionary;
+
+	public ZoneIdConverter(ZoneDictionary zoneDictionary) {
+		if (zoneDictionary == null) throw new IllegalArgumentException(ZoneDictionary.class.getName() + " argument cannot be null.");
+		this.zoneDictionary = zoneDictionary;
+	}
 
 	@Override
-	public String convertToDatabaseColumn(ZoneId zoneId) {
-		return zoneId == null ? null : zoneId.toString();
+	public Integer convertToDatabaseColumn(ZoneId zoneId) {
+		COUNTER.toDatabase();
+		return zoneId == null ? null : (int) zoneDictionary.codeOf(zoneId);
 	}
 
 	@Override
-	public ZoneId convertToEntityAttribute(String zoneId) {
-		return zoneId == null ? null : ZoneId.of(zoneId);
+	public ZoneId convertToEntityAttribute(Integer code) {
+		COUNTER.toEntity();
+		return code == null ? null : zoneDictionary.zoneOf(code.shortValue());
 	}
 
 }
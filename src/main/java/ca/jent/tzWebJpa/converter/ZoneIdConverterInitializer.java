@@ -0,0 +1,29 @@
+package ca.jent.tzWebJpa.converter;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.spi.MetadataBuilderInitializer;
+import org.hibernate.engine.config.spi.ConfigurationService;
+
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Applies a ZoneIdConverter of the ZoneDictionary given in the JPA properties (ZONE_DICTIONARY) of the
+ * EntityManagerFactory being built to every ZoneId attribute: each application context converts with
+ * its own dictionary.  Hibernate finds it through META-INF/services.
+ * @author jraymond
+ *
+ */
+public class ZoneIdConverterInitializer implements MetadataBuilderInitializer {
+
+	/** JPA property holding the ZoneDictionary (@see ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration) */
+	public static final String ZONE_DICTIONARY = "ca.jent.tzWebJpa.zone_dictionary";
+
+	@Override
+	public void contribute(MetadataBuilder metadataBuilder, StandardServiceRegistry serviceRegistry) {
+		Object zoneDictionary = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ZONE_DICTIONARY);
+		if (zoneDictionary instanceof ZoneDictionary) {
+			metadataBuilder.applyAttributeConverter(new ZoneIdConverter((ZoneDictionary) zoneDictionary), true);
+		}
+	}
+}
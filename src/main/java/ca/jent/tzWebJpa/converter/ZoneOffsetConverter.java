@@ -5,17 +5,28 @@ import java.time.ZoneOffset;
 import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 
+import ca.jent.tzWebJpa.metrics.ConverterMetrics;
+import ca.jent.tzWebJpa.metrics.ConverterMetrics.Counter;
+
+/**
+ * ZoneOffset are stored as their total seconds (no parsing when reading back and
+ * ZoneOffset.ofTotalSeconds returns cached instances for the usual quarter-hour offsets).
+ */
 @Converter(autoApply=true)
-public class ZoneOffsetConverter implements AttributeConverter<ZoneOffset, String> {
+public class ZoneOffsetConverter implements AttributeConverter<ZoneOffset, Integer> {
+
+	private static final Counter COUNTER = ConverterMetrics.register(ZoneOffsetConverter.class);
 
 	@Override
-	public String convertToDatabaseColumn(ZoneOffset zoneOffset) {
-		return zoneOffset == null ? null : zoneOffset.toString();
+	public Integer convertToDatabaseColumn(ZoneOffset zoneOffset) {
+		COUNTER.toDatabase();
+		return zoneOffset == null ? null : zoneOffset.getTotalSeconds();
 	}
 
 	@Override
-	public ZoneOffset convertToEntityAttribute(String offsetId) {
-		return offsetId == null ? null : ZoneOffset.of(offsetId);
+	public ZoneOffset convertToEntityAttribute(Integer totalSeconds) {
+		COUNTER.toEntity();
+		return totalSeconds == null ? null : ZoneOffset.ofTotalSeconds(totalSeconds);
 	}
 
 }
@@ -12,20 +12,29 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import ca.jent.tzWebJpa.converter.InstantConverter;
 import ca.jent.tzWebJpa.converter.LocalDateConverter;
 import ca.jent.tzWebJpa.converter.LocalTimeConverter;
-import ca.jent.tzWebJpa.converter.ZoneIdConverter;
 import ca.jent.tzWebJpa.converter.ZoneOffsetConverter;
 
 @Entity
 @Table(name="TEMPORALS")
 public class Temporal {
 	
+	/**
+	 * IDs are handed out by blocks of 50 from TEMPORALS_SEQ (pooled optimizer) so 
+	 * inserting does not cost one sequence round-trip per row.
+	 * The allocationSize must match the sequence INCREMENT BY (@see h2.schema.sql)
+	 */
 	@Id
-	@GeneratedValue(strategy=GenerationType.AUTO)
+	@GeneratedValue(strategy=GenerationType.SEQUENCE, generator="temporalIdGenerator")
+	@SequenceGenerator(name="temporalIdGenerator", sequenceName="TEMPORALS_SEQ", allocationSize=50)
 	private Long id;
 	
 	@Column(name="LOCAL_DATE")
@@ -40,14 +49,56 @@ public class Temporal {
 	@Convert(converter=InstantConverter.class)
 	private Instant instant;
 	
+	/**
+	 * Converted by the ZoneIdConverter of the application context (@see ca.jent.tzWebJpa.converter.ZoneIdConverterInitializer)
+	 */
 	@Column(name="ZONE_ID")
-	@Convert(converter=ZoneIdConverter.class)
 	private ZoneId zoneId;
 	
 	@Column(name="ZONE_OFFSET")
 	@Convert(converter=ZoneOffsetConverter.class)
 	private ZoneOffset zoneOffset;
 	
+	/**
+	 * Optimistic locking: saving a Temporal whose version is not the one of its row fails
+	 * (ObjectOptimisticLockingFailureException) instead of overwriting a concurrent update.
+	 * Null until inserted.  A Temporal with an ID but no version (e.g. posted by a client that does not
+	 * send it) is not checked: TemporalService takes the version of its row before saving it.
+	 */
+	@Version
+	@Column(name="VERSION")
+	private Long version;
+	
+	/**
+	 * Set when the Temporal is inserted or updated.
+	 */
+	@Column(name="LAST_MODIFIED")
+	@Convert(converter=InstantConverter.class)
+	private Instant lastModified;
+	
+	
+	public Temporal() {
+	}
+	
+	/**
+	 * Copy constructor (the java.time values are immutable thus shared)
+	 */
+	public Temporal(Temporal other) {
+		this.id = other.id;
+		this.localDate = other.localDate;
+		this.localTime = other.localTime;
+		this.instant = other.instant;
+		this.zoneId = other.zoneId;
+		this.zoneOffset = other.zoneOffset;
+		this.version = other.version;
+		this.lastModified = other.lastModified;
+	}
+	
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		lastModified = Instant.now();
+	}
 	
 	public Long getId() {
 		return id;
@@ -85,6 +136,18 @@ public class Temporal {
 	public void setZoneOffset(ZoneOffset zoneOffset) {
 		this.zoneOffset = zoneOffset;
 	}
+	public Long getVersion() {
+		return version;
+	}
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	public Instant getLastModified() {
+		return lastModified;
+	}
+	public void setLastModified(Instant lastModified) {
+		this.lastModified = lastModified;
+	}
 	@Override
 	public String toString() {
 		return "Temporal [id=" + id + ", localDate=" + localDate + ", localTime=" + localTime + ", instant=" + instant
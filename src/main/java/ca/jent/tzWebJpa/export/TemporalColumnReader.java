@@ -0,0 +1,308 @@
+package ca.jent.tzWebJpa.export;
+
+import static ca.jent.tzWebJpa.export.TemporalColumns.CHUNK_HEADER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.CHUNK_HEADER_BYTES_V1;
+import static ca.jent.tzWebJpa.export.TemporalColumns.COLUMNS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.HEADER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ID;
+import static ca.jent.tzWebJpa.export.TemporalColumns.INSTANT_NANOS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.INSTANT_SECONDS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.LOCAL_DATE;
+import static ca.jent.tzWebJpa.export.TemporalColumns.LOCAL_TIME;
+import static ca.jent.tzWebJpa.export.TemporalColumns.MAGIC;
+import static ca.jent.tzWebJpa.export.TemporalColumns.NULL;
+import static ca.jent.tzWebJpa.export.TemporalColumns.TRAILER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.VERSION;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ZONE;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ZONE_OFFSET;
+import static ca.jent.tzWebJpa.export.TemporalColumns.getVarint;
+import static ca.jent.tzWebJpa.export.TemporalColumns.unmap;
+import static ca.jent.tzWebJpa.export.TemporalColumns.unzigzag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+/**
+ * Scans a column file written by TemporalColumnWriter without loading it into the heap:
+ * only the footer is read up front, the columns of each chunk are memory-mapped when the cursor
+ * gets to it and decoded in place.  The primitive getters of the Cursor do not allocate.
+ * A cursor unmaps a chunk when it moves past it; closing the reader unmaps the chunks of the cursors
+ * not done yet (they cannot be used afterwards).
+ * <pre>
+ * try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+ *     TemporalColumnReader.Cursor cursor = reader.cursor();
+ *     while (cursor.next()) {
+ *         long epochSecond = cursor.getEpochSecond();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * A reader (and its cursors) is not thread-safe; open one reader per thread.
+ * @author jraymond
+ *
+ */
+public class TemporalColumnReader implements Closeable {
+
+	private final FileChannel channel;
+	private final int version;
+	private final ZoneId[] zones;
+	private final long[][] chunks; // offset, length, rows, minId, maxId
+	private final long rowCount;
+	private final Set<Cursor> cursors = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean closed;
+
+	private TemporalColumnReader(FileChannel channel, int version, ZoneId[] zones, long[][] chunks, long rowCount) {
+		this.channel = channel;
+		this.version = version;
+		this.zones = zones;
+		this.chunks = chunks;
+		this.rowCount = rowCount;
+	}
+
+	public static TemporalColumnReader open(Path file) throws IOException {
+		if (file == null) throw new IllegalArgumentException("file argument cannot be null.");
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		MappedByteBuffer header = null;
+		MappedByteBuffer trailer = null;
+		MappedByteBuffer footer = null;
+		try {
+			long size = channel.size();
+			if (size < HEADER_BYTES + TRAILER_BYTES) throw new IOException("Not a Temporal column file: " + file);
+			header = channel.map(MapMode.READ_ONLY, 0, HEADER_BYTES);
+			trailer = channel.map(MapMode.READ_ONLY, size - TRAILER_BYTES, TRAILER_BYTES);
+			long footerOffset = trailer.getLong();
+			long rowCount = trailer.getLong();
+			if (header.getInt() != MAGIC || trailer.getInt() != MAGIC) throw new IOException("Not a Temporal column file: " + file);
+			int version = header.getInt();
+			if (version != VERSION && version != 1) throw new IOException("Unsupported Temporal column file version " + version + ": " + file);
+
+			footer = channel.map(MapMode.READ_ONLY, footerOffset, size - TRAILER_BYTES - footerOffset);
+			ZoneId[] zones = new ZoneId[footer.getInt()];
+			for (int i = 0; i < zones.length; i++) {
+				byte[] zoneId = new byte[footer.getShort()];
+				footer.get(zoneId);
+				zones[i] = ZoneId.of(new String(zoneId, StandardCharsets.UTF_8));
+			}
+			long[][] chunks = new long[footer.getInt()][];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = new long[] { footer.getLong(), footer.getLong(), footer.getInt(), footer.getLong(), footer.getLong() };
+			}
+			return new TemporalColumnReader(channel, version, zones, chunks, rowCount);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		} finally {
+			unmap(header);
+			unmap(trailer);
+			unmap(footer);
+		}
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public int getChunkCount() {
+		return chunks.length;
+	}
+
+	/**
+	 * The zone dictionary of the file (in order of first appearance)
+	 */
+	public List<ZoneId> getZones() {
+		return Collections.unmodifiableList(Arrays.asList(zones));
+	}
+
+	/**
+	 * Cursor over every row in file order (i.e. ID order when written in ID order).
+	 */
+	public Cursor cursor() {
+		return new Cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Cursor over the rows having an ID within [fromId, toId].  The chunks whose ID range
+	 * does not overlap are skipped without being mapped.
+	 */
+	public Cursor cursor(long fromId, long toId) {
+		if (fromId > toId) throw new IllegalArgumentException("fromId (" + fromId + ") must not be greater than toId (" + toId + ").");
+		return new Cursor(fromId, toId);
+	}
+
+	/**
+	 * Convenience scan allocating one TemporalView per row.
+	 */
+	public void forEach(Consumer<? super TemporalView> consumer) {
+		Cursor cursor = cursor();
+		while (cursor.next()) {
+			consumer.accept(cursor.toView());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			for (Cursor cursor : cursors) {
+				cursor.unmapChunk();
+			}
+			cursors.clear();
+		} finally {
+			channel.close();
+		}
+	}
+
+	public class Cursor {
+
+		private final long fromId;
+		private final long toId;
+		private final MappedByteBuffer[] columns = new MappedByteBuffer[COLUMNS];
+		private final long[] raw = new long[COLUMNS];
+		private int chunk = -1;
+		private int remaining;
+
+		private long id;
+		private long epochSecond;
+		private long epochDay;
+
+		private Cursor(long fromId, long toId) {
+			this.fromId = fromId;
+			this.toId = toId;
+		}
+
+		/**
+		 * Move to the next row.
+		 * @return false once past the last row
+		 */
+		public boolean next() {
+			if (closed) throw new IllegalStateException("reader is closed.");
+			while (true) {
+				while (remaining == 0) {
+					if (!nextChunk()) return false;
+				}
+				remaining--;
+				for (int column = 0; column < COLUMNS; column++) {
+					raw[column] = getVarint(columns[column]);
+				}
+				id += unzigzag(raw[ID]);
+				if (raw[INSTANT_SECONDS] != NULL) epochSecond += unzigzag(raw[INSTANT_SECONDS] - 1);
+				if (raw[LOCAL_DATE] != NULL) epochDay += unzigzag(raw[LOCAL_DATE] - 1);
+				if (id >= fromId && id <= toId) return true;
+			}
+		}
+
+		private boolean nextChunk() {
+			unmapChunk();
+			do {
+				if (++chunk >= chunks.length) {
+					cursors.remove(this);
+					return false;
+				}
+			} while (chunks[chunk][4] < fromId || chunks[chunk][3] > toId);
+			cursors.add(this);
+			int headerBytes = version == 1 ? CHUNK_HEADER_BYTES_V1 : CHUNK_HEADER_BYTES;
+			try {
+				MappedByteBuffer header = channel.map(MapMode.READ_ONLY, chunks[chunk][0], headerBytes);
+				long position = chunks[chunk][0] + headerBytes;
+				try {
+					remaining = header.getInt();
+					for (int column = 0; column < COLUMNS; column++) {
+						long length = version == 1 ? header.getInt() : header.getLong();
+						columns[column] = channel.map(MapMode.READ_ONLY, position, length);
+						position += length;
+					}
+				} finally {
+					unmap(header);
+				}
+			} catch (IOException e) {
+				unmapChunk();
+				throw new UncheckedIOException(e);
+			}
+			id = 0;
+			epochSecond = 0;
+			epochDay = 0;
+			return true;
+		}
+
+		private void unmapChunk() {
+			remaining = 0;
+			for (int column = 0; column < COLUMNS; column++) {
+				unmap(columns[column]);
+				columns[column] = null;
+			}
+		}
+
+		public long getId() {
+			return id;
+		}
+		public boolean hasInstant() {
+			return raw[INSTANT_SECONDS] != NULL;
+		}
+		public long getEpochSecond() {
+			return epochSecond;
+		}
+		public int getNano() {
+			return (int) (raw[INSTANT_NANOS] - 1);
+		}
+		public boolean hasLocalDate() {
+			return raw[LOCAL_DATE] != NULL;
+		}
+		public long getEpochDay() {
+			return epochDay;
+		}
+		public boolean hasLocalTime() {
+			return raw[LOCAL_TIME] != NULL;
+		}
+		public long getNanoOfDay() {
+			return raw[LOCAL_TIME] - 1;
+		}
+		public boolean hasZoneOffset() {
+			return raw[ZONE_OFFSET] != NULL;
+		}
+		public int getOffsetSeconds() {
+			return (int) unzigzag(raw[ZONE_OFFSET] - 1);
+		}
+		/**
+		 * @return the (shared) ZoneId of the file's dictionary or null
+		 */
+		public ZoneId getZoneId() {
+			return raw[ZONE] == NULL ? null : zones[(int) raw[ZONE] - 1];
+		}
+		public Instant getInstant() {
+			return hasInstant() ? Instant.ofEpochSecond(epochSecond, getNano()) : null;
+		}
+		public LocalDate getLocalDate() {
+			return hasLocalDate() ? LocalDate.ofEpochDay(epochDay) : null;
+		}
+		public LocalTime getLocalTime() {
+			return hasLocalTime() ? LocalTime.ofNanoOfDay(getNanoOfDay()) : null;
+		}
+		public ZoneOffset getZoneOffset() {
+			return hasZoneOffset() ? ZoneOffset.ofTotalSeconds(getOffsetSeconds()) : null;
+		}
+		public TemporalView toView() {
+			return new TemporalView(id, getLocalDate(), getLocalTime(), getInstant(), getZoneId(), getZoneOffset());
+		}
+	}
+}
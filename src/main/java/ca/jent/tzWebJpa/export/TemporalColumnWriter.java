@@ -0,0 +1,235 @@
+package ca.jent.tzWebJpa.export;
+
+import static ca.jent.tzWebJpa.export.TemporalColumns.CHUNK_HEADER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.CHUNK_INDEX_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.COLUMNS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.HEADER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ID;
+import static ca.jent.tzWebJpa.export.TemporalColumns.INSTANT_NANOS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.INSTANT_SECONDS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.LOCAL_DATE;
+import static ca.jent.tzWebJpa.export.TemporalColumns.LOCAL_TIME;
+import static ca.jent.tzWebJpa.export.TemporalColumns.MAGIC;
+import static ca.jent.tzWebJpa.export.TemporalColumns.MAX_CHUNK_ROWS;
+import static ca.jent.tzWebJpa.export.TemporalColumns.NULL;
+import static ca.jent.tzWebJpa.export.TemporalColumns.TRAILER_BYTES;
+import static ca.jent.tzWebJpa.export.TemporalColumns.VERSION;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ZONE;
+import static ca.jent.tzWebJpa.export.TemporalColumns.ZONE_OFFSET;
+import static ca.jent.tzWebJpa.export.TemporalColumns.putVarint;
+import static ca.jent.tzWebJpa.export.TemporalColumns.unmap;
+import static ca.jent.tzWebJpa.export.TemporalColumns.varintSize;
+import static ca.jent.tzWebJpa.export.TemporalColumns.zigzag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+/**
+ * Writes Temporal to a column file (@see TemporalColumns for the layout).  Rows are encoded
+ * into primitive column arrays and every chunkRows rows the chunk is written through
+ * memory-mapped regions of exactly its encoded size (its header, then one per column).  Give the
+ * rows in ID order so each chunk covers a narrow ID range (the reader skips the chunks outside the
+ * IDs it wants).  Each region is unmapped once written and, given a sink, also written to it so
+ * the file can be sent while it is being built.
+ * Not thread-safe.
+ * @author jraymond
+ *
+ */
+public class TemporalColumnWriter implements Closeable {
+
+	private final FileChannel channel;
+	private final WritableByteChannel sink;
+	private final long[][] values;
+	private final long[] previous = new long[COLUMNS];
+	private final long[] lengths = new long[COLUMNS];
+	private final Map<ZoneId, Integer> zoneCodes = new HashMap<>();
+	private final List<ZoneId> zones = new ArrayList<>();
+	private final List<long[]> chunks = new ArrayList<>(); // offset, length, rows, minId, maxId
+
+	private long position;
+	private long rowCount;
+	private int rows;
+	private long minId;
+	private long maxId;
+	private boolean closed;
+
+	public TemporalColumnWriter(Path file, int chunkRows) throws IOException {
+		this(file, chunkRows, null);
+	}
+
+	/**
+	 * @param sink also gets the bytes of the file, in order, as they are written (null for none)
+	 */
+	public TemporalColumnWriter(Path file, int chunkRows, WritableByteChannel sink) throws IOException {
+		if (file == null) throw new IllegalArgumentException("file argument cannot be null.");
+		if (chunkRows < 1) throw new IllegalArgumentException("chunkRows must be greater than zero.");
+		if (chunkRows > MAX_CHUNK_ROWS) throw new IllegalArgumentException("chunkRows must not be greater than " + MAX_CHUNK_ROWS + ".");
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.sink = sink;
+		this.values = new long[COLUMNS][chunkRows];
+		try {
+			MappedByteBuffer header = map(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION);
+			release(header);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		resetChunk();
+	}
+
+	public void add(TemporalView temporal) throws IOException {
+		if (closed) throw new IllegalStateException("writer is closed.");
+		if (temporal.getId() == null) throw new IllegalArgumentException("Temporal ID cannot be null.");
+		long id = temporal.getId();
+		values[ID][rows] = zigzag(id - previous[ID]);
+		previous[ID] = id;
+		if (temporal.getInstant() == null) {
+			values[INSTANT_SECONDS][rows] = NULL;
+			values[INSTANT_NANOS][rows] = NULL;
+		} else {
+			values[INSTANT_SECONDS][rows] = delta(INSTANT_SECONDS, temporal.getInstant().getEpochSecond());
+			values[INSTANT_NANOS][rows] = temporal.getInstant().getNano() + 1L;
+		}
+		values[LOCAL_DATE][rows] = temporal.getLocalDate() == null ? NULL : delta(LOCAL_DATE, temporal.getLocalDate().toEpochDay());
+		values[LOCAL_TIME][rows] = temporal.getLocalTime() == null ? NULL : temporal.getLocalTime().toNanoOfDay() + 1;
+		values[ZONE][rows] = temporal.getZoneId() == null ? NULL : zoneCode(temporal.getZoneId()) + 1L;
+		values[ZONE_OFFSET][rows] = temporal.getZoneOffset() == null ? NULL : zigzag(temporal.getZoneOffset().getTotalSeconds()) + 1;
+		minId = Math.min(minId, id);
+		maxId = Math.max(maxId, id);
+		if (++rows == values[ID].length) writeChunk();
+	}
+
+	public long getRowCount() {
+		return rowCount + rows;
+	}
+
+	/**
+	 * Write the last (partial) chunk, the zone dictionary and the chunk index.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			if (rows > 0) writeChunk();
+			writeFooter();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private long delta(int column, long value) {
+		long delta = value - previous[column];
+		previous[column] = value;
+		return zigzag(delta) + 1;
+	}
+
+	private int zoneCode(ZoneId zoneId) {
+		return zoneCodes.computeIfAbsent(zoneId, zone -> {
+			zones.add(zone);
+			return zones.size() - 1;
+		});
+	}
+
+	private void writeChunk() throws IOException {
+		long length = CHUNK_HEADER_BYTES;
+		for (int column = 0; column < COLUMNS; column++) {
+			long size = 0;
+			for (int row = 0; row < rows; row++) {
+				size += varintSize(values[column][row]);
+			}
+			lengths[column] = size;
+			length += size;
+		}
+		long offset = position;
+		MappedByteBuffer header = map(CHUNK_HEADER_BYTES);
+		header.putInt(rows);
+		for (int column = 0; column < COLUMNS; column++) {
+			header.putLong(lengths[column]);
+		}
+		release(header);
+		for (int column = 0; column < COLUMNS; column++) {
+			MappedByteBuffer buffer = map(lengths[column]);
+			long[] columnValues = values[column];
+			for (int row = 0; row < rows; row++) {
+				putVarint(buffer, columnValues[row]);
+			}
+			release(buffer);
+		}
+		chunks.add(new long[] { offset, length, rows, minId, maxId });
+		rowCount += rows;
+		resetChunk();
+	}
+
+	private void resetChunk() {
+		rows = 0;
+		minId = Long.MAX_VALUE;
+		maxId = Long.MIN_VALUE;
+		for (int column = 0; column < COLUMNS; column++) {
+			previous[column] = 0;
+		}
+	}
+
+	private void writeFooter() throws IOException {
+		List<byte[]> zoneIds = new ArrayList<>(zones.size());
+		long length = 4 + 4 + (long) chunks.size() * CHUNK_INDEX_BYTES + TRAILER_BYTES;
+		for (ZoneId zone : zones) {
+			byte[] zoneId = zone.getId().getBytes(StandardCharsets.UTF_8);
+			zoneIds.add(zoneId);
+			length += 2 + zoneId.length;
+		}
+		long footerOffset = position;
+		MappedByteBuffer footer = map(length);
+		footer.putInt(zoneIds.size());
+		for (byte[] zoneId : zoneIds) {
+			footer.putShort((short) zoneId.length).put(zoneId);
+		}
+		footer.putInt(chunks.size());
+		for (long[] chunk : chunks) {
+			footer.putLong(chunk[0]).putLong(chunk[1]).putInt((int) chunk[2]).putLong(chunk[3]).putLong(chunk[4]);
+		}
+		footer.putLong(footerOffset).putLong(rowCount).putInt(MAGIC);
+		release(footer);
+	}
+
+	/**
+	 * Map the next length bytes of the file (growing it) and move the write position past them.
+	 */
+	private MappedByteBuffer map(long length) throws IOException {
+		MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, position, length);
+		position += length;
+		return buffer;
+	}
+
+	/**
+	 * Send the (fully written) region to the sink then unmap it.
+	 */
+	private void release(MappedByteBuffer buffer) throws IOException {
+		try {
+			if (sink != null) {
+				buffer.rewind();
+				while (buffer.hasRemaining()) {
+					sink.write(buffer);
+				}
+			}
+		} finally {
+			unmap(buffer);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package ca.jent.tzWebJpa.export;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Layout of a Temporal column file (all numbers big-endian):
+ * <pre>
+ * header   int MAGIC, int VERSION
+ * chunk*   int rowCount, long[COLUMNS] column byte lengths, then each column (in column order)
+ * footer   int zoneCount, zoneCount * (short length, UTF-8 zone id),
+ *          int chunkCount, chunkCount * (long offset, long length, int rowCount, long minId, long maxId)
+ * trailer  long footerOffset, long rowCount, int MAGIC
+ * </pre>
+ * A chunk holds the rows of one ID range (rows are written in ID order).  Every value is an
+ * unsigned LEB128 varint; deltas are zigzag encoded and start from 0 in each chunk so a chunk
+ * can be decoded on its own.  0 stands for null in every column but ID, non-null values are
+ * stored plus one:
+ * <pre>
+ * ID               zigzag(id - previous id)
+ * INSTANT_SECONDS  zigzag(epochSecond - previous epochSecond) + 1
+ * INSTANT_NANOS    nano + 1
+ * LOCAL_DATE       zigzag(epochDay - previous epochDay) + 1
+ * LOCAL_TIME       nanoOfDay + 1
+ * ZONE             index in the zone dictionary + 1
+ * ZONE_OFFSET      zigzag(totalSeconds) + 1
+ * </pre>
+ * Version 1 files have int column byte lengths.  A column is mapped as one region, hence at most
+ * MAX_CHUNK_ROWS rows per chunk (a varint takes up to MAX_VARINT_BYTES bytes); a chunk may exceed 2 GB.
+ * @author jraymond
+ *
+ */
+final class TemporalColumns {
+
+	static final int MAGIC = 0x545A434C; // "TZCL"
+	static final int VERSION = 2;
+
+	static final int ID = 0;
+	static final int INSTANT_SECONDS = 1;
+	static final int INSTANT_NANOS = 2;
+	static final int LOCAL_DATE = 3;
+	static final int LOCAL_TIME = 4;
+	static final int ZONE = 5;
+	static final int ZONE_OFFSET = 6;
+	static final int COLUMNS = 7;
+
+	static final int HEADER_BYTES = 8;
+	static final int CHUNK_HEADER_BYTES = 4 + 8 * COLUMNS;
+	static final int CHUNK_HEADER_BYTES_V1 = 4 + 4 * COLUMNS;
+	static final int CHUNK_INDEX_BYTES = 8 + 8 + 4 + 8 + 8;
+	static final int TRAILER_BYTES = 8 + 8 + 4;
+
+	static final int MAX_VARINT_BYTES = 10;
+	static final int MAX_CHUNK_ROWS = Integer.MAX_VALUE / MAX_VARINT_BYTES;
+
+	static final long NULL = 0;
+
+	private static final Unmapper UNMAPPER = unmapper();
+
+	private TemporalColumns() {
+	}
+
+	/**
+	 * Release the mapping of buffer now instead of when it is garbage collected (the file cannot be
+	 * deleted on Windows and its pages stay mapped until then).  buffer must not be used afterwards.
+	 * Nothing is done when the JDK offers no way to do it.
+	 */
+	static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null || UNMAPPER == null) return;
+		try {
+			UNMAPPER.unmap(buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left to the garbage collector
+		}
+	}
+
+	@FunctionalInterface
+	private interface Unmapper {
+		void unmap(MappedByteBuffer buffer) throws ReflectiveOperationException;
+	}
+
+	/**
+	 * sun.misc.Unsafe.invokeCleaner (Java 9 and later) else the Cleaner of sun.nio.ch.DirectBuffer (Java 8).
+	 */
+	private static Unmapper unmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> invokeCleaner.invoke(unsafe, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Java 8
+		}
+		try {
+			Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+			Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+			return buffer -> {
+				Object bufferCleaner = cleaner.invoke(buffer);
+				if (bufferCleaner != null) clean.invoke(bufferCleaner);
+			};
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	static void putVarint(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	static long getVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package ca.jent.tzWebJpa.feed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer written by any number of threads and read by any number of readers,
+ * each at its own sequence.  A writer never waits: it claims the next sequence and overwrites the
+ * oldest value, so a reader that falls more than capacity values behind finds its sequence overrun
+ * (sequence < oldest()) and has to get what it missed elsewhere.
+ * A sequence is claimed before its value is set: a reader waits at a sequence not yet published
+ * even though later sequences are.
+ * @author jraymond
+ *
+ * @param <T> value (must not be mutated once published)
+ */
+public class RingBuffer<T> {
+
+	private final AtomicReferenceArray<Slot<T>> slots;
+	private final int mask;
+	private final AtomicLong next = new AtomicLong();
+
+	/**
+	 * @param capacity rounded up to a power of two
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("capacity must be within 1 and 2^30.");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @return the sequence of the value
+	 */
+	public long publish(T value) {
+		if (value == null) throw new IllegalArgumentException("value argument cannot be null.");
+		long sequence = next.getAndIncrement();
+		slots.set((int) (sequence & mask), new Slot<>(sequence, value));
+		return sequence;
+	}
+
+	/**
+	 * @return the value published at sequence; null if it is not published yet or if it was overrun (@see oldest)
+	 */
+	public T get(long sequence) {
+		Slot<T> slot = slots.get((int) (sequence & mask));
+		return slot != null && slot.sequence == sequence ? slot.value : null;
+	}
+
+	/**
+	 * @return the sequence of the next value published
+	 */
+	public long head() {
+		return next.get();
+	}
+
+	/**
+	 * @return the oldest sequence still held; a reader at a lower sequence was overrun
+	 */
+	public long oldest() {
+		return Math.max(0, next.get() - slots.length());
+	}
+
+	public int capacity() {
+		return slots.length();
+	}
+
+	private static final class Slot<T> {
+		private final long sequence;
+		private final T value;
+
+		Slot(long sequence, T value) {
+			this.sequence = sequence;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package ca.jent.tzWebJpa.feed;
+
+import java.util.Collections;
+import java.util.List;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * Application event of TemporalService.save/saveAll: the Temporal inserted (copies, as saved).
+ * It is published within the transaction; listen with @TransactionalEventListener to get it once committed.
+ * @author jraymond
+ *
+ */
+public class TemporalsCreated {
+
+	private final List<Temporal> temporals;
+
+	public TemporalsCreated(List<Temporal> temporals) {
+		if (temporals == null) throw new IllegalArgumentException("List<Temporal> argument cannot be null.");
+		this.temporals = Collections.unmodifiableList(temporals);
+	}
+
+	public List<Temporal> getTemporals() {
+		return temporals;
+	}
+}
@@ -0,0 +1,100 @@
+package ca.jent.tzWebJpa.importer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of one CSV import (@see ca.jent.tzWebJpa.services.TemporalImportService),
+ * updated by the import threads and read (e.g. serialized to JSON) at any time.
+ * Splits resumed are the ones a previous run of the same file had already imported.
+ * @author jraymond
+ *
+ */
+public class ImportJob {
+
+	public enum Status { RUNNING, COMPLETED, FAILED }
+
+	private final String file;
+	private final long fileBytes;
+	private final int splits;
+	private final int splitsResumed;
+	private final long startNanos = System.nanoTime();
+	private final AtomicInteger splitsDone = new AtomicInteger();
+	private final AtomicInteger splitsFailed = new AtomicInteger();
+	private final AtomicLong bytesDone = new AtomicLong();
+	private final LongAdder rows = new LongAdder();
+	private volatile long endNanos;
+	private volatile Status status = Status.RUNNING;
+	private volatile String error;
+
+	public ImportJob(String file, long fileBytes, int splits, int splitsResumed) {
+		this.file = file;
+		this.fileBytes = fileBytes;
+		this.splits = splits;
+		this.splitsResumed = splitsResumed;
+	}
+
+	public void splitDone(long bytes, long splitRows) {
+		bytesDone.addAndGet(bytes);
+		rows.add(splitRows);
+		splitsDone.incrementAndGet();
+	}
+
+	/**
+	 * Only the first error is kept.
+	 */
+	public void splitFailed(String message) {
+		if (splitsFailed.incrementAndGet() == 1) error = message;
+	}
+
+	public void finish() {
+		endNanos = System.nanoTime();
+		status = splitsFailed.get() == 0 ? Status.COMPLETED : Status.FAILED;
+	}
+
+	public String getFile() {
+		return file;
+	}
+	public long getFileBytes() {
+		return fileBytes;
+	}
+	public int getSplits() {
+		return splits;
+	}
+	public int getSplitsResumed() {
+		return splitsResumed;
+	}
+	public int getSplitsDone() {
+		return splitsDone.get();
+	}
+	public int getSplitsFailed() {
+		return splitsFailed.get();
+	}
+	public long getBytesDone() {
+		return bytesDone.get();
+	}
+	public long getRows() {
+		return rows.sum();
+	}
+	public Status getStatus() {
+		return status;
+	}
+	public String getError() {
+		return error;
+	}
+	public long getElapsedMillis() {
+		long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return (end - startNanos) / 1_000_000;
+	}
+	public long getRowsPerSecond() {
+		long elapsedMillis = getElapsedMillis();
+		return elapsedMillis == 0 ? 0 : getRows() * 1000 / elapsedMillis;
+	}
+	@Override
+	public String toString() {
+		return "ImportJob [file=" + file + ", status=" + status + ", splits=" + splitsDone + "/" + (splits - splitsResumed)
+				+ " (resumed " + splitsResumed + ", failed " + splitsFailed + "), rows=" + getRows()
+				+ ", rows/s=" + getRowsPerSecond() + "]";
+	}
+}
@@ -0,0 +1,325 @@
+package ca.jent.tzWebJpa.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Parser of the CSV lines of a Temporal import, one Temporal per line:
+ * <pre>
+ * localDate,localTime,instant,zoneId,zoneOffset
+ * 2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00
+ * </pre>
+ * Fields are ISO-8601 and an empty field is null (no quoting).  A first line starting with a
+ * letter is a header and skipped.  The usual forms (above, with optional fraction of second) are
+ * parsed straight from the bytes, without any String or DateTimeFormatter; other ISO forms fall
+ * back to the java.time parsers.
+ * ZoneId and ZoneOffset are validated once per distinct value: the parser first looks the bytes
+ * up in its own cache and only then (once per value and parser) in the maps shared by the parsers
+ * of an import.  ZoneId are the canonical instances of the ZoneDictionary.
+ * A parser is not thread-safe: use one per thread and share the maps.
+ * @author jraymond
+ *
+ */
+public class TemporalCsvParser {
+
+	/** A line must fit within this many bytes past the end of its split */
+	public static final int MAX_LINE_BYTES = 4096;
+
+	private static final int FIELDS = 5;
+
+	private final ZoneDictionary zoneDictionary;
+	private final ConcurrentMap<String, ZoneId> zoneIds;
+	private final ConcurrentMap<String, ZoneOffset> zoneOffsets;
+	private final ByteCache<ZoneId> zoneIdCache = new ByteCache<>();
+	private final ByteCache<ZoneOffset> zoneOffsetCache = new ByteCache<>();
+	private final int[] bounds = new int[FIELDS + 1];
+
+	public TemporalCsvParser(ZoneDictionary zoneDictionary) {
+		this(zoneDictionary, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+	}
+
+	public TemporalCsvParser(ZoneDictionary zoneDictionary, ConcurrentMap<String, ZoneId> zoneIds, ConcurrentMap<String, ZoneOffset> zoneOffsets) {
+		if (zoneDictionary == null) throw new IllegalArgumentException(ZoneDictionary.class.getName() + " argument cannot be null.");
+		if (zoneIds == null || zoneOffsets == null) throw new IllegalArgumentException("zoneIds and zoneOffsets arguments cannot be null.");
+		this.zoneDictionary = zoneDictionary;
+		this.zoneIds = zoneIds;
+		this.zoneOffsets = zoneOffsets;
+	}
+
+	/**
+	 * Parse every line starting within [start, end) of the file.  Only that range (and up to
+	 * MAX_LINE_BYTES past it, for the last line) is memory-mapped.  Splitting a file at any
+	 * offsets thus gives each line to exactly one split.
+	 * @return the number of Temporal handed to the consumer
+	 * @throws IllegalArgumentException for an invalid line (with its offset in the file)
+	 */
+	public long parseSplit(FileChannel channel, long start, long end, Consumer<? super Temporal> consumer) throws IOException {
+		long size = channel.size();
+		long mapStart = start == 0 ? 0 : start - 1;
+		long mapEnd = Math.min(size, end + MAX_LINE_BYTES);
+		if (mapStart >= mapEnd) return 0;
+		MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+		int limit = buffer.limit();
+		int lastLineStart = (int) (Math.min(end, size) - mapStart);
+		int position;
+		if (start == 0) {
+			position = skipHeader(buffer, limit);
+		} else {
+			// the first line of the split starts right after the first '\n' at or after start - 1
+			position = indexOf(buffer, '\n', 0, limit) + 1;
+			if (position == 0) return 0;
+		}
+		long count = 0;
+		while (position < lastLineStart) {
+			int lineEnd = indexOf(buffer, '\n', position, limit);
+			if (lineEnd < 0) {
+				if (mapEnd < size) throw new IllegalArgumentException("Line at offset " + (mapStart + position) + " is longer than " + MAX_LINE_BYTES + " bytes.");
+				lineEnd = limit;
+			}
+			int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+			if (contentEnd > position) {
+				Temporal temporal;
+				try {
+					temporal = parse(buffer, position, contentEnd);
+				} catch (DateTimeException | IllegalArgumentException e) {
+					throw new IllegalArgumentException("Invalid line at offset " + (mapStart + position) + ": " + e.getMessage(), e);
+				}
+				consumer.accept(temporal);
+				count++;
+			}
+			position = lineEnd + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Parse one line (without its line separator) held in buffer[start, end).
+	 */
+	public Temporal parse(ByteBuffer buffer, int start, int end) {
+		int field = 0;
+		bounds[0] = start;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == ',') {
+				if (++field == FIELDS) break;
+				bounds[field] = i + 1;
+			}
+		}
+		if (field != FIELDS - 1) throw new IllegalArgumentException("expected " + FIELDS + " fields.");
+		bounds[FIELDS] = end + 1;
+
+		Temporal temporal = new Temporal();
+		temporal.setLocalDate(localDate(buffer, bounds[0], bounds[1] - 1));
+		temporal.setLocalTime(localTime(buffer, bounds[1], bounds[2] - 1));
+		temporal.setInstant(instant(buffer, bounds[2], bounds[3] - 1));
+		temporal.setZoneId(zoneId(buffer, bounds[3], bounds[4] - 1));
+		temporal.setZoneOffset(zoneOffset(buffer, bounds[4], bounds[5] - 1));
+		return temporal;
+	}
+
+	/**
+	 * @return the position of the first line after the UTF-8 byte order mark and the header (if any)
+	 */
+	private static int skipHeader(ByteBuffer buffer, int limit) {
+		int position = 0;
+		if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+			position = 3;
+		}
+		if (position < limit && Character.isLetter((char) buffer.get(position))) {
+			int lineEnd = indexOf(buffer, '\n', position, limit);
+			position = lineEnd < 0 ? limit : lineEnd + 1;
+		}
+		return position;
+	}
+
+	private static LocalDate localDate(ByteBuffer buffer, int start, int end) {
+		if (start == end) return null;
+		if (end - start == 10 && buffer.get(start + 4) == '-' && buffer.get(start + 7) == '-') {
+			int year = digits(buffer, start, 4);
+			int month = digits(buffer, start + 5, 2);
+			int day = digits(buffer, start + 8, 2);
+			if ((year | month | day) >= 0) return LocalDate.of(year, month, day);
+		}
+		return LocalDate.parse(string(buffer, start, end));
+	}
+
+	private static LocalTime localTime(ByteBuffer buffer, int start, int end) {
+		if (start == end) return null;
+		int secondOfDay = secondOfDay(buffer, start, end);
+		int nano = secondOfDay < 0 ? -1 : nano(buffer, start + 8, end);
+		if (nano >= 0) return LocalTime.ofNanoOfDay(secondOfDay * 1_000_000_000L + nano);
+		return LocalTime.parse(string(buffer, start, end));
+	}
+
+	/**
+	 * yyyy-MM-ddTHH:mm:ss[.SSSSSSSSS]Z
+	 */
+	private static Instant instant(ByteBuffer buffer, int start, int end) {
+		if (start == end) return null;
+		if (end - start >= 20 && buffer.get(start + 10) == 'T' && buffer.get(end - 1) == 'Z') {
+			LocalDate date = localDate(buffer, start, start + 10);
+			int secondOfDay = secondOfDay(buffer, start + 11, end - 1);
+			int nano = secondOfDay < 0 ? -1 : nano(buffer, start + 19, end - 1);
+			if (nano >= 0) return Instant.ofEpochSecond(date.toEpochDay() * 86_400L + secondOfDay, nano);
+		}
+		return Instant.parse(string(buffer, start, end));
+	}
+
+	private ZoneId zoneId(ByteBuffer buffer, int start, int end) {
+		if (start == end) return null;
+		ZoneId zoneId = zoneIdCache.get(buffer, start, end);
+		if (zoneId == null) {
+			zoneId = zoneIds.computeIfAbsent(string(buffer, start, end), id -> zoneDictionary.zoneOf(zoneDictionary.codeOf(ZoneId.of(id))));
+			zoneIdCache.put(buffer, start, end, zoneId);
+		}
+		return zoneId;
+	}
+
+	private ZoneOffset zoneOffset(ByteBuffer buffer, int start, int end) {
+		if (start == end) return null;
+		ZoneOffset zoneOffset = zoneOffsetCache.get(buffer, start, end);
+		if (zoneOffset == null) {
+			zoneOffset = zoneOffsets.computeIfAbsent(string(buffer, start, end), ZoneOffset::of);
+			zoneOffsetCache.put(buffer, start, end, zoneOffset);
+		}
+		return zoneOffset;
+	}
+
+	/**
+	 * HH:mm:ss at start (end is only used to check the length)
+	 * @return the second of day or -1 if not that form
+	 */
+	private static int secondOfDay(ByteBuffer buffer, int start, int end) {
+		if (end - start < 8 || buffer.get(start + 2) != ':' || buffer.get(start + 5) != ':') return -1;
+		int hour = digits(buffer, start, 2);
+		int minute = digits(buffer, start + 3, 2);
+		int second = digits(buffer, start + 6, 2);
+		if ((hour | minute | second) < 0 || hour > 23 || minute > 59 || second > 59) return -1;
+		return hour * 3600 + minute * 60 + second;
+	}
+
+	/**
+	 * Optional fraction of second: nothing or '.' followed by 1 to 9 digits
+	 * @return the nano of second or -1 if not that form
+	 */
+	private static int nano(ByteBuffer buffer, int start, int end) {
+		if (start == end) return 0;
+		int length = end - start - 1;
+		if (buffer.get(start) != '.' || length < 1 || length > 9) return -1;
+		int nano = digits(buffer, start + 1, length);
+		if (nano < 0) return -1;
+		for (int i = length; i < 9; i++) {
+			nano *= 10;
+		}
+		return nano;
+	}
+
+	/**
+	 * @return the value of the length (at most 9) decimal digits at start or -1 if not all digits
+	 */
+	private static int digits(ByteBuffer buffer, int start, int length) {
+		int value = 0;
+		for (int i = start; i < start + length; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int indexOf(ByteBuffer buffer, char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == c) return i;
+		}
+		return -1;
+	}
+
+	private static String string(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Small open addressing map of byte sequences (the few distinct zones and offsets of a file)
+	 * looked up without copying the bytes.
+	 */
+	private static final class ByteCache<T> {
+
+		private byte[][] keys = new byte[16][];
+		private Object[] values = new Object[16];
+		private int size;
+
+		@SuppressWarnings("unchecked")
+		T get(ByteBuffer buffer, int start, int end) {
+			int mask = keys.length - 1;
+			for (int i = hash(buffer, start, end) & mask; keys[i] != null; i = (i + 1) & mask) {
+				if (matches(keys[i], buffer, start, end)) return (T) values[i];
+			}
+			return null;
+		}
+
+		void put(ByteBuffer buffer, int start, int end, T value) {
+			if (2 * (size + 1) > keys.length) resize();
+			byte[] key = new byte[end - start];
+			for (int i = 0; i < key.length; i++) {
+				key[i] = buffer.get(start + i);
+			}
+			insert(key, value);
+			size++;
+		}
+
+		private void insert(byte[] key, Object value) {
+			int mask = keys.length - 1;
+			int i = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+			while (keys[i] != null) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = key;
+			values[i] = value;
+		}
+
+		private void resize() {
+			byte[][] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new byte[oldKeys.length * 2][];
+			values = new Object[oldKeys.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != null) insert(oldKeys[i], oldValues[i]);
+			}
+		}
+
+		private static int hash(ByteBuffer buffer, int start, int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + buffer.get(i);
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+			if (key.length != end - start) return false;
+			for (int i = 0; i < key.length; i++) {
+				if (key[i] != buffer.get(start + i)) return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package ca.jent.tzWebJpa.json;
+
+/**
+ * How the java.time values of Temporal are written in JSON (property temporal.json.format).
+ * Both forms are always accepted when reading.
+ * @author jraymond
+ *
+ */
+public enum TemporalJsonFormat {
+
+	/**
+	 * ISO-8601 strings e.g. "2017-03-12", "03:30:00", "2017-03-12T09:30:00Z", "-06:00"
+	 */
+	ISO,
+
+	/**
+	 * Numbers: LocalDate as epoch-day, LocalTime as millisecond of the day, Instant as epoch-millis
+	 * (with a fraction for sub-millisecond precision) and ZoneOffset as total seconds
+	 */
+	EPOCH;
+
+	public static TemporalJsonFormat of(String name) {
+		if (name == null) throw new IllegalArgumentException("TemporalJsonFormat name cannot be null.");
+		return valueOf(name.trim().toUpperCase());
+	}
+}
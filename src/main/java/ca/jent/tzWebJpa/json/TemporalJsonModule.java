@@ -0,0 +1,190 @@
+package ca.jent.tzWebJpa.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+/**
+ * Jackson module for the java.time types used by Temporal.
+ * They are written (@see TemporalJsonWriter) in the ISO-8601 string form e.g. "1945-02-16", "03:30:30",
+ * "2000-05-22T18:30:40Z", "America/Edmonton", "-06:00" or, with the EPOCH format, as numbers
+ * (@see TemporalJsonFormat); a ZoneId is always its id.  Temporal and TemporalView have their own
+ * serializer writing the fields in order (no bean introspection) then the version if any (to send back
+ * when saving it), so a TemporalView read from the database is written like its Temporal.
+ * Both forms are read whatever the format.  An Instant can also be given as a number of milliseconds since the epoch.
+ * @author jraymond
+ *
+ */
+public class TemporalJsonModule extends SimpleModule {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final SerializedString ID = new SerializedString("id");
+	private static final SerializedString LOCAL_DATE = new SerializedString("localDate");
+	private static final SerializedString LOCAL_TIME = new SerializedString("localTime");
+	private static final SerializedString INSTANT = new SerializedString("instant");
+	private static final SerializedString ZONE_ID = new SerializedString("zoneId");
+	private static final SerializedString ZONE_OFFSET = new SerializedString("zoneOffset");
+	private static final SerializedString VERSION = new SerializedString("version");
+
+	public TemporalJsonModule() {
+		this(TemporalJsonFormat.ISO);
+	}
+
+	public TemporalJsonModule(TemporalJsonFormat format) {
+		super(TemporalJsonModule.class.getSimpleName());
+		if (format == null) throw new IllegalArgumentException(TemporalJsonFormat.class.getName() + " argument cannot be null.");
+		addDeserializer(LocalDate.class, new IsoDeserializer<>(LocalDate.class, LocalDate::parse));
+		addDeserializer(LocalTime.class, new IsoDeserializer<>(LocalTime.class, LocalTime::parse));
+		addDeserializer(Instant.class, new IsoDeserializer<>(Instant.class, Instant::parse));
+		addDeserializer(ZoneId.class, new IsoDeserializer<>(ZoneId.class, ZoneId::of));
+		addDeserializer(ZoneOffset.class, new IsoDeserializer<>(ZoneOffset.class, ZoneOffset::of));
+
+		addSerializer(LocalDate.class, new Serializer<LocalDate>(LocalDate.class,
+				(generator, value) -> TemporalJsonWriter.writeLocalDate(generator, value, format)));
+		addSerializer(LocalTime.class, new Serializer<LocalTime>(LocalTime.class,
+				(generator, value) -> TemporalJsonWriter.writeLocalTime(generator, value, format)));
+		addSerializer(Instant.class, new Serializer<Instant>(Instant.class,
+				(generator, value) -> TemporalJsonWriter.writeInstant(generator, value, format)));
+		addSerializer(ZoneId.class, new Serializer<ZoneId>(ZoneId.class, TemporalJsonWriter::writeZoneId));
+		addSerializer(ZoneOffset.class, new Serializer<ZoneOffset>(ZoneOffset.class,
+				(generator, value) -> TemporalJsonWriter.writeZoneOffset(generator, value, format)));
+		addSerializer(Temporal.class, new Serializer<Temporal>(Temporal.class, (generator, value) -> {
+			generator.writeStartObject();
+			writeFields(generator, value.getId(), value.getLocalDate(), value.getLocalTime(), value.getInstant(), value.getZoneId(), value.getZoneOffset(), format);
+			writeVersion(generator, value.getVersion());
+			generator.writeEndObject();
+		}));
+		addSerializer(TemporalView.class, new Serializer<TemporalView>(TemporalView.class, (generator, value) -> {
+			generator.writeStartObject();
+			writeFields(generator, value.getId(), value.getLocalDate(), value.getLocalTime(), value.getInstant(), value.getZoneId(), value.getZoneOffset(), format);
+			writeVersion(generator, value.getVersion());
+			generator.writeEndObject();
+		}));
+	}
+
+	private static void writeFields(JsonGenerator generator, Long id, LocalDate localDate, LocalTime localTime, Instant instant,
+			ZoneId zoneId, ZoneOffset zoneOffset, TemporalJsonFormat format) throws IOException {
+		generator.writeFieldName(ID);
+		if (id == null) generator.writeNull(); else generator.writeNumber(id);
+		generator.writeFieldName(LOCAL_DATE);
+		if (localDate == null) generator.writeNull(); else TemporalJsonWriter.writeLocalDate(generator, localDate, format);
+		generator.writeFieldName(LOCAL_TIME);
+		if (localTime == null) generator.writeNull(); else TemporalJsonWriter.writeLocalTime(generator, localTime, format);
+		generator.writeFieldName(INSTANT);
+		if (instant == null) generator.writeNull(); else TemporalJsonWriter.writeInstant(generator, instant, format);
+		generator.writeFieldName(ZONE_ID);
+		if (zoneId == null) generator.writeNull(); else TemporalJsonWriter.writeZoneId(generator, zoneId);
+		generator.writeFieldName(ZONE_OFFSET);
+		if (zoneOffset == null) generator.writeNull(); else TemporalJsonWriter.writeZoneOffset(generator, zoneOffset, format);
+	}
+
+	/**
+	 * Not written when null (a Temporal not inserted yet, a TemporalView without version).
+	 */
+	private static void writeVersion(JsonGenerator generator, Long version) throws IOException {
+		if (version == null) return;
+		generator.writeFieldName(VERSION);
+		generator.writeNumber(version);
+	}
+
+	@FunctionalInterface
+	private interface Writer<T> {
+		void write(JsonGenerator generator, T value) throws IOException;
+	}
+
+	private static class Serializer<T> extends StdSerializer<T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Writer<T> writer;
+
+		Serializer(Class<T> type, Writer<T> writer) {
+			super(type);
+			this.writer = writer;
+		}
+
+		@Override
+		public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+			writer.write(generator, value);
+		}
+	}
+
+	private static class IsoDeserializer<T> extends StdScalarDeserializer<T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Function<String, T> parser;
+
+		IsoDeserializer(Class<T> type, Function<String, T> parser) {
+			super(type);
+			this.parser = parser;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if (p.hasToken(JsonToken.VALUE_NUMBER_INT) || p.hasToken(JsonToken.VALUE_NUMBER_FLOAT)) {
+				try {
+					T value = fromNumber(p);
+					if (value != null) return value;
+				} catch (DateTimeException | ArithmeticException e) {
+					return (T) ctxt.handleWeirdNumberValue(handledType(), p.getNumberValue(), e.getMessage());
+				}
+			}
+			if (!p.hasToken(JsonToken.VALUE_STRING)) {
+				return (T) ctxt.handleUnexpectedToken(handledType(), p);
+			}
+			String text = p.getText().trim();
+			if (text.isEmpty()) return null;
+			try {
+				return parser.apply(text);
+			} catch (DateTimeException e) {
+				return (T) ctxt.handleWeirdStringValue(handledType(), text, e.getMessage());
+			}
+		}
+
+		/**
+		 * The EPOCH forms (@see TemporalJsonFormat)
+		 * @return null if the type has no number form
+		 */
+		@SuppressWarnings("unchecked")
+		private T fromNumber(JsonParser p) throws IOException {
+			boolean integer = p.hasToken(JsonToken.VALUE_NUMBER_INT);
+			if (handledType() == Instant.class) {
+				if (integer) return (T) Instant.ofEpochMilli(p.getLongValue());
+				BigDecimal seconds = p.getDecimalValue().movePointLeft(3);
+				BigDecimal epochSecond = seconds.setScale(0, RoundingMode.FLOOR);
+				return (T) Instant.ofEpochSecond(epochSecond.longValueExact(), seconds.subtract(epochSecond).movePointRight(9).intValue());
+			}
+			if (handledType() == LocalTime.class) {
+				if (integer) return (T) LocalTime.ofNanoOfDay(Math.multiplyExact(p.getLongValue(), 1_000_000L));
+				return (T) LocalTime.ofNanoOfDay(p.getDecimalValue().movePointRight(6).setScale(0, RoundingMode.FLOOR).longValueExact());
+			}
+			if (!integer) return null;
+			if (handledType() == LocalDate.class) return (T) LocalDate.ofEpochDay(p.getLongValue());
+			if (handledType() == ZoneOffset.class) return (T) ZoneOffset.ofTotalSeconds(p.getIntValue());
+			return null;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package ca.jent.tzWebJpa.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Writes the java.time values of Temporal straight into a JsonGenerator: digits are put
+ * in a per-thread char buffer (no String, no DateTimeFormatter, no intermediate LocalDateTime)
+ * and zone ids / ISO offsets are cached as SerializedString (UTF-8 encoded once per zone).
+ * ISO forms are the ones of toString() (fraction by groups of 3 digits) except that the seconds of
+ * a LocalTime are always written; years outside of [0, 9999] fall back to toString().
+ * @author jraymond
+ *
+ */
+final class TemporalJsonWriter {
+
+	private static final int NANOS_PER_MILLI = 1_000_000;
+	private static final long SECONDS_PER_DAY = 86_400;
+	private static final long DAYS_0000_TO_1970 = 719_528;
+
+	private static final ConcurrentMap<ZoneId, SerializedString> zoneIds = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<ZoneOffset, SerializedString> zoneOffsets = new ConcurrentHashMap<>();
+
+	/** Longest form: -9223372036854775808.999999 (epoch) or 9999-12-31T23:59:59.999999999Z (ISO) */
+	private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[32]);
+
+	private TemporalJsonWriter() {
+	}
+
+	static void writeLocalDate(JsonGenerator generator, LocalDate value, TemporalJsonFormat format) throws IOException {
+		if (format == TemporalJsonFormat.EPOCH) {
+			generator.writeNumber(value.toEpochDay());
+			return;
+		}
+		int year = value.getYear();
+		if (year < 0 || year > 9999) {
+			generator.writeString(value.toString());
+			return;
+		}
+		char[] buffer = buffers.get();
+		int length = putDate(buffer, 0, year, value.getMonthValue(), value.getDayOfMonth());
+		generator.writeString(buffer, 0, length);
+	}
+
+	static void writeLocalTime(JsonGenerator generator, LocalTime value, TemporalJsonFormat format) throws IOException {
+		long nanoOfDay = value.toNanoOfDay();
+		if (format == TemporalJsonFormat.EPOCH) {
+			writeMillis(generator, nanoOfDay / NANOS_PER_MILLI, (int) (nanoOfDay % NANOS_PER_MILLI));
+			return;
+		}
+		char[] buffer = buffers.get();
+		int length = putTime(buffer, 0, value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+		generator.writeString(buffer, 0, length);
+	}
+
+	static void writeInstant(JsonGenerator generator, Instant value, TemporalJsonFormat format) throws IOException {
+		long epochSecond = value.getEpochSecond();
+		int nano = value.getNano();
+		if (format == TemporalJsonFormat.EPOCH) {
+			if (epochSecond > Long.MAX_VALUE / 1000 - 1 || epochSecond < Long.MIN_VALUE / 1000 + 1) {
+				// beyond the range of a long epoch-millis
+				generator.writeNumber(BigDecimal.valueOf(epochSecond).movePointRight(3).add(BigDecimal.valueOf(nano, 6)));
+			} else {
+				writeMillis(generator, epochSecond * 1000 + nano / NANOS_PER_MILLI, nano % NANOS_PER_MILLI);
+			}
+			return;
+		}
+		long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+		int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+		// civil date of the epoch-day (H. Hinnant's days_from_civil inverse, from 0000-03-01)
+		long days = epochDay + DAYS_0000_TO_1970 - 60;
+		long era = Math.floorDiv(days, 146_097);
+		int dayOfEra = (int) (days - era * 146_097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int monthFromMarch = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+		int month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+		long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+		if (year < 0 || year > 9999) {
+			generator.writeString(value.toString());
+			return;
+		}
+		char[] buffer = buffers.get();
+		int length = putDate(buffer, 0, (int) year, month, day);
+		buffer[length++] = 'T';
+		length = putTime(buffer, length, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60, nano);
+		buffer[length++] = 'Z';
+		generator.writeString(buffer, 0, length);
+	}
+
+	static void writeZoneId(JsonGenerator generator, ZoneId value) throws IOException {
+		SerializedString id = zoneIds.get(value);
+		if (id == null) id = zoneIds.computeIfAbsent(value, zoneId -> new SerializedString(zoneId.getId()));
+		generator.writeString(id);
+	}
+
+	static void writeZoneOffset(JsonGenerator generator, ZoneOffset value, TemporalJsonFormat format) throws IOException {
+		if (format == TemporalJsonFormat.EPOCH) {
+			generator.writeNumber(value.getTotalSeconds());
+			return;
+		}
+		SerializedString id = zoneOffsets.get(value);
+		if (id == null) id = zoneOffsets.computeIfAbsent(value, zoneOffset -> new SerializedString(zoneOffset.getId()));
+		generator.writeString(id);
+	}
+
+	/**
+	 * millis + subMillisNanos / 10^6 as an integer when there is no fraction, else as a decimal
+	 * number (3 or 6 fraction digits).
+	 */
+	private static void writeMillis(JsonGenerator generator, long millis, int subMillisNanos) throws IOException {
+		if (subMillisNanos == 0) {
+			generator.writeNumber(millis);
+			return;
+		}
+		char[] buffer = buffers.get();
+		int length = 0;
+		if (millis < 0) {
+			// e.g. -1 ms + 0.25 ms is -0.75 ms
+			buffer[length++] = '-';
+			millis = -(millis + 1);
+			subMillisNanos = NANOS_PER_MILLI - subMillisNanos;
+		}
+		length = putLong(buffer, length, millis);
+		buffer[length++] = '.';
+		if (subMillisNanos % 1000 == 0) {
+			length = putDigits(buffer, length, subMillisNanos / 1000, 3);
+		} else {
+			length = putDigits(buffer, length, subMillisNanos, 6);
+		}
+		generator.writeRawValue(buffer, 0, length);
+	}
+
+	/**
+	 * yyyy-MM-dd
+	 */
+	private static int putDate(char[] buffer, int position, int year, int month, int day) {
+		position = putDigits(buffer, position, year, 4);
+		buffer[position++] = '-';
+		position = putDigits(buffer, position, month, 2);
+		buffer[position++] = '-';
+		return putDigits(buffer, position, day, 2);
+	}
+
+	/**
+	 * HH:mm:ss[.SSS[SSS[SSS]]]
+	 */
+	private static int putTime(char[] buffer, int position, int hour, int minute, int second, int nano) {
+		position = putDigits(buffer, position, hour, 2);
+		buffer[position++] = ':';
+		position = putDigits(buffer, position, minute, 2);
+		buffer[position++] = ':';
+		position = putDigits(buffer, position, second, 2);
+		if (nano == 0) return position;
+		buffer[position++] = '.';
+		if (nano % NANOS_PER_MILLI == 0) return putDigits(buffer, position, nano / NANOS_PER_MILLI, 3);
+		if (nano % 1000 == 0) return putDigits(buffer, position, nano / 1000, 6);
+		return putDigits(buffer, position, nano, 9);
+	}
+
+	/**
+	 * The digits of the value (>= 0) left padded with 0 to the width.
+	 */
+	private static int putDigits(char[] buffer, int position, int value, int width) {
+		for (int i = position + width - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return position + width;
+	}
+
+	/**
+	 * The digits of the value (>= 0).
+	 */
+	private static int putLong(char[] buffer, int position, long value) {
+		int width = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			width++;
+		}
+		for (int i = position + width - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return position + width;
+	}
+}
@@ -0,0 +1,53 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts of the JPA AttributeConverter (ca.jent.tzWebJpa.converter).
+ * Converters are instantiated by Hibernate, not Spring, thus the counters are static:
+ * each converter registers its Counter once and increments it on every call.
+ * @author jraymond
+ *
+ */
+public final class ConverterMetrics {
+	
+	private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+	
+	private ConverterMetrics() {}
+	
+	public static Counter register(Class<?> converter) {
+		return counters.computeIfAbsent(converter.getSimpleName(), name -> new Counter());
+	}
+	
+	/**
+	 * @return by converter name: number of calls to convertToDatabaseColumn (toDatabase) 
+	 * and convertToEntityAttribute (toEntity)
+	 */
+	public static Map<String, Map<String, Long>> snapshot() {
+		Map<String, Map<String, Long>> snapshot = new TreeMap<>();
+		counters.forEach((name, counter) -> {
+			Map<String, Long> calls = new TreeMap<>();
+			calls.put("toDatabase", counter.toDatabase.sum());
+			calls.put("toEntity", counter.toEntity.sum());
+			snapshot.put(name, calls);
+		});
+		return snapshot;
+	}
+	
+	public static final class Counter {
+		private final LongAdder toDatabase = new LongAdder();
+		private final LongAdder toEntity = new LongAdder();
+		
+		public void toDatabase() {
+			toDatabase.increment();
+		}
+		public void toEntity() {
+			toEntity.increment();
+		}
+	}
+	
+}
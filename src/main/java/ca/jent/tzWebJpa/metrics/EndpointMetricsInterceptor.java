@@ -0,0 +1,42 @@
+package ca.jent.tzWebJpa.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Latency of every REST endpoint, by HTTP method and mapping pattern (e.g. "GET /temporal/{id}").
+ * Asynchronous requests (CompletableFuture, StreamingResponseBody) are measured until the
+ * response is complete: the start time is kept on the first dispatch only.
+ * @author jraymond
+ *
+ */
+public class EndpointMetricsInterceptor extends HandlerInterceptorAdapter {
+	
+	private static final String START = EndpointMetricsInterceptor.class.getName() + ".START";
+	
+	private final MetricsRegistry registry;
+	
+	public EndpointMetricsInterceptor(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (request.getAttribute(START) == null) {
+			request.setAttribute(START, System.nanoTime());
+		}
+		return true;
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		Object start = request.getAttribute(START);
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		if (start == null || pattern == null) return;
+		registry.histogram(MetricsRegistry.ENDPOINT + request.getMethod() + " " + pattern).recordSince((Long) start);
+	}
+	
+}
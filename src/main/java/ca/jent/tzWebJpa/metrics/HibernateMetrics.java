@@ -0,0 +1,39 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counters of the Hibernate Statistics (hibernate.generate_statistics must be on).
+ * @author jraymond
+ *
+ */
+public final class HibernateMetrics {
+	
+	private HibernateMetrics() {}
+	
+	public static Map<String, Long> snapshot(Statistics statistics) {
+		Map<String, Long> snapshot = new LinkedHashMap<>();
+		if (!statistics.isStatisticsEnabled()) return snapshot;
+		snapshot.put("sessionsOpened", statistics.getSessionOpenCount());
+		snapshot.put("transactions", statistics.getTransactionCount());
+		snapshot.put("connectionsObtained", statistics.getConnectCount());
+		snapshot.put("statementsPrepared", statistics.getPrepareStatementCount());
+		snapshot.put("queries", statistics.getQueryExecutionCount());
+		snapshot.put("queryMaxTimeMillis", statistics.getQueryExecutionMaxTime());
+		snapshot.put("entityLoads", statistics.getEntityLoadCount());
+		snapshot.put("entityFetches", statistics.getEntityFetchCount());
+		snapshot.put("entityInserts", statistics.getEntityInsertCount());
+		snapshot.put("entityUpdates", statistics.getEntityUpdateCount());
+		snapshot.put("entityDeletes", statistics.getEntityDeleteCount());
+		snapshot.put("flushes", statistics.getFlushCount());
+		snapshot.put("optimisticFailures", statistics.getOptimisticFailureCount());
+		snapshot.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+		snapshot.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+		snapshot.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+		return snapshot;
+	}
+	
+}
@@ -0,0 +1,104 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, fixed size histogram of durations in nanoseconds.
+ * Buckets are log-linear: 16 sub-buckets per power of two, thus a percentile is reported
+ * within about 6% of its actual value.  Recording a value is a couple of atomic increments
+ * (no allocation) so it can stay on the hot path.
+ * @author jraymond
+ *
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(indexOf(nanos));
+		count.increment();
+		total.add(nanos);
+		long current = max.get();
+		while (nanos > current && !max.compareAndSet(current, nanos)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Records the time elapsed since the given System.nanoTime().
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Buckets are read one by one while values are being recorded: the snapshot is
+	 * approximate but never blocks the writers.
+	 */
+	public LatencySnapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			n += counts[i];
+		}
+		long maxNanos = max.get();
+		long sum = total.sum();
+		long recorded = count.sum();
+		return new LatencySnapshot(name, recorded, 
+				recorded == 0 ? 0 : sum / recorded, 
+				maxNanos,
+				percentile(counts, n, 0.50, maxNanos),
+				percentile(counts, n, 0.99, maxNanos),
+				percentile(counts, n, 0.999, maxNanos));
+	}
+	
+	static int indexOf(long nanos) {
+		if (nanos < SUB_BUCKETS) return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * @return the highest value that falls in the given bucket
+	 */
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS) return index;
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = index % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return ((long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+	}
+	
+	private static long percentile(long[] counts, long n, double percentile, long maxNanos) {
+		if (n == 0) return 0;
+		long rank = (long) Math.ceil(percentile * n);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) return Math.min(upperBoundOf(i), maxNanos);
+		}
+		return maxNanos;
+	}
+	
+}
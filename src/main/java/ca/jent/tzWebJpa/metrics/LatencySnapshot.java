@@ -0,0 +1,67 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a LatencyHistogram; durations are reported in microseconds.
+ * @author jraymond
+ *
+ */
+public class LatencySnapshot {
+	
+	private final String name;
+	private final long count;
+	private final long mean;
+	private final long max;
+	private final long p50;
+	private final long p99;
+	private final long p999;
+	
+	public LatencySnapshot(String name, long count, long meanNanos, long maxNanos, long p50Nanos, long p99Nanos, long p999Nanos) {
+		this.name = name;
+		this.count = count;
+		this.mean = TimeUnit.NANOSECONDS.toMicros(meanNanos);
+		this.max = TimeUnit.NANOSECONDS.toMicros(maxNanos);
+		this.p50 = TimeUnit.NANOSECONDS.toMicros(p50Nanos);
+		this.p99 = TimeUnit.NANOSECONDS.toMicros(p99Nanos);
+		this.p999 = TimeUnit.NANOSECONDS.toMicros(p999Nanos);
+	}
+	
+	LatencySnapshot(LatencySnapshot other, String name) {
+		this.name = name;
+		this.count = other.count;
+		this.mean = other.mean;
+		this.max = other.max;
+		this.p50 = other.p50;
+		this.p99 = other.p99;
+		this.p999 = other.p999;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	public long getCount() {
+		return count;
+	}
+	public long getMean() {
+		return mean;
+	}
+	public long getMax() {
+		return max;
+	}
+	public long getP50() {
+		return p50;
+	}
+	public long getP99() {
+		return p99;
+	}
+	public long getP999() {
+		return p999;
+	}
+	@Override
+	public String toString() {
+		return "LatencySnapshot [name=" + name + ", count=" + count + ", mean=" + mean + ", max=" + max + ", p50=" + p50
+				+ ", p99=" + p99 + ", p999=" + p999 + "]";
+	}
+	
+}
@@ -0,0 +1,44 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency histograms by name.  Names are prefixed by their group
+ * (e.g. "service.TemporalService.getTemporal", "endpoint.GET /temporal/{id}", "jdbc.getConnection").
+ * Callers on the hot path should keep the LatencyHistogram instead of looking it up every time.
+ * @author jraymond
+ *
+ */
+@Component
+public class MetricsRegistry {
+	
+	public static final String SERVICE = "service.";
+	public static final String ENDPOINT = "endpoint.";
+	public static final String JDBC = "jdbc.";
+	
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+	
+	public LatencyHistogram histogram(String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		return histogram != null ? histogram : histograms.computeIfAbsent(name, LatencyHistogram::new);
+	}
+	
+	/**
+	 * @param group e.g. MetricsRegistry.SERVICE
+	 * @return the snapshot of every histogram of the group (without the group prefix), sorted by name
+	 */
+	public List<LatencySnapshot> snapshots(String group) {
+		return histograms.values().stream()
+				.filter(histogram -> histogram.getName().startsWith(group))
+				.sorted((h1, h2) -> h1.getName().compareTo(h2.getName()))
+				.map(LatencyHistogram::snapshot)
+				.map(snapshot -> new LatencySnapshot(snapshot, snapshot.getName().substring(group.length())))
+				.collect(Collectors.toList());
+	}
+	
+}
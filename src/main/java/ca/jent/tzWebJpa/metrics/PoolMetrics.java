@@ -0,0 +1,39 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSourceProxy;
+
+/**
+ * State and counters of the connection pool (empty when the DataSource is not a tomcat-jdbc pool).
+ * @author jraymond
+ *
+ */
+public final class PoolMetrics {
+	
+	private PoolMetrics() {}
+	
+	public static Map<String, Number> snapshot(DataSource dataSource) {
+		Map<String, Number> snapshot = new LinkedHashMap<>();
+		if (!(dataSource instanceof DataSourceProxy)) return snapshot;
+		DataSourceProxy pool = (DataSourceProxy) dataSource;
+		if (pool.getPool() == null) return snapshot; // not started yet
+		snapshot.put("maxActive", pool.getMaxActive());
+		snapshot.put("size", pool.getSize());
+		snapshot.put("active", pool.getActive());
+		snapshot.put("idle", pool.getIdle());
+		snapshot.put("waiting", pool.getWaitCount());
+		snapshot.put("borrowed", pool.getBorrowedCount());
+		snapshot.put("returned", pool.getReturnedCount());
+		snapshot.put("created", pool.getCreatedCount());
+		snapshot.put("released", pool.getReleasedCount());
+		snapshot.put("releasedIdle", pool.getReleasedIdleCount());
+		snapshot.put("reconnected", pool.getReconnectedCount());
+		snapshot.put("removedAbandoned", pool.getRemoveAbandonedCount());
+		return snapshot;
+	}
+	
+}
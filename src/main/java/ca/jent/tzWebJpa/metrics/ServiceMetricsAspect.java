@@ -0,0 +1,52 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency of every public method of the services (ca.jent.tzWebJpa.services).
+ * Runs outside of the transaction advice so the commit is part of the measure.
+ * @author jraymond
+ *
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceMetricsAspect {
+	
+	private final MetricsRegistry registry;
+	private final ConcurrentMap<Method, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+	
+	public ServiceMetricsAspect(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+	
+	@Around("within(ca.jent.tzWebJpa.services..*) && execution(public * *(..))")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+		long start = System.nanoTime();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			histogramOf(((MethodSignature) joinPoint.getSignature()).getMethod()).recordSince(start);
+		}
+	}
+	
+	private LatencyHistogram histogramOf(Method method) {
+		LatencyHistogram histogram = histograms.get(method);
+		if (histogram == null) {
+			histogram = histograms.computeIfAbsent(method, m -> 
+				registry.histogram(MetricsRegistry.SERVICE + m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+		}
+		return histogram;
+	}
+	
+}
@@ -0,0 +1,45 @@
+package ca.jent.tzWebJpa.metrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Records the time taken to acquire a connection from the target DataSource.
+ * The target is not closed by this DataSource (it is expected to be a bean of its own).
+ * @author jraymond
+ *
+ */
+public class TimedDataSource extends DelegatingDataSource {
+	
+	private final LatencyHistogram histogram;
+	
+	public TimedDataSource(DataSource target, LatencyHistogram histogram) {
+		super(target);
+		this.histogram = histogram;
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return super.getConnection();
+		} finally {
+			histogram.recordSince(start);
+		}
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return super.getConnection(username, password);
+		} finally {
+			histogram.recordSince(start);
+		}
+	}
+	
+}
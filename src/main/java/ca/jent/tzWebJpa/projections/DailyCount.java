@@ -0,0 +1,37 @@
+package ca.jent.tzWebJpa.projections;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Number of Temporal for one LOCAL_DATE and ZONE_ID.
+ * @author jraymond
+ *
+ */
+public class DailyCount {
+	
+	private final LocalDate localDate;
+	private final ZoneId zoneId;
+	private final long count;
+	
+	public DailyCount(LocalDate localDate, ZoneId zoneId, Long count) {
+		this.localDate = localDate;
+		this.zoneId = zoneId;
+		this.count = count;
+	}
+	
+	public LocalDate getLocalDate() {
+		return localDate;
+	}
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+	public long getCount() {
+		return count;
+	}
+	@Override
+	public String toString() {
+		return "DailyCount [localDate=" + localDate + ", zoneId=" + zoneId + ", count=" + count + "]";
+	}
+	
+}
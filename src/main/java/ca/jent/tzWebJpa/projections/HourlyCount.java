@@ -0,0 +1,31 @@
+package ca.jent.tzWebJpa.projections;
+
+import java.time.Instant;
+
+/**
+ * Number of Temporal having an instant within [hour, hour + 1 hour) (UTC hours).
+ * @author jraymond
+ *
+ */
+public class HourlyCount {
+	
+	private final Instant hour;
+	private final long count;
+	
+	public HourlyCount(Instant hour, long count) {
+		this.hour = hour;
+		this.count = count;
+	}
+	
+	public Instant getHour() {
+		return hour;
+	}
+	public long getCount() {
+		return count;
+	}
+	@Override
+	public String toString() {
+		return "HourlyCount [hour=" + hour + ", count=" + count + "]";
+	}
+	
+}
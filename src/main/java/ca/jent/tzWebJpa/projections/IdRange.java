@@ -0,0 +1,32 @@
+package ca.jent.tzWebJpa.projections;
+
+/**
+ * Smallest and greatest ID of a set of Temporal (both null when the set is empty).
+ * @author jraymond
+ *
+ */
+public class IdRange {
+	
+	private final Long minId;
+	private final Long maxId;
+	
+	public IdRange(Long minId, Long maxId) {
+		this.minId = minId;
+		this.maxId = maxId;
+	}
+	
+	public Long getMinId() {
+		return minId;
+	}
+	public Long getMaxId() {
+		return maxId;
+	}
+	public boolean isEmpty() {
+		return minId == null;
+	}
+	@Override
+	public String toString() {
+		return "IdRange [minId=" + minId + ", maxId=" + maxId + "]";
+	}
+	
+}
@@ -0,0 +1,48 @@
+package ca.jent.tzWebJpa.projections;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Number of Temporal for one ZONE_ID and ZONE_OFFSET.
+ * daylightSaving tells if the offset is not the standard offset of the zone; it is decided at 
+ * the first instant of the group (a zone whose standard offset changed over the years may have 
+ * the same offset being standard at one time and daylight saving at another).
+ * @author jraymond
+ *
+ */
+public class OffsetCount {
+	
+	private final ZoneId zoneId;
+	private final ZoneOffset zoneOffset;
+	private final long count;
+	private final boolean daylightSaving;
+	
+	public OffsetCount(ZoneId zoneId, ZoneOffset zoneOffset, Long count, Instant firstInstant) {
+		this.zoneId = zoneId;
+		this.zoneOffset = zoneOffset;
+		this.count = count;
+		this.daylightSaving = zoneId != null && zoneOffset != null && firstInstant != null
+				&& !zoneOffset.equals(zoneId.getRules().getStandardOffset(firstInstant));
+	}
+	
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+	public ZoneOffset getZoneOffset() {
+		return zoneOffset;
+	}
+	public long getCount() {
+		return count;
+	}
+	public boolean isDaylightSaving() {
+		return daylightSaving;
+	}
+	@Override
+	public String toString() {
+		return "OffsetCount [zoneId=" + zoneId + ", zoneOffset=" + zoneOffset + ", count=" + count + ", daylightSaving="
+				+ daylightSaving + "]";
+	}
+	
+}
@@ -0,0 +1,37 @@
+package ca.jent.tzWebJpa.projections;
+
+import java.time.Instant;
+
+/**
+ * Version and last modification of one Temporal, enough to answer a conditional GET
+ * (If-None-Match, If-Modified-Since) without loading the Temporal itself.
+ * @author jraymond
+ *
+ */
+public class TemporalVersion {
+	
+	private final long id;
+	private final long version;
+	private final Instant lastModified;
+	
+	public TemporalVersion(Long id, Long version, Instant lastModified) {
+		this.id = id;
+		this.version = version;
+		this.lastModified = lastModified;
+	}
+	
+	public long getId() {
+		return id;
+	}
+	public long getVersion() {
+		return version;
+	}
+	public Instant getLastModified() {
+		return lastModified;
+	}
+	@Override
+	public String toString() {
+		return "TemporalVersion [id=" + id + ", version=" + version + ", lastModified=" + lastModified + "]";
+	}
+	
+}
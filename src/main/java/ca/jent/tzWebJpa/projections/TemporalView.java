@@ -0,0 +1,68 @@
+package ca.jent.tzWebJpa.projections;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Immutable copy of one Temporal row built by a JPQL constructor expression: it never enters
+ * the persistence context (no entity entry, no loaded state snapshot, nothing to detach).
+ * Same properties as the Temporal entity so both serialize to the same JSON; the version is null
+ * when the source has none (e.g. a column file, @see TemporalColumnReader) and is then not written.
+ * @author jraymond
+ *
+ */
+public class TemporalView {
+
+	private final Long id;
+	private final LocalDate localDate;
+	private final LocalTime localTime;
+	private final Instant instant;
+	private final ZoneId zoneId;
+	private final ZoneOffset zoneOffset;
+	private final Long version;
+
+	public TemporalView(Long id, LocalDate localDate, LocalTime localTime, Instant instant, ZoneId zoneId, ZoneOffset zoneOffset) {
+		this(id, localDate, localTime, instant, zoneId, zoneOffset, null);
+	}
+
+	public TemporalView(Long id, LocalDate localDate, LocalTime localTime, Instant instant, ZoneId zoneId, ZoneOffset zoneOffset, Long version) {
+		this.id = id;
+		this.localDate = localDate;
+		this.localTime = localTime;
+		this.instant = instant;
+		this.zoneId = zoneId;
+		this.zoneOffset = zoneOffset;
+		this.version = version;
+	}
+
+	public Long getId() {
+		return id;
+	}
+	public LocalDate getLocalDate() {
+		return localDate;
+	}
+	public LocalTime getLocalTime() {
+		return localTime;
+	}
+	public Instant getInstant() {
+		return instant;
+	}
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+	public ZoneOffset getZoneOffset() {
+		return zoneOffset;
+	}
+	public Long getVersion() {
+		return version;
+	}
+	@Override
+	public String toString() {
+		return "TemporalView [id=" + id + ", localDate=" + localDate + ", localTime=" + localTime + ", instant=" + instant
+				+ ", zoneId=" + zoneId + ", zoneOffset=" + zoneOffset + ", version=" + version + "]";
+	}
+
+}
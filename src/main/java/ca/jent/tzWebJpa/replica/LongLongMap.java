@@ -0,0 +1,207 @@
+package ca.jent.tzWebJpa.replica;
+
+import java.util.Arrays;
+
+/**
+ * Map of long to long without boxing: open addressing with linear probing, resized at 50% load.
+ * Not thread-safe.  Used for the ID to row index of TemporalColumnStore and for the group counts of
+ * its scans (one map per chunk, merged with addAll).
+ * @author jraymond
+ *
+ */
+public final class LongLongMap {
+
+	/**
+	 * Receives the entries of the map
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		void accept(long key, long value);
+	}
+
+	private long[] keys;
+	private long[] values;
+	private boolean[] used;
+	private int mask;
+	private int size;
+
+	public LongLongMap() {
+		this(16);
+	}
+
+	public LongLongMap(int expectedSize) {
+		if (expectedSize < 0) throw new IllegalArgumentException("expectedSize cannot be negative.");
+		allocate(Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the value of the key or missing if there is none
+	 */
+	public long get(long key, long missing) {
+		int slot = find(key);
+		return slot < 0 ? missing : values[slot];
+	}
+
+	public boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	public void put(long key, long value) {
+		int slot = slot(key);
+		if (!used[slot]) {
+			insert(slot, key, value);
+		} else {
+			values[slot] = value;
+		}
+	}
+
+	/**
+	 * Add delta to the value of the key (0 if there is none)
+	 */
+	public void add(long key, long delta) {
+		int slot = slot(key);
+		if (!used[slot]) {
+			insert(slot, key, delta);
+		} else {
+			values[slot] += delta;
+		}
+	}
+
+	/**
+	 * Keep the smaller of value and the value of the key (value if there is none)
+	 */
+	public void min(long key, long value) {
+		int slot = slot(key);
+		if (!used[slot]) {
+			insert(slot, key, value);
+		} else if (value < values[slot]) {
+			values[slot] = value;
+		}
+	}
+
+	/**
+	 * Add the values of other to the ones of this map
+	 */
+	public void addAll(LongLongMap other) {
+		other.forEach(this::add);
+	}
+
+	/**
+	 * Keep the smaller of the values of other and of this map
+	 */
+	public void minAll(LongLongMap other) {
+		other.forEach(this::min);
+	}
+
+	/**
+	 * @return the value removed or missing if the key had none
+	 */
+	public long remove(long key, long missing) {
+		int slot = find(key);
+		if (slot < 0) return missing;
+		long removed = values[slot];
+		// backward shift: move up the entries of the probe sequence that would no longer be found
+		int free = slot;
+		for (int next = (free + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = hash(keys[next]);
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+		}
+		used[free] = false;
+		size--;
+		return removed;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	/**
+	 * Entries in no particular order
+	 */
+	public void forEach(EntryConsumer consumer) {
+		for (int slot = 0; slot < used.length; slot++) {
+			if (used[slot]) consumer.accept(keys[slot], values[slot]);
+		}
+	}
+
+	/**
+	 * @return the keys in ascending order
+	 */
+	public long[] sortedKeys() {
+		long[] sorted = new long[size];
+		int i = 0;
+		for (int slot = 0; slot < used.length; slot++) {
+			if (used[slot]) sorted[i++] = keys[slot];
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * @return the slot of the key or -1
+	 */
+	private int find(long key) {
+		int slot = slot(key);
+		return used[slot] ? slot : -1;
+	}
+
+	/**
+	 * @return the slot of the key or the free slot where it goes
+	 */
+	private int slot(long key) {
+		int slot = hash(key);
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(int slot, long key, long value) {
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		if (++size * 2 > keys.length) resize();
+	}
+
+	private int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(oldKeys.length * 2);
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldUsed[slot]) {
+				int newSlot = slot(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+				used[newSlot] = true;
+				size++;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new long[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+}
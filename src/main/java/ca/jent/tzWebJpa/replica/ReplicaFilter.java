@@ -0,0 +1,65 @@
+package ca.jent.tzWebJpa.replica;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import ca.jent.tzWebJpa.utils.DateUtils;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Row filter of a TemporalColumnStore scan, tested on the column values (no Temporal is built):
+ * instant within [from, to), localDate within [fromDate, toDate] (inclusive) and zone.
+ * Every bound is optional (null: unbounded); a bound given excludes the rows whose value is null,
+ * like the SQL comparison would.  Instants are compared to the microsecond.
+ * @author jraymond
+ *
+ */
+public final class ReplicaFilter {
+
+	/** every row */
+	public static final ReplicaFilter ALL = new ReplicaFilter(null, null, null, null, null);
+
+	private final boolean instantBounded;
+	private final long fromMicros;
+	private final long toMicros;
+	private final boolean dateBounded;
+	private final int fromEpochDay;
+	private final int toEpochDay;
+	private final ZoneId zoneId;
+
+	public ReplicaFilter(Instant from, Instant to, ZoneId zoneId) {
+		this(from, to, zoneId, null, null);
+	}
+
+	public ReplicaFilter(Instant from, Instant to, ZoneId zoneId, LocalDate fromDate, LocalDate toDate) {
+		if (from != null && to != null && from.isAfter(to)) throw new IllegalArgumentException("from (" + from + ") must not be after to (" + to + ").");
+		if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) throw new IllegalArgumentException("fromDate (" + fromDate + ") must not be after toDate (" + toDate + ").");
+		this.instantBounded = from != null || to != null;
+		this.fromMicros = from == null ? Long.MIN_VALUE + 1 : DateUtils.asEpochMicros(from);
+		this.toMicros = to == null ? Long.MAX_VALUE : DateUtils.asEpochMicros(to);
+		this.dateBounded = fromDate != null || toDate != null;
+		this.fromEpochDay = fromDate == null ? Integer.MIN_VALUE + 1 : Math.toIntExact(fromDate.toEpochDay());
+		this.toEpochDay = toDate == null ? Integer.MAX_VALUE : Math.toIntExact(toDate.toEpochDay());
+		this.zoneId = zoneId;
+	}
+
+	/**
+	 * @return the code of the zone of the filter in the ZoneDictionary of the store (NULL_ZONE when unbounded)
+	 */
+	short zone(ZoneDictionary zoneDictionary) {
+		return zoneId == null ? TemporalColumnStore.NULL_ZONE : zoneDictionary.codeOf(zoneId);
+	}
+
+	/**
+	 * @param instantMicros TemporalColumnStore.NULL_INSTANT for null
+	 * @param epochDay TemporalColumnStore.NULL_EPOCH_DAY for null
+	 * @param zone TemporalColumnStore.NULL_ZONE for null
+	 * @param filterZone the code of the zone of the filter (@see #zone(ZoneDictionary))
+	 */
+	boolean matches(long instantMicros, int epochDay, short zone, short filterZone) {
+		return (!instantBounded || instantMicros >= fromMicros && instantMicros < toMicros)
+				&& (!dateBounded || epochDay >= fromEpochDay && epochDay <= toEpochDay)
+				&& (zoneId == null || zone == filterZone);
+	}
+}
@@ -0,0 +1,408 @@
+package ca.jent.tzWebJpa.replica;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.utils.DateUtils;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * In-memory copy of TEMPORALS held in one primitive array per column, same encodings as the
+ * epoch storage encoding: ID, INSTANT_TS (epoch-micros), LOCAL_DATE (epoch-day), LOCAL_TIME
+ * (nano-of-day), ZONE_ID (code of the ZoneDictionary), ZONE_OFFSET (total seconds) and VERSION.
+ * Each column has its own null value (NULL_*).
+ * Rows are in no particular order: a Temporal is appended and replaced in place (found by ID),
+ * the last row takes the place of a Temporal removed.  A Temporal of a lower version than its row
+ * is not put: the changes can come out of order.
+ * A scan (aggregate) splits the rows in chunks of chunkRows rows run on the fork-join pool, each
+ * chunk accumulating into a result of its own, then combines the results.  Scans hold the read
+ * lock, changes the write lock: a scan sees the rows as they were when it started.
+ * @author jraymond
+ *
+ */
+public class TemporalColumnStore {
+
+	public static final long NULL_INSTANT = Long.MIN_VALUE;
+	public static final int NULL_EPOCH_DAY = Integer.MIN_VALUE;
+	public static final long NULL_NANO_OF_DAY = -1;
+	public static final short NULL_ZONE = -1;
+	public static final int NULL_OFFSET = Integer.MIN_VALUE;
+	/**
+	 * Unknown version: always replaced, replaces any
+	 */
+	public static final long NULL_VERSION = -1;
+
+	/**
+	 * Adds one row to the (mutable) result of a chunk
+	 */
+	@FunctionalInterface
+	public interface Accumulator<A> {
+		void accept(A result, Rows rows, int row);
+	}
+
+	private final ForkJoinPool pool;
+	private final int chunkRows;
+	private final ZoneDictionary zoneDictionary;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final LongLongMap rowById;
+
+	private int size;
+	private long[] ids;
+	private long[] instants;
+	private int[] epochDays;
+	private long[] nanosOfDay;
+	private short[] zones;
+	private int[] offsets;
+	private long[] versions;
+
+	public TemporalColumnStore(ForkJoinPool pool, int chunkRows, int initialCapacity, ZoneDictionary zoneDictionary) {
+		if (pool == null) throw new IllegalArgumentException(ForkJoinPool.class.getName() + " argument cannot be null.");
+		if (zoneDictionary == null) throw new IllegalArgumentException(ZoneDictionary.class.getName() + " argument cannot be null.");
+		if (chunkRows < 1) throw new IllegalArgumentException("chunkRows must be greater than zero.");
+		if (initialCapacity < 1) throw new IllegalArgumentException("initialCapacity must be greater than zero.");
+		this.pool = pool;
+		this.chunkRows = chunkRows;
+		this.zoneDictionary = zoneDictionary;
+		this.rowById = new LongLongMap(initialCapacity);
+		allocate(initialCapacity);
+	}
+
+	/**
+	 * The column values of the rows of a scan
+	 */
+	public static final class Rows {
+
+		private final long[] ids;
+		private final long[] instants;
+		private final int[] epochDays;
+		private final long[] nanosOfDay;
+		private final short[] zones;
+		private final int[] offsets;
+		private final long[] versions;
+		private final ZoneDictionary zoneDictionary;
+
+		private Rows(TemporalColumnStore store) {
+			this.ids = store.ids;
+			this.instants = store.instants;
+			this.epochDays = store.epochDays;
+			this.nanosOfDay = store.nanosOfDay;
+			this.zones = store.zones;
+			this.offsets = store.offsets;
+			this.versions = store.versions;
+			this.zoneDictionary = store.zoneDictionary;
+		}
+
+		public long id(int row) {
+			return ids[row];
+		}
+		public long instantMicros(int row) {
+			return instants[row];
+		}
+		public int epochDay(int row) {
+			return epochDays[row];
+		}
+		public long nanoOfDay(int row) {
+			return nanosOfDay[row];
+		}
+		public short zone(int row) {
+			return zones[row];
+		}
+		public int offsetSeconds(int row) {
+			return offsets[row];
+		}
+		public long version(int row) {
+			return versions[row];
+		}
+
+		/**
+		 * @return the ZoneId of the zone code, null for NULL_ZONE
+		 */
+		public ZoneId zone(short code) {
+			return code == NULL_ZONE ? null : zoneDictionary.zoneOf(code);
+		}
+
+		/**
+		 * @return the row as a TemporalView (for the few rows a scan keeps)
+		 */
+		public TemporalView view(int row) {
+			return new TemporalView(ids[row],
+					epochDays[row] == NULL_EPOCH_DAY ? null : LocalDate.ofEpochDay(epochDays[row]),
+					nanosOfDay[row] == NULL_NANO_OF_DAY ? null : LocalTime.ofNanoOfDay(nanosOfDay[row]),
+					instants[row] == NULL_INSTANT ? null : DateUtils.asJavaTime_Instant(instants[row]),
+					zone(zones[row]),
+					offsets[row] == NULL_OFFSET ? null : ZoneOffset.ofTotalSeconds(offsets[row]),
+					versions[row] == NULL_VERSION ? null : versions[row]);
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return false if the row of this ID has a greater version (nothing is put)
+	 */
+	public boolean put(TemporalView temporal) {
+		lock.writeLock().lock();
+		try {
+			return put(temporal.getId(), temporal.getInstant(), temporal.getLocalDate(), temporal.getLocalTime(), temporal.getZoneId(),
+					temporal.getZoneOffset(), temporal.getVersion());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Add or replace (same ID) the Temporal, but the ones of a lower version than their row
+	 * @return the number of Temporal not put (lower version)
+	 */
+	public int putAll(Collection<Temporal> temporals) {
+		lock.writeLock().lock();
+		try {
+			int stale = 0;
+			for (Temporal temporal : temporals) {
+				if (!put(temporal.getId(), temporal.getInstant(), temporal.getLocalDate(), temporal.getLocalTime(), temporal.getZoneId(),
+						temporal.getZoneOffset(), temporal.getVersion())) stale++;
+			}
+			return stale;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the version of the Temporal of this ID, NULL_VERSION if unknown or if there is none
+	 */
+	public long version(long id) {
+		lock.readLock().lock();
+		try {
+			int row = (int) rowById.get(id, -1);
+			return row < 0 ? NULL_VERSION : versions[row];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return true if there was a Temporal of this ID
+	 */
+	public boolean remove(long id) {
+		lock.writeLock().lock();
+		try {
+			int row = (int) rowById.remove(id, -1);
+			if (row < 0) return false;
+			removeRow(row);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of Temporal removed
+	 */
+	public int removeAll(Collection<Long> ids) {
+		lock.writeLock().lock();
+		try {
+			int removed = 0;
+			for (Long id : ids) {
+				int row = (int) rowById.remove(id, -1);
+				if (row >= 0) {
+					removeRow(row);
+					removed++;
+				}
+			}
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the Temporal matching the filter
+	 * @return the number of Temporal removed
+	 */
+	public int removeIf(ReplicaFilter filter) {
+		return removeIf(Long.MIN_VALUE, Long.MAX_VALUE, filter);
+	}
+
+	/**
+	 * Remove the Temporal having an ID within [fromId, toId) and matching the filter
+	 * @return the number of Temporal removed
+	 */
+	public int removeIf(long fromId, long toId, ReplicaFilter filter) {
+		short filterZone = filter.zone(zoneDictionary);
+		lock.writeLock().lock();
+		try {
+			int removed = 0;
+			for (int row = size - 1; row >= 0; row--) {
+				if (ids[row] >= fromId && ids[row] < toId && filter.matches(instants[row], epochDays[row], zones[row], filterZone)) {
+					rowById.remove(ids[row], -1);
+					removeRow(row);
+					removed++;
+				}
+			}
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			rowById.clear();
+			size = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of rows matching the filter
+	 */
+	public long count(ReplicaFilter filter) {
+		return aggregate(filter, () -> new long[1], (count, rows, row) -> count[0]++, (a, b) -> {
+			a[0] += b[0];
+			return a;
+		})[0];
+	}
+
+	/**
+	 * Parallel scan of the rows matching the filter, like a mutable reduction (Stream.collect):
+	 * each chunk of rows gets a result of its own from supplier, the accumulator adds each row
+	 * of the chunk to it and the results of the chunks are combined two at a time.
+	 */
+	public <A> A aggregate(ReplicaFilter filter, Supplier<A> supplier, Accumulator<A> accumulator, BinaryOperator<A> combiner) {
+		if (filter == null) throw new IllegalArgumentException(ReplicaFilter.class.getName() + " argument cannot be null.");
+		short filterZone = filter.zone(zoneDictionary);
+		lock.readLock().lock();
+		try {
+			Scan<A> scan = new Scan<>(new Rows(this), filter, filterZone, supplier, accumulator, combiner, 0, size);
+			return size <= chunkRows ? scan.compute() : pool.invoke(scan);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private final class Scan<A> extends RecursiveTask<A> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Rows rows;
+		private final ReplicaFilter filter;
+		private final short filterZone;
+		private final Supplier<A> supplier;
+		private final Accumulator<A> accumulator;
+		private final BinaryOperator<A> combiner;
+		private final int from;
+		private final int to;
+
+		Scan(Rows rows, ReplicaFilter filter, short filterZone, Supplier<A> supplier, Accumulator<A> accumulator, BinaryOperator<A> combiner,
+				int from, int to) {
+			this.rows = rows;
+			this.filter = filter;
+			this.filterZone = filterZone;
+			this.supplier = supplier;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected A compute() {
+			if (to - from > chunkRows) {
+				int middle = from + (to - from) / 2;
+				Scan<A> left = new Scan<>(rows, filter, filterZone, supplier, accumulator, combiner, from, middle);
+				left.fork();
+				A right = new Scan<>(rows, filter, filterZone, supplier, accumulator, combiner, middle, to).compute();
+				return combiner.apply(left.join(), right);
+			}
+			A result = supplier.get();
+			long[] instants = rows.instants;
+			int[] epochDays = rows.epochDays;
+			short[] zones = rows.zones;
+			for (int row = from; row < to; row++) {
+				if (filter.matches(instants[row], epochDays[row], zones[row], filterZone)) accumulator.accept(result, rows, row);
+			}
+			return result;
+		}
+	}
+
+	private boolean put(Long id, Instant instant, LocalDate localDate, LocalTime localTime, ZoneId zoneId, ZoneOffset zoneOffset, Long version) {
+		if (id == null) throw new IllegalArgumentException("Only a saved Temporal (having an ID) can be replicated.");
+		long newVersion = version == null ? NULL_VERSION : version;
+		int row = (int) rowById.get(id, -1);
+		if (row < 0) {
+			if (size == ids.length) grow();
+			row = size++;
+			rowById.put(id, row);
+		} else if (newVersion != NULL_VERSION && newVersion < versions[row]) {
+			return false;
+		}
+		ids[row] = id;
+		instants[row] = instant == null ? NULL_INSTANT : DateUtils.asEpochMicros(instant);
+		epochDays[row] = localDate == null ? NULL_EPOCH_DAY : Math.toIntExact(localDate.toEpochDay());
+		nanosOfDay[row] = localTime == null ? NULL_NANO_OF_DAY : localTime.toNanoOfDay();
+		zones[row] = zoneId == null ? NULL_ZONE : zoneDictionary.codeOf(zoneId);
+		offsets[row] = zoneOffset == null ? NULL_OFFSET : zoneOffset.getTotalSeconds();
+		versions[row] = newVersion;
+		return true;
+	}
+
+	/**
+	 * Move the last row to the row (already removed from rowById)
+	 */
+	private void removeRow(int row) {
+		int last = --size;
+		if (row == last) return;
+		ids[row] = ids[last];
+		instants[row] = instants[last];
+		epochDays[row] = epochDays[last];
+		nanosOfDay[row] = nanosOfDay[last];
+		zones[row] = zones[last];
+		offsets[row] = offsets[last];
+		versions[row] = versions[last];
+		rowById.put(ids[row], row);
+	}
+
+	private void grow() {
+		int capacity = ids.length + (ids.length >> 1) + 1;
+		ids = Arrays.copyOf(ids, capacity);
+		instants = Arrays.copyOf(instants, capacity);
+		epochDays = Arrays.copyOf(epochDays, capacity);
+		nanosOfDay = Arrays.copyOf(nanosOfDay, capacity);
+		zones = Arrays.copyOf(zones, capacity);
+		offsets = Arrays.copyOf(offsets, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+	}
+
+	private void allocate(int capacity) {
+		ids = new long[capacity];
+		instants = new long[capacity];
+		epochDays = new int[capacity];
+		nanosOfDay = new long[capacity];
+		zones = new short[capacity];
+		offsets = new int[capacity];
+		versions = new long[capacity];
+	}
+}
@@ -0,0 +1,24 @@
+package ca.jent.tzWebJpa.repositories;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java functions called by native queries (created as H2 alias by h2.function.sql).
+ * @author jraymond
+ *
+ */
+public final class H2Functions {
+	
+	private H2Functions() {}
+	
+	/**
+	 * Hours since the epoch (floor) of a TIMESTAMP column.  The TIMESTAMP is converted the same way the
+	 * JDBC driver does when reading it (i.e. in the JVM default timezone) which the H2 DATEDIFF function
+	 * does not do across historical and DST offset changes.
+	 */
+	public static Long epochHour(Timestamp timestamp) {
+		return timestamp == null ? null : Math.floorDiv(timestamp.getTime(), TimeUnit.HOURS.toMillis(1));
+	}
+	
+}
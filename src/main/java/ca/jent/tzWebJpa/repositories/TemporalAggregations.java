@@ -0,0 +1,35 @@
+package ca.jent.tzWebJpa.repositories;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+
+/**
+ * Counts computed by the database (GROUP BY) over the Temporal having an instant within [from, to), 
+ * optionally of one zone only (zoneId null for all zones).  No entity is loaded.
+ * The rows are found with TEMPORALS_INSTANT_IDX (or TEMPORALS_ZONE_INSTANT_IDX) then grouped: H2 reads
+ * the row of every index entry anyway, so an index on the grouped columns would not be used.
+ * @see TemporalRepositoryImpl
+ */
+public interface TemporalAggregations {
+	
+	/**
+	 * @return ordered by localDate then zone
+	 */
+	List<DailyCount> countByLocalDateAndZoneId(Instant from, Instant to, ZoneId zoneId);
+	
+	/**
+	 * @return ordered by zone then offset
+	 */
+	List<OffsetCount> countByZoneIdAndZoneOffset(Instant from, Instant to, ZoneId zoneId);
+	
+	/**
+	 * @return ordered by hour; hours without any Temporal are not returned
+	 */
+	List<HourlyCount> countByHour(Instant from, Instant to, ZoneId zoneId);
+	
+}
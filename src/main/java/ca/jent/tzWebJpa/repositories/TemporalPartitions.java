@@ -0,0 +1,749 @@
+package ca.jent.tzWebJpa.repositories;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.AttributeConverter;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ca.jent.tzWebJpa.configuration.StorageEncoding;
+import ca.jent.tzWebJpa.configuration.TemporalPartitionSchema;
+import ca.jent.tzWebJpa.converter.EpochDayConverter;
+import ca.jent.tzWebJpa.converter.EpochMicrosConverter;
+import ca.jent.tzWebJpa.converter.InstantConverter;
+import ca.jent.tzWebJpa.converter.LocalDateConverter;
+import ca.jent.tzWebJpa.converter.LocalTimeConverter;
+import ca.jent.tzWebJpa.converter.NanoOfDayConverter;
+import ca.jent.tzWebJpa.converter.ZoneIdConverter;
+import ca.jent.tzWebJpa.converter.ZoneOffsetConverter;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.IdRange;
+import ca.jent.tzWebJpa.projections.TemporalVersion;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Writes and range scans of the monthly partitions of TEMPORALS (@see TemporalPartitionSchema) with JDBC:
+ * TEMPORALS is a view that Hibernate can read but not write.
+ * A Temporal goes to the partition of the (UTC) month of its instant, created (along with the view) when
+ * the first Temporal of the month is saved.  The DDL runs on a connection of its own so it does not commit
+ * the caller's transaction (H2 commits the transaction of the connection running DDL): one more connection,
+ * at most one at a time.  IDs come from the identifier generator of Temporal (same pooled TEMPORALS_SEQ).
+ * An instant range scan only reads the partitions of the months it overlaps: parallelism partitions at a
+ * time, each one on its own connection, and the pages are concatenated in month order (H2 not in
+ * MULTI_THREADED mode runs the statements of a database one at a time: keep parallelism 1).  A localDate range
+ * scan reads every partition the same way and merges their pages.  Within a caller's read-write transaction
+ * (that may have written to the partitions) they are read one after the other on its connection.
+ * Range scans do not go through the view: H2 reads the whole range of each partition to order a UNION.
+ * Neither do the reads by ID: the ID bounds of each table tell which ones may have an ID (IDs grow with time
+ * so it is usually one), the rows ordered by ID are merged from each table.
+ * Dropping a month drops its table: it waits (up to temporal.partitioning.drop-timeout-ms) for the routing
+ * read lock held by the reads for the call and by the writes until their transaction completes, so no table
+ * is dropped while a name resolved from months is still in use.
+ * @author jraymond
+ *
+ */
+@Repository
+@ConditionalOnProperty(name="temporal.partitioning.enabled", havingValue="true")
+public class TemporalPartitions {
+
+	private static final String COLUMNS = TemporalPartitionSchema.COLUMNS;
+	private static final String INSERT_VALUES = " (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final int FETCH_SIZE = 1000;
+
+	private final DataSource dataSource;
+	private final JdbcTemplate jdbcTemplate;
+	private final TemporalPartitionSchema schema;
+	private final int parallelism;
+	private final long dropTimeoutMillis;
+	private final ExecutorService executor;
+
+	/**
+	 * Months having a partition; changed while holding its lock
+	 */
+	private final NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+
+	/**
+	 * [min, max] ID of each table having rows, widened before a row is written and never narrowed by deletes:
+	 * a table without bounds has no row, one whose bounds do not contain an ID does not have it
+	 */
+	private final Map<String, long[]> idBounds = new ConcurrentHashMap<>();
+
+	/**
+	 * The table names resolved from months stay valid while its read lock is held; drop takes the write lock
+	 */
+	private final ReentrantReadWriteLock routing = new ReentrantReadWriteLock();
+
+	@SuppressWarnings("rawtypes")
+	private final AttributeConverter localDateConverter;
+	@SuppressWarnings("rawtypes")
+	private final AttributeConverter localTimeConverter;
+	@SuppressWarnings("rawtypes")
+	private final AttributeConverter instantConverter;
+	private final InstantConverter lastModifiedConverter = new InstantConverter();
+	private final ZoneIdConverter zoneIdConverter;
+	private final ZoneOffsetConverter zoneOffsetConverter = new ZoneOffsetConverter();
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public TemporalPartitions(DataSource dataSource, StorageEncoding storageEncoding, ZoneDictionary zoneDictionary,
+			@Value("${temporal.partitioning.parallelism:1}") int parallelism,
+			@Value("${temporal.partitioning.drop-timeout-ms:10000}") long dropTimeoutMillis) {
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be greater than zero.");
+		if (dropTimeoutMillis < 0) throw new IllegalArgumentException("dropTimeoutMillis must not be negative.");
+		this.dataSource = dataSource;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.schema = new TemporalPartitionSchema(storageEncoding);
+		this.parallelism = parallelism;
+		this.dropTimeoutMillis = dropTimeoutMillis;
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(parallelism, task -> {
+			Thread thread = new Thread(task, "temporal-partition-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		boolean epoch = storageEncoding == StorageEncoding.EPOCH;
+		this.localDateConverter = epoch ? new EpochDayConverter() : new LocalDateConverter();
+		this.localTimeConverter = epoch ? new NanoOfDayConverter() : new LocalTimeConverter();
+		this.instantConverter = epoch ? new EpochMicrosConverter() : new InstantConverter();
+		this.zoneIdConverter = new ZoneIdConverter(zoneDictionary);
+	}
+
+	@PostConstruct
+	public void loadPartitions() {
+		months.addAll(ddl(TemporalPartitionSchema::partitions));
+		for (String table : tables()) {
+			jdbcTemplate.query("select min(ID), max(ID) from " + table, (RowCallbackHandler) rs -> {
+				if (rs.getObject(1) != null) idBounds.put(table, new long[] { rs.getLong(1), rs.getLong(2) });
+			});
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Insert the Temporal (grouped by partition in JDBC batches); the ones without an ID get one.
+	 * Their version is reset to 0 and lastModified set.
+	 */
+	public void insert(List<Temporal> temporals) {
+		if (temporals.isEmpty()) return;
+		routedForTransaction(() -> {
+			Instant now = Instant.now();
+			Map<String, List<Object[]>> rowsByTable = new LinkedHashMap<>();
+			for (Temporal temporal : temporals) {
+				if (temporal.getId() == null) temporal.setId(nextId(temporal));
+				temporal.setVersion(0L);
+				temporal.setLastModified(now);
+				String table = tableOf(temporal.getInstant());
+				widen(table, temporal.getId());
+				rowsByTable.computeIfAbsent(table, key -> new ArrayList<>()).add(values(temporal));
+			}
+			rowsByTable.forEach((table, rows) -> jdbcTemplate.batchUpdate("insert into " + table + INSERT_VALUES, rows));
+		});
+	}
+
+	/**
+	 * Update the Temporal in its partition (moved to another partition when its month changed).
+	 * Its version is incremented and lastModified set.
+	 * @throws ObjectOptimisticLockingFailureException when its version is not the one of its row (or it no longer exists)
+	 */
+	public void update(Temporal temporal) {
+		routedForTransaction(() -> {
+			String from = tableOf(temporal.getId())
+					.orElseThrow(() -> new ObjectOptimisticLockingFailureException(Temporal.class, temporal.getId()));
+			String to = tableOf(temporal.getInstant());
+			long version = temporal.getVersion();
+			temporal.setVersion(version + 1);
+			temporal.setLastModified(Instant.now());
+			int rows;
+			if (from.equals(to)) {
+				Object[] values = values(temporal);
+				rows = jdbcTemplate.update("update " + to + " set LOCAL_DATE = ?, LOCAL_TIME = ?, INSTANT_TS = ?, ZONE_ID = ?, "
+						+ "ZONE_OFFSET = ?, VERSION = ?, LAST_MODIFIED = ? where ID = ? and VERSION = ?",
+						values[1], values[2], values[3], values[4], values[5], values[6], values[7], values[0], version);
+			} else {
+				widen(to, temporal.getId());
+				rows = jdbcTemplate.update("delete from " + from + " where ID = ? and VERSION = ?", temporal.getId(), version);
+				if (rows == 1) jdbcTemplate.update("insert into " + to + INSERT_VALUES, values(temporal));
+			}
+			if (rows == 0) {
+				temporal.setVersion(version);
+				throw new ObjectOptimisticLockingFailureException(Temporal.class, temporal.getId());
+			}
+		});
+	}
+
+	/**
+	 * @throws EmptyResultDataAccessException when there is no Temporal with this ID
+	 */
+	public void delete(Long id) {
+		routedForTransaction(() -> {
+			String table = tableOf(id).orElseThrow(() -> new EmptyResultDataAccessException(
+					String.format("No %s entity with id %s exists!", Temporal.class, id), 1));
+			jdbcTemplate.update("delete from " + table + " where ID = ?", id);
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.deleteByIdRange (before null: every partition) and deleteByIdRangeAndInstantBefore
+	 * (the partitions of the months up to the one of before).
+	 * @return the number of Temporal deleted
+	 */
+	@SuppressWarnings("unchecked")
+	public int deleteByIdRange(long fromId, long toId, Instant before) {
+		if (fromId >= toId) return 0;
+		return routedForTransaction(() -> {
+			List<String> tables = new ArrayList<>();
+			if (before == null) tables.add(TemporalPartitionSchema.DEFAULT_TABLE);
+			Iterable<YearMonth> upToBefore = before == null ? months : months.headSet(TemporalPartitionSchema.monthOf(before), true);
+			for (YearMonth month : upToBefore) tables.add(TemporalPartitionSchema.tableName(month));
+			tables.retainAll(tablesWithIds(fromId, toId - 1));
+			int rows = 0;
+			for (String table : tables) {
+				rows += before == null
+						? jdbcTemplate.update("delete from " + table + " where ID >= ? and ID < ?", fromId, toId)
+						: jdbcTemplate.update("delete from " + table + " where ID >= ? and ID < ? and INSTANT_TS < ?", fromId, toId,
+								instantConverter.convertToDatabaseColumn(before));
+			}
+			return rows;
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.deleteByIdIn: one statement per partition
+	 * @return the number of Temporal deleted
+	 */
+	public int deleteByIds(Collection<Long> ids) {
+		if (ids.isEmpty()) return 0;
+		String in = " where ID in (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+		Object[] args = ids.toArray();
+		return routedForTransaction(() -> {
+			int rows = 0;
+			for (String table : tablesWithIds(Collections.min(ids), Collections.max(ids))) {
+				rows += jdbcTemplate.update("delete from " + table + in, args);
+			}
+			return rows;
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findByInstantRange (and findByZoneIdAndInstantRange when zoneId is given)
+	 * reading only the partitions of the months within [afterInstant, to).  The Temporal are not managed.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Temporal> findByInstantRange(Instant afterInstant, Long afterId, Instant to, ZoneId zoneId, int limit) {
+		if (!afterInstant.isBefore(to)) return new ArrayList<>();
+		Object after = instantConverter.convertToDatabaseColumn(afterInstant);
+		Object before = instantConverter.convertToDatabaseColumn(to);
+		String where = " where INSTANT_TS >= ? and INSTANT_TS < ? and (INSTANT_TS > ? or ID > ?)";
+		return routed(() -> {
+			List<String> tables = months.subSet(
+					YearMonth.from(afterInstant.atOffset(ZoneOffset.UTC)), true,
+					YearMonth.from(to.minusNanos(1).atOffset(ZoneOffset.UTC)), true).stream()
+					.map(TemporalPartitionSchema::tableName)
+					.collect(Collectors.toList());
+			// the months are in order and do not overlap: the pages are concatenated
+			return fanOut(tables, null, limit, (table, pageLimit) -> zoneId == null
+					? jdbcTemplate.query(select(table) + where + " order by INSTANT_TS, ID limit ?", this::mapRow,
+							after, before, after, afterId, pageLimit)
+					: jdbcTemplate.query(select(table) + where + " and ZONE_ID = ? order by ZONE_ID, INSTANT_TS, ID limit ?", this::mapRow,
+							after, before, after, afterId, zoneIdConverter.convertToDatabaseColumn(zoneId), pageLimit));
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findByLocalDateRange (and findByZoneIdAndLocalDateRange when zoneId is given):
+	 * the localDate of a Temporal says nothing sure about its instant so every partition is read; their pages
+	 * are merged.  The Temporal are not managed.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Temporal> findByLocalDateRange(LocalDate afterDate, Long afterId, LocalDate to, ZoneId zoneId, int limit) {
+		Object after = localDateConverter.convertToDatabaseColumn(afterDate);
+		Object last = localDateConverter.convertToDatabaseColumn(to);
+		String where = " where LOCAL_DATE >= ? and LOCAL_DATE <= ? and (LOCAL_DATE > ? or ID > ?)";
+		return routed(() -> {
+			return fanOut(tables(), Comparator.comparing(Temporal::getLocalDate).thenComparing(Temporal::getId), limit, (table, pageLimit) -> zoneId == null
+					? jdbcTemplate.query(select(table) + where + " order by LOCAL_DATE, ID limit ?", this::mapRow,
+							after, last, after, afterId, pageLimit)
+					: jdbcTemplate.query(select(table) + where + " and ZONE_ID = ? order by LOCAL_DATE, ID limit ?", this::mapRow,
+							after, last, after, afterId, zoneIdConverter.convertToDatabaseColumn(zoneId), pageLimit));
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findOne reading only the tables whose ID bounds contain the ID.  The Temporal is not managed.
+	 * @return null when there is no Temporal with this ID
+	 */
+	public Temporal findById(Long id) {
+		return routed(() -> {
+			return findById(id, COLUMNS, this::mapRow);
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findVersionById reading only the tables whose ID bounds contain the ID
+	 * @return null when there is no Temporal with this ID
+	 */
+	public TemporalVersion findVersionById(Long id) {
+		return routed(() -> {
+			return findById(id, "ID, VERSION, LAST_MODIFIED", (rs, rowNum) ->
+					new TemporalVersion(rs.getLong(1), rs.getLong(2), lastModifiedConverter.convertToEntityAttribute(rs.getTimestamp(3))));
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findIdRange (before null) and findIdRangeByInstantBefore (the partitions of
+	 * the months up to the one of before): the min and max of each table are read from its indexes.
+	 */
+	@SuppressWarnings("unchecked")
+	public IdRange findIdRange(Instant before) {
+		return routed(() -> {
+			List<String> tables = new ArrayList<>();
+			if (before == null) tables.add(TemporalPartitionSchema.DEFAULT_TABLE);
+			Iterable<YearMonth> upToBefore = before == null ? months : months.headSet(TemporalPartitionSchema.monthOf(before), true);
+			for (YearMonth month : upToBefore) tables.add(TemporalPartitionSchema.tableName(month));
+			tables.retainAll(idBounds.keySet());
+			Long minId = null;
+			Long maxId = null;
+			for (String table : tables) {
+				IdRange range = before == null
+						? jdbcTemplate.queryForObject("select min(ID), max(ID) from " + table, this::mapIdRange)
+						: jdbcTemplate.queryForObject("select min(ID), max(ID) from " + table + " where INSTANT_TS < ?", this::mapIdRange,
+								instantConverter.convertToDatabaseColumn(before));
+				if (range.getMinId() == null) continue;
+				minId = minId == null ? range.getMinId() : Math.min(minId, range.getMinId());
+				maxId = maxId == null ? range.getMaxId() : Math.max(maxId, range.getMaxId());
+			}
+			return new IdRange(minId, maxId);
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findByIdGreaterThanOrderByIdAsc: the pages of the tables whose ID bounds
+	 * go beyond afterId are merged.  The Temporal are not managed.
+	 */
+	public List<Temporal> findByIdGreaterThan(long afterId, int limit) {
+		if (afterId == Long.MAX_VALUE) return new ArrayList<>();
+		return routed(() -> {
+			return fanOut(tablesWithIds(afterId + 1, Long.MAX_VALUE), Comparator.comparing(Temporal::getId), limit, (table, pageLimit) ->
+					jdbcTemplate.query(select(table) + " where ID > ? order by ID limit ?", this::mapRow, afterId, pageLimit));
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.findViewsByIdRange: the Temporal of the tables whose ID bounds overlap [fromId, toId) merged by ID
+	 */
+	public List<TemporalView> findViewsByIdRange(long fromId, long toId) {
+		if (fromId >= toId) return new ArrayList<>();
+		return routed(() -> {
+			return fanOut(tablesWithIds(fromId, toId - 1), Comparator.comparing(TemporalView::getId), Integer.MAX_VALUE, (table, pageLimit) ->
+					jdbcTemplate.query(select(table) + " where ID >= ? and ID < ? order by ID", this::mapView, fromId, toId));
+		});
+	}
+
+	/**
+	 * Same as TemporalRepository.streamAll: one cursor ordered by ID (primary key) on each table, merged, on
+	 * the connection of the current transaction.  Only one row per table is held at a time.
+	 */
+	public void streamAll(Consumer<? super TemporalView> consumer) {
+		routed(() -> {
+			Connection connection = DataSourceUtils.getConnection(dataSource);
+			List<Statement> statements = new ArrayList<>();
+			try {
+				PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparing((Cursor cursor) -> cursor.view.getId()));
+				for (String table : tables()) {
+					if (!idBounds.containsKey(table)) continue;
+					Statement statement = connection.createStatement();
+					statements.add(statement);
+					statement.setFetchSize(FETCH_SIZE);
+					ResultSet rs = statement.executeQuery(select(table) + " order by ID");
+					if (rs.next()) cursors.add(new Cursor(rs, mapView(rs, 0)));
+				}
+				while (!cursors.isEmpty()) {
+					Cursor cursor = cursors.poll();
+					consumer.accept(cursor.view);
+					if (cursor.rs.next()) {
+						cursor.view = mapView(cursor.rs, 0);
+						cursors.add(cursor);
+					}
+				}
+			} catch (SQLException e) {
+				throw jdbcTemplate.getExceptionTranslator().translate("partition stream", null, e);
+			} finally {
+				statements.forEach(JdbcUtils::closeStatement);
+				DataSourceUtils.releaseConnection(connection, dataSource);
+			}
+		});
+	}
+
+	/**
+	 * Query the tables parallelism at a time (one after the other within a caller's read-write transaction).
+	 * Without an order to merge by, the pages are concatenated in the order of the tables and the tables left
+	 * once limit Temporal are found are not read.  Otherwise every table is read then the pages are merged.
+	 */
+	private <T> List<T> fanOut(List<String> tables, Comparator<? super T> order, int limit, BiFunction<String, Integer, List<T>> query) {
+		List<T> page = new ArrayList<>();
+		boolean parallel = parallelism > 1 && tables.size() > 1 && !inReadWriteTransaction();
+		Iterator<String> next = tables.iterator();
+		while (next.hasNext() && (order != null || page.size() < limit)) {
+			int pageLimit = order == null ? limit - page.size() : limit;
+			List<List<T>> wave = new ArrayList<>();
+			if (parallel) {
+				List<Future<List<T>>> futures = new ArrayList<>();
+				for (int i = 0; i < parallelism && next.hasNext(); i++) {
+					String table = next.next();
+					futures.add(executor.submit(() -> query.apply(table, pageLimit)));
+				}
+				for (Future<List<T>> future : futures) {
+					wave.add(get(future));
+				}
+			} else {
+				wave.add(query.apply(next.next(), pageLimit));
+			}
+			wave.forEach(page::addAll);
+			if (order == null && page.size() > limit) page.subList(limit, page.size()).clear();
+		}
+		if (order != null) {
+			page.sort(order);
+			if (page.size() > limit) page.subList(limit, page.size()).clear();
+		}
+		return page;
+	}
+
+	/**
+	 * @return the number of Temporal of each partition (TEMPORALS_DEFAULT first then by month)
+	 */
+	public Map<String, Long> countByPartition() {
+		return routed(() -> {
+			Map<String, Long> counts = new LinkedHashMap<>();
+			for (String table : tables()) {
+				counts.put(table, jdbcTemplate.queryForObject("select count(*) from " + table, Long.class));
+			}
+			return counts;
+		});
+	}
+
+	/**
+	 * Drop the partition of the month: its Temporal are gone at once, whatever their number.
+	 * A Temporal of this month saved afterward creates the partition again.
+	 * It waits for the reads in progress and the transactions that wrote to the partitions to complete.
+	 * @return the number of Temporal dropped, null when the month has no partition
+	 * @throws CannotAcquireLockException when they do not complete within temporal.partitioning.drop-timeout-ms
+	 */
+	public Long drop(YearMonth month) {
+		try {
+			if (!routing.writeLock().tryLock(dropTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new CannotAcquireLockException("The partitions are in use: " + month + " was not dropped within " + dropTimeoutMillis + " ms.");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CannotAcquireLockException("Interrupted while waiting to drop " + month + ".", e);
+		}
+		try {
+			synchronized (months) {
+				if (!months.contains(month)) return null;
+				String table = TemporalPartitionSchema.tableName(month);
+				NavigableSet<YearMonth> remaining = new TreeSet<>(months);
+				remaining.remove(month);
+				return ddl(connection -> {
+					TemporalPartitionSchema.createView(connection, remaining);
+					months.remove(month);
+					idBounds.remove(table);
+					long rows;
+					try (Statement statement = connection.createStatement();
+						 ResultSet rs = statement.executeQuery("select count(*) from " + table)) {
+						rs.next();
+						rows = rs.getLong(1);
+					}
+					try (Statement statement = connection.createStatement()) {
+						statement.execute("drop table " + table);
+					}
+					return rows;
+				});
+			}
+		} finally {
+			routing.writeLock().unlock();
+		}
+	}
+
+	private static String select(String table) {
+		return "select " + COLUMNS + " from " + table;
+	}
+
+	/**
+	 * @return TEMPORALS_DEFAULT then the partitions by month
+	 */
+	private List<String> tables() {
+		List<String> tables = new ArrayList<>();
+		tables.add(TemporalPartitionSchema.DEFAULT_TABLE);
+		months.forEach(month -> tables.add(TemporalPartitionSchema.tableName(month)));
+		return tables;
+	}
+
+	/**
+	 * @return the tables whose ID bounds overlap [fromId, toId]
+	 */
+	private List<String> tablesWithIds(long fromId, long toId) {
+		return tables().stream().filter(table -> {
+			long[] bounds = idBounds.get(table);
+			return bounds != null && bounds[0] <= toId && fromId <= bounds[1];
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * Widen the ID bounds of the table to the ID of a row about to be written to it
+	 */
+	private void widen(String table, long id) {
+		idBounds.merge(table, new long[] { id, id }, (bounds, row) -> bounds[0] <= id && id <= bounds[1]
+				? bounds : new long[] { Math.min(bounds[0], id), Math.max(bounds[1], id) });
+	}
+
+	private <T> T findById(Long id, String columns, RowMapper<T> rowMapper) {
+		for (String table : tablesWithIds(id, id)) {
+			List<T> found = jdbcTemplate.query("select " + columns + " from " + table + " where ID = ?", rowMapper, id);
+			if (!found.isEmpty()) return found.get(0);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the partition of the Temporal having this ID (empty if none)
+	 */
+	private Optional<String> tableOf(Long id) {
+		for (String table : tablesWithIds(id, id)) {
+			if (!jdbcTemplate.queryForList("select ID from " + table + " where ID = ?", Long.class, id).isEmpty()) return Optional.of(table);
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * @return the partition of the instant, created when missing
+	 */
+	private String tableOf(Instant instant) {
+		if (instant == null) return TemporalPartitionSchema.DEFAULT_TABLE;
+		YearMonth month = TemporalPartitionSchema.monthOf(instant);
+		if (!months.contains(month)) {
+			synchronized (months) {
+				if (!months.contains(month)) {
+					NavigableSet<YearMonth> withMonth = new TreeSet<>(months);
+					withMonth.add(month);
+					ddl(connection -> {
+						schema.createPartition(connection, month);
+						TemporalPartitionSchema.createView(connection, withMonth);
+						return null;
+					});
+					months.add(month);
+				}
+			}
+		}
+		return TemporalPartitionSchema.tableName(month);
+	}
+
+	/**
+	 * The next ID of the identifier generator of Temporal (within the current transaction)
+	 */
+	private Long nextId(Temporal temporal) {
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		return (Long) session.getFactory().getIdentifierGenerator(Temporal.class.getName()).generate(session, temporal);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object[] values(Temporal temporal) {
+		return new Object[] {
+				temporal.getId(),
+				localDateConverter.convertToDatabaseColumn(temporal.getLocalDate()),
+				localTimeConverter.convertToDatabaseColumn(temporal.getLocalTime()),
+				instantConverter.convertToDatabaseColumn(temporal.getInstant()),
+				zoneIdConverter.convertToDatabaseColumn(temporal.getZoneId()),
+				zoneOffsetConverter.convertToDatabaseColumn(temporal.getZoneOffset()),
+				temporal.getVersion(),
+				lastModifiedConverter.convertToDatabaseColumn(temporal.getLastModified())
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private Temporal mapRow(ResultSet rs, int rowNum) throws SQLException {
+		Temporal temporal = new Temporal();
+		temporal.setId(rs.getLong(1));
+		temporal.setLocalDate((LocalDate) localDateConverter.convertToEntityAttribute(rs.getObject(2)));
+		temporal.setLocalTime((LocalTime) localTimeConverter.convertToEntityAttribute(rs.getObject(3)));
+		temporal.setInstant(instant(rs, 4));
+		temporal.setZoneId(zoneIdConverter.convertToEntityAttribute(getInteger(rs, 5)));
+		temporal.setZoneOffset(zoneOffsetConverter.convertToEntityAttribute(getInteger(rs, 6)));
+		temporal.setVersion(rs.getLong(7));
+		temporal.setLastModified(lastModifiedConverter.convertToEntityAttribute(rs.getTimestamp(8)));
+		return temporal;
+	}
+
+	private TemporalView mapView(ResultSet rs, int rowNum) throws SQLException {
+		Temporal temporal = mapRow(rs, rowNum);
+		return new TemporalView(temporal.getId(), temporal.getLocalDate(), temporal.getLocalTime(), temporal.getInstant(),
+				temporal.getZoneId(), temporal.getZoneOffset(), temporal.getVersion());
+	}
+
+	private IdRange mapIdRange(ResultSet rs, int rowNum) throws SQLException {
+		return rs.getObject(1) == null ? new IdRange(null, null) : new IdRange(rs.getLong(1), rs.getLong(2));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Instant instant(ResultSet rs, int column) throws SQLException {
+		return (Instant) instantConverter.convertToEntityAttribute(rs.getObject(column));
+	}
+
+	/**
+	 * ZONE_ID is a SMALLINT (read as a Short by getObject)
+	 */
+	private static Integer getInteger(ResultSet rs, int column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	private static boolean inReadWriteTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reading the partitions.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * A merged cursor of streamAll: its result set and the row it is on
+	 */
+	private static class Cursor {
+		private final ResultSet rs;
+		private TemporalView view;
+
+		Cursor(ResultSet rs, TemporalView view) {
+			this.rs = rs;
+			this.view = view;
+		}
+	}
+
+	/**
+	 * Run the call holding the routing read lock
+	 */
+	private <T> T routed(Supplier<T> call) {
+		routing.readLock().lock();
+		try {
+			return call.get();
+		} finally {
+			routing.readLock().unlock();
+		}
+	}
+
+	private void routed(Runnable call) {
+		routed(() -> {
+			call.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Run the call holding the routing read lock until the current transaction completes (until the call
+	 * returns without one): the tables written keep their name until the rows are committed or rolled back.
+	 */
+	private <T> T routedForTransaction(Supplier<T> call) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) return routed(call);
+		if (!TransactionSynchronizationManager.hasResource(routing)) {
+			routing.readLock().lock();
+			TransactionSynchronizationManager.bindResource(routing, Boolean.TRUE);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(routing);
+					routing.readLock().unlock();
+				}
+			});
+		}
+		return call.get();
+	}
+
+	private void routedForTransaction(Runnable call) {
+		routedForTransaction(() -> {
+			call.run();
+			return null;
+		});
+	}
+
+	@FunctionalInterface
+	private interface Ddl<T> {
+		T execute(Connection connection) throws SQLException;
+	}
+
+	/**
+	 * Run the DDL on a connection of its own (auto-commit): H2 commits the transaction of the connection running DDL.
+	 */
+	private <T> T ddl(Ddl<T> ddl) {
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(true);
+			return ddl.execute(connection);
+		} catch (SQLException e) {
+			throw jdbcTemplate.getExceptionTranslator().translate("partition DDL", null, e);
+		}
+	}
+}
@@ -1,15 +1,138 @@
 package ca.jent.tzWebJpa.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.IdRange;
+import ca.jent.tzWebJpa.projections.TemporalVersion;
+import ca.jent.tzWebJpa.projections.TemporalView;
 
 @Repository
-public interface TemporalRepository extends JpaRepository<Temporal, Long> {
+public interface TemporalRepository extends JpaRepository<Temporal, Long>, TemporalAggregations {
 
 	List<Temporal> findTemporalByLocalDate(LocalDate localDate);
+	
+	/**
+	 * @return the version of the Temporal (null if none has this ID) without loading it
+	 */
+	@Query("select new ca.jent.tzWebJpa.projections.TemporalVersion(t.id, t.version, t.lastModified) from Temporal t where t.id = :id")
+	TemporalVersion findVersionById(@Param("id") Long id);
+	
+	/**
+	 * @return the greatest ID (null if there is no Temporal)
+	 */
+	@Query("select max(t.id) from Temporal t")
+	Long findMaxId();
+	
+	@Query("select new ca.jent.tzWebJpa.projections.IdRange(min(t.id), max(t.id)) from Temporal t")
+	IdRange findIdRange();
+	
+	/**
+	 * @return the ID range of the Temporal having an instant before the given one (TEMPORALS_INSTANT_IDX range scan)
+	 */
+	@Query("select new ca.jent.tzWebJpa.projections.IdRange(min(t.id), max(t.id)) from Temporal t where t.instant < :before")
+	IdRange findIdRangeByInstantBefore(@Param("before") Instant before);
+	
+	/**
+	 * Set-based deletes: the Temporal are not loaded (nor removed from the persistence context).
+	 * The ID range is what bounds the rows locked by one statement.
+	 * @return the number of Temporal deleted
+	 */
+	@Modifying
+	@Query("delete from Temporal t where t.id >= :fromId and t.id < :toId")
+	int deleteByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+	
+	@Modifying
+	@Query("delete from Temporal t where t.id >= :fromId and t.id < :toId and t.instant < :before")
+	int deleteByIdRangeAndInstantBefore(@Param("fromId") Long fromId, @Param("toId") Long toId, @Param("before") Instant before);
+	
+	@Modifying
+	@Query("delete from Temporal t where t.id in :ids")
+	int deleteByIdIn(@Param("ids") Collection<Long> ids);
+	
+	/**
+	 * Cursor-backed scan of the whole table ordered by ID.  Must be consumed (and closed)
+	 * inside a transaction.  Rows are fetched from the JDBC driver in blocks of the fetch size.
+	 * Each row is a TemporalView (constructor expression) so nothing accumulates in the persistence context.
+	 */
+	@Query("select new ca.jent.tzWebJpa.projections.TemporalView(t.id, t.localDate, t.localTime, t.instant, t.zoneId, t.zoneOffset, t.version) "
+			+ "from Temporal t order by t.id")
+	@QueryHints(@QueryHint(name=HINT_FETCH_SIZE, value="500"))
+	Stream<TemporalView> streamAll();
+	
+	/**
+	 * The Temporal having an ID in [fromId, toId) as TemporalView, ordered by ID (one partition of a table scan).
+	 */
+	@Query("select new ca.jent.tzWebJpa.projections.TemporalView(t.id, t.localDate, t.localTime, t.instant, t.zoneId, t.zoneOffset, t.version) "
+			+ "from Temporal t where t.id >= :fromId and t.id < :toId order by t.id")
+	@QueryHints(@QueryHint(name=HINT_FETCH_SIZE, value="500"))
+	List<TemporalView> findViewsByIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+	
+	/**
+	 * Keyset (seek) pagination: next page of Temporal having an ID greater than afterId.
+	 * Like the range queries below, the page is loaded read-only (no snapshot for dirty checking): 
+	 * changes made to these Temporal are not saved.
+	 */
+	@QueryHints(@QueryHint(name=HINT_READONLY, value="true"))
+	List<Temporal> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+	
+	/**
+	 * Keyset pagination over [afterInstant, to) ordered by (instant, ID) i.e. the next page
+	 * after the Temporal (afterInstant, afterId).  For the first page use afterInstant = from 
+	 * and afterId = Long.MIN_VALUE.  The lower bound is the cursor itself so the index range 
+	 * scan starts at the page and not at the beginning of the range.
+	 */
+	@Query("select t from Temporal t where t.instant >= :afterInstant and t.instant < :to "
+			+ "and (t.instant > :afterInstant or t.id > :afterId) order by t.instant, t.id")
+	@QueryHints(@QueryHint(name=HINT_READONLY, value="true"))
+	List<Temporal> findByInstantRange(@Param("afterInstant") Instant afterInstant, @Param("afterId") Long afterId, 
+			@Param("to") Instant to, Pageable pageable);
+	
+	/**
+	 * Same as findByInstantRange for one ZoneId only.
+	 * Note: ordering by the (constant) zoneId lets the database see that the (ZONE_ID, INSTANT_TS, ID) 
+	 * index is already sorted the way we want.
+	 */
+	@Query("select t from Temporal t where t.zoneId = :zoneId and t.instant >= :afterInstant and t.instant < :to "
+			+ "and (t.instant > :afterInstant or t.id > :afterId) order by t.zoneId, t.instant, t.id")
+	@QueryHints(@QueryHint(name=HINT_READONLY, value="true"))
+	List<Temporal> findByZoneIdAndInstantRange(@Param("zoneId") ZoneId zoneId, @Param("afterInstant") Instant afterInstant, 
+			@Param("afterId") Long afterId, @Param("to") Instant to, Pageable pageable);
+	
+	/**
+	 * Keyset pagination over [afterDate, to] (inclusive) ordered by (localDate, ID).
+	 * For the first page use afterDate = from and afterId = Long.MIN_VALUE.
+	 */
+	@Query("select t from Temporal t where t.localDate >= :afterDate and t.localDate <= :to "
+			+ "and (t.localDate > :afterDate or t.id > :afterId) order by t.localDate, t.id")
+	@QueryHints(@QueryHint(name=HINT_READONLY, value="true"))
+	List<Temporal> findByLocalDateRange(@Param("afterDate") LocalDate afterDate, @Param("afterId") Long afterId, 
+			@Param("to") LocalDate to, Pageable pageable);
+	
+	/**
+	 * Same as findByLocalDateRange for one ZoneId only.
+	 */
+	@Query("select t from Temporal t where t.zoneId = :zoneId and t.localDate >= :afterDate and t.localDate <= :to "
+			+ "and (t.localDate > :afterDate or t.id > :afterId) order by t.localDate, t.id")
+	@QueryHints(@QueryHint(name=HINT_READONLY, value="true"))
+	List<Temporal> findByZoneIdAndLocalDateRange(@Param("zoneId") ZoneId zoneId, @Param("afterDate") LocalDate afterDate, 
+			@Param("afterId") Long afterId, @Param("to") LocalDate to, Pageable pageable);
 }
@@ -0,0 +1,96 @@
+package ca.jent.tzWebJpa.repositories;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import ca.jent.tzWebJpa.configuration.StorageEncoding;
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+import ca.jent.tzWebJpa.utils.DateUtils;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Aggregations of TemporalRepository.  Daily and offset counts are JPQL constructor expressions
+ * (the converters apply to the grouped columns).  Hourly buckets need arithmetic on INSTANT_TS
+ * thus a native query for each storage encoding: floor(epoch-micros / 1 hour) or, for the 
+ * TIMESTAMP column, the EPOCH_HOUR function (@see H2Functions).
+ * @author jraymond
+ *
+ */
+public class TemporalRepositoryImpl implements TemporalAggregations {
+	
+	private static final String ZONE_FILTER = " and t.zoneId = :zoneId";
+	private static final String HOUR_SQL = "EPOCH_HOUR(INSTANT_TS)";
+	private static final String HOUR_EPOCH = "cast(floor(INSTANT_TS / 3600000000.0) as BIGINT)";
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Autowired
+	private StorageEncoding storageEncoding;
+	
+	@Autowired
+	private ZoneDictionary zoneDictionary;
+
+	@Override
+	public List<DailyCount> countByLocalDateAndZoneId(Instant from, Instant to, ZoneId zoneId) {
+		String jpql = "select new ca.jent.tzWebJpa.projections.DailyCount(t.localDate, t.zoneId, count(t)) from Temporal t"
+				+ " where t.instant >= :from and t.instant < :to" + (zoneId == null ? "" : ZONE_FILTER)
+				+ " group by t.localDate, t.zoneId order by t.localDate, t.zoneId";
+		return bind(entityManager.createQuery(jpql, DailyCount.class), from, to, zoneId).getResultList();
+	}
+
+	@Override
+	public List<OffsetCount> countByZoneIdAndZoneOffset(Instant from, Instant to, ZoneId zoneId) {
+		String jpql = "select new ca.jent.tzWebJpa.projections.OffsetCount(t.zoneId, t.zoneOffset, count(t), min(t.instant)) from Temporal t"
+				+ " where t.instant >= :from and t.instant < :to" + (zoneId == null ? "" : ZONE_FILTER)
+				+ " group by t.zoneId, t.zoneOffset order by t.zoneId, t.zoneOffset";
+		return bind(entityManager.createQuery(jpql, OffsetCount.class), from, to, zoneId).getResultList();
+	}
+
+	@Override
+	public List<HourlyCount> countByHour(Instant from, Instant to, ZoneId zoneId) {
+		String hour = storageEncoding == StorageEncoding.EPOCH ? HOUR_EPOCH : HOUR_SQL;
+		String sql = "select " + hour + ", count(*) from TEMPORALS"
+				+ " where INSTANT_TS >= ?1 and INSTANT_TS < ?2" + (zoneId == null ? "" : " and ZONE_ID = ?3")
+				+ " group by " + hour + " order by 1";
+		Query query = entityManager.createNativeQuery(sql)
+				.setParameter(1, instantColumn(from))
+				.setParameter(2, instantColumn(to));
+		if (zoneId != null) query.setParameter(3, (int) zoneDictionary.codeOf(zoneId));
+		
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = query.getResultList();
+		return rows.stream()
+				.map(row -> new HourlyCount(
+						Instant.EPOCH.plus(Duration.ofHours(((Number) row[0]).longValue())), 
+						((Number) row[1]).longValue()))
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Native queries bypass the converters: the value as stored by the current encoding.
+	 */
+	private Object instantColumn(Instant instant) {
+		return storageEncoding == StorageEncoding.EPOCH ? DateUtils.asEpochMicros(instant) : Timestamp.from(instant);
+	}
+	
+	private static <T> TypedQuery<T> bind(TypedQuery<T> query, Instant from, Instant to, ZoneId zoneId) {
+		query.setParameter("from", from).setParameter("to", to);
+		if (zoneId != null) query.setParameter("zoneId", zoneId);
+		return query;
+	}
+
+}
@@ -0,0 +1,129 @@
+package ca.jent.tzWebJpa.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * ZONES table: the persistent side of the ZoneDictionary.
+ * A zone registered within a transaction (@see ZoneDictionary) is inserted on the connection of
+ * that transaction: saving a Temporal of a new zone does not borrow a second connection.
+ * Two transactions registering the same zone at the same time: the second waits for the first
+ * (ZONE_ID is unique) then reads the code of the first once it commits (or fails if that takes
+ * longer than the lock timeout of the database).  Outside a read-write transaction, the zone is
+ * registered on a connection of its own (auto-commit).
+ * @author jraymond
+ *
+ */
+@Repository
+public class ZoneRepository implements ZoneDictionary.Store {
+	
+	private static final String SELECT_ALL = "select CODE, ZONE_ID from ZONES";
+	private static final String SELECT_CODE = "select CODE from ZONES where ZONE_ID = ?";
+	private static final String SELECT_ZONE_ID = "select ZONE_ID from ZONES where CODE = ?";
+	private static final String INSERT = "insert into ZONES (ZONE_ID) values (?)";
+	
+	private final DataSource dataSource;
+	private final SQLExceptionTranslator exceptionTranslator;
+	
+	@Autowired
+	public ZoneRepository(DataSource dataSource) {
+		this.dataSource = dataSource;
+		this.exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+	}
+
+	@Override
+	public Map<Short, String> loadAll() {
+		Map<Short, String> zones = new HashMap<>();
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement ps = connection.prepareStatement(SELECT_ALL);
+			 ResultSet rs = ps.executeQuery()) {
+			while (rs.next()) {
+				zones.put(rs.getShort(1), rs.getString(2));
+			}
+			return zones;
+		} catch (SQLException e) {
+			throw translate(SELECT_ALL, e);
+		}
+	}
+
+	@Override
+	public short register(String zoneId, boolean transactional) {
+		if (!transactional) {
+			try (Connection connection = dataSource.getConnection()) {
+				connection.setAutoCommit(true);
+				return register(connection, zoneId);
+			} catch (SQLException e) {
+				throw translate(INSERT, e);
+			}
+		}
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try {
+			return register(connection, zoneId);
+		} catch (SQLException e) {
+			throw translate(INSERT, e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+
+	/**
+	 * On the connection of the current transaction if any: it sees the zones the transaction registered.
+	 */
+	@Override
+	public String lookup(short code) {
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try (PreparedStatement ps = connection.prepareStatement(SELECT_ZONE_ID)) {
+			ps.setShort(1, code);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getString(1) : null;
+			}
+		} catch (SQLException e) {
+			throw translate(SELECT_ZONE_ID, e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+	
+	private static short register(Connection connection, String zoneId) throws SQLException {
+		Short code = selectCode(connection, zoneId);
+		if (code != null) return code;
+		try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+			ps.setString(1, zoneId);
+			ps.executeUpdate();
+		} catch (SQLException e) {
+			// most likely registered concurrently by another transaction or instance (unique ZONE_ID)
+			code = selectCode(connection, zoneId);
+			if (code == null) throw e;
+			return code;
+		}
+		return selectCode(connection, zoneId);
+	}
+	
+	private static Short selectCode(Connection connection, String zoneId) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(SELECT_CODE)) {
+			ps.setString(1, zoneId);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getShort(1) : null;
+			}
+		}
+	}
+	
+	private DataAccessException translate(String sql, SQLException e) {
+		return exceptionTranslator.translate(ZoneRepository.class.getSimpleName(), sql, e);
+	}
+}
@@ -0,0 +1,16 @@
+package ca.jent.tzWebJpa.services;
+
+/**
+ * Thrown when starting a background job (import, audit, purge) while one of its kind is running:
+ * the only IllegalStateException answered 409 Conflict.
+ * @author jraymond
+ *
+ */
+public class AlreadyRunningException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	public AlreadyRunningException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,301 @@
+package ca.jent.tzWebJpa.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.jent.tzWebJpa.audit.AuditReport;
+import ca.jent.tzWebJpa.audit.DstChecker;
+import ca.jent.tzWebJpa.audit.DstFinding;
+import ca.jent.tzWebJpa.audit.Throttle;
+import ca.jent.tzWebJpa.projections.IdRange;
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+/**
+ * Background audit of the DST consistency of TEMPORALS (@see DstChecker): the stored offset against
+ * the rules of the zone at the instant, and the local date/time against a DST gap or overlap.
+ * The ID range [MIN(ID), MAX(ID)] known at the start is cut into partitions of partition-ids IDs,
+ * each read (as TemporalView) and checked on a fork-join pool of parallelism threads.  The findings of a
+ * partition are saved in AUDIT_FINDINGS within the transaction recording the partition in AUDIT_PARTITIONS
+ * so an audit stopped (stop() or shutdown) resumes on the next start with the partitions left:
+ * a partition is audited exactly once.
+ * Reading is throttled to max-rows-per-second rows (0: unlimited) for all the threads together: a partition
+ * is read once its IDs (the most rows it can have) fit within the rate, then the IDs it had no row for are
+ * given back.  Each thread holds a connection only while reading or saving a partition, so online requests
+ * keep their share of the database and of the connection pool.
+ * Once every partition is done the audit is completed and its report written to the audit directory (audit-ID.json).
+ * Only one audit runs at a time.
+ * @author jraymond
+ *
+ */
+@Service
+@Lazy
+public class DstAuditService {
+
+	private static final Logger logger = LoggerFactory.getLogger(DstAuditService.class);
+
+	private static final String SELECT_RESUMABLE = "select max(AUDIT_ID) from AUDITS where COMPLETED_AT is null";
+	private static final String SELECT_LATEST = "select max(AUDIT_ID) from AUDITS";
+	private static final String INSERT_AUDIT = "insert into AUDITS (MIN_ID, MAX_ID, PARTITION_IDS, STARTED_AT) values (?, ?, ?, ?)";
+	private static final String SELECT_AUDIT = "select MIN_ID, MAX_ID, PARTITION_IDS, STARTED_AT, COMPLETED_AT from AUDITS where AUDIT_ID = ?";
+	private static final String COMPLETE_AUDIT = "update AUDITS set COMPLETED_AT = ? where AUDIT_ID = ?";
+	private static final String SELECT_PARTITIONS = "select PARTITION_START from AUDIT_PARTITIONS where AUDIT_ID = ?";
+	private static final String INSERT_PARTITION = "insert into AUDIT_PARTITIONS (AUDIT_ID, PARTITION_START, ROW_COUNT, INCOMPLETE) values (?, ?, ?, ?)";
+	private static final String INSERT_FINDING = "insert into AUDIT_FINDINGS (AUDIT_ID, TEMPORAL_ID, FINDING, ZONE_ID, DETAIL) values (?, ?, ?, ?, ?)";
+	private static final String SUM_PARTITIONS = "select count(*), coalesce(sum(ROW_COUNT), 0), coalesce(sum(INCOMPLETE), 0) from AUDIT_PARTITIONS where AUDIT_ID = ?";
+	private static final String COUNT_FINDINGS = "select FINDING, count(*) from AUDIT_FINDINGS where AUDIT_ID = ? group by FINDING";
+	private static final String COUNT_FINDINGS_BY_ZONE = "select ZONE_ID, count(*) C from AUDIT_FINDINGS where AUDIT_ID = ? group by ZONE_ID order by C desc, ZONE_ID";
+
+	private final TemporalService temporalService;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final long partitionIds;
+	private final int parallelism;
+	private final long maxRowsPerSecond;
+	private final Path directory;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private volatile long runningAuditId;
+	private volatile boolean stopping;
+
+	public DstAuditService(TemporalService temporalService, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			ObjectMapper objectMapper,
+			@Value("${temporal.audit.partition-ids:10000}") long partitionIds,
+			@Value("${temporal.audit.parallelism:1}") int parallelism,
+			@Value("${temporal.audit.max-rows-per-second:20000}") long maxRowsPerSecond,
+			@Value("${temporal.audit.directory:audit}") String directory) {
+		if (partitionIds < 1) throw new IllegalArgumentException("temporal.audit.partition-ids must be greater than zero.");
+		if (parallelism < 1) throw new IllegalArgumentException("temporal.audit.parallelism must be greater than zero.");
+		if (maxRowsPerSecond < 0) throw new IllegalArgumentException("temporal.audit.max-rows-per-second cannot be negative.");
+		this.temporalService = temporalService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.objectMapper = objectMapper;
+		this.partitionIds = partitionIds;
+		this.parallelism = parallelism;
+		this.maxRowsPerSecond = maxRowsPerSecond;
+		this.directory = Paths.get(directory).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Resume the last incomplete audit (or start a new one) in the background.
+	 * @return the report of the audit as it starts
+	 * @throws AlreadyRunningException if an audit is already running
+	 */
+	public AuditReport start() {
+		long auditId = begin();
+		Thread thread = new Thread(() -> run(auditId), "temporal-audit");
+		thread.setDaemon(true);
+		thread.start();
+		return getReport(auditId);
+	}
+
+	/**
+	 * Resume the last incomplete audit (or start a new one) and wait until done.
+	 * @return the report of the audit once completed (INCOMPLETE if a partition failed or the audit was stopped)
+	 */
+	public AuditReport audit() {
+		long auditId = begin();
+		run(auditId);
+		return getReport(auditId);
+	}
+
+	/**
+	 * Ask the running audit to stop once its partitions in progress are done.  It resumes on the next start.
+	 * @return false if no audit is running
+	 */
+	public boolean stop() {
+		if (!running.get()) return false;
+		stopping = true;
+		return true;
+	}
+
+	/**
+	 * @return the report of the running or last audit (null if there never was one)
+	 */
+	public AuditReport getReport() {
+		Long auditId = jdbcTemplate.queryForObject(SELECT_LATEST, Long.class);
+		return auditId == null ? null : getReport(auditId);
+	}
+
+	public AuditReport getReport(long auditId) {
+		Map<String, Object> audit = jdbcTemplate.queryForMap(SELECT_AUDIT, auditId);
+		long minId = ((Number) audit.get("MIN_ID")).longValue();
+		long maxId = ((Number) audit.get("MAX_ID")).longValue();
+		long partitions = partitions(minId, maxId, ((Number) audit.get("PARTITION_IDS")).longValue());
+		Timestamp completedAt = (Timestamp) audit.get("COMPLETED_AT");
+		AuditReport.Status status = completedAt != null ? AuditReport.Status.COMPLETED
+				: running.get() && runningAuditId == auditId ? AuditReport.Status.RUNNING : AuditReport.Status.INCOMPLETE;
+
+		long[] sums = jdbcTemplate.queryForObject(SUM_PARTITIONS, (rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3) }, auditId);
+		Map<DstFinding, Long> findings = new EnumMap<>(DstFinding.class);
+		for (DstFinding finding : DstFinding.values()) {
+			findings.put(finding, 0L);
+		}
+		jdbcTemplate.query(COUNT_FINDINGS, rs -> {
+			findings.put(DstFinding.valueOf(rs.getString(1)), rs.getLong(2));
+		}, auditId);
+		Map<String, Long> findingsByZone = new LinkedHashMap<>();
+		jdbcTemplate.query(COUNT_FINDINGS_BY_ZONE, rs -> {
+			findingsByZone.put(rs.getString(1), rs.getLong(2));
+		}, auditId);
+
+		return new AuditReport(auditId, status, minId, maxId, partitions, sums[0], sums[1], sums[2], findings, findingsByZone,
+				((Timestamp) audit.get("STARTED_AT")).toInstant().toString(),
+				completedAt == null ? null : completedAt.toInstant().toString());
+	}
+
+	/**
+	 * @return the ID of the audit to run: the last incomplete one or a new one over the current ID range
+	 */
+	private long begin() {
+		if (!running.compareAndSet(false, true)) throw new AlreadyRunningException("An audit is already running.");
+		try {
+			stopping = false;
+			Long auditId = jdbcTemplate.queryForObject(SELECT_RESUMABLE, Long.class);
+			if (auditId == null) {
+				// an empty table gives the empty range [1, 0]; with partitions, read from each one rather than the view
+				IdRange range = temporalService.getIdRange(null);
+				long minId = range.getMinId() == null ? 1 : range.getMinId();
+				long maxId = range.getMaxId() == null ? 0 : range.getMaxId();
+				KeyHolder keyHolder = new GeneratedKeyHolder();
+				jdbcTemplate.update(connection -> {
+					PreparedStatement statement = connection.prepareStatement(INSERT_AUDIT, Statement.RETURN_GENERATED_KEYS);
+					statement.setLong(1, minId);
+					statement.setLong(2, maxId);
+					statement.setLong(3, partitionIds);
+					statement.setTimestamp(4, Timestamp.from(Instant.now()));
+					return statement;
+				}, keyHolder);
+				auditId = keyHolder.getKey().longValue();
+			}
+			runningAuditId = auditId;
+			return auditId;
+		} catch (RuntimeException e) {
+			running.set(false);
+			throw e;
+		}
+	}
+
+	private void run(long auditId) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		long startNanos = System.nanoTime();
+		try {
+			Map<String, Object> audit = jdbcTemplate.queryForMap(SELECT_AUDIT, auditId);
+			long minId = ((Number) audit.get("MIN_ID")).longValue();
+			long maxId = ((Number) audit.get("MAX_ID")).longValue();
+			long auditPartitionIds = ((Number) audit.get("PARTITION_IDS")).longValue();
+			Set<Long> done = new HashSet<>(jdbcTemplate.queryForList(SELECT_PARTITIONS, Long.class, auditId));
+			logger.info("Audit {}: IDs [{}, {}], {} partitions, {} already done", auditId, minId, maxId,
+					partitions(minId, maxId, auditPartitionIds), done.size());
+
+			Throttle throttle = new Throttle(maxRowsPerSecond);
+			AtomicInteger failed = new AtomicInteger();
+			long[] rows = new long[1];
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (long start = minId; start <= maxId; start += auditPartitionIds) {
+				if (done.contains(start)) continue;
+				long partitionStart = start;
+				long partitionEnd = Math.min(maxId, start + auditPartitionIds - 1) + 1;
+				tasks.add(pool.submit(() -> {
+					if (stopping || failed.get() > 0) return;
+					try {
+						long partitionRows = auditPartition(auditId, partitionStart, partitionEnd, throttle);
+						synchronized (rows) {
+							rows[0] += partitionRows;
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failed.incrementAndGet();
+					} catch (RuntimeException e) {
+						logger.error("Audit {}: partition at {} failed", auditId, partitionStart, e);
+						failed.incrementAndGet();
+					}
+				}));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+			double seconds = (System.nanoTime() - startNanos) / 1e9;
+			logger.info("Audit {}: {} rows in {} s ({} rows/s)", auditId, rows[0], String.format("%.1f", seconds), Math.round(rows[0] / seconds));
+			if (!stopping && failed.get() == 0) complete(auditId);
+		} catch (RuntimeException e) {
+			logger.error("Audit {} failed", auditId, e);
+		} finally {
+			pool.shutdown();
+			running.set(false);
+			logger.info("{}", getReport(auditId));
+		}
+	}
+
+	/**
+	 * Check the Temporal having an ID in [start, end) and save the findings along with the partition.
+	 * @return the number of rows of the partition
+	 */
+	private long auditPartition(long auditId, long start, long end, Throttle throttle) throws InterruptedException {
+		int span = (int) Math.min(end - start, Integer.MAX_VALUE);
+		throttle.acquire(span);
+		List<TemporalView> temporals = temporalService.findTemporalViewsByIdRange(start, end);
+		throttle.release(span - temporals.size());
+		List<Object[]> findings = new ArrayList<>();
+		long incomplete = 0;
+		for (TemporalView temporal : temporals) {
+			boolean checked = DstChecker.check(temporal, (checkedTemporal, finding, detail) -> findings.add(new Object[] {
+					auditId, checkedTemporal.getId(), finding.name(), checkedTemporal.getZoneId().getId(), detail }));
+			if (!checked) incomplete++;
+		}
+		long incompleteRows = incomplete;
+		transactionTemplate.execute(status -> {
+			if (!findings.isEmpty()) jdbcTemplate.batchUpdate(INSERT_FINDING, findings);
+			jdbcTemplate.update(INSERT_PARTITION, auditId, start, temporals.size(), incompleteRows);
+			return null;
+		});
+		return temporals.size();
+	}
+
+	private void complete(long auditId) {
+		jdbcTemplate.update(COMPLETE_AUDIT, Timestamp.from(Instant.now()), auditId);
+		AuditReport report = getReport(auditId);
+		try {
+			Files.createDirectories(directory);
+			Path file = directory.resolve("audit-" + auditId + ".json");
+			objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+			logger.info("Audit {}: report written to {}", auditId, file);
+		} catch (IOException e) {
+			logger.error("Audit {}: cannot write the report", auditId, e);
+		}
+	}
+
+	private static long partitions(long minId, long maxId, long partitionIds) {
+		return maxId < minId ? 0 : (maxId - minId) / partitionIds + 1;
+	}
+}
@@ -0,0 +1,65 @@
+package ca.jent.tzWebJpa.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import ca.jent.tzWebJpa.export.TemporalColumnWriter;
+
+/**
+ * Export of the whole TEMPORALS table to a column file (@see ca.jent.tzWebJpa.export.TemporalColumns),
+ * for analytics jobs that read it with TemporalColumnReader.  Rows are streamed from the database
+ * cursor (ID order) straight into the chunks of chunk-rows rows.
+ * @author jraymond
+ *
+ */
+@Service
+@Lazy
+public class TemporalExportService {
+
+	private final TemporalService temporalService;
+	private final int chunkRows;
+
+	public TemporalExportService(TemporalService temporalService,
+			@Value("${temporal.export.chunk-rows:65536}") int chunkRows) {
+		if (chunkRows < 1) throw new IllegalArgumentException("temporal.export.chunk-rows must be greater than zero.");
+		this.temporalService = temporalService;
+		this.chunkRows = chunkRows;
+	}
+
+	/**
+	 * Write every Temporal to file (replaced if it exists).
+	 * @return the number of Temporal written
+	 */
+	public long export(Path file) throws IOException {
+		return export(file, null);
+	}
+
+	/**
+	 * Write every Temporal to file (replaced if it exists), the bytes of the file going to sink as well
+	 * as soon as each chunk is written.
+	 * @param sink null for none
+	 * @return the number of Temporal written
+	 */
+	public long export(Path file, WritableByteChannel sink) throws IOException {
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, chunkRows, sink)) {
+			try {
+				temporalService.streamTemporals(temporal -> {
+					try {
+						writer.add(temporal);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			return writer.getRowCount();
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package ca.jent.tzWebJpa.services;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.feed.RingBuffer;
+import ca.jent.tzWebJpa.feed.TemporalsCreated;
+
+/**
+ * Change feed of the Temporal created (GET /temporal/feed).  Once their transaction commits, the Temporal
+ * inserted by TemporalService.save/saveAll (@see TemporalsCreated) are published to a ring buffer of capacity
+ * Temporal: the writer never waits on a subscriber.
+ * Each subscription runs on a thread of the feed executor and sends the Temporal of the ring buffer in
+ * commit order, a heartbeat every heartbeat-ms when there is none.  A subscription given an ID first catches
+ * up from the database (every Temporal of a greater ID, catch-up-page at a time); so does a subscription
+ * overrun by the writers (more than capacity Temporal behind), from its low-water mark.
+ * IDs are allocated before commit, so a Temporal can commit after others of greater IDs: the catch-up does not
+ * start from the greatest ID sent but from the greatest one sent commit-lag-ms before the Temporal missed were
+ * published (the low-water mark), assuming no Temporal commits more than commit-lag-ms after its ID is allocated.
+ * The Temporal of the low-water mark sent not long ago (the last capacity ones) are skipped.  Each Temporal
+ * comes with the low-water mark to resume from (the SSE event ID, @see Subscriber#send).
+ * Delivery is at least once: a Temporal committed while a subscription catches up, or one sent before a resume,
+ * can be sent twice.  A Temporal committed more than commit-lag-ms after its ID was allocated can be missed, and
+ * so can one of a smaller ID than the greatest one when a subscription without ID started.
+ * At most catch-up-connections subscriptions read the database at a time (the others wait): the feed threads do
+ * not hold a connection otherwise.
+ * @author jraymond
+ *
+ */
+@Service
+public class TemporalFeed {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemporalFeed.class);
+
+	/**
+	 * Receives the Temporal of a subscription, on the thread of the subscription
+	 */
+	public interface Subscriber {
+		/**
+		 * @param resumeId the ID to resume from (as afterId) so that no Temporal committed after this one is missed
+		 */
+		void send(Temporal temporal, long resumeId) throws IOException;
+		void heartbeat() throws IOException;
+	}
+
+	private final TemporalService temporalService;
+	private final Executor executor;
+	private final RingBuffer<Published> ring;
+	private final int catchUpPage;
+	private final Semaphore catchUpConnections;
+	private final long commitLagNanos;
+	private final long heartbeatNanos;
+	private final long pollNanos;
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder published = new LongAdder();
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder caughtUp = new LongAdder();
+	private final LongAdder overruns = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+
+	public TemporalFeed(TemporalService temporalService, @Qualifier("feedExecutor") Executor executor,
+			@Value("${temporal.feed.capacity:4096}") int capacity,
+			@Value("${temporal.feed.catch-up-page:500}") int catchUpPage,
+			@Value("${temporal.feed.catch-up-connections:2}") int catchUpConnections,
+			@Value("${temporal.feed.commit-lag-ms:30000}") long commitLagMillis,
+			@Value("${temporal.feed.heartbeat-ms:15000}") long heartbeatMillis,
+			@Value("${temporal.feed.poll-ms:20}") long pollMillis) {
+		if (catchUpPage < 1) throw new IllegalArgumentException("temporal.feed.catch-up-page must be greater than zero.");
+		if (catchUpConnections < 1) throw new IllegalArgumentException("temporal.feed.catch-up-connections must be greater than zero.");
+		if (commitLagMillis < 0) throw new IllegalArgumentException("temporal.feed.commit-lag-ms must not be negative.");
+		if (pollMillis < 1) throw new IllegalArgumentException("temporal.feed.poll-ms must be greater than zero.");
+		this.temporalService = temporalService;
+		this.executor = executor;
+		this.ring = new RingBuffer<>(capacity);
+		this.catchUpPage = catchUpPage;
+		this.catchUpConnections = new Semaphore(catchUpConnections);
+		this.commitLagNanos = TimeUnit.MILLISECONDS.toNanos(commitLagMillis);
+		this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+		this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+	}
+
+	@TransactionalEventListener
+	public void created(TemporalsCreated event) {
+		for (Temporal temporal : event.getTemporals()) {
+			ring.publish(new Published(temporal, System.nanoTime()));
+		}
+		published.add(event.getTemporals().size());
+	}
+
+	/**
+	 * Start sending the Temporal created from now on to the subscriber, preceded by the ones having an ID greater
+	 * than afterId (if not null).  The subscription ends when cancelled or when the subscriber throws.
+	 * @throws RejectedExecutionException when every thread of the feed executor has a subscription
+	 */
+	public Subscription subscribe(Long afterId, Subscriber subscriber) {
+		if (subscriber == null) throw new IllegalArgumentException(Subscriber.class.getName() + " argument cannot be null.");
+		Subscription subscription = new Subscription(afterId, subscriber);
+		subscriptions.add(subscription);
+		try {
+			executor.execute(subscription::run);
+		} catch (RejectedExecutionException e) {
+			subscriptions.remove(subscription);
+			throw e;
+		}
+		return subscription;
+	}
+
+	@PreDestroy
+	public void close() {
+		subscriptions.forEach(Subscription::cancel);
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("subscriptions", (long) subscriptions.size());
+		stats.put("published", published.sum());
+		stats.put("sent", sent.sum());
+		stats.put("caughtUp", caughtUp.sum());
+		stats.put("overruns", overruns.sum());
+		stats.put("skipped", skipped.sum());
+		return stats;
+	}
+
+	/**
+	 * A Temporal of the ring buffer and when it was published (System.nanoTime)
+	 */
+	private static final class Published {
+		private final Temporal temporal;
+		private final long at;
+
+		Published(Temporal temporal, long at) {
+			this.temporal = temporal;
+			this.at = at;
+		}
+	}
+
+	public final class Subscription {
+
+		private final Subscriber subscriber;
+		private final Long afterId;
+		private volatile boolean cancelled;
+		private long sequence;
+		/**
+		 * When the Temporal of the ring buffer from sequence on were published at the earliest
+		 */
+		private long readUpTo;
+		/**
+		 * The IDs up to floor are not caught up (the resume ID or the greatest ID at the start)
+		 */
+		private long floor;
+		private long lastId;
+		/**
+		 * (when, greatest ID sent by then), at least checkpointNanos apart: every ID sent by then was allocated before
+		 */
+		private final Deque<long[]> checkpoints = new ArrayDeque<>();
+		private final long checkpointNanos = Math.max(1, commitLagNanos / 16);
+		/**
+		 * The last capacity IDs sent, not sent again by a catch-up
+		 */
+		private final Set<Long> recent = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+				return size() > ring.capacity();
+			}
+		});
+		/**
+		 * The ID a catch-up in progress has reached (Long.MAX_VALUE when none is)
+		 */
+		private long catchingUpAt = Long.MAX_VALUE;
+
+		private Subscription(Long afterId, Subscriber subscriber) {
+			this.subscriber = subscriber;
+			this.afterId = afterId;
+			this.sequence = ring.head();
+			this.readUpTo = System.nanoTime();
+		}
+
+		public void cancel() {
+			cancelled = true;
+		}
+
+		private void run() {
+			try {
+				if (afterId == null) {
+					// where to catch up from when overrun
+					Long maxId = withConnection(temporalService::getMaxId);
+					floor = maxId == null ? Long.MIN_VALUE : maxId;
+				} else {
+					floor = afterId;
+				}
+				lastId = floor;
+				if (afterId != null) catchUp(floor);
+				long idleSince = System.nanoTime();
+				while (!cancelled) {
+					Published published = ring.get(sequence);
+					if (published != null) {
+						readUpTo = Math.max(readUpTo, published.at);
+						send(published.temporal, published.at);
+						sequence++;
+						idleSince = System.nanoTime();
+					} else if (sequence < ring.oldest()) {
+						overruns.increment();
+						// the Temporal missed were published after readUpTo: their ID was allocated after readUpTo - commitLag
+						long lowWater = lowWater();
+						sequence = ring.head();
+						catchUp(lowWater);
+					} else if (System.nanoTime() - idleSince >= heartbeatNanos) {
+						subscriber.heartbeat();
+						idleSince = System.nanoTime();
+					} else {
+						LockSupport.parkNanos(pollNanos);
+					}
+				}
+			} catch (IOException e) {
+				logger.debug("Feed subscriber gone: {}", e.toString());
+			} catch (RuntimeException e) {
+				logger.warn("Feed subscription failed.", e);
+			} finally {
+				subscriptions.remove(this);
+			}
+		}
+
+		/**
+		 * Every Temporal having an ID greater than from, but the ones sent recently
+		 */
+		private void catchUp(long from) throws IOException {
+			long after = from;
+			List<Temporal> page;
+			try {
+				do {
+					long at = System.nanoTime();
+					long pageAfter = after;
+					page = withConnection(() -> temporalService.getTemporals(pageAfter, catchUpPage));
+					for (Temporal temporal : page) {
+						if (cancelled) return;
+						after = temporal.getId();
+						catchingUpAt = after;
+						if (recent.contains(temporal.getId())) {
+							skipped.increment();
+							continue;
+						}
+						// read once committed: its ID was allocated before at
+						send(temporal, at);
+						caughtUp.increment();
+					}
+				} while (page.size() == catchUpPage);
+			} finally {
+				catchingUpAt = Long.MAX_VALUE;
+			}
+		}
+
+		private void send(Temporal temporal, long allocatedBefore) throws IOException {
+			lastId = Math.max(lastId, temporal.getId());
+			recent.add(temporal.getId());
+			if (checkpoints.isEmpty() || allocatedBefore - checkpoints.peekLast()[0] >= checkpointNanos) {
+				checkpoints.addLast(new long[] { allocatedBefore, lastId });
+			}
+			subscriber.send(temporal, Math.min(lowWater(), catchingUpAt));
+			sent.increment();
+		}
+
+		/**
+		 * @return the greatest ID sent commitLag before readUpTo (floor if none): a Temporal published after
+		 * readUpTo has a greater ID
+		 */
+		private long lowWater() {
+			long horizon = readUpTo - commitLagNanos;
+			// the horizon only moves forward: the checkpoints before the last one reached are no longer needed
+			while (checkpoints.size() > 1 && secondCheckpoint()[0] - horizon <= 0) {
+				checkpoints.removeFirst();
+			}
+			long[] first = checkpoints.peekFirst();
+			return first != null && first[0] - horizon <= 0 ? Math.max(floor, first[1]) : floor;
+		}
+
+		private long[] secondCheckpoint() {
+			Iterator<long[]> iterator = checkpoints.iterator();
+			iterator.next();
+			return iterator.next();
+		}
+	}
+
+	/**
+	 * Read the database with one of the catch-up connections
+	 */
+	private <T> T withConnection(Supplier<T> read) {
+		try {
+			catchUpConnections.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a catch-up connection.", e);
+		}
+		try {
+			return read.get();
+		} finally {
+			catchUpConnections.release();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package ca.jent.tzWebJpa.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.importer.ImportJob;
+import ca.jent.tzWebJpa.importer.TemporalCsvParser;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * Bulk import of Temporal from a CSV file (@see TemporalCsvParser for the format) of the
+ * import directory (temporal.import.directory).
+ * The file is cut into splits of split-bytes bytes, each parsed from its own memory-mapped
+ * region on a fork-join pool of parallelism threads and saved in batch-size batches
+ * (TemporalService.saveAll) within one transaction per split.  The transaction also records
+ * the split in IMPORT_CHECKPOINTS so importing the same file again (same name, size,
+ * last modified time and split-bytes) resumes with the splits that are not imported yet:
+ * a split is imported exactly once.
+ * Only one import runs at a time.  Progress is logged as splits complete and available from getJob().
+ * @author jraymond
+ *
+ */
+@Service
+@Lazy
+public class TemporalImportService {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemporalImportService.class);
+
+	private static final String SELECT_CHECKPOINTS = "select SPLIT_START from IMPORT_CHECKPOINTS where FILE_KEY = ?";
+	private static final String INSERT_CHECKPOINT = "insert into IMPORT_CHECKPOINTS (FILE_KEY, SPLIT_START, ROW_COUNT, IMPORTED_AT) values (?, ?, ?, ?)";
+
+	private final TemporalService temporalService;
+	private final ZoneDictionary zoneDictionary;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final Path directory;
+	private final long splitBytes;
+	private final int parallelism;
+	private final int batchSize;
+	private final AtomicReference<ImportJob> job = new AtomicReference<>();
+
+	public TemporalImportService(TemporalService temporalService, ZoneDictionary zoneDictionary, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			@Value("${temporal.import.directory:import}") String directory,
+			@Value("${temporal.import.split-bytes:8388608}") long splitBytes,
+			@Value("${temporal.import.parallelism:2}") int parallelism,
+			@Value("${temporal.import.batch-size:1000}") int batchSize) {
+		if (splitBytes < 1) throw new IllegalArgumentException("temporal.import.split-bytes must be greater than zero.");
+		if (parallelism < 1) throw new IllegalArgumentException("temporal.import.parallelism must be greater than zero.");
+		if (batchSize < 1) throw new IllegalArgumentException("temporal.import.batch-size must be greater than zero.");
+		this.temporalService = temporalService;
+		this.zoneDictionary = zoneDictionary;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.directory = Paths.get(directory).toAbsolutePath().normalize();
+		this.splitBytes = splitBytes;
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Start importing the file (relative to the import directory) in the background.
+	 * @return the job just started
+	 * @throws IllegalArgumentException if the file is not a regular file of the import directory
+	 * @throws AlreadyRunningException if an import is already running
+	 */
+	public ImportJob start(String fileName) throws IOException {
+		Path file = resolve(fileName);
+		ImportJob started = newJob(file);
+		Thread thread = new Thread(() -> run(file, started), "temporal-import");
+		thread.setDaemon(true);
+		thread.start();
+		return started;
+	}
+
+	/**
+	 * Import the file (relative to the import directory) and wait until done.
+	 * @return the job once completed or failed
+	 */
+	public ImportJob importFile(String fileName) throws IOException {
+		Path file = resolve(fileName);
+		ImportJob job = newJob(file);
+		run(file, job);
+		return job;
+	}
+
+	/**
+	 * @return the running or last import (null if none since startup)
+	 */
+	public ImportJob getJob() {
+		return job.get();
+	}
+
+	private Path resolve(String fileName) {
+		if (fileName == null) throw new IllegalArgumentException("fileName argument cannot be null.");
+		Path file = directory.resolve(fileName).normalize();
+		if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+			throw new IllegalArgumentException("No file " + fileName + " in the import directory.");
+		}
+		return file;
+	}
+
+	private ImportJob newJob(Path file) throws IOException {
+		long size = Files.size(file);
+		int splits = (int) ((size + splitBytes - 1) / splitBytes);
+		int resumed = done(fileKey(file)).size();
+		ImportJob started = new ImportJob(directory.relativize(file).toString(), size, splits, resumed);
+		ImportJob previous = job.get();
+		if (previous != null && previous.getStatus() == ImportJob.Status.RUNNING || !job.compareAndSet(previous, started)) {
+			throw new AlreadyRunningException("An import is already running.");
+		}
+		return started;
+	}
+
+	private void run(Path file, ImportJob job) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			String fileKey = fileKey(file);
+			Set<Long> done = done(fileKey);
+			ConcurrentMap<String, ZoneId> zoneIds = new ConcurrentHashMap<>();
+			ConcurrentMap<String, ZoneOffset> zoneOffsets = new ConcurrentHashMap<>();
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (long start = 0; start < job.getFileBytes(); start += splitBytes) {
+				if (done.contains(start)) continue;
+				long splitStart = start;
+				tasks.add(pool.submit(() -> importSplit(channel, fileKey, splitStart, job, new TemporalCsvParser(zoneDictionary, zoneIds, zoneOffsets))));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.error("Import of {} failed", file, e);
+			job.splitFailed(e.toString());
+		} finally {
+			pool.shutdown();
+			job.finish();
+			logger.info("{}", job);
+		}
+	}
+
+	/**
+	 * Parse and save one split within one transaction (along with its checkpoint).
+	 * A failure is recorded in the job and does not stop the other splits.
+	 */
+	private void importSplit(FileChannel channel, String fileKey, long start, ImportJob job, TemporalCsvParser parser) {
+		long end = Math.min(start + splitBytes, job.getFileBytes());
+		try {
+			long rows = transactionTemplate.execute(status -> {
+				List<Temporal> batch = new ArrayList<>(batchSize);
+				long count;
+				try {
+					count = parser.parseSplit(channel, start, end, temporal -> {
+						batch.add(temporal);
+						if (batch.size() == batchSize) {
+							temporalService.saveAll(batch);
+							batch.clear();
+						}
+					});
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				if (!batch.isEmpty()) temporalService.saveAll(batch);
+				jdbcTemplate.update(INSERT_CHECKPOINT, fileKey, start, count, Timestamp.from(Instant.now()));
+				return count;
+			});
+			job.splitDone(end - start, rows);
+			logger.info("Import of {}: split at {} done ({} rows), {}/{} splits, {} rows/s", job.getFile(), start, rows,
+					job.getSplitsDone(), job.getSplits() - job.getSplitsResumed(), job.getRowsPerSecond());
+		} catch (RuntimeException e) {
+			logger.error("Import of {}: split at {} failed", job.getFile(), start, e);
+			job.splitFailed("split at " + start + ": " + e.getMessage());
+		}
+	}
+
+	private Set<Long> done(String fileKey) {
+		return new HashSet<>(jdbcTemplate.queryForList(SELECT_CHECKPOINTS, Long.class, fileKey));
+	}
+
+	/**
+	 * Identifies a file and how it is split: the checkpoints of a modified file (or of another
+	 * split-bytes) do not apply.
+	 */
+	private String fileKey(Path file) throws IOException {
+		return directory.relativize(file) + "|" + Files.size(file) + "|" + Files.getLastModifiedTime(file).toMillis() + "|" + splitBytes;
+	}
+}
@@ -0,0 +1,276 @@
+package ca.jent.tzWebJpa.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+import ca.jent.tzWebJpa.replica.LongLongMap;
+import ca.jent.tzWebJpa.replica.ReplicaFilter;
+import ca.jent.tzWebJpa.replica.TemporalColumnStore;
+import ca.jent.tzWebJpa.utils.DateUtils;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+/**
+ * In-memory columnar replica of TEMPORALS (@see TemporalColumnStore) for analytical scans run in parallel
+ * on a fork-join pool of parallelism threads, chunk-rows rows per task, without building any Temporal
+ * (temporal.replica.enabled).
+ * It is loaded once the application context is refreshed (before the web server takes requests) and kept
+ * current by TemporalService: the Temporal saved or deleted are applied once their transaction commits, so
+ * the replica only ever has committed Temporal.  The changes committed while loading are applied after the
+ * load (a row read by the load may be older than the change).  Transactions can run their afterCommit in
+ * another order than they committed: a Temporal saved with a lower version than the one of its row in the
+ * replica is ignored (counted as stale).  Until loaded, TemporalService counts with the database.
+ * @author jraymond
+ *
+ */
+@Service
+@ConditionalOnProperty(name="temporal.replica.enabled", havingValue="true")
+public class TemporalReplica {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemporalReplica.class);
+
+	private static final long HOUR_MICROS = TimeUnit.HOURS.toMicros(1);
+
+	private final TemporalService temporalService;
+	private final ZoneDictionary zoneDictionary;
+	private final ForkJoinPool pool;
+	private final TemporalColumnStore store;
+	private volatile boolean loaded;
+
+	/**
+	 * Changes committed during the load; null when not loading
+	 */
+	private List<Consumer<TemporalColumnStore>> pending;
+
+	private final LongAdder scans = new LongAdder();
+	private final LongAdder saved = new LongAdder();
+	private final LongAdder stale = new LongAdder();
+	private final LongAdder deleted = new LongAdder();
+	private volatile long loadMillis;
+
+	public TemporalReplica(@Lazy TemporalService temporalService, ZoneDictionary zoneDictionary,
+			@Value("${temporal.replica.parallelism:0}") int parallelism,
+			@Value("${temporal.replica.chunk-rows:65536}") int chunkRows,
+			@Value("${temporal.replica.initial-capacity:65536}") int initialCapacity) {
+		if (parallelism < 0) throw new IllegalArgumentException("temporal.replica.parallelism cannot be negative.");
+		this.temporalService = temporalService;
+		this.zoneDictionary = zoneDictionary;
+		this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+		this.store = new TemporalColumnStore(pool, chunkRows, initialCapacity, zoneDictionary);
+	}
+
+	@EventListener(ContextRefreshedEvent.class)
+	public void load() {
+		if (loaded) return;
+		long start = System.nanoTime();
+		synchronized (this) {
+			store.clear();
+			pending = new ArrayList<>();
+		}
+		try {
+			temporalService.streamTemporals(store::put);
+		} finally {
+			synchronized (this) {
+				pending.forEach(change -> change.accept(store));
+				pending = null;
+			}
+		}
+		loaded = true;
+		loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		logger.info("Replica of {} Temporal loaded in {} ms", store.size(), loadMillis);
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * The Temporal were saved (inserted or updated) by a transaction that committed
+	 */
+	public void saved(Collection<Temporal> temporals) {
+		apply(store -> stale.add(store.putAll(temporals)));
+		saved.add(temporals.size());
+	}
+
+	/**
+	 * The Temporal of this ID was deleted by a transaction that committed
+	 */
+	public void deleted(long id) {
+		apply(store -> {
+			if (store.remove(id)) deleted.increment();
+		});
+	}
+
+	/**
+	 * The Temporal of these IDs were deleted by a transaction that committed
+	 */
+	public void deleted(Collection<Long> ids) {
+		apply(store -> deleted.add(store.removeAll(ids)));
+	}
+
+	/**
+	 * The Temporal having an ID within [fromId, toId) and, if before is given, an instant before it were
+	 * deleted by a transaction that committed
+	 */
+	public void deleted(long fromId, long toId, Instant before) {
+		ReplicaFilter filter = new ReplicaFilter(null, before, null);
+		apply(store -> deleted.add(store.removeIf(fromId, toId, filter)));
+	}
+
+	/**
+	 * The Temporal having an instant within [from, to) were deleted by a transaction that committed
+	 */
+	public void deleted(Instant from, Instant to) {
+		ReplicaFilter filter = new ReplicaFilter(from, to, null);
+		apply(store -> deleted.add(store.removeIf(filter)));
+	}
+
+	/**
+	 * @return the number of Temporal matching the filter
+	 */
+	public long count(ReplicaFilter filter) {
+		scans.increment();
+		return store.count(filter);
+	}
+
+	/**
+	 * Parallel mutable reduction of the Temporal matching the filter (@see TemporalColumnStore#aggregate)
+	 */
+	public <A> A aggregate(ReplicaFilter filter, Supplier<A> supplier, TemporalColumnStore.Accumulator<A> accumulator, BinaryOperator<A> combiner) {
+		scans.increment();
+		return store.aggregate(filter, supplier, accumulator, combiner);
+	}
+
+	/**
+	 * Same as TemporalService.countByLocalDate: ordered by localDate then zone (code)
+	 */
+	public List<DailyCount> countByLocalDate(Instant from, Instant to, ZoneId zoneId) {
+		LongLongMap counts = aggregate(new ReplicaFilter(from, to, zoneId), LongLongMap::new,
+				(result, rows, row) -> result.add(dailyKey(rows.epochDay(row), rows.zone(row)), 1), TemporalReplica::addAll);
+		List<DailyCount> dailyCounts = new ArrayList<>(counts.size());
+		for (long key : counts.sortedKeys()) {
+			int epochDay = (int) (key >> 16);
+			dailyCounts.add(new DailyCount(epochDay == TemporalColumnStore.NULL_EPOCH_DAY ? null : LocalDate.ofEpochDay(epochDay),
+					zone((short) ((key & 0xFFFF) - 1)), counts.get(key, 0)));
+		}
+		return dailyCounts;
+	}
+
+	/**
+	 * Same as TemporalService.countByZoneOffset: ordered by zone (code) then offset
+	 */
+	public List<OffsetCount> countByZoneOffset(Instant from, Instant to, ZoneId zoneId) {
+		LongLongMap[] groups = aggregate(new ReplicaFilter(from, to, zoneId), () -> new LongLongMap[] {new LongLongMap(), new LongLongMap()},
+				(result, rows, row) -> {
+					long key = offsetKey(rows.zone(row), rows.offsetSeconds(row));
+					result[0].add(key, 1);
+					result[1].min(key, rows.instantMicros(row));
+				}, (a, b) -> {
+					a[0].addAll(b[0]);
+					a[1].minAll(b[1]);
+					return a;
+				});
+		List<OffsetCount> offsetCounts = new ArrayList<>(groups[0].size());
+		for (long key : groups[0].sortedKeys()) {
+			int offset = (int) key ^ Integer.MIN_VALUE;
+			long firstInstant = groups[1].get(key, TemporalColumnStore.NULL_INSTANT);
+			offsetCounts.add(new OffsetCount(zone((short) (key >> 32)),
+					offset == TemporalColumnStore.NULL_OFFSET ? null : ZoneOffset.ofTotalSeconds(offset), groups[0].get(key, 0),
+					firstInstant == TemporalColumnStore.NULL_INSTANT ? null : DateUtils.asJavaTime_Instant(firstInstant)));
+		}
+		return offsetCounts;
+	}
+
+	/**
+	 * Same as TemporalService.countByHour: ordered by hour
+	 */
+	public List<HourlyCount> countByHour(Instant from, Instant to, ZoneId zoneId) {
+		LongLongMap counts = aggregate(new ReplicaFilter(from, to, zoneId), LongLongMap::new,
+				(result, rows, row) -> {
+					if (rows.instantMicros(row) != TemporalColumnStore.NULL_INSTANT) result.add(Math.floorDiv(rows.instantMicros(row), HOUR_MICROS), 1);
+				}, TemporalReplica::addAll);
+		List<HourlyCount> hourlyCounts = new ArrayList<>(counts.size());
+		for (long hour : counts.sortedKeys()) {
+			hourlyCounts.add(new HourlyCount(Instant.ofEpochSecond(TimeUnit.HOURS.toSeconds(hour)), counts.get(hour, 0)));
+		}
+		return hourlyCounts;
+	}
+
+	@PreDestroy
+	public void close() {
+		pool.shutdown();
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("loaded", loaded ? 1L : 0L);
+		stats.put("rows", (long) store.size());
+		stats.put("loadMillis", loadMillis);
+		stats.put("scans", scans.sum());
+		stats.put("saved", saved.sum());
+		stats.put("stale", stale.sum());
+		stats.put("deleted", deleted.sum());
+		return stats;
+	}
+
+	/**
+	 * Apply the change now or, while loading, after the load
+	 */
+	private synchronized void apply(Consumer<TemporalColumnStore> change) {
+		if (pending != null) {
+			pending.add(change);
+		} else {
+			change.accept(store);
+		}
+	}
+
+	private static LongLongMap addAll(LongLongMap a, LongLongMap b) {
+		a.addAll(b);
+		return a;
+	}
+
+	/**
+	 * Group key ordered by epochDay then zone, nulls first
+	 */
+	private static long dailyKey(int epochDay, short zone) {
+		return ((long) epochDay << 16) | (zone + 1);
+	}
+
+	/**
+	 * Group key ordered by zone then offset, nulls first
+	 */
+	private static long offsetKey(short zone, int offsetSeconds) {
+		return ((long) zone << 32) | ((offsetSeconds ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+
+	private ZoneId zone(short code) {
+		return code == TemporalColumnStore.NULL_ZONE ? null : zoneDictionary.zoneOf(code);
+	}
+}
@@ -0,0 +1,252 @@
+package ca.jent.tzWebJpa.services;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ca.jent.tzWebJpa.audit.Throttle;
+import ca.jent.tzWebJpa.projections.IdRange;
+
+/**
+ * Set-based deletes of Temporal in bounded chunks of chunk-ids IDs, each chunk one statement committed on its own
+ * (@see TemporalService#deleteByIdRange): no Temporal is loaded and the locks of a chunk are released before the next
+ * one so online requests are never blocked for long.  Deletes are throttled to max-rows-per-second rows (0: unlimited).
+ * <ul>
+ * <li>Retention purge: the Temporal having an instant older than horizon-days.  The ID range of these Temporal
+ * (found with the instant index) is deleted chunk by chunk.  With temporal.retention.enabled it runs every
+ * interval-minutes on a thread of its own, start() runs it there now.  Only one purge runs at a time.</li>
+ * <li>Bulk deletes of an ID range (chunk by chunk) or of a list of IDs (chunk-ids IDs of the list at a time).</li>
+ * </ul>
+ * A purge or range delete that fails stops at the chunk that failed: the chunks before it stay deleted.
+ * @author jraymond
+ *
+ */
+@Service
+public class TemporalRetentionService {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemporalRetentionService.class);
+
+	private final TemporalService temporalService;
+	private final boolean enabled;
+	private final long horizonDays;
+	private final long intervalMinutes;
+	private final int chunkIds;
+	private final Throttle throttle;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private volatile boolean closed;
+
+	private final LongAdder purges = new LongAdder();
+	private final LongAdder chunks = new LongAdder();
+	private final LongAdder deleted = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile long lastPurgeDeleted;
+	private volatile long lastPurgeMillis;
+	private volatile Instant lastPurgeBefore;
+
+	public TemporalRetentionService(TemporalService temporalService,
+			@Value("${temporal.retention.enabled:false}") boolean enabled,
+			@Value("${temporal.retention.horizon-days:3650}") long horizonDays,
+			@Value("${temporal.retention.interval-minutes:60}") long intervalMinutes,
+			@Value("${temporal.retention.chunk-ids:5000}") int chunkIds,
+			@Value("${temporal.retention.max-rows-per-second:20000}") long maxRowsPerSecond) {
+		if (horizonDays < 0) throw new IllegalArgumentException("temporal.retention.horizon-days cannot be negative.");
+		if (intervalMinutes < 1) throw new IllegalArgumentException("temporal.retention.interval-minutes must be greater than zero.");
+		if (chunkIds < 1) throw new IllegalArgumentException("temporal.retention.chunk-ids must be greater than zero.");
+		this.temporalService = temporalService;
+		this.enabled = enabled;
+		this.horizonDays = horizonDays;
+		this.intervalMinutes = intervalMinutes;
+		this.chunkIds = chunkIds;
+		this.throttle = new Throttle(maxRowsPerSecond);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "temporal-retention");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The first scheduled purge runs one interval after startup
+	 */
+	@PostConstruct
+	public void schedule() {
+		if (enabled) {
+			scheduler.scheduleWithFixedDelay(() -> {
+				try {
+					purge(horizon());
+				} catch (RuntimeException e) {
+					logger.error("Scheduled purge failed", e);
+				}
+			}, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		closed = true;
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * @return the instant before which the Temporal are purged: horizon-days ago
+	 */
+	public Instant horizon() {
+		return Instant.now().minus(horizonDays, ChronoUnit.DAYS);
+	}
+
+	/**
+	 * Purge the Temporal having an instant before the given one (the horizon when null) in the background.
+	 * @throws AlreadyRunningException if a purge is already running
+	 */
+	public void start(Instant before) {
+		Instant purgeBefore = before == null ? horizon() : before;
+		if (!running.compareAndSet(false, true)) throw new AlreadyRunningException("A purge is already running.");
+		try {
+			scheduler.execute(() -> {
+				try {
+					purgeClaimed(purgeBefore);
+				} catch (RuntimeException e) {
+					logger.error("Purge failed", e);
+				}
+			});
+		} catch (RuntimeException e) {
+			running.set(false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Delete the Temporal having an instant before the given one, chunk by chunk.
+	 * @return the number of Temporal deleted
+	 * @throws AlreadyRunningException if a purge is already running
+	 */
+	public long purge(Instant before) {
+		if (before == null) throw new IllegalArgumentException("java.time.Instant argument cannot be null.");
+		if (!running.compareAndSet(false, true)) throw new AlreadyRunningException("A purge is already running.");
+		return purgeClaimed(before);
+	}
+
+	/**
+	 * The purge itself, the caller having claimed running; released when done.
+	 */
+	private long purgeClaimed(Instant before) {
+		long start = System.nanoTime();
+		try {
+			IdRange range = temporalService.getIdRange(before);
+			long purged = range.isEmpty() ? 0 : deleteChunks(range.getMinId(), range.getMaxId() + 1, before);
+			lastPurgeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			lastPurgeDeleted = purged;
+			lastPurgeBefore = before;
+			purges.increment();
+			logger.info("Purge of the Temporal before {}: {} deleted in {} ms", before, purged, lastPurgeMillis);
+			return purged;
+		} catch (RuntimeException e) {
+			failures.increment();
+			throw e;
+		} finally {
+			running.set(false);
+		}
+	}
+
+	/**
+	 * Delete the Temporal having an ID within [fromId, toIdExclusive), chunk by chunk.
+	 * @return the number of Temporal deleted
+	 */
+	public long deleteByIdRange(long fromId, long toIdExclusive) {
+		if (fromId > toIdExclusive) throw new IllegalArgumentException("fromId (" + fromId + ") must not be greater than toId (" + toIdExclusive + ").");
+		// only the chunks of IDs that exist
+		IdRange range = temporalService.getIdRange(null);
+		if (range.isEmpty()) return 0;
+		try {
+			return deleteChunks(Math.max(fromId, range.getMinId()), Math.min(toIdExclusive, range.getMaxId() + 1), null);
+		} catch (RuntimeException e) {
+			failures.increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * Delete the Temporal of these IDs, chunk-ids IDs at a time; unknown IDs are ignored.
+	 * @return the number of Temporal deleted
+	 */
+	public long deleteByIds(List<Long> ids) {
+		if (ids == null) throw new IllegalArgumentException("ids argument cannot be null.");
+		long total = 0;
+		try {
+			for (int from = 0; from < ids.size() && !closed; from += chunkIds) {
+				int rows = temporalService.deleteByIds(new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + chunkIds))));
+				total += chunkDeleted(rows);
+				if (!throttle(rows)) break;
+			}
+			return total;
+		} catch (RuntimeException e) {
+			failures.increment();
+			throw e;
+		}
+	}
+
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("running", running.get() ? 1L : 0L);
+		stats.put("purges", purges.sum());
+		stats.put("chunks", chunks.sum());
+		stats.put("deleted", deleted.sum());
+		stats.put("failures", failures.sum());
+		stats.put("lastPurgeDeleted", lastPurgeDeleted);
+		stats.put("lastPurgeMillis", lastPurgeMillis);
+		Instant before = lastPurgeBefore;
+		stats.put("lastPurgeBeforeEpochMillis", before == null ? null : before.toEpochMilli());
+		return stats;
+	}
+
+	/**
+	 * Delete [fromId, toIdExclusive) chunk-ids IDs (one transaction) at a time
+	 */
+	private long deleteChunks(long fromId, long toIdExclusive, Instant before) {
+		long total = 0;
+		for (long start = fromId; start < toIdExclusive && !closed; ) {
+			long end = toIdExclusive - start <= chunkIds ? toIdExclusive : start + chunkIds;
+			int rows = temporalService.deleteByIdRange(start, end, before);
+			total += chunkDeleted(rows);
+			if (!throttle(rows)) break;
+			start = end;
+		}
+		return total;
+	}
+
+	private long chunkDeleted(int rows) {
+		chunks.increment();
+		deleted.add(rows);
+		return rows;
+	}
+
+	/**
+	 * @return false when interrupted (shutdown)
+	 */
+	private boolean throttle(int rows) {
+		try {
+			throttle.acquire(rows);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
@@ -1,39 +1,536 @@
 package ca.jent.tzWebJpa.services;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import ca.jent.tzWebJpa.cache.CacheStats;
+import ca.jent.tzWebJpa.cache.ReadThroughCache;
 import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.feed.TemporalsCreated;
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.IdRange;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+import ca.jent.tzWebJpa.projections.TemporalVersion;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.repositories.TemporalPartitions;
 import ca.jent.tzWebJpa.repositories.TemporalRepository;
 
+/**
+ * getTemporal and findTemporalByLocalDate are served from a read-through cache when called
+ * outside of a transaction (e.g. from the REST endpoints).  Within a caller's transaction
+ * the cache is bypassed so the caller works with the managed entities of its own unit of work.
+ * The cache only ever hands out copies (detached) of what it holds.
+ * Read methods run in read-only transactions so the Temporal they load are read-only entities
+ * (@see ca.jent.tzWebJpa.configuration.ReadOnlyHibernateJpaDialect).  Within a caller's read-write
+ * transaction, getTemporal, getTemporals() and findTemporalByLocalDate return writable entities.
+ * save/saveAll/delete invalidate the affected entries right away and again once the
+ * transaction completes (a concurrent read may have loaded the old row before commit).
+ * Temporal are versioned: saving one that was changed by someone else since it was read
+ * throws ObjectOptimisticLockingFailureException.  One saved without version is not checked (last writer wins).
+ * With temporal.partitioning.enabled, TEMPORALS is the view of monthly partitions: save/saveAll/delete
+ * write the partitions (@see TemporalPartitions), findTemporalsByInstantRange only reads the partitions
+ * of the range and findTemporalsByLocalDateRange merges the pages of every partition.  The reads by ID, the
+ * ID ranges and the streaming by ID read the partitions too (the Temporal read are not managed).  Changes made
+ * to a managed Temporal are then only saved by save/saveAll (the view cannot be flushed to) and a Temporal saved is detached.
+ * The Temporal inserted by save/saveAll are published as a TemporalsCreated event (@see TemporalFeed).
+ * With temporal.replica.enabled, the changes are applied to the replica once committed and the counts
+ * (countByLocalDate, countByZoneOffset, countByHour) are scans of the replica once it is loaded (@see TemporalReplica).
+ * @author jraymond
+ *
+ */
 @Service
 @Transactional
 public class TemporalService {
 
+	private static final Instant MIN_INSTANT = Instant.parse("0001-01-01T00:00:00Z");
+	private static final Instant MAX_INSTANT = Instant.parse("9999-12-31T23:59:59Z");
+
 	@Autowired
 	private TemporalRepository repository;
 	
+	@Autowired(required=false)
+	private TemporalPartitions partitions;
+	
+	/** null unless temporal.replica.enabled */
+	@Autowired(required=false)
+	private TemporalReplica replica;
+	
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Value("${temporal.jpa.batch-size:50}")
+	private int batchSize;
+	
+	@Value("${temporal.cache.enabled:true}")
+	private boolean cacheEnabled;
+	
+	private final ReadThroughCache<Long, Temporal> temporalById;
+	private final ReadThroughCache<LocalDate, List<Temporal>> temporalsByLocalDate;
+	
+	@Autowired
+	public TemporalService(@Value("${temporal.cache.max-size:10000}") int cacheMaxSize, 
+						   @Value("${temporal.cache.ttl-seconds:300}") long cacheTtlSeconds) {
+		this.temporalById = new ReadThroughCache<>("temporalById", cacheMaxSize, cacheTtlSeconds, TimeUnit.SECONDS);
+		this.temporalsByLocalDate = new ReadThroughCache<>("temporalsByLocalDate", cacheMaxSize, cacheTtlSeconds, TimeUnit.SECONDS);
+	}
+	
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
 	public Temporal getTemporal(Long id) {
-		return repository.findOne(id);
+		if (!useCache()) return findOne(id);
+		return copy(temporalById.get(id, key -> copy(findOne(key))));
+	}
+	
+	/**
+	 * @return the version and last modification of the Temporal (null if none has this ID),
+	 * read from TEMPORALS and not from the cache: it is how a client finds out that its copy is still current
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public TemporalVersion getTemporalVersion(Long id) {
+		return partitions == null ? repository.findVersionById(id) : partitions.findVersionById(id);
 	}
 	
+	/**
+	 * @return the greatest ID (null if there is no Temporal)
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public Long getMaxId() {
+		if (partitions == null) return repository.findMaxId();
+		return partitions.findIdRange(null).getMaxId();
+	}
+	
+	@Transactional(readOnly=true)
 	public List<Temporal> getTemporals() {
 		return repository.findAll();
 	}
 	
+	/**
+	 * Keyset pagination: at most limit Temporal with an ID greater than afterId (ordered by ID).
+	 * Use the ID of the last Temporal returned as the next afterId.
+	 */
+	@Transactional(readOnly=true)
+	public List<Temporal> getTemporals(Long afterId, int limit) {
+		if (limit < 1) throw new IllegalArgumentException("limit must be greater than zero.");
+		long after = afterId == null ? Long.MIN_VALUE : afterId;
+		if (partitions != null) return partitions.findByIdGreaterThan(after, limit);
+		return repository.findByIdGreaterThanOrderByIdAsc(after, new PageRequest(0, limit));
+	}
+	
+	/**
+	 * Hand every Temporal (ordered by ID) to the consumer without materializing the whole table.
+	 * The rows are TemporalView projections that never enter the persistence context so memory stays flat.
+	 */
+	@Transactional(readOnly=true)
+	public void streamTemporals(Consumer<? super TemporalView> consumer) {
+		if (partitions != null) {
+			partitions.streamAll(consumer);
+			return;
+		}
+		try (Stream<TemporalView> stream = repository.streamAll()) {
+			stream.forEach(consumer);
+		}
+	}
+	
+	/**
+	 * @return the Temporal having an ID in [fromId, toIdExclusive) as TemporalView ordered by ID
+	 */
+	@Transactional(readOnly=true)
+	public List<TemporalView> findTemporalViewsByIdRange(long fromId, long toIdExclusive) {
+		if (partitions != null) return partitions.findViewsByIdRange(fromId, toIdExclusive);
+		return repository.findViewsByIdRange(fromId, toIdExclusive);
+	}
+	
 	public Temporal save(Temporal temporal) {
-		return repository.save(temporal);
+		boolean update = temporal.getId() != null;
+		if (update) versionOfRow(temporal);
+		Temporal saved;
+		if (partitions == null) {
+			saved = repository.save(temporal);
+		} else {
+			detach(temporal);
+			if (update) partitions.update(temporal); else partitions.insert(Collections.singletonList(temporal));
+			saved = temporal;
+		}
+		invalidate(update, saved);
+		replicate(replica -> replica.saved(Collections.singletonList(saved)));
+		if (!update) created(Collections.singletonList(saved));
+		return saved;
+	}
+	
+	/**
+	 * Save all Temporal in one transaction using JDBC batching.  The persistence context 
+	 * is flushed and cleared every batchSize entities so it never holds more than one batch.
+	 * Note: clearing detaches any entity previously loaded within the current transaction.
+	 * @return the saved Temporal (detached) in the same order as given
+	 */
+	public List<Temporal> saveAll(List<Temporal> temporals) {
+		if (partitions != null) return saveAllPartitioned(temporals);
+		boolean updates = false;
+		List<Temporal> saved = new ArrayList<>(temporals.size());
+		List<Temporal> created = new ArrayList<>(temporals.size());
+		for (Temporal temporal : temporals) {
+			if (temporal.getId() == null) {
+				entityManager.persist(temporal);
+				saved.add(temporal);
+				created.add(temporal);
+			} else {
+				updates = true;
+				versionOfRow(temporal);
+				saved.add(entityManager.merge(temporal));
+			}
+			if (saved.size() % batchSize == 0) {
+				entityManager.flush();
+				entityManager.clear();
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+		invalidate(updates, saved.toArray(new Temporal[saved.size()]));
+		replicate(replica -> replica.saved(saved));
+		created(created);
+		return saved;
 	}
 	
+	/**
+	 * A Temporal to update without version is not checked: it gets the version of its row (0 when there is
+	 * no row, as before versioning).  Otherwise Spring Data would take it for a new Temporal (null version).
+	 */
+	private void versionOfRow(Temporal temporal) {
+		if (temporal.getVersion() != null) return;
+		TemporalVersion version = getTemporalVersion(temporal.getId());
+		temporal.setVersion(version == null ? 0L : version.getVersion());
+	}
+	
+	/**
+	 * With partitions, the new Temporal are inserted in JDBC batches (by partition) and the others updated one by one.
+	 */
+	private List<Temporal> saveAllPartitioned(List<Temporal> temporals) {
+		boolean updates = false;
+		List<Temporal> inserts = new ArrayList<>(temporals.size());
+		for (Temporal temporal : temporals) {
+			detach(temporal);
+			if (temporal.getId() == null) {
+				inserts.add(temporal);
+			} else {
+				updates = true;
+				versionOfRow(temporal);
+				partitions.update(temporal);
+			}
+		}
+		partitions.insert(inserts);
+		invalidate(updates, temporals.toArray(new Temporal[temporals.size()]));
+		replicate(replica -> replica.saved(temporals));
+		created(inserts);
+		return new ArrayList<>(temporals);
+	}
+	
+	/**
+	 * Delete the Temporal without loading it (a managed copy in the current persistence context is not detached).
+	 * @throws EmptyResultDataAccessException when there is no Temporal with this ID
+	 */
 	public void delete(Long id) {
-		repository.delete(id);
+		if (partitions != null) {
+			partitions.delete(id);
+		} else if (repository.deleteByIdIn(Collections.singleton(id)) == 0) {
+			throw new EmptyResultDataAccessException(String.format("No %s entity with id %s exists!", Temporal.class, id), 1);
+		}
+		invalidateAfterCompletion(() -> {
+			temporalById.invalidate(id);
+			temporalsByLocalDate.invalidateAll();
+		});
+		replicate(replica -> replica.deleted(id));
+	}
+	
+	/**
+	 * Delete the Temporal of these IDs with one set-based statement (none is loaded); unknown IDs are ignored.
+	 * @return the number of Temporal deleted
+	 */
+	public int deleteByIds(Collection<Long> ids) {
+		if (ids.isEmpty()) return 0;
+		List<Long> copy = new ArrayList<>(ids);
+		int deleted = partitions == null ? repository.deleteByIdIn(copy) : partitions.deleteByIds(copy);
+		invalidateAfterCompletion(() -> {
+			copy.forEach(temporalById::invalidate);
+			temporalsByLocalDate.invalidateAll();
+		});
+		replicate(replica -> replica.deleted(copy));
+		return deleted;
+	}
+	
+	/**
+	 * Delete the Temporal having an ID within [fromId, toIdExclusive) and, if before is not null, an instant 
+	 * before it with one set-based statement (none is loaded).  The ID range bounds the rows locked: it is
+	 * one chunk of a purge or bulk delete (@see TemporalRetentionService), each one in its own transaction.
+	 * @return the number of Temporal deleted
+	 */
+	public int deleteByIdRange(long fromId, long toIdExclusive, Instant before) {
+		if (fromId >= toIdExclusive) return 0;
+		int deleted;
+		if (partitions != null) {
+			deleted = partitions.deleteByIdRange(fromId, toIdExclusive, before);
+		} else {
+			deleted = before == null 
+					? repository.deleteByIdRange(fromId, toIdExclusive)
+					: repository.deleteByIdRangeAndInstantBefore(fromId, toIdExclusive, before);
+		}
+		if (deleted > 0) {
+			invalidateAfterCompletion(() -> {
+				temporalById.invalidateAll();
+				temporalsByLocalDate.invalidateAll();
+			});
+			replicate(replica -> replica.deleted(fromId, toIdExclusive, before));
+		}
+		return deleted;
+	}
+	
+	/**
+	 * @return the ID range of the Temporal having an instant before the given one, of every Temporal when before is null
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public IdRange getIdRange(Instant before) {
+		if (partitions != null) return partitions.findIdRange(before);
+		return before == null ? repository.findIdRange() : repository.findIdRangeByInstantBefore(before);
 	}
 	
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
 	public List<Temporal> findTemporalByLocalDate(LocalDate localDate) {
-		return repository.findTemporalByLocalDate(localDate);
+		if (!useCache()) return repository.findTemporalByLocalDate(localDate);
+		return copy(temporalsByLocalDate.get(localDate, key -> copy(repository.findTemporalByLocalDate(key))));
+	}
+	
+	/**
+	 * Keyset page of the Temporal having an instant within [from, to), optionally of one zone only,
+	 * ordered by (instant, ID).  For the next page, give the instant and ID of the last Temporal 
+	 * received as afterInstant and afterId (both null for the first page).
+	 */
+	@Transactional(readOnly=true)
+	public List<Temporal> findTemporalsByInstantRange(Instant from, Instant to, ZoneId zoneId, Instant afterInstant, Long afterId, int limit) {
+		checkRange(from, to, afterInstant, afterId, limit);
+		Instant cursorInstant = afterInstant == null ? from : afterInstant;
+		Long cursorId = afterInstant == null ? Long.MIN_VALUE : afterId;
+		if (partitions != null) return partitions.findByInstantRange(cursorInstant, cursorId, to, zoneId, limit);
+		PageRequest page = new PageRequest(0, limit);
+		return zoneId == null 
+				? repository.findByInstantRange(cursorInstant, cursorId, to, page)
+				: repository.findByZoneIdAndInstantRange(zoneId, cursorInstant, cursorId, to, page);
+	}
+	
+	/**
+	 * Keyset page of the Temporal having a localDate within [from, to] (inclusive), optionally of 
+	 * one zone only, ordered by (localDate, ID).  For the next page, give the localDate and ID of 
+	 * the last Temporal received as afterDate and afterId (both null for the first page).
+	 */
+	@Transactional(readOnly=true)
+	public List<Temporal> findTemporalsByLocalDateRange(LocalDate from, LocalDate to, ZoneId zoneId, LocalDate afterDate, Long afterId, int limit) {
+		checkRange(from, to, afterDate, afterId, limit);
+		LocalDate cursorDate = afterDate == null ? from : afterDate;
+		Long cursorId = afterDate == null ? Long.MIN_VALUE : afterId;
+		if (partitions != null) return partitions.findByLocalDateRange(cursorDate, cursorId, to, zoneId, limit);
+		PageRequest page = new PageRequest(0, limit);
+		return zoneId == null 
+				? repository.findByLocalDateRange(cursorDate, cursorId, to, page)
+				: repository.findByZoneIdAndLocalDateRange(zoneId, cursorDate, cursorId, to, page);
+	}
+	
+	/**
+	 * Number of Temporal by localDate and zone having an instant within [from, to).
+	 * from, to and zoneId are optional (null: unbounded, all zones).
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public List<DailyCount> countByLocalDate(Instant from, Instant to, ZoneId zoneId) {
+		checkRange(from, to);
+		if (replica != null && replica.isLoaded()) return replica.countByLocalDate(lowerBound(from), upperBound(to), zoneId);
+		return repository.countByLocalDateAndZoneId(lowerBound(from), upperBound(to), zoneId);
+	}
+	
+	/**
+	 * Number of Temporal by zone and offset (daylight saving or standard) having an instant within [from, to).
+	 * from, to and zoneId are optional (null: unbounded, all zones).
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public List<OffsetCount> countByZoneOffset(Instant from, Instant to, ZoneId zoneId) {
+		checkRange(from, to);
+		if (replica != null && replica.isLoaded()) return replica.countByZoneOffset(lowerBound(from), upperBound(to), zoneId);
+		return repository.countByZoneIdAndZoneOffset(lowerBound(from), upperBound(to), zoneId);
+	}
+	
+	/**
+	 * Number of Temporal by (UTC) hour having an instant within [from, to).
+	 * from, to and zoneId are optional (null: unbounded, all zones).
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public List<HourlyCount> countByHour(Instant from, Instant to, ZoneId zoneId) {
+		checkRange(from, to);
+		if (replica != null && replica.isLoaded()) return replica.countByHour(lowerBound(from), upperBound(to), zoneId);
+		return repository.countByHour(lowerBound(from), upperBound(to), zoneId);
+	}
+	
+	/**
+	 * An unbounded range is limited to what both storage encodings can hold (java.sql.Timestamp and epoch-micros).
+	 */
+	private static Instant lowerBound(Instant from) {
+		return from == null ? MIN_INSTANT : from;
+	}
+	
+	private static Instant upperBound(Instant to) {
+		return to == null ? MAX_INSTANT : to;
+	}
+	
+	private static void checkRange(Instant from, Instant to) {
+		if (from != null && to != null && from.isAfter(to)) throw new IllegalArgumentException("from (" + from + ") must not be after to (" + to + ").");
+	}
+	
+	private static <T extends Comparable<? super T>> void checkRange(T from, T to, T after, Long afterId, int limit) {
+		if (from == null || to == null) throw new IllegalArgumentException("from and to arguments cannot be null.");
+		if (from.compareTo(to) > 0) throw new IllegalArgumentException("from (" + from + ") must not be after to (" + to + ").");
+		if ((after == null) != (afterId == null)) throw new IllegalArgumentException("both (or none) of the after cursor and afterId must be given.");
+		if (after != null && after.compareTo(from) < 0) throw new IllegalArgumentException("after cursor (" + after + ") must not be before from (" + from + ").");
+		if (limit < 1) throw new IllegalArgumentException("limit must be greater than zero.");
+	}
+	
+	/**
+	 * @return the number of Temporal of each partition, null when TEMPORALS is not partitioned
+	 */
+	@Transactional(propagation=Propagation.SUPPORTS, readOnly=true)
+	public Map<String, Long> countByPartition() {
+		return partitions == null ? null : partitions.countByPartition();
+	}
+	
+	/**
+	 * @return true when TEMPORALS is partitioned (temporal.partitioning.enabled)
+	 */
+	public boolean isPartitioned() {
+		return partitions != null;
+	}
+	
+	/**
+	 * Drop the partition of the month (@see TemporalPartitions#drop(YearMonth)); the caches are cleared.
+	 * @return the number of Temporal dropped, null when the month has no partition
+	 * @throws IllegalStateException when TEMPORALS is not partitioned
+	 */
+	@Transactional(propagation=Propagation.NOT_SUPPORTED)
+	public Long dropPartition(YearMonth month) {
+		if (partitions == null) throw new IllegalStateException("TEMPORALS is not partitioned (temporal.partitioning.enabled).");
+		Long dropped = partitions.drop(month);
+		temporalById.invalidateAll();
+		temporalsByLocalDate.invalidateAll();
+		if (replica != null && dropped != null) {
+			Instant start = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+			replica.deleted(start, month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+		}
+		return dropped;
+	}
+	
+	public List<CacheStats> getCacheStats() {
+		return Arrays.asList(temporalById.stats(), temporalsByLocalDate.stats());
+	}
+	
+	private boolean useCache() {
+		return cacheEnabled && !TransactionSynchronizationManager.isActualTransactionActive();
+	}
+	
+	/**
+	 * @param updates true if some of the Temporal existed before (their old LOCAL_DATE is unknown)
+	 */
+	private void invalidate(boolean updates, Temporal... saved) {
+		invalidateAfterCompletion(() -> {
+			for (Temporal temporal : saved) {
+				temporalById.invalidate(temporal.getId());
+				if (!updates) temporalsByLocalDate.invalidate(temporal.getLocalDate());
+			}
+			if (updates) temporalsByLocalDate.invalidateAll();
+		});
+	}
+	
+	/**
+	 * Publish TemporalsCreated with copies of the Temporal inserted (@see ca.jent.tzWebJpa.services.TemporalFeed)
+	 */
+	private void created(List<Temporal> temporals) {
+		if (!temporals.isEmpty()) eventPublisher.publishEvent(new TemporalsCreated(copy(temporals)));
+	}
+	
+	/**
+	 * Apply the change to the replica (if any) once the current transaction commits, right away without one.
+	 * The Temporal are read then: a managed Temporal has the values flushed at commit.
+	 */
+	private void replicate(Consumer<TemporalReplica> change) {
+		if (replica == null) return;
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					change.accept(replica);
+				}
+			});
+		} else {
+			change.accept(replica);
+		}
+	}
+	
+	/**
+	 * Run now and once the current transaction (if any) completes.
+	 */
+	private static void invalidateAfterCompletion(Runnable invalidation) {
+		invalidation.run();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					invalidation.run();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * With partitions, read from the tables whose ID bounds contain the ID rather than through the view (not managed)
+	 */
+	private Temporal findOne(Long id) {
+		return partitions == null ? repository.findOne(id) : partitions.findById(id);
+	}
+	
+	/**
+	 * A managed Temporal saved to the partitions must not be flushed (to the view)
+	 */
+	private void detach(Temporal temporal) {
+		if (entityManager.contains(temporal)) entityManager.detach(temporal);
+	}
+	
+	private static Temporal copy(Temporal temporal) {
+		return temporal == null ? null : new Temporal(temporal);
+	}
+	
+	private static List<Temporal> copy(List<Temporal> temporals) {
+		return temporals.stream().map(Temporal::new).collect(Collectors.toList());
 	}
 }
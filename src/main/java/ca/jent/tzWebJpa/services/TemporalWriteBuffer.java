@@ -0,0 +1,264 @@
+package ca.jent.tzWebJpa.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * Write-behind buffer (temporal.write-behind.enabled): Temporal are queued and acknowledged 
+ * right away; a single writer thread inserts them with TemporalService.saveAll, one transaction 
+ * (group commit) for every batch-size Temporal or max-delay-ms after the first one queued, 
+ * whichever comes first.
+ * When the queue is full, add() waits up to offer-timeout-ms then fails (backpressure).
+ * On shutdown, the queue is drained before the application context closes.
+ * A batch that fails is tried again max-retries times, retry-delay-ms apart (doubled each time),
+ * then its Temporal are saved one by one: the ones that still fail (counted as failed) are appended
+ * to a dead-letter CSV file of the dead-letter-directory, in the format of the CSV import
+ * (@see TemporalImportService) so they can be imported once the cause is fixed.
+ * Note: a queued Temporal is lost if the JVM dies before it is written.
+ * @author jraymond
+ *
+ */
+@Service
+@ConditionalOnProperty(name="temporal.write-behind.enabled", havingValue="true")
+public class TemporalWriteBuffer {
+	
+	private static final Logger logger = LoggerFactory.getLogger(TemporalWriteBuffer.class);
+	
+	private final TemporalService temporalService;
+	private final BlockingQueue<Temporal> queue;
+	private final int batchSize;
+	private final long maxDelayNanos;
+	private final long offerTimeoutMillis;
+	private final int maxRetries;
+	private final long retryDelayMillis;
+	private final Path deadLetterFile;
+	private final Thread writer;
+	private volatile boolean closed;
+	
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder deadLettered = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	
+	public TemporalWriteBuffer(TemporalService temporalService, 
+			@Value("${temporal.write-behind.capacity:10000}") int capacity,
+			@Value("${temporal.write-behind.batch-size:500}") int batchSize,
+			@Value("${temporal.write-behind.max-delay-ms:50}") long maxDelayMillis,
+			@Value("${temporal.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis,
+			@Value("${temporal.write-behind.max-retries:3}") int maxRetries,
+			@Value("${temporal.write-behind.retry-delay-ms:100}") long retryDelayMillis,
+			@Value("${temporal.write-behind.dead-letter-directory:import}") String deadLetterDirectory) {
+		if (batchSize < 1) throw new IllegalArgumentException("batchSize must be greater than zero.");
+		if (maxRetries < 0) throw new IllegalArgumentException("maxRetries cannot be negative.");
+		this.temporalService = temporalService;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.batchSize = batchSize;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.offerTimeoutMillis = offerTimeoutMillis;
+		this.maxRetries = maxRetries;
+		this.retryDelayMillis = retryDelayMillis;
+		this.deadLetterFile = Paths.get(deadLetterDirectory).toAbsolutePath().normalize()
+				.resolve("write-behind-dead-letter-" + System.currentTimeMillis() + ".csv");
+		this.writer = new Thread(this::write, "temporal-writer");
+	}
+	
+	@PostConstruct
+	public void start() {
+		writer.start();
+	}
+	
+	/**
+	 * @throws RejectedExecutionException when the queue stays full for offer-timeout-ms or the buffer is closed
+	 */
+	public void add(Temporal temporal) {
+		if (temporal == null) throw new IllegalArgumentException("Temporal argument cannot be null.");
+		boolean queued = false;
+		if (!closed) {
+			try {
+				queued = queue.offer(temporal, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (!queued) {
+			rejected.increment();
+			throw new RejectedExecutionException("Write-behind queue is full.");
+		}
+		accepted.increment();
+	}
+	
+	/**
+	 * Stops accepting Temporal and waits for the writer to drain the queue.
+	 */
+	@PreDestroy
+	public void close() throws InterruptedException {
+		closed = true;
+		writer.join(TimeUnit.SECONDS.toMillis(30));
+		if (writer.isAlive()) {
+			logger.warn("Write-behind writer did not drain the queue in time; {} Temporal not written.", queue.size());
+			writer.interrupt();
+		}
+	}
+	
+	public Map<String, Long> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("queued", (long) queue.size());
+		stats.put("accepted", accepted.sum());
+		stats.put("rejected", rejected.sum());
+		stats.put("written", written.sum());
+		stats.put("failed", failed.sum());
+		stats.put("deadLettered", deadLettered.sum());
+		stats.put("retries", retries.sum());
+		stats.put("batches", batches.sum());
+		return stats;
+	}
+	
+	/**
+	 * @return the file the Temporal that could not be written are appended to (created on the first one)
+	 */
+	public Path getDeadLetterFile() {
+		return deadLetterFile;
+	}
+	
+	private void write() {
+		List<Temporal> batch = new ArrayList<>(batchSize);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				// wake up regularly to notice close()
+				Temporal first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) continue;
+				batch.add(first);
+				fill(batch, System.nanoTime() + maxDelayNanos);
+				flush(batch);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Adds queued Temporal to the batch until it is full or the deadline is reached
+	 * (no waiting once closed: the queue is being drained).
+	 */
+	private void fill(List<Temporal> batch, long deadline) throws InterruptedException {
+		while (batch.size() < batchSize) {
+			queue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() == batchSize || remaining <= 0 || closed) return;
+			Temporal next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+			if (next == null) return;
+			batch.add(next);
+		}
+	}
+	
+	private void flush(List<Temporal> batch) {
+		try {
+			if (saveAll(batch)) {
+				written.add(batch.size());
+				batches.increment();
+				return;
+			}
+			// one by one so that only the Temporal that cannot be written are dead-lettered
+			List<Temporal> failures = new ArrayList<>();
+			for (Temporal temporal : batch) {
+				try {
+					temporalService.save(new Temporal(temporal));
+					written.increment();
+				} catch (RuntimeException e) {
+					failures.add(temporal);
+				}
+			}
+			failed.add(failures.size());
+			deadLetter(failures);
+		} finally {
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * Save copies of the Temporal (a failed attempt leaves IDs on the ones it persisted) up to max-retries times again
+	 * @return false when every attempt failed
+	 */
+	private boolean saveAll(List<Temporal> batch) {
+		long delay = retryDelayMillis;
+		for (int attempt = 0; ; attempt++) {
+			List<Temporal> copies = new ArrayList<>(batch.size());
+			batch.forEach(temporal -> copies.add(new Temporal(temporal)));
+			try {
+				temporalService.saveAll(copies);
+				return true;
+			} catch (RuntimeException e) {
+				if (attempt == maxRetries) {
+					logger.error("Write-behind batch of " + batch.size() + " Temporal failed " + (attempt + 1) + " times.", e);
+					return false;
+				}
+				logger.warn("Write-behind batch of {} Temporal failed, retrying in {} ms: {}", batch.size(), delay, e.toString());
+			}
+			retries.increment();
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				// closing: one last attempt is all the time left
+				Thread.currentThread().interrupt();
+				delay = 0;
+			}
+			delay *= 2;
+		}
+	}
+	
+	/**
+	 * Append the Temporal to the dead-letter file (with the CSV header when created)
+	 */
+	private void deadLetter(List<Temporal> temporals) {
+		if (temporals.isEmpty()) return;
+		try {
+			Files.createDirectories(deadLetterFile.getParent());
+			boolean created = !Files.exists(deadLetterFile);
+			try (BufferedWriter writer = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+				if (created) writer.write("localDate,localTime,instant,zoneId,zoneOffset\n");
+				for (Temporal temporal : temporals) {
+					writer.write(csv(temporal.getLocalDate()) + ',' + csv(temporal.getLocalTime()) + ',' + csv(temporal.getInstant()) + ','
+							+ csv(temporal.getZoneId()) + ',' + csv(temporal.getZoneOffset()) + '\n');
+				}
+			}
+			deadLettered.add(temporals.size());
+			logger.error("{} Temporal could not be written: appended to {}", temporals.size(), deadLetterFile);
+		} catch (IOException e) {
+			logger.error(temporals.size() + " Temporal could not be written nor appended to " + deadLetterFile + ": " + temporals, e);
+		}
+	}
+	
+	private static String csv(Object value) {
+		return value == null ? "" : value.toString();
+	}
+	
+}
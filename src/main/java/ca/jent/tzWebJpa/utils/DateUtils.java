@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
 public class DateUtils {
@@ -41,19 +42,32 @@ public class DateUtils {
 	
 	public static LocalDate asJavaTime_LocalDate(java.util.Date date) {
 		if (date == null) throw new IllegalArgumentException("java.util.Date argument cannot be null.");
+		// java.sql.Date (what the JDBC driver gives us) knows its fields: no ZonedDateTime needed.  Not through
+		// ZoneOffsetResolver: the driver built it with the legacy TimeZone whose local mean time differs from tzdb
+		if (date instanceof java.sql.Date) return ((java.sql.Date) date).toLocalDate();
 		//return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
-		return asJavaTime_ZonedDateTime(date).toLocalDate();
+		long epochSecond = Math.floorDiv(date.getTime(), 1000L);
+		long localEpochSecond = epochSecond + ZoneOffsetResolver.offsetSecondsOf(ZoneId.systemDefault(), epochSecond);
+		return LocalDate.ofEpochDay(Math.floorDiv(localEpochSecond, 86_400L));
 	}
 	
 	public static LocalDateTime asJavaTime_LocalDateTime(java.util.Date date) {
 		if (date == null) throw new IllegalArgumentException("java.util.Date argument cannot be null.");
 		//return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDateTime();
-		return asJavaTime_ZonedDateTime(date).toLocalDateTime();
+		long epochMilli = date.getTime();
+		long epochSecond = Math.floorDiv(epochMilli, 1000L);
+		ZoneOffset offset = ZoneOffsetResolver.offsetOf(ZoneId.systemDefault(), epochSecond);
+		return LocalDateTime.ofEpochSecond(epochSecond, (int) Math.floorMod(epochMilli, 1000L) * 1_000_000, offset);
 	}
 	
 	public static ZonedDateTime asJavaTime_ZonedDateTime(java.util.Date date) {
 		if (date == null) throw new IllegalArgumentException("java.util.Date argument cannot be null.");
-		return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault());
+		ZoneId zoneId = ZoneId.systemDefault();
+		long epochMilli = date.getTime();
+		long epochSecond = Math.floorDiv(epochMilli, 1000L);
+		ZoneOffset offset = ZoneOffsetResolver.offsetOf(zoneId, epochSecond);
+		LocalDateTime localDateTime = LocalDateTime.ofEpochSecond(epochSecond, (int) Math.floorMod(epochMilli, 1000L) * 1_000_000, offset);
+		return ZonedDateTime.ofInstant(localDateTime, offset, zoneId);
 	}
 	
 	public static LocalTime asJavaTime_LocalTime(java.sql.Time time) {
@@ -65,6 +79,18 @@ public class DateUtils {
 		if (timestamp == null) throw new IllegalArgumentException(java.sql.Timestamp.class.getName() + " argument cannot be null.");
 		return timestamp.toInstant();
 	}
+	
+	/**
+	 * @return the number of microseconds since 1970-01-01T00:00:00Z (nanoseconds are truncated)
+	 */
+	public static long asEpochMicros(Instant instant) {
+		if (instant == null) throw new IllegalArgumentException("java.time.Instant argument cannot be null.");
+		return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+	}
+	
+	public static Instant asJavaTime_Instant(long epochMicros) {
+		return Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L), Math.floorMod(epochMicros, 1_000_000L) * 1_000L);
+	}
 
 
 
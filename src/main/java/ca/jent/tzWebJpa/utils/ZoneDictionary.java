@@ -0,0 +1,184 @@
+package ca.jent.tzWebJpa.utils;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bidirectional dictionary of ZoneId and their small integer code as stored in the ZONES table
+ * (TEMPORALS.ZONE_ID only holds the code); one per application context (@see DataStoreJpaConfiguration).
+ * Lookups (in both directions) are lock-free: a ConcurrentHashMap for ZoneId to code and a
+ * volatile array indexed by code for code to ZoneId.  Only registering a new zone (rare)
+ * takes a lock.  A given code always resolves to the same canonical ZoneId instance.
+ * The zones already registered are loaded from the Store (@see ca.jent.tzWebJpa.repositories.ZoneRepository),
+ * the source of truth for the codes, when the dictionary is created; the others are registered when
+ * first seen.  Within a (read-write) transaction, a new zone is registered on the connection of the
+ * transaction and only kept in the dictionary once it commits: a rollback takes the code back along with
+ * the Temporal that needed it.  Until then, the transaction looks its own new zones up in a map of its own.
+ * @author jraymond
+ *
+ */
+public class ZoneDictionary {
+
+	/**
+	 * Persistent side of the dictionary.
+	 */
+	public interface Store {
+		/** @return all known code to zone id */
+		Map<Short, String> loadAll();
+		/**
+		 * @param transactional register the zone within the current transaction (else commit it at once)
+		 * @return the code of the zone id, creating it if needed
+		 */
+		short register(String zoneId, boolean transactional);
+		/** @return the zone id of the code or null if the code does not exist */
+		String lookup(short code);
+	}
+
+	private final Map<ZoneId, Short> codes = new ConcurrentHashMap<>();
+	private volatile ZoneId[] zones = new ZoneId[64];
+	private final Store store;
+
+	/**
+	 * Codes assigned in memory only (used when no database is involved e.g. benchmarks)
+	 */
+	public ZoneDictionary() {
+		this(new InMemoryStore());
+	}
+
+	public ZoneDictionary(Store store) {
+		if (store == null) throw new IllegalArgumentException(Store.class.getName() + " argument cannot be null.");
+		this.store = store;
+		store.loadAll().forEach((code, zoneId) -> put(code, ZoneId.of(zoneId)));
+	}
+
+	public short codeOf(ZoneId zoneId) {
+		if (zoneId == null) throw new IllegalArgumentException("java.time.ZoneId argument cannot be null.");
+		Short code = codes.get(zoneId);
+		return code != null ? code : register(zoneId);
+	}
+
+	public ZoneId zoneOf(short code) {
+		ZoneId[] snapshot = zones;
+		ZoneId zoneId = code >= 0 && code < snapshot.length ? snapshot[code] : null;
+		return zoneId != null ? zoneId : load(code);
+	}
+
+	private short register(ZoneId zoneId) {
+		if (!isWritableTransaction()) return registerNow(zoneId);
+		Registered registered = registered();
+		Short code = registered.codes.get(zoneId);
+		if (code != null) return code;
+		code = store.register(zoneId.getId(), true);
+		registered.codes.put(zoneId, code);
+		return code;
+	}
+
+	private synchronized short registerNow(ZoneId zoneId) {
+		Short code = codes.get(zoneId);
+		if (code != null) return code;
+		short newCode = store.register(zoneId.getId(), false);
+		put(newCode, zoneId);
+		return newCode;
+	}
+
+	private ZoneId load(short code) {
+		if (isWritableTransaction()) {
+			for (Map.Entry<ZoneId, Short> registered : registered().codes.entrySet()) {
+				if (registered.getValue() == code) return registered.getKey();
+			}
+		}
+		return loadNow(code);
+	}
+
+	private synchronized ZoneId loadNow(short code) {
+		ZoneId[] snapshot = zones;
+		if (code >= 0 && code < snapshot.length && snapshot[code] != null) return snapshot[code];
+		String zoneId = store.lookup(code);
+		if (zoneId == null) throw new IllegalStateException("Unknown zone code " + code);
+		return put(code, ZoneId.of(zoneId));
+	}
+
+	/**
+	 * Must be called while holding the lock (or from the constructor).
+	 * @return the canonical ZoneId for the code
+	 */
+	private ZoneId put(short code, ZoneId zoneId) {
+		if (code < 0) throw new IllegalStateException("Invalid zone code " + code + " for " + zoneId);
+		ZoneId[] snapshot = zones;
+		if (code >= snapshot.length) {
+			snapshot = Arrays.copyOf(snapshot, Math.max(code + 1, snapshot.length * 2));
+		} else {
+			snapshot = snapshot.clone();
+		}
+		snapshot[code] = zoneId;
+		zones = snapshot; // publish
+		codes.put(zoneId, code);
+		return zoneId;
+	}
+
+	private static boolean isWritableTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	/**
+	 * @return the zones registered by the current transaction, kept in the dictionary once it commits
+	 */
+	private Registered registered() {
+		Registered registered = (Registered) TransactionSynchronizationManager.getResource(this);
+		if (registered == null) {
+			registered = new Registered();
+			TransactionSynchronizationManager.bindResource(this, registered);
+			TransactionSynchronizationManager.registerSynchronization(registered);
+		}
+		return registered;
+	}
+
+	private class Registered extends TransactionSynchronizationAdapter {
+
+		private final Map<ZoneId, Short> codes = new HashMap<>();
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResource(ZoneDictionary.this);
+			if (status != STATUS_COMMITTED) return;
+			synchronized (ZoneDictionary.this) {
+				codes.forEach((zoneId, code) -> put(code, zoneId));
+			}
+		}
+	}
+
+	/**
+	 * Assign codes in memory only
+	 */
+	private static class InMemoryStore implements Store {
+
+		private final Map<Short, String> zoneIds = new ConcurrentHashMap<>();
+		private final Map<String, Short> codes = new ConcurrentHashMap<>();
+
+		@Override
+		public Map<Short, String> loadAll() {
+			return zoneIds;
+		}
+
+		@Override
+		public synchronized short register(String zoneId, boolean transactional) {
+			return codes.computeIfAbsent(zoneId, id -> {
+				short code = (short) (zoneIds.size() + 1);
+				zoneIds.put(code, id);
+				return code;
+			});
+		}
+
+		@Override
+		public String lookup(short code) {
+			return zoneIds.get(code);
+		}
+	}
+}
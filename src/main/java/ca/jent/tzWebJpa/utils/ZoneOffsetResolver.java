@@ -0,0 +1,171 @@
+package ca.jent.tzWebJpa.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolve the ZoneOffset of a ZoneId at a point on the timeline (epoch second) without allocating.
+ * ZoneRules.getOffset does a binary search over all the transitions of the zone and, for
+ * dates past the last historical transition, evaluates the transition rules of the year 
+ * (allocating ZoneOffsetTransition).
+ * Here, the transitions of each zone from MIN_YEAR to MAX_YEAR are computed once (on first use 
+ * of the zone) into primitive arrays indexed by (UTC) year: resolving an offset is computing the year
+ * of the epoch second and scanning the (usually 0 to 2) transitions of that year.
+ * Outside of [MIN_YEAR, MAX_YEAR] we fall back to ZoneRules.
+ * @author jraymond
+ *
+ */
+public final class ZoneOffsetResolver {
+	
+	public static final int MIN_YEAR = 1900;
+	public static final int MAX_YEAR = 2100;
+	
+	private static final long SECONDS_PER_DAY = 86_400L;
+	private static final Map<ZoneId, ZoneTable> tables = new ConcurrentHashMap<>();
+	
+	private ZoneOffsetResolver() {}
+	
+	public static ZoneOffset offsetOf(ZoneId zoneId, Instant instant) {
+		if (instant == null) throw new IllegalArgumentException("java.time.Instant argument cannot be null.");
+		return offsetOf(zoneId, instant.getEpochSecond());
+	}
+	
+	public static ZoneOffset offsetOf(ZoneId zoneId, long epochSecond) {
+		return table(zoneId).offsetOf(epochSecond);
+	}
+	
+	public static int offsetSecondsOf(ZoneId zoneId, long epochSecond) {
+		return table(zoneId).offsetOf(epochSecond).getTotalSeconds();
+	}
+	
+	/**
+	 * Bulk version of offsetSecondsOf for many instants of the same zone.
+	 * @param epochSeconds instants
+	 * @param offsetSeconds receives the offset (total seconds) of each instant
+	 */
+	public static void offsetSecondsOf(ZoneId zoneId, long[] epochSeconds, int[] offsetSeconds) {
+		checkLength(epochSeconds.length, offsetSeconds.length);
+		ZoneTable table = table(zoneId);
+		for (int i = 0; i < epochSeconds.length; i++) {
+			offsetSeconds[i] = table.offsetOf(epochSeconds[i]).getTotalSeconds();
+		}
+	}
+	
+	/**
+	 * Convert instants into the local (wall clock) date/time of the zone expressed as the 
+	 * number of seconds since 1970-01-01T00:00:00 local i.e. LocalDateTime.toEpochSecond(ZoneOffset.UTC)
+	 * The local date is Math.floorDiv(local, 86400) (epoch day) and the local time Math.floorMod(local, 86400) (second of day).
+	 * @param epochSeconds instants
+	 * @param localEpochSeconds receives the local date/time of each instant (can be epochSeconds itself)
+	 */
+	public static void toLocalEpochSeconds(ZoneId zoneId, long[] epochSeconds, long[] localEpochSeconds) {
+		checkLength(epochSeconds.length, localEpochSeconds.length);
+		ZoneTable table = table(zoneId);
+		for (int i = 0; i < epochSeconds.length; i++) {
+			localEpochSeconds[i] = epochSeconds[i] + table.offsetOf(epochSeconds[i]).getTotalSeconds();
+		}
+	}
+	
+	private static ZoneTable table(ZoneId zoneId) {
+		if (zoneId == null) throw new IllegalArgumentException("java.time.ZoneId argument cannot be null.");
+		ZoneTable table = tables.get(zoneId);
+		return table != null ? table : tables.computeIfAbsent(zoneId, ZoneTable::new);
+	}
+	
+	private static void checkLength(int inputLength, int outputLength) {
+		if (outputLength < inputLength) throw new IllegalArgumentException("output array is shorter (" + outputLength + ") than input array (" + inputLength + ").");
+	}
+	
+	/**
+	 * Year (proleptic ISO, UTC) of an epoch second, days-from-civil algorithm (H. Hinnant)
+	 */
+	static int yearOf(long epochSecond) {
+		long z = Math.floorDiv(epochSecond, SECONDS_PER_DAY) + 719_468L;
+		long era = Math.floorDiv(z, 146_097L);
+		long dayOfEra = z - era * 146_097L;
+		long yearOfEra = (dayOfEra - dayOfEra / 1_460L + dayOfEra / 36_524L - dayOfEra / 146_096L) / 365L;
+		long dayOfYear = dayOfEra - (365L * yearOfEra + yearOfEra / 4L - yearOfEra / 100L);
+		long monthIndex = (5L * dayOfYear + 2L) / 153L; // March = 0
+		long year = yearOfEra + era * 400L + (monthIndex >= 10 ? 1 : 0);
+		return (int) year;
+	}
+	
+	private static final class ZoneTable {
+		
+		private final ZoneRules rules;
+		private final ZoneOffset fixedOffset;
+		/** offset at the start of each year */
+		private final ZoneOffset[] yearStartOffset;
+		/** index (in transitions) of the first transition of each year; one extra entry for the end */
+		private final int[] firstTransition;
+		private final long[] transitions;
+		private final ZoneOffset[] offsetAfter;
+		
+		ZoneTable(ZoneId zoneId) {
+			this.rules = zoneId.getRules();
+			if (rules.isFixedOffset()) {
+				this.fixedOffset = rules.getOffset(Instant.EPOCH);
+				this.yearStartOffset = null;
+				this.firstTransition = null;
+				this.transitions = null;
+				this.offsetAfter = null;
+				return;
+			}
+			this.fixedOffset = null;
+			int years = MAX_YEAR - MIN_YEAR + 1;
+			this.yearStartOffset = new ZoneOffset[years];
+			this.firstTransition = new int[years + 1];
+			
+			long windowStart = yearStart(MIN_YEAR);
+			long windowEnd = yearStart(MAX_YEAR + 1);
+			long[] epochSeconds = new long[64];
+			ZoneOffset[] offsets = new ZoneOffset[64];
+			int count = 0;
+			ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochSecond(windowStart - 1));
+			while (transition != null && transition.toEpochSecond() < windowEnd) {
+				if (count == epochSeconds.length) {
+					epochSeconds = Arrays.copyOf(epochSeconds, count * 2);
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				epochSeconds[count] = transition.toEpochSecond();
+				offsets[count] = transition.getOffsetAfter();
+				count++;
+				transition = rules.nextTransition(transition.getInstant());
+			}
+			this.transitions = Arrays.copyOf(epochSeconds, count);
+			this.offsetAfter = Arrays.copyOf(offsets, count);
+			
+			int index = 0;
+			for (int year = MIN_YEAR; year <= MAX_YEAR; year++) {
+				long start = yearStart(year);
+				while (index < count && transitions[index] < start) index++;
+				firstTransition[year - MIN_YEAR] = index;
+				yearStartOffset[year - MIN_YEAR] = rules.getOffset(Instant.ofEpochSecond(start));
+			}
+			firstTransition[years] = count;
+		}
+		
+		ZoneOffset offsetOf(long epochSecond) {
+			if (fixedOffset != null) return fixedOffset;
+			int year = yearOf(epochSecond);
+			if (year < MIN_YEAR || year > MAX_YEAR) return rules.getOffset(Instant.ofEpochSecond(epochSecond));
+			int y = year - MIN_YEAR;
+			ZoneOffset offset = yearStartOffset[y];
+			for (int i = firstTransition[y], end = firstTransition[y + 1]; i < end && epochSecond >= transitions[i]; i++) {
+				offset = offsetAfter[i];
+			}
+			return offset;
+		}
+		
+		private static long yearStart(int year) {
+			return LocalDate.of(year, 1, 1).toEpochDay() * SECONDS_PER_DAY;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+-- DST consistency audits (@see DstAuditService): the ID range and partitioning of an audit are
+-- fixed when it starts so it can resume; a partition and its findings are committed together
+create table if not exists AUDITS (
+	AUDIT_ID		BIGINT AUTO_INCREMENT PRIMARY KEY,
+	MIN_ID			BIGINT NOT NULL,
+	MAX_ID			BIGINT NOT NULL,
+	PARTITION_IDS	BIGINT NOT NULL,
+	STARTED_AT		TIMESTAMP NOT NULL,
+	COMPLETED_AT	TIMESTAMP NULL
+);
+
+create table if not exists AUDIT_PARTITIONS (
+	AUDIT_ID		BIGINT NOT NULL,
+	PARTITION_START	BIGINT NOT NULL,
+	ROW_COUNT		BIGINT NOT NULL,
+	INCOMPLETE		BIGINT NOT NULL,
+	PRIMARY KEY (AUDIT_ID, PARTITION_START)
+);
+
+create table if not exists AUDIT_FINDINGS (
+	AUDIT_ID		BIGINT NOT NULL,
+	TEMPORAL_ID		BIGINT NOT NULL,
+	FINDING			VARCHAR(20) NOT NULL,
+	ZONE_ID			VARCHAR(100) NOT NULL,
+	DETAIL			VARCHAR(200) NOT NULL,
+	PRIMARY KEY (AUDIT_ID, TEMPORAL_ID, FINDING)
+);
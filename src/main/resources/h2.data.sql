@@ -3,14 +3,17 @@
 --       below are according to that ZoneId and not UTC.
 
 
+insert into ZONES (ZONE_ID) values ('America/Edmonton');
+
+
 -- Pacific Daylight Time (PDT)
--- Note: INSTANT_TS inserted below has date [May 2000] falling within Pacific Daylight-Saving Time (PDT) and thus we hardcode -06:00 for the corresponding ZONE_OFFSET
+-- Note: INSTANT_TS inserted below has date [May 2000] falling within Pacific Daylight-Saving Time (PDT) and thus we hardcode -06:00 (-21600 seconds) for the corresponding ZONE_OFFSET
 insert into TEMPORALS (ID, LOCAL_DATE, LOCAL_TIME, INSTANT_TS, ZONE_ID, ZONE_OFFSET)
 values (1000, 
         TO_DATE('1945-02-16','YYYY-MM-DD'), 
         TO_DATE('03:30:30', 'HH24:MI:ss'),
         TO_DATE('2000-05-22 12:30:40', 'YYYY-MM-DD HH24:MI:ss'),
-        'America/Edmonton', '-06:00');
+        (select CODE from ZONES where ZONE_ID = 'America/Edmonton'), -21600);
 
 
 -- Pacific Standard Time (PST)        
@@ -20,5 +23,5 @@ values (1001,
         TO_DATE('1945-02-16','YYYY-MM-DD'), 
         TO_DATE('03:30:30', 'HH24:MI:ss'),
         TO_DATE('2010-03-14 01:59:59', 'YYYY-MM-DD HH24:MI:ss'),
-        'America/Edmonton', '-07:00');
+        (select CODE from ZONES where ZONE_ID = 'America/Edmonton'), -25200);
         
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- Java functions used by native queries (@see ca.jent.tzWebJpa.repositories.H2Functions)
+create alias if not exists EPOCH_HOUR deterministic for "ca.jent.tzWebJpa.repositories.H2Functions.epochHour";
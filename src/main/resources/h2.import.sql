@@ -0,0 +1,9 @@
+-- Splits of a CSV file already imported (@see TemporalImportService): a row is inserted
+-- in the same transaction as the Temporal of the split so an import can resume exactly
+create table if not exists IMPORT_CHECKPOINTS (
+	FILE_KEY		VARCHAR(1000) NOT NULL,
+	SPLIT_START		BIGINT NOT NULL,
+	ROW_COUNT		BIGINT NOT NULL,
+	IMPORTED_AT		TIMESTAMP NOT NULL,
+	PRIMARY KEY (FILE_KEY, SPLIT_START)
+);
@@ -0,0 +1,5 @@
+-- Indexes are created once the data is loaded (@see DataStoreJpaConfiguration)
+-- ID is part of each index so that keyset pagination ordered by (column, ID) is an index range scan
+create index if not exists TEMPORALS_INSTANT_IDX on TEMPORALS (INSTANT_TS, ID);
+create index if not exists TEMPORALS_LOCAL_DATE_IDX on TEMPORALS (LOCAL_DATE, ID);
+create index if not exists TEMPORALS_ZONE_INSTANT_IDX on TEMPORALS (ZONE_ID, INSTANT_TS, ID);
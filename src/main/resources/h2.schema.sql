@@ -1,10 +1,27 @@
 drop table if exists TEMPORALS;
+drop table if exists ZONES;
+drop sequence if exists TEMPORALS_SEQ;
 
+-- Dictionary of ZoneId: TEMPORALS.ZONE_ID holds the CODE (@see ZoneDictionary)
+create table ZONES (
+	CODE			SMALLINT AUTO_INCREMENT PRIMARY KEY,
+	ZONE_ID			VARCHAR(100) NOT NULL UNIQUE
+);
+
+-- ZONE_OFFSET is the total seconds of the offset
+-- VERSION (optimistic locking) and LAST_MODIFIED are maintained by Temporal, they make the ETag and 
+-- Last-Modified of GET /temporal/{id}
 create table TEMPORALS (
 	ID				BIGINT PRIMARY KEY,
 	LOCAL_DATE		DATE NULL,
 	LOCAL_TIME		TIME NULL,
 	INSTANT_TS		TIMESTAMP NULL,
-	ZONE_ID			VARCHAR(100),
-	ZONE_OFFSET		VARCHAR(50)
+	ZONE_ID			SMALLINT,
+	ZONE_OFFSET		INT,
+	VERSION			BIGINT DEFAULT 0 NOT NULL,
+	LAST_MODIFIED	TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
 );
+
+-- INCREMENT BY must match the allocationSize of Temporal.id (pooled optimizer hands out IDs by blocks)
+-- Start above the IDs used by h2.data.sql
+create sequence TEMPORALS_SEQ start with 2000 increment by 50;
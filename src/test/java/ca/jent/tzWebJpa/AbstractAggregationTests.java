@@ -0,0 +1,69 @@
+package ca.jent.tzWebJpa;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import ca.jent.tzWebJpa.projections.DailyCount;
+import ca.jent.tzWebJpa.projections.HourlyCount;
+import ca.jent.tzWebJpa.projections.OffsetCount;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * Checks of the aggregations run against each storage encoding (@see ApplicationTests, EpochStorageTests):
+ * the subclass gives the Spring test configuration, transactional so the Temporal saved are rolled back.
+ * @author jraymond
+ *
+ */
+public abstract class AbstractAggregationTests {
+
+	@Autowired
+	private TemporalService temporalService;
+
+	/**
+	 * Counts by day, offset and hour computed by the database (h2.data.sql rows plus one before 1970).
+	 * The instants of the h2.data.sql rows depend on the zone of the JVM: the expected hours are read from them.
+	 */
+	@Test
+	public void aggregations() {
+		ZoneId edmonton = ZoneId.of("America/Edmonton");
+		temporalService.saveAll(Collections.singletonList(newTemporal(Instant.parse("1945-02-16T10:30:30Z"), edmonton)));
+		Instant seeded1000 = temporalService.getTemporal(1000L).getInstant();
+		Instant seeded1001 = temporalService.getTemporal(1001L).getInstant();
+		
+		List<DailyCount> daily = temporalService.countByLocalDate(null, null, null);
+		assertEquals(1, daily.size());
+		assertEquals(LocalDate.of(1945, 2, 16), daily.get(0).getLocalDate());
+		assertEquals(edmonton, daily.get(0).getZoneId());
+		assertEquals(3, daily.get(0).getCount());
+		
+		Instant from = Instant.parse("2000-01-01T00:00:00Z");
+		List<OffsetCount> offsets = temporalService.countByZoneOffset(from, null, edmonton);
+		assertEquals(2, offsets.size());
+		assertEquals(ZoneOffset.ofHours(-7), offsets.get(0).getZoneOffset());
+		assertFalse(offsets.get(0).isDaylightSaving());
+		assertEquals(ZoneOffset.ofHours(-6), offsets.get(1).getZoneOffset());
+		assertTrue(offsets.get(1).isDaylightSaving());
+		
+		List<HourlyCount> hourly = temporalService.countByHour(null, null, edmonton);
+		assertEquals(Arrays.asList(Instant.parse("1945-02-16T10:00:00Z"), seeded1000.truncatedTo(ChronoUnit.HOURS), 
+				seeded1001.truncatedTo(ChronoUnit.HOURS)), hourly.stream().map(HourlyCount::getHour).collect(Collectors.toList()));
+		assertEquals(1, temporalService.countByHour(from, seeded1001, null).size());
+		assertEquals(0, temporalService.countByHour(null, null, ZoneId.of("Asia/Tokyo")).size());
+	}
+
+}
@@ -1,7 +1,13 @@
 package ca.jent.tzWebJpa;
 
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -9,19 +15,32 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
 import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
 import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalVersion;
+import ca.jent.tzWebJpa.repositories.ZoneRepository;
 import ca.jent.tzWebJpa.services.TemporalService;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
 
 /**
  * Using @Transactional so that all test data will be rollback at end 
@@ -32,13 +51,23 @@ import ca.jent.tzWebJpa.services.TemporalService;
  */
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("embedded")
 @ContextConfiguration(classes=DataStoreJpaConfiguration.class)
 @Transactional
-public class ApplicationTests {
+public class ApplicationTests extends AbstractAggregationTests {
 
 	@Autowired
 	private TemporalService temporalService;
 	
+	@Autowired
+	private ZoneRepository zoneRepository;
+	
+	@Autowired
+	private ZoneDictionary zoneDictionary;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
 	/**
 	 * Simply check if the one insert from h2.data.sql file
 	 * has been executed (@see DataStoreJpaConfiguration.class)
@@ -50,6 +79,96 @@ public class ApplicationTests {
 		assertEquals(2, list.size());
 	}
 	
+	/**
+	 * The cursor-backed stream must visit every Temporal in ID order.
+	 */
+	@Test
+	public void streamAllTemporals() {
+		List<Long> ids = new ArrayList<>();
+		temporalService.streamTemporals(temporal -> ids.add(temporal.getId()));
+		assertEquals(2, ids.size());
+		assertEquals(Long.valueOf(1000L), ids.get(0));
+		assertEquals(Long.valueOf(1001L), ids.get(1));
+	}
+	
+	/**
+	 * Keyset pagination: the next page starts after the last ID received.
+	 */
+	@Test
+	public void keysetPagination() {
+		List<Temporal> first = temporalService.getTemporals(null, 1);
+		assertEquals(1, first.size());
+		assertEquals(Long.valueOf(1000L), first.get(0).getId());
+		
+		List<Temporal> second = temporalService.getTemporals(first.get(0).getId(), 1);
+		assertEquals(1, second.size());
+		assertEquals(Long.valueOf(1001L), second.get(0).getId());
+		
+		assertEquals(0, temporalService.getTemporals(1001L, 10).size());
+	}
+	
+	/**
+	 * Range over instants with keyset pagination: one Temporal per page.
+	 */
+	@Test
+	public void instantRangePagination() {
+		Instant from = Instant.parse("2000-01-01T00:00:00Z");
+		Instant to = Instant.parse("2011-01-01T00:00:00Z");
+		List<Temporal> first = temporalService.findTemporalsByInstantRange(from, to, null, null, null, 1);
+		assertEquals(1, first.size());
+		assertEquals(Long.valueOf(1000L), first.get(0).getId());
+		
+		Temporal last = first.get(0);
+		List<Temporal> second = temporalService.findTemporalsByInstantRange(from, to, null, last.getInstant(), last.getId(), 1);
+		assertEquals(1, second.size());
+		assertEquals(Long.valueOf(1001L), second.get(0).getId());
+		
+		last = second.get(0);
+		assertEquals(0, temporalService.findTemporalsByInstantRange(from, to, null, last.getInstant(), last.getId(), 1).size());
+		
+		// filtered by zone
+		assertEquals(2, temporalService.findTemporalsByInstantRange(from, to, ZoneId.of("America/Edmonton"), null, null, 10).size());
+		assertEquals(0, temporalService.findTemporalsByInstantRange(from, to, ZoneId.of("Asia/Tokyo"), null, null, 10).size());
+		// upper bound is exclusive
+		assertEquals(1, temporalService.findTemporalsByInstantRange(from, last.getInstant(), null, null, null, 10).size());
+	}
+	
+	/**
+	 * Range over local dates (inclusive) with keyset pagination.
+	 */
+	@Test
+	public void localDateRangePagination() {
+		LocalDate date = LocalDate.of(1945, 2, 16);
+		List<Temporal> first = temporalService.findTemporalsByLocalDateRange(date, date, null, null, null, 1);
+		assertEquals(Long.valueOf(1000L), first.get(0).getId());
+		List<Temporal> second = temporalService.findTemporalsByLocalDateRange(date, date, ZoneId.of("America/Edmonton"), date, 1000L, 10);
+		assertEquals(1, second.size());
+		assertEquals(Long.valueOf(1001L), second.get(0).getId());
+	}
+	
+	/**
+	 * Entities loaded within a read-only transaction are read-only (no snapshot for dirty checking).
+	 */
+	@Test
+	@Transactional(readOnly=true)
+	public void readOnlyTransaction() {
+		Session session = entityManager.unwrap(Session.class);
+		assertTrue(session.isDefaultReadOnly());
+		assertTrue(session.isReadOnly(temporalService.getTemporal(1000L)));
+		assertTrue(session.isReadOnly(temporalService.findTemporalByLocalDate(LocalDate.of(1945, 2, 16)).get(0)));
+	}
+	
+	/**
+	 * Within a read-write transaction only the keyset and range pages are read-only (query hint).
+	 */
+	@Test
+	public void readOnlyQueryHint() {
+		Session session = entityManager.unwrap(Session.class);
+		assertFalse(session.isDefaultReadOnly());
+		assertTrue(session.isReadOnly(temporalService.getTemporals(null, 1).get(0)));
+		assertFalse(session.isReadOnly(temporalService.getTemporal(1001L)));
+	}
+	
 	/**
 	 * Query the Temporal entry inserted by the h2.data.sql file
 	 */
@@ -77,6 +196,39 @@ public class ApplicationTests {
 		
 	}
 	
+	/**
+	 * ZONE_ID is stored as a code of the ZONES dictionary: every Temporal of the same
+	 * zone gets the same (canonical) ZoneId instance.  Only the zones seen are registered.
+	 */
+	@Test
+	public void verifyZoneIdDictionary() {
+		Temporal t1000 = temporalService.getTemporal(1000L);
+		Temporal t1001 = temporalService.getTemporal(1001L);
+		assertEquals(ZoneId.of("America/Edmonton"), t1000.getZoneId());
+		assertSame(t1000.getZoneId(), t1001.getZoneId());
+		assertSame(t1000.getZoneId(), zoneDictionary.zoneOf(zoneDictionary.codeOf(ZoneId.of("America/Edmonton"))));
+		Map<Short, String> zones = zoneRepository.loadAll();
+		assertFalse(zones.containsValue("Asia/Kathmandu"));
+		assertEquals("America/Edmonton", zones.get((short) 1));
+	}
+	
+	/**
+	 * A zone first seen within a transaction is registered on its connection: a rollback takes
+	 * the code back and the dictionary does not keep it.
+	 */
+	@Test
+	public void verifyZoneRegisteredWithinTransaction() {
+		ZoneId chatham = ZoneId.of("Pacific/Chatham");
+		short code = zoneDictionary.codeOf(chatham);
+		assertEquals(code, zoneDictionary.codeOf(chatham));
+		assertEquals(chatham, zoneDictionary.zoneOf(code));
+		// not committed: loadAll reads on a connection of its own
+		assertFalse(zoneRepository.loadAll().containsValue(chatham.getId()));
+		TestTransaction.end();
+		assertNull(zoneRepository.lookup(code));
+		assertEquals(chatham.getId(), zoneRepository.lookup(zoneDictionary.codeOf(chatham)));
+	}
+	
 	/**
 	 * Verify our service layer can Save a Temporal entity.
 	 */
@@ -101,6 +253,25 @@ public class ApplicationTests {
 		assertEquals(temporal.getZoneOffset(), entity.getZoneOffset());
 	}
 	
+	/**
+	 * Verify a batch of Temporal is saved with IDs allocated from the pooled sequence.
+	 */
+	@Test
+	public void verifySavingTemporalBatch() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			temporals.add(newTemporal(Instant.ofEpochSecond(1489309200L + i), ZoneId.of("America/Edmonton")));
+		}
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		assertEquals(120, saved.size());
+		
+		Temporal last = saved.get(119);
+		assertNotNull(last.getId());
+		Temporal entity = temporalService.getTemporal(last.getId());
+		assertEquals(Instant.ofEpochSecond(1489309200L + 119), entity.getInstant());
+		assertEquals(122, temporalService.getTemporals().size());
+	}
+	
 	@Test
 	public void verifyUpdatingTemporal() {
 		Temporal temporal = new Temporal();
@@ -122,6 +293,55 @@ public class ApplicationTests {
 		
 	}
 	
+	/**
+	 * Each update increments the version: saving a copy read before the update fails.
+	 */
+	@Test
+	public void optimisticLocking() {
+		// whole seconds: the TIME column drops the fraction of the local time, which would make the Temporal dirty
+		Temporal saved = temporalService.save(newTemporal(Instant.now().truncatedTo(ChronoUnit.SECONDS), ZoneId.of("America/Edmonton")));
+		entityManager.flush();
+		assertEquals(Long.valueOf(0), saved.getVersion());
+		assertNotNull(saved.getLastModified());
+		Temporal stale = new Temporal(saved);
+		
+		saved.setLocalDate(LocalDate.of(1945, 9, 2));
+		entityManager.flush();
+		TemporalVersion version = temporalService.getTemporalVersion(saved.getId());
+		assertEquals(1, version.getVersion());
+		assertFalse(version.getLastModified().isBefore(stale.getLastModified()));
+		
+		entityManager.clear();
+		try {
+			temporalService.save(stale);
+			fail();
+		} catch (OptimisticLockingFailureException e) {
+			// expected
+		}
+	}
+	
+	/**
+	 * A Temporal saved without version (a client not sending it) is not checked: it overwrites the row.
+	 */
+	@Test
+	public void saveWithoutVersion() {
+		// whole seconds: the TIME column drops the fraction of the local time, which would make the Temporal dirty
+		Temporal saved = temporalService.save(newTemporal(Instant.now().truncatedTo(ChronoUnit.SECONDS), ZoneId.of("America/Edmonton")));
+		saved.setLocalDate(LocalDate.of(1945, 9, 2));
+		entityManager.flush();
+		entityManager.clear();
+		
+		Temporal unversioned = new Temporal(saved);
+		unversioned.setVersion(null);
+		unversioned.setLocalDate(LocalDate.of(1945, 9, 3));
+		temporalService.save(unversioned);
+		entityManager.flush();
+		entityManager.clear();
+		Temporal read = temporalService.getTemporal(saved.getId());
+		assertEquals(LocalDate.of(1945, 9, 3), read.getLocalDate());
+		assertEquals(Long.valueOf(2), read.getVersion());
+	}
+	
 	/**
 	 * In order to test Daylight Saving Time (DST), we first need 
 	 * to choose a ZoneId that implement DST.
@@ -232,13 +452,3 @@ public class ApplicationTests {
 	}
 
 }
-
-
-
-
-
-
-
-
-
-
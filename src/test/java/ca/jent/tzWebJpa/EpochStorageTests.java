@@ -0,0 +1,109 @@
+package ca.jent.tzWebJpa;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * Same checks as ApplicationTests but using the epoch storage encoding 
+ * (h2.schema.sql and h2.data.sql migrated by EpochEncodingMigration).
+ * @author jraymond
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.storage.encoding=epoch", "temporal.datasource.name=h2test-epoch"})
+@Transactional
+public class EpochStorageTests extends AbstractAggregationTests {
+
+	/** INSTANT_TS of the row 1000: h2.data.sql inserts it as a local date-time of the zone of the JVM */
+	private static final Instant SEEDED_INSTANT = LocalDateTime.of(2000, 5, 22, 12, 30, 40).atZone(ZoneId.systemDefault()).toInstant();
+
+	@Autowired
+	private TemporalService temporalService;
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	/**
+	 * The rows inserted by h2.data.sql must read back the same after the migration.
+	 */
+	@Test
+	public void verifyMigratedTemporalEntry() {
+		Temporal temporal = temporalService.getTemporal(1000L);
+		assertNotNull(temporal);
+		
+		assertEquals(LocalDate.of(1945, 2, 16), temporal.getLocalDate());
+		assertEquals(LocalTime.of(3, 30, 30), temporal.getLocalTime());
+		assertEquals(SEEDED_INSTANT, temporal.getInstant());
+		assertEquals(ZoneOffset.ofHours(-6), temporal.getZoneOffset());
+	}
+	
+	/**
+	 * Columns hold the epoch numbers.
+	 */
+	@Test
+	public void verifyEpochColumns() {
+		Map<String, Object> row = new JdbcTemplate(dataSource).queryForMap("select LOCAL_DATE, LOCAL_TIME, INSTANT_TS from TEMPORALS where ID = 1000");
+		assertEquals(LocalDate.of(1945, 2, 16).toEpochDay(), ((Number) row.get("LOCAL_DATE")).longValue());
+		assertEquals(LocalTime.of(3, 30, 30).toNanoOfDay(), ((Number) row.get("LOCAL_TIME")).longValue());
+		assertEquals(SEEDED_INSTANT.getEpochSecond() * 1_000_000L, ((Number) row.get("INSTANT_TS")).longValue());
+	}
+	
+	/**
+	 * Range queries compare against the converted (epoch) columns.
+	 */
+	@Test
+	public void verifyRanges() {
+		Instant from = Instant.parse("2000-01-01T00:00:00Z");
+		Instant to = Instant.parse("2011-01-01T00:00:00Z");
+		assertEquals(2, temporalService.findTemporalsByInstantRange(from, to, ZoneId.of("America/Edmonton"), null, null, 10).size());
+		assertEquals(1, temporalService.findTemporalsByInstantRange(from, to, null, null, null, 1).size());
+		LocalDate date = LocalDate.of(1945, 2, 16);
+		assertEquals(2, temporalService.findTemporalsByLocalDateRange(date, date, null, null, null, 10).size());
+	}
+	
+	@Test
+	public void verifySavingTemporal() {
+		Temporal temporal = newTemporal(Instant.parse("2017-03-12T08:59:59.123456Z"), ZoneId.of("America/Edmonton"));
+		// the nanoseconds of the local time are kept (microseconds for the instant)
+		temporal.setLocalTime(LocalTime.of(1, 59, 59, 123456789));
+		Long id = temporalService.saveAll(Collections.singletonList(temporal)).get(0).getId();
+		
+		// saveAll cleared the persistence context: this reads from the database
+		Temporal entity = temporalService.getTemporal(id);
+		assertEquals(temporal.getLocalDate(), entity.getLocalDate());
+		assertEquals(temporal.getLocalTime(), entity.getLocalTime());
+		assertEquals(temporal.getInstant(), entity.getInstant());
+		assertEquals(temporal.getZoneId(), entity.getZoneId());
+		assertEquals(temporal.getZoneOffset(), entity.getZoneOffset());
+	}
+}
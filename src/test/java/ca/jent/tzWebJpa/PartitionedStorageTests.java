@@ -0,0 +1,321 @@
+package ca.jent.tzWebJpa;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.IdRange;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * TEMPORALS split into monthly partitions (@see ca.jent.tzWebJpa.configuration.TemporalPartitionSchema).
+ * Not transactional: the partitions are created (DDL) on connections of their own.  Each test uses months of its own.
+ * @author jraymond
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.partitioning.enabled=true", "temporal.partitioning.parallelism=3",
+		"temporal.partitioning.drop-timeout-ms=500", "temporal.datasource.name=h2test-partitions"})
+@DirtiesContext
+public class PartitionedStorageTests {
+
+	private static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+	private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * The rows of h2.data.sql are moved to the partitions of their month and still read through TEMPORALS.
+	 */
+	@Test
+	public void migratedRows() {
+		Map<String, Long> counts = temporalService.countByPartition();
+		assertEquals(Long.valueOf(0), counts.get("TEMPORALS_DEFAULT"));
+		assertEquals(Long.valueOf(1), counts.get("TEMPORALS_200005"));
+		assertEquals(Long.valueOf(1), counts.get("TEMPORALS_201003"));
+
+		Temporal temporal = temporalService.getTemporal(1000L);
+		assertNotNull(temporal);
+		assertEquals(LocalDate.of(1945, 2, 16), temporal.getLocalDate());
+		assertEquals(2, temporalService.findTemporalByLocalDate(LocalDate.of(1945, 2, 16)).size());
+	}
+
+	@Test
+	public void saveUpdateAndDelete() {
+		Temporal temporal = temporalService.save(newTemporal(Instant.parse("2031-01-15T10:00:00Z"), EDMONTON));
+		assertNotNull(temporal.getId());
+		assertEquals(Long.valueOf(1), temporalService.countByPartition().get("TEMPORALS_203101"));
+		Temporal read = temporalService.getTemporal(temporal.getId());
+		assertEquals(temporal.getInstant(), read.getInstant());
+		assertEquals(Long.valueOf(0), read.getVersion());
+
+		read.setLocalDate(LocalDate.of(2031, 1, 16));
+		temporalService.save(read);
+		assertEquals(Long.valueOf(1), temporalService.getTemporal(temporal.getId()).getVersion());
+
+		// temporal is the version 0
+		try {
+			temporalService.save(temporal);
+			fail("saving a stale Temporal must fail");
+		} catch (ObjectOptimisticLockingFailureException e) {
+			// expected
+		}
+
+		// moved to the partition of its new month
+		read.setInstant(Instant.parse("2031-02-01T00:00:00Z"));
+		temporalService.save(read);
+		Map<String, Long> counts = temporalService.countByPartition();
+		assertEquals(Long.valueOf(0), counts.get("TEMPORALS_203101"));
+		assertEquals(Long.valueOf(1), counts.get("TEMPORALS_203102"));
+		Temporal moved = temporalService.getTemporal(temporal.getId());
+		assertEquals(read.getInstant(), moved.getInstant());
+		assertEquals(LocalDate.of(2031, 1, 16), moved.getLocalDate());
+		assertEquals(Long.valueOf(2), moved.getVersion());
+
+		temporalService.delete(temporal.getId());
+		assertNull(temporalService.getTemporal(temporal.getId()));
+		try {
+			temporalService.delete(temporal.getId());
+			fail("deleting a missing Temporal must fail");
+		} catch (EmptyResultDataAccessException e) {
+			// expected
+		}
+
+		// no instant: TEMPORALS_DEFAULT
+		Temporal undated = temporalService.save(newTemporal(null, EDMONTON));
+		assertEquals(Long.valueOf(1), temporalService.countByPartition().get("TEMPORALS_DEFAULT"));
+		temporalService.delete(undated.getId());
+	}
+
+	/**
+	 * Pages read from the partitions (3 at a time) are the same as sorting every Temporal of the range.
+	 */
+	@Test
+	public void rangeOverPartitions() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			// 2032-01 to 2032-06, one every ~3 days, a few with the same instant
+			Instant instant = Instant.parse("2032-01-01T00:00:00Z").plusSeconds((i / 2) * 6 * 86_400L + (i % 2) * 3600L * (i % 3));
+			temporals.add(newTemporal(instant, i % 4 == 0 ? TOKYO : EDMONTON));
+		}
+		temporalService.saveAll(temporals);
+
+		Instant from = Instant.parse("2032-01-20T00:00:00Z");
+		Instant to = Instant.parse("2032-05-10T00:00:00Z");
+		for (ZoneId zoneId : new ZoneId[] {null, EDMONTON}) {
+			List<Long> expected = temporals.stream()
+					.filter(t -> !t.getInstant().isBefore(from) && t.getInstant().isBefore(to))
+					.filter(t -> zoneId == null || zoneId.equals(t.getZoneId()))
+					.sorted(Comparator.comparing(Temporal::getInstant).thenComparing(Temporal::getId))
+					.map(Temporal::getId)
+					.collect(Collectors.toList());
+			assertFalse(expected.isEmpty());
+
+			List<Long> paged = new ArrayList<>();
+			Temporal last = null;
+			List<Temporal> page;
+			do {
+				page = temporalService.findTemporalsByInstantRange(from, to, zoneId,
+						last == null ? null : last.getInstant(), last == null ? null : last.getId(), 7);
+				page.forEach(t -> paged.add(t.getId()));
+				if (!page.isEmpty()) last = page.get(page.size() - 1);
+			} while (page.size() == 7);
+			assertEquals(expected, paged);
+		}
+
+		// every partition read, pages merged by (localDate, ID)
+		LocalDate fromDate = LocalDate.of(2032, 2, 1);
+		LocalDate toDate = LocalDate.of(2032, 3, 31);
+		for (ZoneId zoneId : new ZoneId[] {null, TOKYO}) {
+			List<Long> expected = temporals.stream()
+					.filter(t -> !t.getLocalDate().isBefore(fromDate) && !t.getLocalDate().isAfter(toDate))
+					.filter(t -> zoneId == null || zoneId.equals(t.getZoneId()))
+					.sorted(Comparator.comparing(Temporal::getLocalDate).thenComparing(Temporal::getId))
+					.map(Temporal::getId)
+					.collect(Collectors.toList());
+			assertFalse(expected.isEmpty());
+
+			List<Long> paged = new ArrayList<>();
+			Temporal last = null;
+			List<Temporal> page;
+			do {
+				page = temporalService.findTemporalsByLocalDateRange(fromDate, toDate, zoneId,
+						last == null ? null : last.getLocalDate(), last == null ? null : last.getId(), 5);
+				page.forEach(t -> paged.add(t.getId()));
+				if (!page.isEmpty()) last = page.get(page.size() - 1);
+			} while (page.size() == 5);
+			assertEquals(expected, paged);
+		}
+	}
+
+	@Test
+	public void dropMonth() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int day = 1; day <= 20; day++) {
+			temporals.add(newTemporal(Instant.parse("2033-01-01T12:00:00Z").plusSeconds(day * 3 * 86_400L), EDMONTON));
+		}
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		Temporal january = saved.get(0);
+		assertNotNull(temporalService.getTemporal(january.getId()));
+		long inJanuary = temporalService.countByPartition().get("TEMPORALS_203301");
+
+		assertEquals(Long.valueOf(inJanuary), temporalService.dropPartition(YearMonth.of(2033, 1)));
+		assertFalse(temporalService.countByPartition().containsKey("TEMPORALS_203301"));
+		assertNull(temporalService.getTemporal(january.getId()));
+		List<Temporal> left = temporalService.findTemporalsByInstantRange(Instant.parse("2033-01-01T00:00:00Z"),
+				Instant.parse("2034-01-01T00:00:00Z"), null, null, null, 100);
+		assertEquals(20 - inJanuary, left.size());
+		assertTrue(left.stream().allMatch(t -> YearMonth.from(t.getInstant().atZone(ZoneId.of("UTC"))).getMonthValue() > 1));
+		assertNull(temporalService.dropPartition(YearMonth.of(2033, 1)));
+	}
+
+	/**
+	 * Set-based deletes: an ID range with an instant bound only deletes from the partitions of the months before it
+	 */
+	@Test
+	public void bulkDeletes() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int day = 0; day < 30; day++) {
+			temporals.add(newTemporal(Instant.parse("2034-01-01T12:00:00Z").plusSeconds(day * 3 * 86_400L), TOKYO));
+		}
+		temporals.add(newTemporal(null, TOKYO));
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		long fromId = saved.get(0).getId();
+		long toId = saved.get(saved.size() - 1).getId() + 1;
+		Instant before = Instant.parse("2034-03-01T00:00:00Z");
+		long older = temporals.stream().filter(t -> t.getInstant() != null && t.getInstant().isBefore(before)).count();
+		assertNotNull(temporalService.getTemporal(saved.get(0).getId()));
+
+		assertEquals(older, temporalService.deleteByIdRange(fromId, toId, before));
+		assertNull(temporalService.getTemporal(saved.get(0).getId()));
+		assertEquals(Long.valueOf(0), temporalService.countByPartition().get("TEMPORALS_203402"));
+		assertEquals(30 - older, (long) temporalService.countByPartition().get("TEMPORALS_203403"));
+
+		List<Long> left = saved.subList((int) older, saved.size()).stream().map(Temporal::getId).collect(Collectors.toList());
+		assertEquals(left.size(), temporalService.deleteByIds(left));
+		assertEquals(Long.valueOf(0), temporalService.countByPartition().get("TEMPORALS_DEFAULT"));
+		assertEquals(0, temporalService.deleteByIds(left));
+	}
+
+	/**
+	 * The reads by ID go to the partitions whose ID bounds contain it, the reads ordered by ID merge them
+	 */
+	@Test
+	public void readsById() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			// out of order: the IDs of consecutive Temporal go to different partitions
+			temporals.add(newTemporal(Instant.parse("2035-01-10T00:00:00Z").plusSeconds((i * 7 % 5) * 31 * 86_400L + i), EDMONTON));
+		}
+		temporals.add(newTemporal(null, EDMONTON));
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		long fromId = saved.get(0).getId();
+		long toId = saved.get(saved.size() - 1).getId() + 1;
+		for (Temporal temporal : saved) {
+			Temporal read = temporalService.getTemporal(temporal.getId());
+			assertEquals(temporal.getInstant(), read.getInstant());
+			assertEquals(0, temporalService.getTemporalVersion(temporal.getId()).getVersion());
+		}
+		assertNull(temporalService.getTemporal(toId + 1_000_000));
+		assertEquals(Long.valueOf(toId - 1), temporalService.getMaxId());
+
+		List<Long> ids = saved.stream().map(Temporal::getId).collect(Collectors.toList());
+		assertEquals(ids, temporalService.findTemporalViewsByIdRange(fromId, toId).stream().map(TemporalView::getId).collect(Collectors.toList()));
+		assertEquals(ids.subList(0, 10), temporalService.getTemporals(fromId - 1, 10).stream().map(Temporal::getId).collect(Collectors.toList()));
+
+		List<Long> streamed = new ArrayList<>();
+		temporalService.streamTemporals(view -> streamed.add(view.getId()));
+		List<Long> sorted = new ArrayList<>(streamed);
+		sorted.sort(null);
+		assertEquals(sorted, streamed);
+		assertTrue(streamed.containsAll(ids));
+		IdRange range = temporalService.getIdRange(null);
+		assertEquals(streamed.get(0), range.getMinId());
+		assertEquals(streamed.get(streamed.size() - 1), range.getMaxId());
+		temporalService.deleteByIds(ids);
+	}
+
+	/**
+	 * A month is not dropped while a transaction that wrote to the partitions is open
+	 */
+	@Test
+	public void dropWaitsForWriters() throws Exception {
+		temporalService.save(newTemporal(Instant.parse("2036-01-15T00:00:00Z"), TOKYO));
+		CountDownLatch written = new CountDownLatch(1);
+		CountDownLatch dropped = new CountDownLatch(1);
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> transaction = writer.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+				temporalService.save(newTemporal(Instant.parse("2036-01-16T00:00:00Z"), TOKYO));
+				written.countDown();
+				await(dropped);
+				return null;
+			}));
+			assertTrue(written.await(10, TimeUnit.SECONDS));
+			try {
+				temporalService.dropPartition(YearMonth.of(2036, 1));
+				fail("dropping a partition in use must time out");
+			} catch (CannotAcquireLockException e) {
+				// expected
+			} finally {
+				dropped.countDown();
+			}
+			transaction.get(10, TimeUnit.SECONDS);
+		} finally {
+			writer.shutdownNow();
+		}
+		assertEquals(Long.valueOf(2), temporalService.dropPartition(YearMonth.of(2036, 1)));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package ca.jent.tzWebJpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.metrics.PoolMetrics;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * The default (production) DataSource: tomcat-jdbc pool configured by spring.datasource.*
+ * @author jraymond
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"spring.datasource.url=jdbc:h2:mem:h2test-pool;DB_CLOSE_DELAY=-1", 
+		"spring.datasource.tomcat.max-active=4"})
+public class PooledDataSourceTests {
+	
+	@Autowired
+	private TemporalService temporalService;
+	
+	@Autowired
+	@Qualifier("targetDataSource")
+	private DataSource targetDataSource;
+	
+	@Test
+	public void pooledConnections() {
+		assertTrue(targetDataSource instanceof org.apache.tomcat.jdbc.pool.DataSource);
+		
+		// schema and seed data (h2.schema.sql, h2.data.sql) on the pooled database
+		assertNotNull(temporalService.getTemporal(1000L));
+		
+		Map<String, Number> pool = PoolMetrics.snapshot(targetDataSource);
+		assertEquals(4, pool.get("maxActive"));
+		assertEquals(0, pool.get("active"));
+		assertTrue(pool.get("borrowed").longValue() > 0);
+	}
+	
+}
@@ -0,0 +1,101 @@
+package ca.jent.tzWebJpa;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * Memory per loaded row: starts the data store (embedded profile, no web server), saves rows Temporal
+ * then loads them all in one list as entities in a read-write then a read-only transaction, and as TemporalView
+ * (constructor expression).  Allocated is what the loading thread allocated, retained the heap used after
+ * a full GC while the list is held and the transaction still open, both divided by the number of rows.
+ * Each case runs twice, the second is printed.  Not a test (run it with the test classpath), e.g.
+ *   java -Xmx1g -cp target/classes:target/test-classes:<dependencies> ca.jent.tzWebJpa.RowMemory 50000 -- --temporal.storage.encoding=epoch
+ * The arguments after "--" go to the application.
+ * @author jraymond
+ *
+ */
+public class RowMemory {
+
+	private static final String ENTITIES = "select t from Temporal t order by t.id";
+	private static final String VIEWS = "select new ca.jent.tzWebJpa.projections.TemporalView(t.id, t.localDate, t.localTime, t.instant, "
+			+ "t.zoneId, t.zoneOffset, t.version) from Temporal t order by t.id";
+
+	public static void main(String[] args) {
+		if (args.length < 1) throw new IllegalArgumentException("usage: RowMemory rows [-- application args]");
+		int rows = Integer.parseInt(args[0]);
+		List<String> appArgs = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) if (!args[i].equals("--")) appArgs.add(args[i]);
+		appArgs.add("--temporal.jpa.show-sql=false");
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DataStoreJpaConfiguration.class)
+				.web(false).profiles("embedded").run(appArgs.toArray(new String[appArgs.size()]))) {
+			save(context.getBean(TemporalService.class), rows);
+			EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+			PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+			for (int run = 0; run < 2; run++) {
+				boolean print = run == 1;
+				measure("entity, read-write tx", emf, transactionManager, false, ENTITIES, Temporal.class, rows, print);
+				measure("entity, read-only tx ", emf, transactionManager, true, ENTITIES, Temporal.class, rows, print);
+				measure("TemporalView projection", emf, transactionManager, true, VIEWS, TemporalView.class, rows, print);
+			}
+		}
+	}
+
+	private static void save(TemporalService temporalService, int rows) {
+		ZoneId zoneId = ZoneId.of("America/Edmonton");
+		Instant start = Instant.parse("2017-01-01T00:00:00Z");
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			temporals.add(Temporals.newTemporal(start.plusSeconds(i * 61L), zoneId));
+			if (temporals.size() == 1000) {
+				temporalService.saveAll(temporals);
+				temporals = new ArrayList<>();
+			}
+		}
+		if (!temporals.isEmpty()) temporalService.saveAll(temporals);
+	}
+
+	private static <T> void measure(String name, EntityManagerFactory emf, PlatformTransactionManager transactionManager,
+			boolean readOnly, String query, Class<T> type, int rows, boolean print) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long thread = Thread.currentThread().getId();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(readOnly);
+		transaction.execute(status -> {
+			EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+			long heap = usedAfterGc(memory);
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			List<T> loaded = entityManager.createQuery(query, type).setMaxResults(rows).getResultList();
+			allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+			long retained = usedAfterGc(memory) - heap;
+			if (loaded.size() != rows) throw new IllegalStateException(loaded.size() + " rows loaded instead of " + rows + ".");
+			if (print) System.out.println(name + "  allocated " + allocated / rows + " B  retained " + retained / rows + " B");
+			return null;
+		});
+	}
+
+	private static long usedAfterGc(MemoryMXBean memory) {
+		for (int i = 0; i < 3; i++) System.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+}
@@ -0,0 +1,91 @@
+package ca.jent.tzWebJpa;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first request: launches the application (a JVM of its own, with this classpath) runs times and
+ * measures the time from the launch to the first 200 of GET /temporal/1000.  Not a test (run it from the IDE
+ * or with the test classpath), e.g.
+ *   java -cp target/classes:target/test-classes:<dependencies> ca.jent.tzWebJpa.StartupTimer 5 -- --spring.profiles.active=fast-startup
+ *   java ... ca.jent.tzWebJpa.StartupTimer 5 -XX:TieredStopAtLevel=1 -- --spring.profiles.active=fast-startup
+ * The arguments before "--" go to the JVM, the ones after to the application.  The output of the
+ * application is in startup-timer.log.  Note that the first run of fast-startup builds its database.
+ * @author jraymond
+ *
+ */
+public class StartupTimer {
+
+	private static final String URL = "http://localhost:8080/temporal/1000";
+	private static final long TIMEOUT_SECONDS = 120;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) throw new IllegalArgumentException("usage: StartupTimer runs [jvm args] [-- application args]");
+		int runs = Integer.parseInt(args[0]);
+		List<String> jvmArgs = new ArrayList<>();
+		List<String> appArgs = new ArrayList<>();
+		List<String> current = jvmArgs;
+		for (String arg : Arrays.asList(args).subList(1, args.length)) {
+			if (arg.equals("--")) current = appArgs; else current.add(arg);
+		}
+
+		long[] millis = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			millis[i] = run(jvmArgs, appArgs);
+			System.out.println("run " + (i + 1) + ": " + millis[i] + " ms");
+		}
+		long[] sorted = millis.clone();
+		Arrays.sort(sorted);
+		System.out.println("min " + sorted[0] + " ms, median " + sorted[runs / 2] + " ms, max " + sorted[runs - 1] + " ms");
+	}
+
+	private static long run(List<String> jvmArgs, List<String> appArgs) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmArgs);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Application.class.getName());
+		command.addAll(appArgs);
+
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(new File("startup-timer.log")))
+				.start();
+		try {
+			long deadline = start + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+			while (!ready()) {
+				if (!process.isAlive()) throw new IllegalStateException("the application exited (" + process.exitValue() + "), see startup-timer.log");
+				if (System.nanoTime() > deadline) throw new IllegalStateException("no response after " + TIMEOUT_SECONDS + " seconds");
+				Thread.sleep(20);
+			}
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		} finally {
+			process.destroy();
+			if (!process.waitFor(30, TimeUnit.SECONDS)) process.destroyForcibly().waitFor();
+		}
+	}
+
+	private static boolean ready() {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(URL).openConnection();
+			connection.setConnectTimeout(1000);
+			connection.setReadTimeout(5000);
+			try {
+				return connection.getResponseCode() == 200;
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package ca.jent.tzWebJpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.services.TemporalService;
+
+/**
+ * /temporal/all and /temporal/stream are not cut off by temporal.async.timeout-ms: the Temporal
+ * come slower than that.
+ * @author jraymond
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes=Application.class, webEnvironment=WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("embedded")
+@TestPropertySource(properties={"temporal.async.timeout-ms=200", "temporal.datasource.name=h2test-streaming"})
+@DirtiesContext
+public class StreamingTimeoutTests {
+
+	private static final int ROWS = 8;
+
+	@MockBean
+	private TemporalService temporalService;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * ROWS Temporal, 250 ms apart (Tomcat checks the timeouts about every second)
+	 */
+	@Before
+	public void slowStream() {
+		doAnswer(invocation -> {
+			@SuppressWarnings("unchecked")
+			Consumer<TemporalView> consumer = invocation.getArgumentAt(0, Consumer.class);
+			for (long id = 1; id <= ROWS; id++) {
+				Thread.sleep(250);
+				Temporal temporal = Temporals.newTemporal(Instant.parse("2017-03-12T09:00:00Z").plusSeconds(id), ZoneId.of("America/Edmonton"));
+				temporal.setId(id);
+				consumer.accept(new TemporalView(temporal.getId(), temporal.getLocalDate(), temporal.getLocalTime(),
+						temporal.getInstant(), temporal.getZoneId(), temporal.getZoneOffset()));
+			}
+			return null;
+		}).when(temporalService).streamTemporals(any());
+	}
+
+	@Test
+	public void all() throws Exception {
+		ResponseEntity<String> response = restTemplate.getForEntity("/temporal/all", String.class);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		JsonNode array = objectMapper.readTree(response.getBody());
+		assertEquals(ROWS, array.size());
+		assertEquals(ROWS, array.get(ROWS - 1).path("id").asLong());
+	}
+
+	@Test
+	public void stream() throws Exception {
+		ResponseEntity<String> response = restTemplate.getForEntity("/temporal/stream", String.class);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		String[] lines = response.getBody().split("\n");
+		assertEquals(ROWS, lines.length);
+		assertEquals(ROWS, objectMapper.readTree(lines[ROWS - 1]).path("id").asLong());
+	}
+}
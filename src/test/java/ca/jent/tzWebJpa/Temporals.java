@@ -0,0 +1,33 @@
+package ca.jent.tzWebJpa;
+
+import java.time.Instant;
+import java.time.ZoneId;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * Temporal fixtures shared by the tests.
+ * @author jraymond
+ *
+ */
+public final class Temporals {
+
+	private Temporals() {
+	}
+
+	/**
+	 * A new Temporal at this instant in this zone, its local date, time and offset derived from them; only the
+	 * zone is set when the instant is null.
+	 */
+	public static Temporal newTemporal(Instant instant, ZoneId zoneId) {
+		Temporal temporal = new Temporal();
+		temporal.setInstant(instant);
+		temporal.setZoneId(zoneId);
+		if (instant != null) {
+			temporal.setLocalDate(instant.atZone(zoneId).toLocalDate());
+			temporal.setLocalTime(instant.atZone(zoneId).toLocalTime());
+			temporal.setZoneOffset(zoneId.getRules().getOffset(instant));
+		}
+		return temporal;
+	}
+}
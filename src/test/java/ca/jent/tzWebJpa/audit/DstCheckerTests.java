@@ -0,0 +1,70 @@
+package ca.jent.tzWebJpa.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+public class DstCheckerTests {
+
+	private static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+
+	@Test
+	public void consistent() {
+		assertEquals(Collections.emptyList(), check("2017-03-12", "01:30", "2017-03-12T08:30:00Z", "-07:00"));
+		assertEquals(Collections.emptyList(), check("2017-03-12", "03:30", "2017-03-12T09:30:00Z", "-06:00"));
+	}
+
+	/**
+	 * 2017-11-05 01:30 happens at -06:00 then at -07:00 in Edmonton.
+	 */
+	@Test
+	public void overlap() {
+		assertEquals(Arrays.asList(DstFinding.OVERLAP), check("2017-11-05", "01:30", "2017-11-05T07:30:00Z", "-06:00"));
+		assertEquals(Arrays.asList(DstFinding.OVERLAP), check("2017-11-05", "01:30", "2017-11-05T08:30:00Z", "-07:00"));
+	}
+
+	/**
+	 * Stale tzdata: still -07:00 after 2017-03-12 02:00 in Edmonton, so the local time is in the gap.
+	 */
+	@Test
+	public void offsetMismatchAndGap() {
+		assertEquals(Arrays.asList(DstFinding.OFFSET_MISMATCH, DstFinding.GAP), check("2017-03-12", "02:30", "2017-03-12T09:30:00Z", "-07:00"));
+	}
+
+	/**
+	 * Bad clock: the local time is an hour ahead of the instant.
+	 */
+	@Test
+	public void localMismatch() {
+		assertEquals(Arrays.asList(DstFinding.LOCAL_MISMATCH), check("2017-07-01", "13:00", "2017-07-01T18:00:00Z", "-06:00"));
+	}
+
+	@Test
+	public void incomplete() {
+		TemporalView temporal = new TemporalView(1L, LocalDate.of(2017, 3, 12), LocalTime.of(2, 30), null, EDMONTON, null);
+		assertFalse(DstChecker.check(temporal, (checked, finding, detail) -> { throw new AssertionError(finding); }));
+	}
+
+	private static List<DstFinding> check(String localDate, String localTime, String instant, String zoneOffset) {
+		TemporalView temporal = new TemporalView(1L, LocalDate.parse(localDate), LocalTime.parse(localTime), Instant.parse(instant),
+				EDMONTON, ZoneOffset.of(zoneOffset));
+		List<DstFinding> findings = new ArrayList<>();
+		assertTrue(DstChecker.check(temporal, (checked, finding, detail) -> findings.add(finding)));
+		return findings;
+	}
+
+}
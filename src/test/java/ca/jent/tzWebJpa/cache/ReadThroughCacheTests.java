@@ -0,0 +1,135 @@
+package ca.jent.tzWebJpa.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ReadThroughCacheTests {
+	
+	/**
+	 * Concurrent misses for the same key run the loader only once.
+	 */
+	@Test
+	public void concurrentMissesAreCoalesced() throws Exception {
+		ReadThroughCache<Long, String> cache = new ReadThroughCache<>("test", 10, 1, TimeUnit.MINUTES);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<String> first = executor.submit(() -> cache.get(1L, key -> {
+				loads.incrementAndGet();
+				loading.countDown();
+				await(release);
+				return "one";
+			}));
+			loading.await();
+			Future<String> second = executor.submit(() -> cache.get(1L, key -> "loaded twice"));
+			Future<String> third = executor.submit(() -> cache.get(1L, key -> "loaded twice"));
+			while (cache.stats().getCoalesced() < 2) Thread.sleep(1);
+			release.countDown();
+			
+			assertEquals("one", first.get());
+			assertEquals("one", second.get());
+			assertEquals("one", third.get());
+			assertEquals(1, loads.get());
+			assertEquals(1, cache.stats().getMisses());
+			assertEquals(2, cache.stats().getCoalesced());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * The least recently used entry is evicted once the cache is full.
+	 */
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		ReadThroughCache<Long, String> cache = new ReadThroughCache<>("test", 2, 1, TimeUnit.MINUTES);
+		cache.get(1L, String::valueOf);
+		cache.get(2L, String::valueOf);
+		cache.get(1L, String::valueOf); // 2 is now the least recently used
+		cache.get(3L, String::valueOf);
+		
+		assertEquals(1, cache.stats().getEvictions());
+		assertEquals("1", cache.get(1L, key -> "reloaded"));
+		assertEquals("reloaded", cache.get(2L, key -> "reloaded"));
+	}
+	
+	/**
+	 * Threads hitting 50 hot keys while misses on cold keys evict: every get returns the value of its
+	 * key, every request is counted and the clock keeps the hot keys.
+	 */
+	@Test
+	public void concurrentHitsAndEvictions() throws Exception {
+		ReadThroughCache<Long, Long> cache = new ReadThroughCache<>("test", 100, 1, TimeUnit.MINUTES);
+		int threads = 8;
+		int requests = 20_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				Random random = new Random(thread);
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < requests; i++) {
+						long key = random.nextInt(10) == 0 ? 100 + random.nextInt(1000) : random.nextInt(50);
+						assertEquals(Long.valueOf(key), cache.get(key, loaded -> loaded));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		CacheStats stats = cache.stats();
+		assertEquals((long) threads * requests, stats.getHits() + stats.getMisses() + stats.getCoalesced());
+		assertTrue(stats.getSize() <= 100);
+		assertTrue(stats.getEvictions() > 0);
+		assertTrue(stats.toString(), stats.getHitRatio() > 0.8);
+	}
+	
+	@Test
+	public void expiredAndInvalidatedEntriesAreReloaded() throws Exception {
+		ReadThroughCache<Long, String> cache = new ReadThroughCache<>("test", 10, 20, TimeUnit.MILLISECONDS);
+		cache.get(1L, key -> "old");
+		Thread.sleep(30);
+		assertEquals("new", cache.get(1L, key -> "new"));
+		assertEquals(1, cache.stats().getExpirations());
+		
+		cache.invalidate(1L);
+		assertEquals("newer", cache.get(1L, key -> "newer"));
+		assertEquals(3, cache.stats().getMisses());
+	}
+	
+	@Test
+	public void nullKey() {
+		ReadThroughCache<Long, String> cache = new ReadThroughCache<>("test", 10, 1, TimeUnit.MINUTES);
+		assertEquals("null", cache.get(null, String::valueOf));
+		assertEquals("null", cache.get(null, key -> "loaded twice"));
+		cache.invalidate(null);
+		assertEquals("reloaded", cache.get(null, key -> "reloaded"));
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package ca.jent.tzWebJpa.configuration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+
+import ca.jent.tzWebJpa.utils.DateUtils;
+
+/**
+ * The migration resumes from the states a failure leaves behind (each ALTER TABLE commits on its own).
+ * @author jraymond
+ *
+ */
+public class EpochEncodingMigrationTests {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.setName("h2test-epoch-migration")
+			.setType(EmbeddedDatabaseType.H2)
+			.build();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+	@Before
+	public void seed() {
+		DatabasePopulatorUtils.execute(new TemporalSchemaPopulator(), database);
+	}
+
+	@After
+	public void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void migrated() {
+		migrate();
+		migrate();
+		assertMigrated();
+	}
+
+	/**
+	 * Failed while copying the values: the *_EPOCH columns are there, partly filled
+	 */
+	@Test
+	public void resumesAfterCopyFailure() {
+		jdbcTemplate.execute("alter table TEMPORALS add column LOCAL_DATE_EPOCH INT NULL");
+		jdbcTemplate.execute("alter table TEMPORALS add column LOCAL_TIME_EPOCH BIGINT NULL");
+		jdbcTemplate.update("update TEMPORALS set LOCAL_DATE_EPOCH = -1 where ID = 1000");
+		migrate();
+		assertMigrated();
+	}
+
+	/**
+	 * Failed after dropping the first old column
+	 */
+	@Test
+	public void resumesAfterDropFailure() {
+		jdbcTemplate.execute("alter table TEMPORALS add column LOCAL_DATE_EPOCH INT NULL");
+		jdbcTemplate.execute("alter table TEMPORALS add column LOCAL_TIME_EPOCH BIGINT NULL");
+		jdbcTemplate.execute("alter table TEMPORALS add column INSTANT_TS_EPOCH BIGINT NULL");
+		jdbcTemplate.update("update TEMPORALS set LOCAL_DATE_EPOCH = ?", LocalDate.of(1945, 2, 16).toEpochDay());
+		jdbcTemplate.execute("alter table TEMPORALS drop column LOCAL_DATE");
+		migrate();
+		assertMigrated();
+	}
+
+	private void migrate() {
+		DatabasePopulatorUtils.execute(new EpochEncodingMigration(), database);
+	}
+
+	private void assertMigrated() {
+		Map<String, Object> row = jdbcTemplate.queryForMap("select * from TEMPORALS where ID = 1000");
+		assertEquals(LocalDate.of(1945, 2, 16).toEpochDay(), ((Number) row.get("LOCAL_DATE")).longValue());
+		assertEquals(LocalTime.of(3, 30, 30).toNanoOfDay(), ((Number) row.get("LOCAL_TIME")).longValue());
+		// h2.data.sql inserts it as a local date-time of the zone of the JVM
+		long instant = DateUtils.asEpochMicros(LocalDateTime.of(2000, 5, 22, 12, 30, 40).atZone(ZoneId.systemDefault()).toInstant());
+		assertEquals(instant, ((Number) row.get("INSTANT_TS")).longValue());
+		assertEquals(8, row.size());
+	}
+}
@@ -0,0 +1,71 @@
+package ca.jent.tzWebJpa.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.DatabasePopulator;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+
+/**
+ * @author jraymond
+ *
+ */
+public class SchemaVersionTests {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.setName("h2test-schema-version")
+			.setType(EmbeddedDatabaseType.H2)
+			.build();
+
+	@After
+	public void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	public void populatedOnce() {
+		AtomicInteger populated = new AtomicInteger();
+		DatabasePopulator populator = connection -> populated.incrementAndGet();
+
+		SchemaVersion first = new SchemaVersion(StorageEncoding.SQL, false);
+		first.apply(database, populator, populator);
+		assertFalse(first.isUpToDate());
+		assertEquals(2, populated.get());
+		assertEquals(first.getVersion(), new JdbcTemplate(database).queryForObject("select VERSION from SCHEMA_VERSION", String.class));
+
+		// e.g. the next start on a file database
+		SchemaVersion second = new SchemaVersion(StorageEncoding.SQL, false);
+		second.apply(database, populator, populator);
+		assertTrue(second.isUpToDate());
+		assertEquals(2, populated.get());
+
+		// another setting: populated again
+		SchemaVersion partitioned = new SchemaVersion(StorageEncoding.SQL, true);
+		assertNotEquals(first.getVersion(), partitioned.getVersion());
+		partitioned.apply(database, populator);
+		assertFalse(partitioned.isUpToDate());
+		assertEquals(3, populated.get());
+		assertEquals(Integer.valueOf(1), new JdbcTemplate(database).queryForObject("select count(*) from SCHEMA_VERSION", Integer.class));
+	}
+
+	/**
+	 * The entity mapping and the revision of the Java populators are part of the version
+	 */
+	@Test
+	public void mappingAndRevision() {
+		assertTrue(new SchemaVersion(StorageEncoding.EPOCH, false).getVersion().startsWith("epoch-r" + SchemaVersion.REVISION + "-"));
+		assertTrue(SchemaVersion.mapping(Temporal.class).stream()
+				.anyMatch(field -> field.startsWith("version java.lang.Long") && field.contains("@javax.persistence.Version()")));
+	}
+}
@@ -0,0 +1,166 @@
+package ca.jent.tzWebJpa.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+public class TemporalColumnFileTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Every value (including nulls, nanos, negative offsets and dates before 1970)
+	 * must be read back as written, across several chunks.
+	 */
+	@Test
+	public void roundTrip() throws Exception {
+		List<TemporalView> temporals = temporals(1000);
+		Path file = folder.newFile().toPath();
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, 300)) {
+			for (TemporalView temporal : temporals) {
+				writer.add(temporal);
+			}
+		}
+
+		List<TemporalView> read = new ArrayList<>();
+		try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+			assertEquals(1003, reader.getRowCount());
+			assertEquals(4, reader.getChunkCount());
+			assertEquals(3, reader.getZones().size());
+			reader.forEach(read::add);
+		}
+		assertEquals(temporals.size(), read.size());
+		for (int i = 0; i < temporals.size(); i++) {
+			assertEquals(temporals.get(i).toString(), read.get(i).toString());
+		}
+	}
+
+	/**
+	 * An ID range cursor only returns the rows within the range (chunks outside are skipped).
+	 */
+	@Test
+	public void idRange() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, 100)) {
+			for (TemporalView temporal : temporals(1000)) {
+				writer.add(temporal);
+			}
+		}
+		try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+			TemporalColumnReader.Cursor cursor = reader.cursor(1250, 1449);
+			long expectedId = 1250;
+			while (cursor.next()) {
+				assertEquals(expectedId++, cursor.getId());
+			}
+			assertEquals(1450, expectedId);
+			assertFalse(reader.cursor(5000, 6000).next());
+		}
+	}
+
+	/**
+	 * The sink gets each chunk as soon as it is written and, once closed, the whole file.
+	 */
+	@Test
+	public void sink() throws Exception {
+		Path file = folder.newFile().toPath();
+		ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		List<TemporalView> temporals = temporals(1000);
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, 100, Channels.newChannel(sent))) {
+			for (int i = 0; i < temporals.size(); i++) {
+				writer.add(temporals.get(i));
+				if (i == 99) assertEquals(Files.size(file), sent.size());
+			}
+		}
+		assertArrayEquals(Files.readAllBytes(file), sent.toByteArray());
+	}
+
+	/**
+	 * Closing the reader unmaps the chunk of an unfinished cursor, which cannot be used anymore.
+	 */
+	@Test(expected=IllegalStateException.class)
+	public void closedReader() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, 100)) {
+			for (TemporalView temporal : temporals(1000)) {
+				writer.add(temporal);
+			}
+		}
+		TemporalColumnReader.Cursor cursor;
+		try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+			cursor = reader.cursor();
+			assertTrue(cursor.next());
+		}
+		cursor.next();
+	}
+
+	@Test
+	public void emptyFile() throws Exception {
+		Path file = folder.newFile().toPath();
+		new TemporalColumnWriter(file, 10).close();
+		try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+			assertEquals(0, reader.getRowCount());
+			assertFalse(reader.cursor().next());
+		}
+	}
+
+	@Test
+	public void nullValues() throws Exception {
+		Path file = folder.newFile().toPath();
+		try (TemporalColumnWriter writer = new TemporalColumnWriter(file, 10)) {
+			writer.add(new TemporalView(7L, null, null, null, null, null));
+		}
+		try (TemporalColumnReader reader = TemporalColumnReader.open(file)) {
+			TemporalColumnReader.Cursor cursor = reader.cursor();
+			assertTrue(cursor.next());
+			assertEquals(7, cursor.getId());
+			assertNull(cursor.getInstant());
+			assertNull(cursor.getLocalDate());
+			assertNull(cursor.getLocalTime());
+			assertNull(cursor.getZoneId());
+			assertNull(cursor.getZoneOffset());
+			assertFalse(cursor.next());
+		}
+	}
+
+	/**
+	 * count Temporal (IDs from 1000) one hour and some nanos apart around a DST change, in 3 zones,
+	 * plus 3 special ones: a null column each, a date before 1970 and a large ID gap.
+	 */
+	private static List<TemporalView> temporals(int count) {
+		ZoneId[] zones = { ZoneId.of("America/Edmonton"), ZoneId.of("Asia/Tokyo"), ZoneId.of("Asia/Kolkata") };
+		List<TemporalView> temporals = new ArrayList<>();
+		Instant start = Instant.parse("2017-03-12T00:00:00Z");
+		for (int i = 0; i < count; i++) {
+			Instant instant = start.plusSeconds(3600L * i).plusNanos(i * 1001L);
+			ZoneId zoneId = zones[i % zones.length];
+			LocalDateTime local = LocalDateTime.ofInstant(instant, zoneId);
+			temporals.add(new TemporalView(1000L + i, local.toLocalDate(), local.toLocalTime(), instant, zoneId,
+					zoneId.getRules().getOffset(instant)));
+		}
+		Instant old = Instant.parse("1901-12-13T20:45:52Z");
+		LocalDateTime local = LocalDateTime.ofInstant(old, zones[0]);
+		temporals.add(new TemporalView(5_000_000L, local.toLocalDate(), local.toLocalTime(), old, zones[0], zones[0].getRules().getOffset(old)));
+		temporals.add(new TemporalView(5_000_001L, null, local.toLocalTime(), old, null, zones[0].getRules().getOffset(old)));
+		temporals.add(new TemporalView(5_000_002L, local.toLocalDate(), null, null, zones[1], null));
+		return temporals;
+	}
+}
@@ -0,0 +1,76 @@
+package ca.jent.tzWebJpa.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class RingBufferTests {
+
+	@Test
+	public void overrun() {
+		RingBuffer<String> ring = new RingBuffer<>(3);
+		assertEquals(4, ring.capacity());
+		assertNull(ring.get(0));
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i, ring.publish("v" + i));
+		}
+		assertEquals(6, ring.head());
+		assertEquals(2, ring.oldest());
+		// overwritten by v4 and v5
+		assertNull(ring.get(0));
+		assertNull(ring.get(1));
+		assertEquals("v2", ring.get(2));
+		assertEquals("v5", ring.get(5));
+		assertNull(ring.get(6));
+	}
+
+	/**
+	 * Concurrent writers: a reader keeping up sees every value once, those of each writer in order.
+	 */
+	@Test
+	public void concurrentWriters() throws Exception {
+		int writers = 4;
+		int values = 20_000;
+		RingBuffer<int[]> ring = new RingBuffer<>(writers * values);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				int writer = w;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < values; i++) {
+						ring.publish(new int[] {writer, i});
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			int[] next = new int[writers];
+			for (long sequence = 0; sequence < writers * values; ) {
+				int[] value = ring.get(sequence);
+				if (value == null) {
+					Thread.yield();
+					continue;
+				}
+				assertEquals(next[value[0]]++, value[1]);
+				sequence++;
+			}
+			for (Future<?> future : futures) future.get();
+			for (int w = 0; w < writers; w++) assertEquals(values, next[w]);
+			assertTrue(ring.oldest() == 0);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package ca.jent.tzWebJpa.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+public class TemporalCsvParserTests {
+
+	private static final String CSV = "localDate,localTime,instant,zoneId,zoneOffset\r\n"
+			+ "2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00\r\n"
+			+ "2017-03-12,03:30:00.123456789,2017-03-12T09:30:00.123456789Z,America/Edmonton,-06:00\n"
+			+ "\n"
+			+ "1945-02-16,03:30:30.5,1945-02-16T10:30:30.500Z,America/Edmonton,-07:00\n"
+			+ ",,,,\n"
+			+ "2017-03-12,17:30,2017-03-12T08:30:00.1Z,Asia/Tokyo,+09:00";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void parse() throws Exception {
+		List<Temporal> temporals = parse(CSV, Long.MAX_VALUE);
+		assertEquals(5, temporals.size());
+
+		Temporal first = temporals.get(0);
+		assertEquals(LocalDate.of(2017, 3, 12), first.getLocalDate());
+		assertEquals(LocalTime.of(1, 30), first.getLocalTime());
+		assertEquals(Instant.parse("2017-03-12T08:30:00Z"), first.getInstant());
+		assertEquals(ZoneId.of("America/Edmonton"), first.getZoneId());
+		assertEquals(ZoneOffset.ofHours(-7), first.getZoneOffset());
+
+		assertEquals(LocalTime.of(3, 30, 0, 123456789), temporals.get(1).getLocalTime());
+		assertEquals(Instant.parse("2017-03-12T09:30:00.123456789Z"), temporals.get(1).getInstant());
+		assertEquals(LocalTime.of(3, 30, 30, 500_000_000), temporals.get(2).getLocalTime());
+		assertEquals(Instant.parse("1945-02-16T10:30:30.5Z"), temporals.get(2).getInstant());
+		// the same zone is the same (canonical) ZoneId
+		assertSame(first.getZoneId(), temporals.get(2).getZoneId());
+
+		Temporal empty = temporals.get(3);
+		assertNull(empty.getLocalDate());
+		assertNull(empty.getLocalTime());
+		assertNull(empty.getInstant());
+		assertNull(empty.getZoneId());
+		assertNull(empty.getZoneOffset());
+
+		// no line separator at the end; HH:mm falls back to LocalTime.parse
+		assertEquals(LocalTime.of(17, 30), temporals.get(4).getLocalTime());
+		assertEquals(ZoneId.of("Asia/Tokyo"), temporals.get(4).getZoneId());
+	}
+
+	/**
+	 * Whatever the split size, each line goes to exactly one split.
+	 */
+	@Test
+	public void splits() throws Exception {
+		List<String> expected = toStrings(parse(CSV, Long.MAX_VALUE));
+		for (int splitBytes = 1; splitBytes <= CSV.length(); splitBytes++) {
+			assertEquals("split bytes " + splitBytes, expected, toStrings(parse(CSV, splitBytes)));
+		}
+	}
+
+	@Test
+	public void invalidLines() throws Exception {
+		String[] invalid = { "2017-02-30,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00",
+				"2017-03-12,25:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00",
+				"2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Nowhere,-07:00",
+				"2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-25:00",
+				"2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton",
+				"2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00,x" };
+		String valid = "2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00\n";
+		for (String line : invalid) {
+			try {
+				parse(valid + line, Long.MAX_VALUE);
+				fail(line);
+			} catch (IllegalArgumentException e) {
+				assertEquals("Invalid line at offset " + valid.length() + ":", e.getMessage().substring(0, 26));
+			}
+		}
+	}
+
+	@Test
+	public void parseLine() {
+		byte[] line = "x2017-03-12,01:30:00,2017-03-12T08:30:00Z,America/Edmonton,-07:00x".getBytes(StandardCharsets.UTF_8);
+		Temporal temporal = new TemporalCsvParser(new ZoneDictionary()).parse(ByteBuffer.wrap(line), 1, line.length - 1);
+		assertEquals(ZoneOffset.ofHours(-7), temporal.getZoneOffset());
+	}
+
+	private List<Temporal> parse(String csv, long splitBytes) throws Exception {
+		Path file = folder.newFile().toPath();
+		Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+		List<Temporal> temporals = new ArrayList<>();
+		TemporalCsvParser parser = new TemporalCsvParser(new ZoneDictionary());
+		try (FileChannel channel = FileChannel.open(file)) {
+			for (long start = 0; start < channel.size(); start += splitBytes) {
+				parser.parseSplit(channel, start, Math.min(start + splitBytes, channel.size()), temporals::add);
+			}
+		}
+		return temporals;
+	}
+
+	private static List<String> toStrings(List<Temporal> temporals) {
+		List<String> strings = new ArrayList<>();
+		temporals.forEach(temporal -> strings.add(temporal.toString()));
+		return strings;
+	}
+
+}
@@ -0,0 +1,104 @@
+package ca.jent.tzWebJpa.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+
+public class TemporalJsonModuleTests {
+
+	private final ObjectMapper iso = new ObjectMapper().registerModule(new TemporalJsonModule(TemporalJsonFormat.ISO));
+	private final ObjectMapper epoch = new ObjectMapper().registerModule(new TemporalJsonModule(TemporalJsonFormat.EPOCH));
+
+	@Test
+	public void isoTemporal() throws Exception {
+		TemporalView temporal = new TemporalView(7L, LocalDate.of(2017, 3, 12), LocalTime.of(3, 30), Instant.parse("2017-03-12T09:30:00.000250Z"),
+				ZoneId.of("America/Edmonton"), ZoneOffset.ofHours(-6));
+		assertEquals("{\"id\":7,\"localDate\":\"2017-03-12\",\"localTime\":\"03:30:00\",\"instant\":\"2017-03-12T09:30:00.000250Z\","
+				+ "\"zoneId\":\"America/Edmonton\",\"zoneOffset\":\"-06:00\"}", iso.writeValueAsString(temporal));
+		assertEquals("{\"id\":null,\"localDate\":null,\"localTime\":null,\"instant\":null,\"zoneId\":null,\"zoneOffset\":null}",
+				iso.writeValueAsString(new Temporal()));
+	}
+
+	/**
+	 * A TemporalView having the version of its Temporal is written the same.
+	 */
+	@Test
+	public void viewAsTemporal() throws Exception {
+		Temporal temporal = new Temporal();
+		temporal.setId(7L);
+		temporal.setLocalDate(LocalDate.of(2017, 3, 12));
+		temporal.setLocalTime(LocalTime.of(3, 30));
+		temporal.setInstant(Instant.parse("2017-03-12T09:30:00Z"));
+		temporal.setZoneId(ZoneId.of("America/Edmonton"));
+		temporal.setZoneOffset(ZoneOffset.ofHours(-6));
+		temporal.setVersion(3L);
+		TemporalView view = new TemporalView(temporal.getId(), temporal.getLocalDate(), temporal.getLocalTime(), temporal.getInstant(),
+				temporal.getZoneId(), temporal.getZoneOffset(), temporal.getVersion());
+		assertEquals(iso.writeValueAsString(temporal), iso.writeValueAsString(view));
+		assertEquals(epoch.writeValueAsString(temporal), epoch.writeValueAsString(view));
+	}
+
+	@Test
+	public void epochTemporal() throws Exception {
+		TemporalView temporal = new TemporalView(7L, LocalDate.of(2017, 3, 12), LocalTime.of(3, 30, 0, 500), Instant.parse("2017-03-12T09:30:00Z"),
+				ZoneId.of("America/Edmonton"), ZoneOffset.ofHours(-6));
+		assertEquals("{\"id\":7,\"localDate\":17237,\"localTime\":12600000.000500,\"instant\":1489311000000,"
+				+ "\"zoneId\":\"America/Edmonton\",\"zoneOffset\":-21600}", epoch.writeValueAsString(temporal));
+	}
+
+	/**
+	 * Whatever the format, what is written reads back the same (with either format).
+	 */
+	@Test
+	public void roundTrip() throws Exception {
+		Random random = new Random(42);
+		ZoneId zoneId = ZoneId.of("Asia/Tokyo");
+		for (int i = 0; i < 10_000; i++) {
+			long epochSecond = i % 100 == 0 ? random.nextLong() % Instant.MAX.getEpochSecond() : random.nextLong() % 253_402_300_800L;
+			int nano = i % 4 == 0 ? 0 : i % 4 == 1 ? random.nextInt(1000) * 1_000_000 : i % 4 == 2 ? random.nextInt(1_000_000) * 1000 : random.nextInt(1_000_000_000);
+			Instant instant = Instant.ofEpochSecond(epochSecond, nano);
+			Temporal temporal = new Temporal();
+			temporal.setId((long) i);
+			temporal.setInstant(instant);
+			temporal.setLocalDate(LocalDate.ofEpochDay(Math.floorDiv(epochSecond, 86_400)));
+			temporal.setLocalTime(LocalTime.ofNanoOfDay(Math.floorMod(epochSecond, 86_400) * 1_000_000_000L + nano));
+			temporal.setZoneId(zoneId);
+			temporal.setZoneOffset(ZoneOffset.ofTotalSeconds(random.nextInt(18 * 3600) * (i % 2 == 0 ? 1 : -1)));
+
+			String json = iso.writeValueAsString(temporal);
+			assertEquals("\"" + instant + "\"", iso.writeValueAsString(instant));
+			assertEquals("\"" + temporal.getLocalDate() + "\"", iso.writeValueAsString(temporal.getLocalDate()));
+			assertEquals(temporal.toString(), iso.readValue(json, Temporal.class).toString());
+			assertEquals(temporal.toString(), epoch.readValue(json, Temporal.class).toString());
+			json = epoch.writeValueAsString(temporal);
+			assertEquals(temporal.toString(), iso.readValue(json, Temporal.class).toString());
+		}
+	}
+
+	/**
+	 * A number is read as epoch-millis (Instant), millisecond of the day (LocalTime), epoch-day (LocalDate)
+	 * or total seconds (ZoneOffset).
+	 */
+	@Test
+	public void numbers() throws Exception {
+		assertEquals(Instant.parse("1969-12-31T23:59:59.999750Z"), iso.readValue("-0.25", Instant.class));
+		assertEquals(Instant.ofEpochMilli(1489311000123L), iso.readValue("1489311000123", Instant.class));
+		assertEquals(LocalTime.of(0, 0, 1, 5), iso.readValue("1000.000005", LocalTime.class));
+		assertEquals(LocalDate.of(1970, 1, 2), iso.readValue("1", LocalDate.class));
+		assertEquals(ZoneOffset.ofHoursMinutes(5, 30), iso.readValue("19800", ZoneOffset.class));
+		assertEquals("-0.250", epoch.writeValueAsString(Instant.parse("1969-12-31T23:59:59.999750Z")));
+	}
+
+}
@@ -0,0 +1,168 @@
+package ca.jent.tzWebJpa.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import ca.jent.tzWebJpa.metrics.LatencySnapshot;
+
+/**
+ * Result of a LoadTest as JSON: the settings of the run then, per endpoint, the requests recorded,
+ * the errors, the throughput (successful requests per second) and the latency and service time
+ * (LatencySnapshot, microseconds).  lateStarts counts the requests sent more than one period after
+ * they were due: the concurrency could not keep up with the rate.
+ * @author jraymond
+ *
+ */
+public class LoadReport {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+	private final String startedAt = Instant.now().toString();
+	private final String url;
+	private final int rate;
+	private final int duration;
+	private final int warmup;
+	private final int concurrency;
+	private final Map<String, Integer> mix;
+	private final long seed;
+	private final long lateStarts;
+	private final Map<String, EndpointReport> endpoints;
+
+	LoadReport(String url, int rate, int duration, int warmup, int concurrency, Map<String, Integer> mix, long seed,
+			long lateStarts, Map<String, EndpointReport> endpoints) {
+		this.url = url;
+		this.rate = rate;
+		this.duration = duration;
+		this.warmup = warmup;
+		this.concurrency = concurrency;
+		this.mix = mix;
+		this.seed = seed;
+		this.lateStarts = lateStarts;
+		this.endpoints = endpoints;
+	}
+
+	public static class EndpointReport {
+
+		private final long requests;
+		private final long errors;
+		private final double throughput;
+		private final LatencySnapshot latency;
+		private final LatencySnapshot serviceTime;
+
+		EndpointReport(LatencySnapshot latency, LatencySnapshot serviceTime, long errors, long elapsedNanos) {
+			this.requests = latency.getCount() + errors;
+			this.errors = errors;
+			this.throughput = Math.round(latency.getCount() * 1e10 / elapsedNanos) / 10.0;
+			this.latency = latency;
+			this.serviceTime = serviceTime;
+		}
+
+		public long getRequests() {
+			return requests;
+		}
+		public long getErrors() {
+			return errors;
+		}
+		public double getThroughput() {
+			return throughput;
+		}
+		public LatencySnapshot getLatency() {
+			return latency;
+		}
+		public LatencySnapshot getServiceTime() {
+			return serviceTime;
+		}
+	}
+
+	public String getStartedAt() {
+		return startedAt;
+	}
+	public String getUrl() {
+		return url;
+	}
+	public int getRate() {
+		return rate;
+	}
+	public int getDuration() {
+		return duration;
+	}
+	public int getWarmup() {
+		return warmup;
+	}
+	public int getConcurrency() {
+		return concurrency;
+	}
+	public Map<String, Integer> getMix() {
+		return mix;
+	}
+	public long getSeed() {
+		return seed;
+	}
+	public long getLateStarts() {
+		return lateStarts;
+	}
+	public Map<String, EndpointReport> getEndpoints() {
+		return endpoints;
+	}
+
+	public void write(Path file) throws IOException {
+		if (file.toAbsolutePath().getParent() != null) Files.createDirectories(file.toAbsolutePath().getParent());
+		MAPPER.writeValue(file.toFile(), this);
+	}
+
+	public static JsonNode read(Path file) throws IOException {
+		return MAPPER.readTree(file.toFile());
+	}
+
+	public JsonNode toJson() {
+		return MAPPER.valueToTree(this);
+	}
+
+	/**
+	 * One line per endpoint: throughput, errors and latency percentiles
+	 */
+	public String summary() {
+		StringBuilder summary = new StringBuilder(String.format("%-8s %10s %8s %10s %10s %10s %10s%n", "endpoint", "req/s", "errors", "p50 us", "p99 us", "p999 us", "max us"));
+		endpoints.forEach((name, endpoint) -> summary.append(String.format("%-8s %10.1f %8d %10d %10d %10d %10d%n", name, endpoint.throughput,
+				endpoint.errors, endpoint.latency.getP50(), endpoint.latency.getP99(), endpoint.latency.getP999(), endpoint.latency.getMax())));
+		if (lateStarts > 0) summary.append(lateStarts).append(" requests started late: raise the concurrency for this rate.").append(System.lineSeparator());
+		return summary.toString();
+	}
+
+	/**
+	 * The throughput and latency percentiles against the ones of the baseline (a report of a previous run), in percent
+	 */
+	public String compare(JsonNode baseline) {
+		StringBuilder comparison = new StringBuilder("Against the baseline of " + baseline.path("startedAt").asText() + System.lineSeparator());
+		JsonNode current = toJson();
+		current.path("endpoints").fields().forEachRemaining(entry -> {
+			JsonNode before = baseline.path("endpoints").path(entry.getKey());
+			if (before.isMissingNode()) {
+				comparison.append(String.format("%-8s not in the baseline%n", entry.getKey()));
+				return;
+			}
+			JsonNode after = entry.getValue();
+			comparison.append(String.format("%-8s req/s %s, p50 %s, p99 %s, p999 %s, errors %d -> %d%n", entry.getKey(),
+					change(before.path("throughput"), after.path("throughput")),
+					change(before.path("latency").path("p50"), after.path("latency").path("p50")),
+					change(before.path("latency").path("p99"), after.path("latency").path("p99")),
+					change(before.path("latency").path("p999"), after.path("latency").path("p999")),
+					before.path("errors").asLong(), after.path("errors").asLong()));
+		});
+		return comparison.toString();
+	}
+
+	private static String change(JsonNode before, JsonNode after) {
+		double from = before.asDouble();
+		double to = after.asDouble();
+		if (from == 0) return from + " -> " + to;
+		return String.format("%s -> %s (%+.1f%%)", before.asText(), after.asText(), (to - from) * 100 / from);
+	}
+}
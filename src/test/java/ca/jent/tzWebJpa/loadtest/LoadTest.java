@@ -0,0 +1,275 @@
+package ca.jent.tzWebJpa.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.jent.tzWebJpa.metrics.LatencyHistogram;
+
+/**
+ * Load generator for a running instance (e.g. started with mvn spring-boot:run), run with the test classpath:
+ *   java -cp target/classes:target/test-classes:<dependencies> ca.jent.tzWebJpa.loadtest.LoadTest \
+ *        --rate=500 --duration=60 --concurrency=32 --mix=id:90,all:1,create:9 --report=target/load-report.json
+ * Open loop: request i is due at start + i/rate whatever the responses, so a stalled server delays the requests
+ * due meanwhile and their latency counts the wait (no coordinated omission).  The latency of a request is
+ * measured from the time it was due; its service time from the time it was sent.  concurrency is the
+ * number of requests in flight at most: a rate it cannot sustain shows as latency.
+ * The endpoint of each request is drawn from the mix (weights) with a fixed seed so runs send the same
+ * sequence; /temporal/{id} gets one of the IDs of the first ids Temporal (GET /temporal/all?limit=).
+ * Requests due during the first warmup seconds are sent but not recorded.
+ * The report (JSON, @see LoadReport) has, per endpoint, the throughput, errors (status 400 and more, I/O)
+ * and histograms of the latency and service time of the successful requests in microseconds.  Given
+ * --baseline=report.json (of a previous build), the differences with it are printed.
+ * @author jraymond
+ *
+ */
+public class LoadTest {
+
+	enum Endpoint {
+		ID, ALL, CREATE;
+
+		String path(long id) {
+			switch (this) {
+			case ID: return "/temporal/" + id;
+			case ALL: return "/temporal/all";
+			default: return "/temporal/create";
+			}
+		}
+
+		String key() {
+			return name().toLowerCase();
+		}
+	}
+
+	static class Settings {
+		String url = "http://localhost:8080";
+		int rate = 100;
+		int duration = 30;
+		int warmup = 5;
+		int concurrency = 16;
+		Map<Endpoint, Integer> mix = parseMix("id:90,all:1,create:9");
+		int ids = 1000;
+		long seed = 1;
+		Path report = Paths.get("load-report.json");
+		Path baseline;
+
+		static Settings parse(String[] args) {
+			Settings settings = new Settings();
+			for (String arg : args) {
+				int equals = arg.indexOf('=');
+				if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --name=value: " + arg);
+				String name = arg.substring(2, equals);
+				String value = arg.substring(equals + 1);
+				switch (name) {
+				case "url": settings.url = value; break;
+				case "rate": settings.rate = Integer.parseInt(value); break;
+				case "duration": settings.duration = Integer.parseInt(value); break;
+				case "warmup": settings.warmup = Integer.parseInt(value); break;
+				case "concurrency": settings.concurrency = Integer.parseInt(value); break;
+				case "mix": settings.mix = parseMix(value); break;
+				case "ids": settings.ids = Integer.parseInt(value); break;
+				case "seed": settings.seed = Long.parseLong(value); break;
+				case "report": settings.report = Paths.get(value); break;
+				case "baseline": settings.baseline = Paths.get(value); break;
+				default: throw new IllegalArgumentException("Unknown option: " + name);
+				}
+			}
+			if (settings.rate < 1) throw new IllegalArgumentException("rate must be greater than zero.");
+			if (settings.concurrency < 1) throw new IllegalArgumentException("concurrency must be greater than zero.");
+			if (settings.duration < 1 || settings.warmup < 0) throw new IllegalArgumentException("duration must be greater than zero and warmup cannot be negative.");
+			return settings;
+		}
+
+		/**
+		 * @param mix e.g. "id:90,all:1,create:9"
+		 */
+		static Map<Endpoint, Integer> parseMix(String mix) {
+			Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+			for (String entry : mix.split(",")) {
+				String[] pair = entry.trim().split(":");
+				if (pair.length != 2) throw new IllegalArgumentException("Expected endpoint:weight: " + entry);
+				int weight = Integer.parseInt(pair[1].trim());
+				if (weight < 0) throw new IllegalArgumentException("weight cannot be negative: " + entry);
+				if (weight > 0) weights.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), weight);
+			}
+			if (weights.isEmpty()) throw new IllegalArgumentException("mix has no endpoint: " + mix);
+			return weights;
+		}
+	}
+
+	/**
+	 * Per endpoint counters of the recorded requests
+	 */
+	static class Stats {
+		final LatencyHistogram latency;
+		final LatencyHistogram serviceTime;
+		final LongAdder errors = new LongAdder();
+
+		Stats(Endpoint endpoint) {
+			this.latency = new LatencyHistogram(endpoint.key() + ".latency");
+			this.serviceTime = new LatencyHistogram(endpoint.key() + ".serviceTime");
+		}
+	}
+
+	private final Settings settings;
+	private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+	private final AtomicLong next = new AtomicLong();
+	private final LongAdder lateStarts = new LongAdder();
+
+	LoadTest(Settings settings) {
+		this.settings = settings;
+		settings.mix.keySet().forEach(endpoint -> stats.put(endpoint, new Stats(endpoint)));
+	}
+
+	public static void main(String[] args) throws Exception {
+		Settings settings = Settings.parse(args);
+		// the JDK keeps at most 5 idle keep-alive connections per server by default (read once, before the first request)
+		System.setProperty("http.maxConnections", String.valueOf(settings.concurrency));
+		LoadReport report = new LoadTest(settings).run();
+		report.write(settings.report);
+		System.out.println(report.summary());
+		System.out.println("Report: " + settings.report.toAbsolutePath());
+		if (settings.baseline != null) {
+			System.out.println(report.compare(LoadReport.read(settings.baseline)));
+		}
+	}
+
+	LoadReport run() throws Exception {
+		long[] ids = ids();
+		Endpoint[] schedule = schedule();
+
+		long periodNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate;
+		long total = (long) settings.rate * (settings.warmup + settings.duration);
+		long recordedFrom = (long) settings.rate * settings.warmup;
+		ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency);
+		long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < settings.concurrency; w++) {
+				futures.add(workers.submit(() -> {
+					for (long i = next.getAndIncrement(); i < total; i = next.getAndIncrement()) {
+						long due = start + i * periodNanos;
+						long wait = due - System.nanoTime();
+						if (wait > 0) {
+							LockSupport.parkNanos(wait);
+							while (System.nanoTime() < due) Thread.yield();
+						} else if (i >= recordedFrom && -wait > periodNanos) {
+							lateStarts.increment();
+						}
+						Endpoint endpoint = schedule[(int) (i % schedule.length)];
+						long id = ids[(int) (i % ids.length)];
+						long sent = System.nanoTime();
+						boolean ok = send(endpoint, id);
+						long done = System.nanoTime();
+						if (i < recordedFrom) continue;
+						Stats endpointStats = stats.get(endpoint);
+						if (ok) {
+							endpointStats.latency.record(done - due);
+							endpointStats.serviceTime.record(done - sent);
+						} else {
+							endpointStats.errors.increment();
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) future.get();
+		} finally {
+			workers.shutdownNow();
+		}
+		long elapsedNanos = System.nanoTime() - (start + recordedFrom * periodNanos);
+
+		Map<String, LoadReport.EndpointReport> endpoints = new LinkedHashMap<>();
+		stats.forEach((endpoint, endpointStats) -> endpoints.put(endpoint.key(), new LoadReport.EndpointReport(
+				endpointStats.latency.snapshot(), endpointStats.serviceTime.snapshot(), endpointStats.errors.sum(), elapsedNanos)));
+		Map<String, Integer> mix = new LinkedHashMap<>();
+		settings.mix.forEach((endpoint, weight) -> mix.put(endpoint.key(), weight));
+		return new LoadReport(settings.url, settings.rate, settings.duration, settings.warmup, settings.concurrency, mix,
+				settings.seed, lateStarts.sum(), endpoints);
+	}
+
+	/**
+	 * The endpoints of 10000 consecutive requests drawn from the mix; the schedule is repeated.
+	 */
+	private Endpoint[] schedule() {
+		Random random = new Random(settings.seed);
+		int sum = settings.mix.values().stream().mapToInt(Integer::intValue).sum();
+		Endpoint[] schedule = new Endpoint[10_000];
+		for (int i = 0; i < schedule.length; i++) {
+			int draw = random.nextInt(sum);
+			for (Map.Entry<Endpoint, Integer> entry : settings.mix.entrySet()) {
+				draw -= entry.getValue();
+				if (draw < 0) {
+					schedule[i] = entry.getKey();
+					break;
+				}
+			}
+		}
+		return schedule;
+	}
+
+	/**
+	 * The IDs for /temporal/{id} in a random (seeded) order
+	 */
+	private long[] ids() throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(settings.url + "/temporal/all?limit=" + settings.ids).openConnection();
+		JsonNode temporals;
+		try (InputStream in = connection.getInputStream()) {
+			temporals = new ObjectMapper().readTree(in);
+		}
+		if (temporals.size() == 0) throw new IllegalStateException("No Temporal at " + settings.url);
+		long[] ids = new long[temporals.size()];
+		for (int i = 0; i < ids.length; i++) ids[i] = temporals.get(i).get("id").asLong();
+		Random random = new Random(settings.seed);
+		for (int i = ids.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			long id = ids[i];
+			ids[i] = ids[j];
+			ids[j] = id;
+		}
+		return ids;
+	}
+
+	/**
+	 * @return false if the response is an error (status 400 and more) or the request failed
+	 */
+	private boolean send(Endpoint endpoint, long id) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(settings.url + endpoint.path(id)).openConnection();
+			connection.setConnectTimeout(10_000);
+			connection.setReadTimeout(60_000);
+			int status = connection.getResponseCode();
+			// read the whole body so that the connection is kept alive
+			try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if (in != null) {
+					byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0) {
+						// discard
+					}
+				}
+			}
+			return status < 400;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package ca.jent.tzWebJpa.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * LoadTest against a stub server whose /temporal/{id} stalls once for 300 ms.
+ */
+public class LoadTestTests {
+
+	private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+	private HttpServer server;
+	private final AtomicInteger lookups = new AtomicInteger();
+	private String nodelay;
+
+	@Before
+	public void start() throws IOException {
+		// otherwise Nagle's algorithm and delayed ACKs add 40 ms to every response
+		nodelay = System.setProperty(NODELAY, "true");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/temporal/", exchange -> {
+			String path = exchange.getRequestURI().getPath();
+			if (exchange.getRequestURI().getQuery() != null) {
+				respond(exchange, 200, "[{\"id\":1000},{\"id\":1001}]");
+			} else if (path.equals("/temporal/create")) {
+				respond(exchange, 503, "Too many requests in progress, try again later.");
+			} else {
+				if (lookups.incrementAndGet() == 100) sleep(300);
+				respond(exchange, 200, "{\"id\":" + path.substring("/temporal/".length()) + "}");
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stop() {
+		server.stop(0);
+		if (nodelay == null) System.clearProperty(NODELAY); else System.setProperty(NODELAY, nodelay);
+	}
+
+	/**
+	 * With one request in flight, the requests due while the server stalls wait for it: their latency
+	 * (from the time they were due) shows the stall, their service time does not.
+	 * Only lower bounds of the latency are checked (a slow machine adds to it).
+	 */
+	@Test
+	public void openLoop() throws Exception {
+		LoadTest.Settings settings = LoadTest.Settings.parse(new String[] {
+				"--url=http://localhost:" + server.getAddress().getPort(), "--rate=200", "--duration=2", "--warmup=0",
+				"--concurrency=1", "--mix=id:4,create:1"});
+		LoadReport report = new LoadTest(settings).run();
+
+		LoadReport.EndpointReport id = report.getEndpoints().get("id");
+		LoadReport.EndpointReport create = report.getEndpoints().get("create");
+		assertEquals(400, id.getRequests() + create.getRequests());
+		assertEquals(0, id.getErrors());
+		assertEquals(create.getRequests(), create.getErrors());
+		assertTrue(id.getLatency().getMax() >= 250_000);
+		// about 60 requests were due during the stall
+		assertTrue(id.getLatency().getP99() >= 100_000);
+		assertTrue(id.getServiceTime().getP50() < id.getLatency().getP99());
+
+		JsonNode json = report.toJson();
+		assertEquals(id.getLatency().getP99(), json.path("endpoints").path("id").path("latency").path("p99").asLong());
+		assertTrue(report.compare(json).contains("(+0.0%)"));
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package ca.jent.tzWebJpa.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTests {
+	
+	/**
+	 * Every value falls in the bucket that bounds it.
+	 */
+	@Test
+	public void bucketsBoundTheirValues() {
+		for (long nanos = 0; nanos < 1_000_000; nanos += 7) {
+			verifyBucket(nanos);
+		}
+		verifyBucket(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * 1..100_000 µs uniformly: percentiles within the 6% error of the buckets.
+	 */
+	@Test
+	public void percentilesOfUniformDistribution() {
+		LatencyHistogram histogram = new LatencyHistogram("test");
+		for (long micros = 1; micros <= 100_000; micros++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+		LatencySnapshot snapshot = histogram.snapshot();
+		assertEquals(100_000, snapshot.getCount());
+		assertEquals(100_000, snapshot.getMax());
+		assertEquals(50_000, snapshot.getMean());
+		assertWithin(50_000, snapshot.getP50());
+		assertWithin(99_000, snapshot.getP99());
+		assertWithin(99_900, snapshot.getP999());
+	}
+	
+	@Test
+	public void emptyHistogram() {
+		LatencySnapshot snapshot = new LatencyHistogram("test").snapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getP99());
+	}
+	
+	private static void verifyBucket(long nanos) {
+		int index = LatencyHistogram.indexOf(nanos);
+		assertTrue(nanos + " above its bucket", nanos <= LatencyHistogram.upperBoundOf(index));
+		assertTrue(nanos + " below its bucket", index == 0 || nanos > LatencyHistogram.upperBoundOf(index - 1));
+	}
+	
+	private static void assertWithin(long expected, long actual) {
+		assertTrue(actual + " is not within 6% of " + expected, Math.abs(actual - expected) <= expected * 0.0625);
+	}
+	
+}
@@ -0,0 +1,59 @@
+package ca.jent.tzWebJpa.replica;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongLongMapTests {
+
+	/**
+	 * Random puts, adds and removes (keys colliding often) give the same entries as a HashMap
+	 */
+	@Test
+	public void sameAsHashMap() {
+		Random random = new Random(7);
+		LongLongMap map = new LongLongMap(4);
+		Map<Long, Long> expected = new HashMap<>();
+		for (int i = 0; i < 200_000; i++) {
+			long key = random.nextInt(2_000) * 1024L - 1_000_000L;
+			switch (random.nextInt(3)) {
+			case 0:
+				map.put(key, i);
+				expected.put(key, (long) i);
+				break;
+			case 1:
+				map.add(key, 3);
+				expected.merge(key, 3L, Long::sum);
+				break;
+			default:
+				assertEquals((long) expected.getOrDefault(key, -1L), map.remove(key, -1));
+				expected.remove(key);
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		expected.forEach((key, value) -> assertEquals((long) value, map.get(key, -1)));
+		map.forEach((key, value) -> assertEquals(expected.get(key).longValue(), value));
+		assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), map.sortedKeys());
+	}
+
+	@Test
+	public void merge() {
+		LongLongMap a = new LongLongMap();
+		LongLongMap b = new LongLongMap();
+		a.add(1, 2);
+		a.min(5, 10);
+		b.add(1, 3);
+		b.add(2, 1);
+		b.min(5, -4);
+		a.addAll(b);
+		assertEquals(5, a.get(1, 0));
+		assertEquals(1, a.get(2, 0));
+		a.minAll(b);
+		assertEquals(-4, a.get(5, 0));
+	}
+}
@@ -0,0 +1,150 @@
+package ca.jent.tzWebJpa.replica;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.projections.TemporalView;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+public class TemporalColumnStoreTests {
+
+	private static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+	private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The parallel scans (chunks of 16 rows) match a sequential count of the Temporal, after updates and removals
+	 */
+	@Test
+	public void scans() {
+		TemporalColumnStore store = new TemporalColumnStore(pool, 16, 4, new ZoneDictionary());
+		Random random = new Random(3);
+		List<Temporal> temporals = new ArrayList<>();
+		for (long id = 1; id <= 2_000; id++) {
+			Temporal temporal = newTemporal(Instant.ofEpochSecond(1_500_000_000L + random.nextInt(100_000_000)), random.nextBoolean() ? EDMONTON : TOKYO);
+			temporal.setId(id);
+			temporals.add(temporal);
+		}
+		// one without instant nor zone
+		Temporal empty = new Temporal();
+		empty.setId(2_001L);
+		temporals.add(empty);
+		store.putAll(temporals);
+		// updates and removals
+		for (int i = 0; i < 300; i++) {
+			Temporal temporal = temporals.get(random.nextInt(temporals.size() - 1));
+			temporal.setZoneId(TOKYO);
+			store.putAll(Collections.singletonList(temporal));
+		}
+		Set<Long> removed = new HashSet<>();
+		for (int i = 0; i < 300; i++) {
+			long id = 1 + random.nextInt(2_000);
+			assertEquals(removed.add(id), store.remove(id));
+		}
+		List<Temporal> remaining = temporals.stream().filter(temporal -> !removed.contains(temporal.getId())).collect(Collectors.toList());
+		assertEquals(remaining.size(), store.size());
+		assertEquals(remaining.size(), store.count(ReplicaFilter.ALL));
+
+		Instant from = Instant.ofEpochSecond(1_520_000_000L);
+		Instant to = Instant.ofEpochSecond(1_560_000_000L);
+		assertEquals(remaining.stream().filter(temporal -> temporal.getInstant() != null && !temporal.getInstant().isBefore(from)
+				&& temporal.getInstant().isBefore(to) && TOKYO.equals(temporal.getZoneId())).count(),
+				store.count(new ReplicaFilter(from, to, TOKYO)));
+		LocalDate fromDate = LocalDate.of(2018, 1, 1);
+		LocalDate toDate = LocalDate.of(2018, 12, 31);
+		assertEquals(remaining.stream().filter(temporal -> temporal.getLocalDate() != null && !temporal.getLocalDate().isBefore(fromDate)
+				&& !temporal.getLocalDate().isAfter(toDate)).count(),
+				store.count(new ReplicaFilter(null, null, null, fromDate, toDate)));
+
+		// the IDs of the rows kept by a scan
+		Set<Long> ids = store.aggregate(new ReplicaFilter(null, null, EDMONTON), HashSet::new,
+				(result, rows, row) -> result.add(rows.id(row)), (a, b) -> {
+					a.addAll(b);
+					return a;
+				});
+		assertEquals(remaining.stream().filter(temporal -> EDMONTON.equals(temporal.getZoneId())).map(Temporal::getId).collect(Collectors.toSet()), ids);
+
+		int removedFrom = store.removeIf(new ReplicaFilter(from, null, null));
+		assertEquals(remaining.stream().filter(temporal -> temporal.getInstant() != null && !temporal.getInstant().isBefore(from)).count(), removedFrom);
+		assertEquals(0, store.count(new ReplicaFilter(from, null, null)));
+		assertEquals(remaining.size() - removedFrom, store.count(ReplicaFilter.ALL));
+	}
+
+	/**
+	 * Changes applied out of order: a lower version does not replace its row, an unknown version always does
+	 */
+	@Test
+	public void versions() {
+		TemporalColumnStore store = new TemporalColumnStore(pool, 16, 4, new ZoneDictionary());
+		Temporal second = newTemporal(Instant.parse("2017-03-12T10:00:00Z"), TOKYO);
+		second.setId(7L);
+		second.setVersion(2L);
+		Temporal first = newTemporal(Instant.parse("2017-03-12T09:00:00Z"), EDMONTON);
+		first.setId(7L);
+		first.setVersion(1L);
+		assertEquals(0, store.putAll(Collections.singletonList(second)));
+		assertEquals(1, store.putAll(Collections.singletonList(first)));
+		assertEquals(2, store.version(7L));
+		assertEquals(1, store.count(new ReplicaFilter(null, null, TOKYO)));
+
+		first.setVersion(null);
+		assertEquals(0, store.putAll(Collections.singletonList(first)));
+		assertEquals(TemporalColumnStore.NULL_VERSION, store.version(7L));
+		assertTrue(store.put(new TemporalView(7L, null, null, second.getInstant(), TOKYO, null, 2L)));
+		assertEquals(1, store.count(new ReplicaFilter(null, null, TOKYO)));
+		assertEquals(TemporalColumnStore.NULL_VERSION, store.version(8L));
+	}
+
+	@Test
+	public void view() {
+		TemporalColumnStore store = new TemporalColumnStore(pool, 16, 4, new ZoneDictionary());
+		Temporal temporal = newTemporal(Instant.parse("2017-03-12T09:00:00.123456Z"), EDMONTON);
+		temporal.setId(42L);
+		Temporal empty = new Temporal();
+		empty.setId(43L);
+		store.putAll(Arrays.asList(temporal, empty));
+		List<TemporalView> views = store.aggregate(ReplicaFilter.ALL, ArrayList::new, (result, rows, row) -> result.add(rows.view(row)), (a, b) -> {
+			a.addAll(b);
+			return a;
+		});
+		assertEquals(2, views.size());
+		TemporalView view = views.get(0);
+		assertEquals(temporal.getInstant(), view.getInstant());
+		assertEquals(temporal.getLocalDate(), view.getLocalDate());
+		assertEquals(temporal.getLocalTime(), view.getLocalTime());
+		assertEquals(EDMONTON, view.getZoneId());
+		assertEquals(ZoneOffset.ofHours(-6), view.getZoneOffset());
+		assertNull(views.get(1).getInstant());
+		assertNull(views.get(1).getZoneId());
+		assertTrue(store.remove(42L));
+		assertFalse(store.remove(42L));
+		assertEquals(Long.valueOf(43), store.aggregate(ReplicaFilter.ALL, ArrayList<TemporalView>::new, (result, rows, row) -> result.add(rows.view(row)), (a, b) -> a).get(0).getId());
+	}
+}
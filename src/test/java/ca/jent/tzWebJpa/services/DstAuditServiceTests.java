@@ -0,0 +1,109 @@
+package ca.jent.tzWebJpa.services;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import ca.jent.tzWebJpa.audit.AuditReport;
+import ca.jent.tzWebJpa.audit.DstChecker;
+import ca.jent.tzWebJpa.audit.DstFinding;
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.audit.partition-ids=100", "temporal.audit.parallelism=2",
+		"temporal.audit.max-rows-per-second=0", "temporal.audit.directory=target/audit-tests", "temporal.datasource.name=h2test-audit"})
+@DirtiesContext
+public class DstAuditServiceTests {
+
+	@Autowired
+	private DstAuditService auditService;
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Every Temporal is audited once, also when the audit resumes after losing a partition.
+	 */
+	@Test
+	public void auditAndResume() throws Exception {
+		ZoneId zoneId = ZoneId.of("America/Edmonton");
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Instant instant = Instant.parse("2017-11-05T06:00:00Z").plusSeconds(60L * i);
+			Temporal temporal = newTemporal(instant, zoneId);
+			if (i % 10 == 0) {
+				// every 10th one an hour off (stale tzdata)
+				ZoneOffset zoneOffset = ZoneOffset.ofTotalSeconds(temporal.getZoneOffset().getTotalSeconds() + 3600);
+				temporal.setZoneOffset(zoneOffset);
+				LocalDateTime local = LocalDateTime.ofInstant(instant, zoneOffset);
+				temporal.setLocalDate(local.toLocalDate());
+				temporal.setLocalTime(local.toLocalTime());
+			}
+			temporals.add(temporal);
+		}
+		temporalService.saveAll(temporals);
+
+		Map<DstFinding, Long> expected = new EnumMap<>(DstFinding.class);
+		for (DstFinding finding : DstFinding.values()) {
+			expected.put(finding, 0L);
+		}
+		long[] rows = new long[1];
+		temporalService.streamTemporals(temporal -> {
+			rows[0]++;
+			DstChecker.check(temporal, (checked, finding, detail) -> expected.merge(finding, 1L, Long::sum));
+		});
+		assertTrue(expected.get(DstFinding.OFFSET_MISMATCH) >= 100);
+		assertTrue(expected.get(DstFinding.OVERLAP) > 0);
+
+		AuditReport report = auditService.audit();
+		assertEquals(AuditReport.Status.COMPLETED, report.getStatus());
+		assertEquals(report.getPartitions(), report.getPartitionsDone());
+		assertEquals(rows[0], report.getRows());
+		assertEquals(expected, report.getFindings());
+		assertTrue(Files.isRegularFile(Paths.get("target/audit-tests/audit-" + report.getAuditId() + ".json")));
+
+		// lose the first partition as if the audit had stopped before it
+		jdbcTemplate.update("update AUDITS set COMPLETED_AT = null where AUDIT_ID = ?", report.getAuditId());
+		jdbcTemplate.update("delete from AUDIT_PARTITIONS where AUDIT_ID = ? and PARTITION_START = ?", report.getAuditId(), report.getMinId());
+		jdbcTemplate.update("delete from AUDIT_FINDINGS where AUDIT_ID = ? and TEMPORAL_ID < ?", report.getAuditId(), report.getMinId() + 100);
+		assertEquals(AuditReport.Status.INCOMPLETE, auditService.getReport().getStatus());
+
+		AuditReport resumed = auditService.audit();
+		assertEquals(report.getAuditId(), resumed.getAuditId());
+		assertEquals(AuditReport.Status.COMPLETED, resumed.getStatus());
+		assertEquals(report.getPartitionsDone(), resumed.getPartitionsDone());
+		assertEquals(rows[0], resumed.getRows());
+		assertEquals(expected, resumed.getFindings());
+		assertEquals(report.getFindingsByZone(), resumed.getFindingsByZone());
+	}
+
+}
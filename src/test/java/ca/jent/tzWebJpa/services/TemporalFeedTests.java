@@ -0,0 +1,208 @@
+package ca.jent.tzWebJpa.services;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.feed.capacity=16", "temporal.feed.catch-up-page=7", "temporal.feed.poll-ms=1",
+		"temporal.datasource.name=h2test-feed"})
+@DirtiesContext
+public class TemporalFeedTests {
+
+	private static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+	private static final Instant START = Instant.ofEpochSecond(1_600_000_000L);
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private TemporalFeed feed;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Resuming from an ID: the Temporal created since are caught up from the database, then the new ones
+	 * come from the ring buffer, including the ones of a batch larger than the ring buffer (overrun).
+	 */
+	@Test
+	public void resumeAndOverrun() throws Exception {
+		long resumeFrom = temporalService.save(newTemporal(START, EDMONTON)).getId();
+		List<Long> expected = new ArrayList<>();
+		for (int i = 1; i <= 10; i++) {
+			expected.add(temporalService.save(newTemporal(START.plusSeconds(i), EDMONTON)).getId());
+		}
+
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Received received = new Received(blocked, release, expected.get(expected.size() - 1));
+		TemporalFeed.Subscription subscription = feed.subscribe(resumeFrom, received);
+		try {
+			// the subscriber is blocked on the last Temporal caught up while 40 more are created (ring of 16)
+			assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			List<Temporal> batch = new ArrayList<>();
+			for (int i = 11; i <= 50; i++) batch.add(newTemporal(START.plusSeconds(i), EDMONTON));
+			expected.addAll(temporalService.saveAll(batch).stream().map(Temporal::getId).collect(Collectors.toList()));
+			release.countDown();
+			// and one more once caught up
+			expected.add(temporalService.save(newTemporal(START.plusSeconds(51), EDMONTON)).getId());
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (!received.ids().containsAll(expected) && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(new LinkedHashSet<>(expected), received.ids());
+			assertTrue(feed.getStats().get("overruns") >= 1);
+		} finally {
+			subscription.cancel();
+		}
+	}
+
+	/**
+	 * A Temporal committed after one of a greater ID was sent is caught up after an overrun: the catch-up
+	 * starts from the low-water mark, not from the greatest ID sent.
+	 */
+	@Test
+	public void lateCommitAfterOverrun() throws Exception {
+		Long maxId = temporalService.getMaxId();
+		CountDownLatch inserted = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		ExecutorService writer = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> late = writer.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+				Long id = temporalService.save(newTemporal(START.plusSeconds(200), EDMONTON)).getId();
+				inserted.countDown();
+				try {
+					commit.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return id;
+			}));
+			assertTrue(inserted.await(10, TimeUnit.SECONDS));
+			Long greater = temporalService.save(newTemporal(START.plusSeconds(201), EDMONTON)).getId();
+
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			Received received = new Received(blocked, release, greater);
+			TemporalFeed.Subscription subscription = feed.subscribe(maxId, received);
+			try {
+				// the subscriber is blocked on the greater ID while the smaller one commits then 40 more are created
+				assertTrue(blocked.await(10, TimeUnit.SECONDS));
+				commit.countDown();
+				Long smaller = late.get(10, TimeUnit.SECONDS);
+				assertTrue(smaller < greater);
+				List<Temporal> batch = new ArrayList<>();
+				for (int i = 202; i < 242; i++) batch.add(newTemporal(START.plusSeconds(i), EDMONTON));
+				List<Long> expected = temporalService.saveAll(batch).stream().map(Temporal::getId).collect(Collectors.toList());
+				expected.add(smaller);
+				release.countDown();
+
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+				while (!received.ids().containsAll(expected) && System.nanoTime() < deadline) {
+					Thread.sleep(10);
+				}
+				assertTrue(received.ids().containsAll(expected));
+			} finally {
+				subscription.cancel();
+			}
+		} finally {
+			commit.countDown();
+			writer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Without an ID, only the Temporal created from now on
+	 */
+	@Test
+	public void fromNow() throws Exception {
+		temporalService.save(newTemporal(START.plusSeconds(100), EDMONTON));
+		Received received = new Received(null, null, null);
+		TemporalFeed.Subscription subscription = feed.subscribe(null, received);
+		try {
+			Long id = temporalService.save(newTemporal(START.plusSeconds(101), EDMONTON)).getId();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (received.ids().isEmpty() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+			assertEquals(new LinkedHashSet<>(Collections.singletonList(id)), received.ids());
+		} finally {
+			subscription.cancel();
+		}
+	}
+
+	private static class Received implements TemporalFeed.Subscriber {
+
+		private final Set<Long> ids = new LinkedHashSet<>();
+		private final CountDownLatch blocked;
+		private final CountDownLatch release;
+		private final Long blockAt;
+
+		Received(CountDownLatch blocked, CountDownLatch release, Long blockAt) {
+			this.blocked = blocked;
+			this.release = release;
+			this.blockAt = blockAt;
+		}
+
+		@Override
+		public void send(Temporal temporal, long resumeId) throws IOException {
+			synchronized (ids) {
+				ids.add(temporal.getId());
+			}
+			if (temporal.getId().equals(blockAt) && blocked.getCount() > 0) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+		}
+
+		@Override
+		public void heartbeat() {
+		}
+
+		Set<Long> ids() {
+			synchronized (ids) {
+				return new LinkedHashSet<>(ids);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package ca.jent.tzWebJpa.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.importer.ImportJob;
+import ca.jent.tzWebJpa.utils.ZoneDictionary;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties="temporal.datasource.name=h2test-import")
+@DirtiesContext
+public class TemporalImportServiceTests {
+
+	private static final int ROWS = 2000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private ZoneDictionary zoneDictionary;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TemporalImportService importService;
+
+	@Before
+	public void writeFiles() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		importService = new TemporalImportService(temporalService, zoneDictionary, jdbcTemplate, transactionManager, directory.toString(), 10000, 2, 100);
+		ZoneId zoneId = ZoneId.of("America/Edmonton");
+		try (BufferedWriter good = Files.newBufferedWriter(directory.resolve("good.csv"), StandardCharsets.UTF_8);
+			 BufferedWriter bad = Files.newBufferedWriter(directory.resolve("bad.csv"), StandardCharsets.UTF_8)) {
+			good.write("localDate,localTime,instant,zoneId,zoneOffset\n");
+			for (int i = 0; i < ROWS; i++) {
+				Instant instant = Instant.parse("2017-03-11T00:00:00Z").plusSeconds(60L * i);
+				LocalDateTime local = LocalDateTime.ofInstant(instant, zoneId);
+				String line = local.toLocalDate() + "," + local.toLocalTime() + "," + instant + "," + zoneId + "," + zoneId.getRules().getOffset(instant) + "\n";
+				good.write(line);
+				bad.write(i == ROWS / 2 ? line.replace("America", "Amerika") : line);
+			}
+		}
+	}
+
+	/**
+	 * A file imported again is entirely resumed (nothing imported twice).
+	 */
+	@Test
+	public void importAndResume() throws Exception {
+		int before = count();
+		ImportJob job = importService.importFile("good.csv");
+		assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+		assertEquals(ROWS, job.getRows());
+		assertEquals(job.getSplits(), job.getSplitsDone());
+		assertEquals(before + ROWS, count());
+
+		ImportJob again = importService.importFile("good.csv");
+		assertEquals(ImportJob.Status.COMPLETED, again.getStatus());
+		assertEquals(job.getSplits(), again.getSplitsResumed());
+		assertEquals(0, again.getRows());
+		assertEquals(before + ROWS, count());
+	}
+
+	/**
+	 * The split holding an invalid line is rolled back, the other splits are imported.
+	 */
+	@Test
+	public void invalidLine() throws Exception {
+		int before = count();
+		ImportJob job = importService.importFile("bad.csv");
+		assertEquals(ImportJob.Status.FAILED, job.getStatus());
+		assertEquals(1, job.getSplitsFailed());
+		assertEquals(job.getSplits() - 1, job.getSplitsDone());
+		assertEquals(before + job.getRows(), count());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void outsideOfTheImportDirectory() throws Exception {
+		importService.importFile("../../pom.xml");
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForObject("select count(*) from TEMPORALS", Integer.class);
+	}
+
+}
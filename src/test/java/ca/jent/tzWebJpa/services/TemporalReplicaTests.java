@@ -0,0 +1,95 @@
+package ca.jent.tzWebJpa.services;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.replica.ReplicaFilter;
+import ca.jent.tzWebJpa.repositories.TemporalRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.replica.enabled=true", "temporal.replica.chunk-rows=32", "temporal.replica.parallelism=4",
+		"temporal.datasource.name=h2test-replica"})
+@DirtiesContext
+public class TemporalReplicaTests {
+
+	private static final List<ZoneId> ZONES = Arrays.asList(ZoneId.of("America/Edmonton"), ZoneId.of("Asia/Tokyo"), 
+			ZoneId.of("Europe/Paris"), ZoneId.of("America/St_Johns"));
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private TemporalReplica replica;
+
+	@Autowired
+	private TemporalRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * After inserts, updates, deletes and a rollback, the counts of the replica are the ones of the database
+	 */
+	@Test
+	public void sameCountsAsTheDatabase() {
+		assertTrue(replica.isLoaded());
+		Random random = new Random(11);
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			temporals.add(newTemporal(Instant.ofEpochSecond(1_480_000_000L + random.nextInt(80_000_000)), ZONES.get(random.nextInt(ZONES.size()))));
+		}
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		for (int i = 0; i < 20; i++) {
+			Temporal temporal = temporalService.getTemporal(saved.get(i).getId());
+			temporal.setZoneId(ZONES.get(0));
+			temporalService.save(temporal);
+		}
+		for (int i = 20; i < 60; i++) {
+			temporalService.delete(saved.get(i).getId());
+		}
+		temporalService.save(newTemporal(Instant.parse("2017-03-12T09:30:00Z"), ZONES.get(1)));
+		new TransactionTemplate(transactionManager).execute(status -> {
+			temporalService.save(newTemporal(Instant.parse("2017-03-12T09:30:00Z"), ZONES.get(1)));
+			temporalService.delete(saved.get(60).getId());
+			status.setRollbackOnly();
+			return null;
+		});
+
+		assertEquals(repository.count(), replica.count(ReplicaFilter.ALL));
+		Instant from = Instant.parse("2017-01-01T00:00:00Z");
+		Instant to = Instant.parse("2018-01-01T00:00:00Z");
+		for (ZoneId zoneId : Arrays.asList(null, ZONES.get(1))) {
+			assertEquals(repository.countByLocalDateAndZoneId(from, to, zoneId).toString(), temporalService.countByLocalDate(from, to, zoneId).toString());
+			assertEquals(repository.countByZoneIdAndZoneOffset(from, to, zoneId).toString(), temporalService.countByZoneOffset(from, to, zoneId).toString());
+			assertEquals(repository.countByHour(from, to, zoneId).toString(), temporalService.countByHour(from, to, zoneId).toString());
+		}
+		assertEquals(repository.countByLocalDateAndZoneId(Instant.parse("0001-01-01T00:00:00Z"), Instant.parse("9999-12-31T23:59:59Z"), null).toString(),
+				temporalService.countByLocalDate(null, null, null).toString());
+		assertTrue(replica.getStats().get("scans") > 0);
+	}
+}
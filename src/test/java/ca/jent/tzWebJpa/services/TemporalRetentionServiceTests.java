@@ -0,0 +1,111 @@
+package ca.jent.tzWebJpa.services;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+import ca.jent.tzWebJpa.replica.ReplicaFilter;
+import ca.jent.tzWebJpa.repositories.TemporalRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.retention.chunk-ids=7", "temporal.retention.max-rows-per-second=0",
+		"temporal.replica.enabled=true", "temporal.datasource.name=h2test-retention"})
+@DirtiesContext
+public class TemporalRetentionServiceTests {
+
+	private static final ZoneId EDMONTON = ZoneId.of("America/Edmonton");
+
+	@Autowired
+	private TemporalRetentionService retentionService;
+
+	@Autowired
+	private TemporalService temporalService;
+
+	@Autowired
+	private TemporalReplica replica;
+
+	@Autowired
+	private TemporalRepository repository;
+
+	/**
+	 * The purge deletes the Temporal older than its horizon chunk by chunk, and only them; the cache
+	 * and the replica no longer have them.
+	 */
+	@Test
+	public void purge() {
+		List<Temporal> temporals = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			// old and recent ones interleaved
+			temporals.add(newTemporal(Instant.parse(i % 3 == 0 ? "1901-06-01T00:00:00Z" : "2030-06-01T00:00:00Z").plusSeconds(i), EDMONTON));
+		}
+		temporals.add(newTemporal(null, EDMONTON));
+		List<Temporal> saved = temporalService.saveAll(temporals);
+		Long oldId = saved.get(0).getId();
+		assertNotNull(temporalService.getTemporal(oldId));
+		long before = repository.count();
+		long chunks = retentionService.getStats().get("chunks");
+
+		assertEquals(34, retentionService.purge(Instant.parse("1902-01-01T00:00:00Z")));
+		assertEquals(before - 34, repository.count());
+		assertNull(temporalService.getTemporal(oldId));
+		assertNotNull(temporalService.getTemporal(saved.get(1).getId()));
+		assertNotNull(temporalService.getTemporal(saved.get(100).getId()));
+		assertEquals(repository.count(), replica.count(ReplicaFilter.ALL));
+		// the IDs of the 100 Temporal in chunks of 7
+		assertTrue(retentionService.getStats().get("chunks") - chunks >= 14);
+		assertEquals(Long.valueOf(34), retentionService.getStats().get("lastPurgeDeleted"));
+		assertEquals(0, retentionService.purge(Instant.parse("1902-01-01T00:00:00Z")));
+	}
+
+	@Test
+	public void bulkDeletes() {
+		List<Temporal> saved = temporalService.saveAll(Arrays.asList(newTemporal(Instant.parse("2030-01-01T00:00:00Z"), EDMONTON),
+				newTemporal(Instant.parse("2030-01-02T00:00:00Z"), EDMONTON), newTemporal(Instant.parse("2030-01-03T00:00:00Z"), EDMONTON),
+				newTemporal(Instant.parse("2030-01-04T00:00:00Z"), EDMONTON), newTemporal(Instant.parse("2030-01-05T00:00:00Z"), EDMONTON)));
+		List<Long> ids = saved.stream().map(Temporal::getId).collect(Collectors.toList());
+		long before = repository.count();
+
+		assertEquals(2, retentionService.deleteByIdRange(ids.get(0), ids.get(2)));
+		assertEquals(2, retentionService.deleteByIds(Arrays.asList(ids.get(1), ids.get(2), ids.get(3), -1L)));
+		assertEquals(before - 4, repository.count());
+		assertEquals(repository.count(), replica.count(ReplicaFilter.ALL));
+
+		temporalService.delete(ids.get(4));
+		try {
+			temporalService.delete(ids.get(4));
+			fail("deleting a missing Temporal must fail");
+		} catch (EmptyResultDataAccessException e) {
+			// expected
+		}
+		// only the IDs that exist are cut into chunks
+		long chunks = retentionService.getStats().get("chunks");
+		assertEquals(0, retentionService.deleteByIdRange(Long.MAX_VALUE - 10, Long.MAX_VALUE));
+		assertEquals(chunks, (long) retentionService.getStats().get("chunks"));
+	}
+}
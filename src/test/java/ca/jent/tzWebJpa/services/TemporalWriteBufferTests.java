@@ -0,0 +1,116 @@
+package ca.jent.tzWebJpa.services;
+
+import static ca.jent.tzWebJpa.Temporals.newTemporal;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import ca.jent.tzWebJpa.configuration.DataStoreJpaConfiguration;
+import ca.jent.tzWebJpa.entities.Temporal;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("embedded")
+@ContextConfiguration(classes=DataStoreJpaConfiguration.class)
+@TestPropertySource(properties={"temporal.write-behind.enabled=true", "temporal.write-behind.batch-size=100",
+		"temporal.write-behind.max-delay-ms=1000", "temporal.datasource.name=h2test-write-behind"})
+@DirtiesContext
+public class TemporalWriteBufferTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Autowired
+	private TemporalWriteBuffer writeBuffer;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Full batches are written as they fill up; close() writes the last partial batch
+	 * without waiting for max-delay-ms.
+	 */
+	@Test
+	public void closeDrainsTheQueue() throws Exception {
+		int before = count();
+		ZoneId zoneId = ZoneId.of("America/Edmonton");
+		for (int i = 0; i < 1050; i++) {
+			writeBuffer.add(newTemporal(Instant.ofEpochSecond(1_500_000_000L + i), zoneId));
+		}
+		writeBuffer.close();
+
+		assertEquals(before + 1050, count());
+		assertEquals(Long.valueOf(1050), writeBuffer.getStats().get("written"));
+		assertEquals(Long.valueOf(0), writeBuffer.getStats().get("queued"));
+	}
+
+	/**
+	 * A batch failing every attempt is saved one by one: the Temporal that still fail go to the dead-letter file
+	 * in the CSV import format.
+	 */
+	@Test
+	public void deadLetter() throws Exception {
+		Instant bad = Instant.parse("2017-03-12T09:00:00Z");
+		AtomicInteger saveAlls = new AtomicInteger();
+		List<Temporal> saved = new ArrayList<>();
+		TemporalService failing = new TemporalService(10, 60) {
+			@Override
+			public List<Temporal> saveAll(List<Temporal> temporals) {
+				saveAlls.incrementAndGet();
+				temporals.forEach(temporal -> temporal.setId(1L));
+				throw new DataIntegrityViolationException("batch");
+			}
+			@Override
+			public Temporal save(Temporal temporal) {
+				assertNull(temporal.getId());
+				if (bad.equals(temporal.getInstant())) throw new DataIntegrityViolationException("row");
+				saved.add(temporal);
+				return temporal;
+			}
+		};
+		TemporalWriteBuffer buffer = new TemporalWriteBuffer(failing, 10, 10, 10, 100, 2, 1, folder.getRoot().getPath());
+		buffer.start();
+		ZoneId zoneId = ZoneId.of("America/Edmonton");
+		for (Instant instant : Arrays.asList(bad.minusSeconds(1), bad, bad.plusSeconds(1))) {
+			buffer.add(newTemporal(instant, zoneId));
+		}
+		buffer.close();
+
+		assertEquals(3, saveAlls.get());
+		assertEquals(2, saved.size());
+		Map<String, Long> stats = buffer.getStats();
+		assertEquals(Long.valueOf(2), stats.get("written"));
+		assertEquals(Long.valueOf(1), stats.get("failed"));
+		assertEquals(Long.valueOf(1), stats.get("deadLettered"));
+		assertEquals(Long.valueOf(2), stats.get("retries"));
+		assertEquals(Arrays.asList("localDate,localTime,instant,zoneId,zoneOffset", "2017-03-12,03:00,2017-03-12T09:00:00Z,America/Edmonton,-06:00"),
+				Files.readAllLines(buffer.getDeadLetterFile()));
+	}
+
+	private int count() {
+		return jdbcTemplate.queryForObject("select count(*) from TEMPORALS", Integer.class);
+	}
+
+}
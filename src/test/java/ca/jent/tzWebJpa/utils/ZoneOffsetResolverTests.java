@@ -0,0 +1,88 @@
+package ca.jent.tzWebJpa.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * ZoneOffsetResolver must agree with ZoneRules.getOffset.
+ */
+public class ZoneOffsetResolverTests {
+	
+	private static final String[] ZONES = {"America/Edmonton", "Europe/Paris", "Australia/Lord_Howe", 
+			"America/Sao_Paulo", "Asia/Kolkata", "UTC", "Pacific/Apia", "America/St_Johns"};
+	
+	@Test
+	public void yearOfEpochSecond() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			long epochSecond = random.nextLong() % 20_000_000_000L;
+			assertEquals(epochSecond + "", LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC).getYear(), ZoneOffsetResolver.yearOf(epochSecond));
+		}
+	}
+	
+	@Test
+	public void sameOffsetAsZoneRules() {
+		Random random = new Random(42);
+		for (String zone : ZONES) {
+			ZoneId zoneId = ZoneId.of(zone);
+			for (int i = 0; i < 20_000; i++) {
+				// from 1800 to 2200 (i.e. also outside of the precomputed years)
+				long epochSecond = -5_364_662_400L + (long) (random.nextDouble() * 12_623_000_000L);
+				assertEquals(zone + " " + epochSecond, zoneId.getRules().getOffset(Instant.ofEpochSecond(epochSecond)), 
+						ZoneOffsetResolver.offsetOf(zoneId, epochSecond));
+			}
+		}
+	}
+	
+	/**
+	 * Around the 2017 DST transitions of America/Edmonton (@see ApplicationTests#verifyDaylightSavingTimeTemporal)
+	 */
+	@Test
+	public void daylightSavingTimeBoundaries() {
+		ZoneId edmonton = ZoneId.of("America/Edmonton");
+		long gap = ZonedDateTime.of(2017, 3, 12, 9, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+		long repeat = ZonedDateTime.of(2017, 11, 5, 8, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+		assertEquals(ZoneOffset.ofHours(-7), ZoneOffsetResolver.offsetOf(edmonton, gap - 1));
+		assertEquals(ZoneOffset.ofHours(-6), ZoneOffsetResolver.offsetOf(edmonton, gap));
+		assertEquals(ZoneOffset.ofHours(-6), ZoneOffsetResolver.offsetOf(edmonton, repeat - 1));
+		assertEquals(ZoneOffset.ofHours(-7), ZoneOffsetResolver.offsetOf(edmonton, repeat));
+		
+		long[] instants = {gap - 1, gap, repeat - 1, repeat};
+		long[] local = new long[instants.length];
+		ZoneOffsetResolver.toLocalEpochSeconds(edmonton, instants, local);
+		assertEquals(LocalDateTime.of(2017, 3, 12, 1, 59, 59), LocalDateTime.ofEpochSecond(local[0], 0, ZoneOffset.UTC));
+		assertEquals(LocalDateTime.of(2017, 3, 12, 3, 0, 0), LocalDateTime.ofEpochSecond(local[1], 0, ZoneOffset.UTC));
+		assertEquals(LocalDateTime.of(2017, 11, 5, 1, 59, 59), LocalDateTime.ofEpochSecond(local[2], 0, ZoneOffset.UTC));
+		assertEquals(LocalDateTime.of(2017, 11, 5, 1, 0, 0), LocalDateTime.ofEpochSecond(local[3], 0, ZoneOffset.UTC));
+		assertEquals(LocalDate.of(2017, 3, 12), LocalDate.ofEpochDay(Math.floorDiv(local[1], 86_400L)));
+	}
+	
+	/**
+	 * A java.sql.Date keeps the LocalDate it was made of, even where the legacy TimeZone (local mean time
+	 * of Paris before 1911) and tzdb disagree on the offset
+	 */
+	@Test
+	public void sqlDateToLocalDate() {
+		TimeZone defaultZone = TimeZone.getDefault();
+		try {
+			for (String zone : ZONES) {
+				TimeZone.setDefault(TimeZone.getTimeZone(zone));
+				for (LocalDate date = LocalDate.of(1800, 1, 1); date.getYear() < 2200; date = date.plusDays(5)) {
+					assertEquals(zone, date, DateUtils.asJavaTime_LocalDate(java.sql.Date.valueOf(date)));
+				}
+			}
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+}